@@ -0,0 +1,146 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.config.RequestExecution;
+import ch.heig.bdr.projet.suiviDietetique.security.AppAccessManager;
+import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.security.Sessions;
+import io.javalin.http.Context;
+import io.javalin.http.Cookie;
+import io.javalin.http.Handler;
+import io.javalin.security.RouteRole;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure le contrôle d'accès exécuté avant chaque route : lecture de la session
+ * et vérification du rôle par AppAccessManager.manage.
+ *
+ * Le contexte Javalin est remplacé par un substitut minimal (proxy) qui ne fournit que
+ * ce dont le contrôle d'accès a besoin : attributs de requête, cookie et session Jetty.
+ * Les stockages mesurés sont ceux qui n'accèdent pas à la base de données.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessManagerBenchmark {
+
+    /** Stockage des sessions (voir Sessions) */
+    @Param({"jetty", "token"})
+    public String sessionStore;
+
+    /** Rôles autorisés d'une route typique de l'API */
+    private static final Set<RouteRole> PERMITTED_ROLES =
+            Set.of(Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+
+    /** Rôles d'une route publique */
+    private static final Set<RouteRole> PUBLIC_ROLES = Set.of(Role.ANYONE);
+
+    private AppAccessManager accessManager;
+    private Handler handler;
+
+    /** Attributs de la requête simulée, réinitialisés à chaque invocation */
+    private Map<String, Object> attributes = new HashMap<>();
+
+    /** Attributs de la session Jetty simulée */
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+
+    /** Valeur du cookie de session simulé */
+    private String cookie;
+
+    private Context ctx;
+
+    /**
+     * Ouvre une session de diététicien dans le stockage mesuré.
+     *
+     * @throws Exception Si la session ne peut pas être ouverte
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("SESSION_STORE", sessionStore);
+        System.setProperty("SESSION_SECRET", "benchmark-secret-benchmark-secret");
+
+        HttpSession session = proxy(HttpSession.class, (method, args) -> switch (method) {
+            case "getAttribute" -> sessionAttributes.get((String) args[0]);
+            case "setAttribute" -> sessionAttributes.put((String) args[0], args[1]);
+            default -> null;
+        });
+        HttpServletRequest request = proxy(HttpServletRequest.class, (method, args) -> switch (method) {
+            case "getSession" -> session;
+            default -> null;
+        });
+        ctx = proxy(Context.class, (method, args) -> switch (method) {
+            case "attribute" -> args.length == 1 ? attributes.get((String) args[0]) : attributes.put((String) args[0], args[1]);
+            case "sessionAttribute" -> args.length == 1 ? sessionAttributes.get((String) args[0]) : sessionAttributes.put((String) args[0], args[1]);
+            case "cookie" -> {
+                if (args[0] instanceof Cookie written) {
+                    cookie = written.getValue();
+                    yield ctx;
+                }
+                yield cookie;
+            }
+            case "req" -> request;
+            default -> null;
+        });
+
+        Sessions.open(ctx, "dieteticien@test.com", Role.DIETETICIEN, 100000001);
+        accessManager = new AppAccessManager(RequestExecution.getLimiter());
+        handler = context -> {};
+    }
+
+    /** Route protégée, utilisateur autorisé */
+    @Benchmark
+    public void manageAuthorized(Blackhole blackhole) throws Exception {
+        attributes = new HashMap<>();
+        accessManager.manage(handler, ctx, PERMITTED_ROLES);
+        blackhole.consume(attributes);
+    }
+
+    /** Route publique : aucune lecture de session */
+    @Benchmark
+    public void managePublic(Blackhole blackhole) throws Exception {
+        attributes = new HashMap<>();
+        accessManager.manage(handler, ctx, PUBLIC_ROLES);
+        blackhole.consume(attributes);
+    }
+
+    /**
+     * Comportement d'un substitut d'interface, selon le nom de la méthode appelée.
+     */
+    private interface Behaviour {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    /**
+     * Crée un substitut minimal d'une interface.
+     *
+     * @param type L'interface à simuler
+     * @param behaviour Le comportement des méthodes utilisées
+     * @return Le substitut
+     */
+    private static <T> T proxy(Class<T> type, Behaviour behaviour) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (instance, method, args) -> behaviour.invoke(method.getName(), args == null ? new Object[0] : args)));
+    }
+}
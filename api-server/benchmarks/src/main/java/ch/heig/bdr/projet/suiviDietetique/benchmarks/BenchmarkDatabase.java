@@ -0,0 +1,84 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Base de données utilisée par les benchmarks qui accèdent à PostgreSQL.
+ *
+ * Si la propriété système DB_URL est définie, la base correspondante est utilisée telle
+ * quelle (elle doit déjà contenir le schéma suivi_dietetique). Sinon, une instance
+ * PostgreSQL embarquée est démarrée et initialisée avec les scripts de init-scripts
+ * (dossier configurable par BENCH_INIT_SCRIPTS). Les paramètres de connexion sont
+ * transmis à l'API par propriétés système, lues par la classe Env.
+ *
+ * PostgreSQL refuse de démarrer sous l'utilisateur root : lancer les benchmarks
+ * avec un utilisateur standard, ou fournir DB_URL.
+ */
+public final class BenchmarkDatabase {
+
+    /** Instance embarquée, démarrée au plus une fois par JVM */
+    private static EmbeddedPostgres embedded;
+
+    /** Classe utilitaire, non instanciable */
+    private BenchmarkDatabase() {}
+
+    /**
+     * Garantit qu'une base de données est disponible pour l'API.
+     * Doit être appelée avant le premier accès à la classe Database.
+     *
+     * @throws Exception Si l'instance embarquée ne peut pas être démarrée ou initialisée
+     */
+    public static synchronized void ensureStarted() throws Exception {
+        if (System.getProperty("DB_URL") != null || System.getenv("DB_URL") != null || embedded != null) {
+            return;
+        }
+
+        embedded = EmbeddedPostgres.builder().start();
+        Runtime.getRuntime().addShutdownHook(new Thread(BenchmarkDatabase::stop));
+
+        try (Connection connection = embedded.getPostgresDatabase().getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (Path script : initScripts()) {
+                stmt.execute(Files.readString(script, StandardCharsets.UTF_8));
+            }
+        }
+
+        System.setProperty("DB_URL", embedded.getJdbcUrl("postgres", "postgres") + "&currentSchema=suivi_dietetique");
+        System.setProperty("DB_USER", "postgres");
+    }
+
+    /**
+     * Liste les scripts d'initialisation, dans l'ordre de leur numérotation.
+     *
+     * @return Les scripts SQL à exécuter
+     * @throws IOException Si le dossier des scripts est introuvable
+     */
+    private static List<Path> initScripts() throws IOException {
+        Path directory = Path.of(System.getProperty("BENCH_INIT_SCRIPTS", "../../init-scripts"));
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".sql"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Arrête l'instance embarquée à la fin de la JVM.
+     */
+    private static void stop() {
+        try {
+            embedded.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la recherche des consommables par nom dans l'index (ConsommableSearchIndex) au
+ * filtrage de la liste complète fait jusqu'ici par le client (nom contenant le texte saisi),
+ * pour des catalogues générés de 10 000 et 100 000 consommables.
+ *
+ * Les requêtes couvrent un préfixe d'une lettre, un préfixe court, plusieurs mots sans
+ * accents, des fautes de frappe (substitution, inversion) et un texte sans résultat exact.
+ * Le temps de construction de l'index est affiché au début de chaque essai.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsommableSearchBenchmark {
+
+    /** Nombre de consommables du catalogue */
+    @Param({"10000", "100000"})
+    public int taille;
+
+    /** Texte saisi */
+    @Param({"p", "pom", "creme fr", "yaourh", "chocolta", "fromage nat bio"})
+    public String requete;
+
+    /** Nombre de résultats demandés, comme la valeur par défaut de l'API */
+    private static final int LIMITE = 10;
+
+    private static final String[] ALIMENTS = {"Pomme", "Poire", "Banane", "Yaourt", "Fromage", "Chocolat",
+            "Crème", "Pâtes", "Riz", "Pain", "Lait", "Jus", "Thé", "Café", "Œuf", "Beurre", "Pomme de terre",
+            "Carotte", "Tomate", "Saumon", "Poulet", "Lentilles", "Épinards", "Céréales", "Compote"};
+
+    private static final String[] QUALIFICATIFS = {"nature", "bio", "allégé", "entier", "complet", "fumé",
+            "grillé", "vapeur", "fraîche", "au lait", "noir", "cuit", "cru", "en sauce", "d'été", "sucré"};
+
+    private ConsommableSearchIndex index;
+    private List<String> noms;
+
+    /**
+     * Génère le catalogue (aliment, qualificatifs et marque) et construit l'index.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int[] ids = new int[taille];
+        String[] catalogue = new String[taille];
+        for (int i = 0; i < taille; i++) {
+            StringBuilder nom = new StringBuilder(ALIMENTS[random.nextInt(ALIMENTS.length)]);
+            for (int q = random.nextInt(3); q >= 0; q--) {
+                nom.append(' ').append(QUALIFICATIFS[random.nextInt(QUALIFICATIFS.length)]);
+            }
+            nom.append(", marque ").append(Integer.toString(random.nextInt(1 << 20), 36));
+            ids[i] = i + 1;
+            catalogue[i] = nom.toString();
+        }
+        noms = List.of(catalogue);
+
+        long debut = System.nanoTime();
+        index = new ConsommableSearchIndex(ids, catalogue);
+        System.out.printf("%nIndex de %d consommables construit en %d ms%n",
+                taille, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+    }
+
+    /** Recherche dans l'index : préfixes, puis fautes de frappe s'il y a moins de 10 résultats */
+    @Benchmark
+    public int[] index() {
+        return index.chercher(requete, LIMITE);
+    }
+
+    /** Filtrage de la liste complète, sans tolérance aux accents ni aux fautes */
+    @Benchmark
+    public List<String> filtrage() {
+        String texte = requete.toLowerCase(Locale.ROOT);
+        List<String> resultats = new ArrayList<>(LIMITE);
+        for (String nom : noms) {
+            if (nom.toLowerCase(Locale.ROOT).contains(texte)) {
+                resultats.add(nom);
+                if (resultats.size() == LIMITE) {
+                    break;
+                }
+            }
+        }
+        return resultats;
+    }
+}
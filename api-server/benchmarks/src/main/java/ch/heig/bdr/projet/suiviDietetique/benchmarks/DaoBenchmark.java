@@ -0,0 +1,68 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.dao.ConsommableDAO;
+import ch.heig.bdr.projet.suiviDietetique.dao.RepasDao;
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure les lectures les plus fréquentes des DAO, requête et conversion des lignes
+ * en objets comprises, sur une base initialisée avec les données de init-scripts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    /** Patient dont les repas sont lus */
+    @Param({"100000005"})
+    public String patient;
+
+    private RepasDao repasDao;
+    private ConsommableDAO consommableDAO;
+
+    /**
+     * Prépare la base de données et vérifie que les données de test sont présentes.
+     *
+     * @throws Exception Si la base ne peut pas être démarrée
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase.ensureStarted();
+        repasDao = new RepasDao();
+        consommableDAO = new ConsommableDAO();
+        if (repasDao.getRepasPatient_All(patient).isEmpty() || consommableDAO.getAllConsommables().isEmpty()) {
+            throw new IllegalStateException("Base sans données : exécuter init-scripts/03-insert-data.sql");
+        }
+    }
+
+    /** RepasDao.getRepasPatient_All : repas d'un patient avec leurs totaux nutritionnels */
+    @Benchmark
+    public List<Repas> getRepasPatientAll() {
+        return repasDao.getRepasPatient_All(patient);
+    }
+
+    /** ConsommableDAO.getAllConsommables : catalogue complet des consommables */
+    @Benchmark
+    public List<Consommable> getAllConsommables() {
+        return consommableDAO.getAllConsommables();
+    }
+}
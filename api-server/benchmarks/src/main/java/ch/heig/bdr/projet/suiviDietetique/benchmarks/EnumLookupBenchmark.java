@@ -0,0 +1,56 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.models.TypeRepas;
+import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure la conversion des noms lus en base (ou en session) vers les énumérations,
+ * effectuée pour chaque ligne de repas et chaque requête authentifiée.
+ * Les noms testés couvrent la première et la dernière valeur de chaque énumération,
+ * ainsi qu'une casse différente de celle de la base.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnumLookupBenchmark {
+
+    /** Nom de rôle, tel que stocké dans la table utilisateur */
+    @State(Scope.Benchmark)
+    public static class RoleName {
+        @Param({"Diététicien", "Admin", "admin"})
+        public String roleName;
+    }
+
+    /** Nom de type de repas, tel que stocké dans la table repas */
+    @State(Scope.Benchmark)
+    public static class TypeRepasName {
+        @Param({"Petit-déjeuner", "Collation", "collation"})
+        public String typeRepasName;
+    }
+
+    /** Role.fromName : appelé à chaque lecture d'utilisateur et de session */
+    @Benchmark
+    public Role roleFromName(RoleName name) {
+        return Role.fromName(name.roleName);
+    }
+
+    /** TypeRepas.type : appelé pour chaque ligne de repas lue */
+    @Benchmark
+    public TypeRepas typeRepas(TypeRepasName name) {
+        return TypeRepas.type(name.typeRepasName);
+    }
+}
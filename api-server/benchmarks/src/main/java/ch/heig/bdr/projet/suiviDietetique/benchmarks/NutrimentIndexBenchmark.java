@@ -0,0 +1,192 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.AllergyIndex;
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableCatalog;
+import ch.heig.bdr.projet.suiviDietetique.cache.NutrimentIndex;
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.Nutriment;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare les requêtes par valeurs nutritionnelles servies par l'index en mémoire du
+ * catalogue (NutrimentIndex) aux mêmes requêtes en SQL, sur un catalogue agrandi :
+ * <ul>
+ *   <li>boissons : boissons de moins de 50 kcal et de moins de 20 mg de sodium, par identifiant ;</li>
+ *   <li>proteines : plus de 20 g de protéines sans les allergènes du patient 100000007 (gluten),
+ *       par teneur décroissante ;</li>
+ *   <li>mineraux : au moins 2 mg de fer, 30 mg de vitamine C et moins de 5 g de lipides, par identifiant.</li>
+ * </ul>
+ * Les consommables (un sur sept pouvant contenir du gluten) sont ajoutés avant l'essai et
+ * supprimés à la fin. Les exclusions du patient sont calculées une fois, par l'index des
+ * allergies ou en base s'il n'est pas prêt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NutrimentIndexBenchmark {
+
+    /** Nombre de consommables ajoutés au catalogue */
+    @Param({"100000"})
+    public int consommables;
+
+    /** Requête mesurée */
+    @Param({"boissons", "proteines", "mineraux"})
+    public String requete;
+
+    /** Patient allergique au gluten (init-scripts) */
+    private static final int PATIENT = 100000007;
+
+    private static final int LIMITE = 50;
+
+    private static final String PREFIXE = "Bench nutriments ";
+
+    private static final String INSERTION = "INSERT INTO suivi_dietetique.consommable " +
+            "(nom, type, calories, proteines, glucides, lipides, potassium, cholesterol, sodium, " +
+            "vit_A, vit_C, vit_D, calcium, fer) " +
+            "SELECT '" + PREFIXE + "' || g, " +
+            "(CASE WHEN g % 4 = 0 THEN 'Boisson' ELSE 'Aliment' END)::suivi_dietetique.type_consommable, " +
+            "g * 7919 % 900, (g * 104729 % 400) / 10.0, " +
+            "ROW((g * 31 % 200) / 10.0::float, (g * 37 % 500) / 10.0::float)::suivi_dietetique.type_glucides, " +
+            "ROW((g * 41 % 600) / 10.0::float, (g * 43 % 200) / 10.0::float)::suivi_dietetique.type_lipides, " +
+            "g * 47 % 800, g * 53 % 300, g * 59 % 1000, " +
+            "g * 61 % 900, g * 67 % 120, (g * 71 % 200) / 10.0, g * 73 % 1200, (g * 79 % 150) / 10.0 " +
+            "FROM generate_series(1::bigint, ?) g";
+
+    private static final String ALLERGENES = "INSERT INTO suivi_dietetique.peut_contenir (id_consommable, nom_allergene) " +
+            "SELECT id, 'Gluten' FROM suivi_dietetique.consommable WHERE nom LIKE '" + PREFIXE + "%' AND id % 7 = 0";
+
+    private static final String SUPPRESSION_ALLERGENES = "DELETE FROM suivi_dietetique.peut_contenir WHERE id_consommable IN " +
+            "(SELECT id FROM suivi_dietetique.consommable WHERE nom LIKE '" + PREFIXE + "%')";
+
+    private static final String SUPPRESSION = "DELETE FROM suivi_dietetique.consommable WHERE nom LIKE '" + PREFIXE + "%'";
+
+    private static final String COLONNES = "SELECT id, nom, type, calories, proteines, (glucides).fibres, (glucides).sucre, " +
+            "(lipides).total, potassium, cholesterol, sodium, vit_A, vit_C, vit_D, calcium, fer " +
+            "FROM suivi_dietetique.consommable ";
+
+    private static final String SQL_BOISSONS = COLONNES +
+            "WHERE type = 'Boisson' AND calories < 50 AND sodium < 20 ORDER BY id LIMIT " + LIMITE;
+
+    private static final String SQL_PROTEINES = COLONNES +
+            "WHERE proteines > 20 AND id NOT IN (SELECT pc.id_consommable FROM suivi_dietetique.peut_contenir pc " +
+            "JOIN suivi_dietetique.est_allergique ea ON ea.nom_allergene = pc.nom_allergene " +
+            "WHERE ea.noSS_patient = " + PATIENT + ") ORDER BY proteines DESC, id DESC LIMIT " + LIMITE;
+
+    private static final String SQL_MINERAUX = COLONNES +
+            "WHERE fer >= 2 AND vit_C >= 30 AND (lipides).total < 5 ORDER BY id LIMIT " + LIMITE;
+
+    private NutrimentIndex index;
+    private BitSet interdits;
+    private String sql;
+    private List<NutrimentIndex.Condition> conditions;
+    private TypeConsommable type;
+    private BitSet exclus;
+    private Nutriment tri;
+
+    /**
+     * Ajoute les consommables, construit l'index du catalogue et prépare la requête.
+     *
+     * @throws Exception Si la base ne peut pas être démarrée ou modifiée
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase.ensureStarted();
+        supprimer();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(INSERTION);
+             Statement allergenes = connection.createStatement()) {
+            stmt.setInt(1, consommables);
+            stmt.executeUpdate();
+            allergenes.executeUpdate(ALLERGENES);
+        }
+
+        ConsommableCatalog.invalidate();
+        ConsommableCatalog catalog = ConsommableCatalog.current();
+        long debut = System.nanoTime();
+        index = catalog.nutriments();
+        System.out.printf("%nIndex de %d consommables construit en %d ms%n",
+                catalog.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+        interdits = AllergyIndex.interdits(PATIENT, List.of());
+
+        switch (requete) {
+            case "boissons" -> {
+                sql = SQL_BOISSONS;
+                conditions = List.of(NutrimentIndex.Condition.parse("calories<50"),
+                        NutrimentIndex.Condition.parse("sodium<20"));
+                type = TypeConsommable.BOISSON;
+            }
+            case "proteines" -> {
+                sql = SQL_PROTEINES;
+                conditions = List.of(NutrimentIndex.Condition.parse("proteines>20"));
+                exclus = interdits;
+                tri = Nutriment.PROTEINES;
+            }
+            default -> {
+                sql = SQL_MINERAUX;
+                conditions = List.of(NutrimentIndex.Condition.parse("fer>=2"),
+                        NutrimentIndex.Condition.parse("vit_C>=30"), NutrimentIndex.Condition.parse("lipides<5"));
+            }
+        }
+    }
+
+    /**
+     * Supprime les consommables ajoutés.
+     *
+     * @throws Exception Si la suppression échoue
+     */
+    @TearDown(Level.Trial)
+    public void supprimer() throws Exception {
+        try (Connection connection = Database.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(SUPPRESSION_ALLERGENES);
+            stmt.executeUpdate(SUPPRESSION);
+        }
+    }
+
+    /** Requête SQL sur la table consommable */
+    @Benchmark
+    public void sql(Blackhole blackhole) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            int colonnes = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= colonnes; i++) {
+                    blackhole.consume(rs.getObject(i));
+                }
+            }
+        }
+    }
+
+    /** Requête sur l'index du catalogue en mémoire */
+    @Benchmark
+    public List<Consommable> memoire() {
+        return index.chercher(conditions, type, exclus, tri, true, LIMITE);
+    }
+}
@@ -0,0 +1,350 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.SqlStatement;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Vérification des plans d'exécution de toutes les requêtes des DAO ({@link SqlStatement}).
+ *
+ * La base est d'abord remplie avec un jeu de données volumineux (patients, diététiciens,
+ * infirmiers, repas, consommables des repas, données de santé, objectifs), puis le plan générique de chaque requête est
+ * obtenu par EXPLAIN (GENERIC_PLAN) — le plan utilisé par une requête préparée, valable
+ * quelles que soient les valeurs des paramètres. La vérification échoue si un plan parcourt
+ * en entier (Seq Scan, ou index lu sans condition sur sa première colonne) une table dont le nombre de lignes dépasse
+ * le seuil configuré, sauf pour les requêtes qui lisent volontairement toute une table
+ * ({@link #LECTURES_COMPLETES}). Les Seq Scan sont désactivés pendant la planification :
+ * sur un jeu de données de test, un parcours complet peut rester le moins coûteux, alors
+ * qu'il s'agit ici de détecter les requêtes qu'aucun index ne peut servir.
+ *
+ * Le remplissage est fait dans une transaction annulée à la fin : la vérification peut
+ * être lancée sur une base existante sans la modifier. Les requêtes exécutées à l'intérieur
+ * des fonctions PL/pgSQL ne sont pas visibles dans les plans et ne sont pas vérifiées.
+ *
+ * Paramètres (propriétés système ou variables d'environnement) :
+ * PLAN_CHECK_PATIENTS (patients ajoutés), PLAN_CHECK_REPAS (repas par patient),
+ * PLAN_CHECK_MIN_ROWS (taille à partir de laquelle une table est considérée comme grande).
+ *
+ * java -cp target/benchmarks.jar ch.heig.bdr.projet.suiviDietetique.benchmarks.QueryPlanCheck
+ * (code de sortie 1 si un plan est refusé ou ne peut pas être obtenu ; nécessite PostgreSQL 16)
+ */
+public final class QueryPlanCheck {
+
+    /** Nombre de patients ajoutés à la base */
+    private static final int PATIENTS = Env.getInt("PLAN_CHECK_PATIENTS", 10_000);
+
+    /** Nombre de repas ajoutés par patient */
+    private static final int REPAS_PAR_PATIENT = Env.getInt("PLAN_CHECK_REPAS", 10);
+
+    /** Nombre de lignes à partir duquel un parcours complet de la table est refusé */
+    private static final int GRANDE_TABLE = Env.getInt("PLAN_CHECK_MIN_ROWS", 5_000);
+
+    /** Nombre de diététiciens et d'infirmiers ajoutés (un de chaque pour 50 patients) */
+    private static final int EMPLOYES = PATIENTS / 50 + 1;
+
+    /** Premier numéro de sécurité sociale des patients ajoutés (les employés ajoutés le précèdent) */
+    private static final int PREMIER_NOSS = 500_000_000;
+
+    /** Requêtes qui lisent volontairement une table entière (catalogues, listes complètes) */
+    private static final Set<SqlStatement> LECTURES_COMPLETES = EnumSet.of(
+            SqlStatement.ALLERGENE_GET_ALL,
+            SqlStatement.ALLERGENE_CONSOMMABLE_GET_ALL,
+            SqlStatement.ALLERGIE_GET_ALL,
+            SqlStatement.CONSOMMABLE_GET_ALL,
+            SqlStatement.DIETETICIEN_GET_ALL,
+            SqlStatement.INFIRMIER_GET_ALL,
+            SqlStatement.STATS_PATIENTS
+    );
+
+    /** Remplissage de la base, exécuté dans l'ordre */
+    private static final List<String> DONNEES = List.of(
+            "INSERT INTO suivi_dietetique.personne (noSS, nom, prenom) " +
+                    "SELECT " + PREMIER_NOSS + " - g, 'Employe' || g, 'Prenom' || g " +
+                    "FROM generate_series(1, " + 2 * EMPLOYES + ") g",
+            "INSERT INTO suivi_dietetique.employe (noSS, dateEmbauche, statut) " +
+                    "SELECT " + PREMIER_NOSS + " - g, DATE '2020-01-01', 'Actif' " +
+                    "FROM generate_series(1, " + 2 * EMPLOYES + ") g",
+            "INSERT INTO suivi_dietetique.dieteticien (noSS) " +
+                    "SELECT " + PREMIER_NOSS + " - g FROM generate_series(2, " + 2 * EMPLOYES + ", 2) g",
+            "INSERT INTO suivi_dietetique.infirmier (noSS) " +
+                    "SELECT " + PREMIER_NOSS + " - g FROM generate_series(1, " + 2 * EMPLOYES + ", 2) g",
+            "INSERT INTO suivi_dietetique.personne (noSS, nom, prenom, dateNaissance, sexe) " +
+                    "SELECT " + PREMIER_NOSS + " + g, 'Nom' || g, 'Prenom' || g, DATE '1950-01-01' + g % 20000, " +
+                    "(CASE WHEN g % 2 = 0 THEN 'Femme' ELSE 'Homme' END)::suivi_dietetique.sexe " +
+                    "FROM generate_series(1, " + PATIENTS + ") g",
+            "INSERT INTO suivi_dietetique.patient (noSS, noSS_dieteticien, dateAdmission) " +
+                    "SELECT " + PREMIER_NOSS + " + g, d.noss[1 + g % cardinality(d.noss)], DATE '2024-01-01' " +
+                    "FROM generate_series(1, " + PATIENTS + ") g, " +
+                    "(SELECT array_agg(noSS) AS noss FROM suivi_dietetique.dieteticien) d",
+            "INSERT INTO suivi_dietetique.utilisateur (email, mdpHache, role, noSS) " +
+                    "SELECT 'patient' || g || '@plan.test', 'x', 'Patient', " + PREMIER_NOSS + " + g " +
+                    "FROM generate_series(1, " + PATIENTS + ") g",
+            "INSERT INTO suivi_dietetique.donnees_sante " +
+                    "(noSS_patient, date, taille, poids, tourDeTaille, niveauActivitePhysique) " +
+                    "SELECT " + PREMIER_NOSS + " + g, TIMESTAMPTZ '2024-01-01' + m * INTERVAL '1 week', " +
+                    "170, 70, 80, 'Sédentaire' " +
+                    "FROM generate_series(1, " + PATIENTS + ") g, generate_series(1, 5) m",
+            "INSERT INTO suivi_dietetique.objectif (noSS_patient, noSS_dieteticien, dateDebut, dateFin, titre) " +
+                    "SELECT p.noSS, p.noSS_dieteticien, DATE '2024-01-01', DATE '2024-06-30', 'Objectif ' || m " +
+                    "FROM suivi_dietetique.patient p, generate_series(1, 3) m " +
+                    "WHERE p.noSS > " + PREMIER_NOSS,
+            "INSERT INTO suivi_dietetique.repas (noSS_patient, noSS_infirmier, date_consommation, type) " +
+                    "SELECT " + PREMIER_NOSS + " + g, i.noss[1 + g % cardinality(i.noss)], " +
+                    "TIMESTAMPTZ '2024-01-01 08:00+00' + m * INTERVAL '8 hours', 'Déjeuner' " +
+                    "FROM generate_series(1, " + PATIENTS + ") g, generate_series(1, " + REPAS_PAR_PATIENT + ") m, " +
+                    "(SELECT array_agg(noSS) AS noss FROM suivi_dietetique.infirmier) i",
+            "INSERT INTO suivi_dietetique.quantite_repas_consommable " +
+                    "(id_consommable, noSS_patient, date_consommation, quantite) " +
+                    "SELECT c.id, r.noSS_patient, r.date_consommation, 100 " +
+                    "FROM suivi_dietetique.repas r, " +
+                    "(SELECT id FROM suivi_dietetique.consommable ORDER BY id LIMIT 2) c " +
+                    "WHERE r.noSS_patient > " + PREMIER_NOSS,
+            "ANALYZE"
+    );
+
+    /** Classe exécutable, non instanciable */
+    private QueryPlanCheck() {}
+
+    /**
+     * Remplit la base, vérifie le plan de chaque requête et affiche le résultat.
+     *
+     * @param args Arguments de la ligne de commande (non utilisés)
+     * @throws Exception Si la base ne peut pas être démarrée ou remplie
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkDatabase.ensureStarted();
+        int refus = 0;
+
+        try (Connection connection = connecter()) {
+            connection.setAutoCommit(false);
+            try {
+                remplir(connection);
+                Set<String> grandesTables = grandesTables(connection);
+                Map<String, Index> index = indexDesTables(connection, grandesTables);
+                try (Statement stmt = connection.createStatement()) {
+                    // Un Seq Scan ne reste dans un plan que si aucun index ne permet de l'éviter
+                    stmt.execute("SET LOCAL enable_seqscan = off");
+                }
+                System.out.println("Grandes tables (>= " + GRANDE_TABLE + " lignes) : " + grandesTables);
+
+                for (SqlStatement statement : SqlStatement.values()) {
+                    String resultat = verifier(connection, statement, grandesTables, index);
+                    if (resultat != null) {
+                        refus++;
+                    }
+                    System.out.printf("%-6s %s%s%n", resultat == null ? "OK" : "REFUS", statement.name(),
+                            resultat == null ? "" : " : " + resultat);
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                // Les statistiques calculées pendant le remplissage ne sont pas annulées avec lui
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("ANALYZE");
+                }
+            }
+        }
+
+        System.out.println(refus == 0 ? "Tous les plans sont acceptés."
+                : refus + " requête(s) refusée(s).");
+        System.exit(refus == 0 ? 0 : 1);
+    }
+
+    /**
+     * Ouvre une connexion hors du pool de l'API, en protocole simple : EXPLAIN n'accepte
+     * les paramètres numérotés ($1...) que si la requête est envoyée sans phase de liaison.
+     *
+     * @return La connexion à la base vérifiée
+     * @throws SQLException Si la connexion ne peut pas être établie
+     */
+    private static Connection connecter() throws SQLException {
+        Properties proprietes = new Properties();
+        proprietes.setProperty("user", Env.get("DB_USER", "bdr"));
+        proprietes.setProperty("password", Env.get("DB_PASSWORD", "bdr"));
+        proprietes.setProperty("preferQueryMode", "simple");
+        return DriverManager.getConnection(Env.get("DB_URL", null), proprietes);
+    }
+
+    /**
+     * Ajoute le jeu de données volumineux dans la transaction courante.
+     *
+     * @param connection La connexion, en mode transactionnel
+     * @throws SQLException Si une insertion échoue
+     */
+    private static void remplir(Connection connection) throws SQLException {
+        long debut = System.nanoTime();
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : DONNEES) {
+                stmt.execute(sql);
+            }
+        }
+        System.out.printf("Base remplie en %d ms (%d patients, %d repas par patient)%n",
+                (System.nanoTime() - debut) / 1_000_000, PATIENTS, REPAS_PAR_PATIENT);
+    }
+
+    /**
+     * Liste les tables du schéma dont le nombre estimé de lignes dépasse le seuil.
+     *
+     * @param connection La connexion
+     * @return Les noms des grandes tables
+     * @throws SQLException Si le catalogue ne peut pas être lu
+     */
+    private static Set<String> grandesTables(Connection connection) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'suivi_dietetique' AND c.relkind = 'r' AND c.reltuples >= ?")) {
+            stmt.setInt(1, GRANDE_TABLE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    tables.add(rs.getString(1));
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Liste les index des tables données, avec la première colonne de chacun.
+     *
+     * @param connection La connexion
+     * @param tables Les tables dont les index sont recherchés
+     * @return Les index, par nom
+     * @throws SQLException Si le catalogue ne peut pas être lu
+     */
+    private static Map<String, Index> indexDesTables(Connection connection, Set<String> tables) throws SQLException {
+        Map<String, Index> index = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT i.relname, t.relname, a.attname FROM pg_index x " +
+                     "JOIN pg_class i ON i.oid = x.indexrelid " +
+                     "JOIN pg_class t ON t.oid = x.indrelid " +
+                     "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+                     "JOIN pg_attribute a ON a.attrelid = x.indrelid AND a.attnum = x.indkey[0] " +
+                     "WHERE n.nspname = 'suivi_dietetique'")) {
+            while (rs.next()) {
+                if (tables.contains(rs.getString(2))) {
+                    index.put(rs.getString(1), new Index(rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Obtient le plan générique d'une requête et y cherche les parcours complets de grandes tables.
+     * Une erreur n'annule que la requête vérifiée (point de sauvegarde), pas le remplissage.
+     *
+     * @param connection La connexion, en mode transactionnel
+     * @param statement La requête à vérifier
+     * @param grandesTables Les tables dont le parcours complet est refusé
+     * @param index Les index des grandes tables, par nom
+     * @return La raison du refus, ou null si le plan est accepté
+     */
+    private static String verifier(Connection connection, SqlStatement statement, Set<String> grandesTables,
+                                   Map<String, Index> index) {
+        Savepoint savepoint = null;
+        try {
+            savepoint = connection.setSavepoint();
+            JsonNode plan;
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + numeroter(statement.sql()))) {
+                rs.next();
+                plan = new ObjectMapper().readTree(rs.getString(1)).get(0).get("Plan");
+            }
+            connection.releaseSavepoint(savepoint);
+
+            List<String> parcours = new ArrayList<>();
+            parcoursComplets(plan, grandesTables, index, parcours);
+            if (parcours.isEmpty() || LECTURES_COMPLETES.contains(statement)) {
+                return null;
+            }
+            return String.join(", ", parcours);
+        } catch (Exception e) {
+            try {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+            } catch (SQLException ignored) {
+                // La transaction est annulée en entier à la fin de la vérification
+            }
+            return "plan impossible à obtenir (" + e.getMessage().lines().findFirst().orElse("") + ")";
+        }
+    }
+
+    /**
+     * Parcourt un nœud de plan et ses enfants à la recherche des parcours complets d'une grande table :
+     * Seq Scan, ou parcours d'index sans condition sur sa première colonne (tout l'index est lu).
+     *
+     * @param noeud Le nœud de plan
+     * @param grandesTables Les tables dont le parcours complet est refusé
+     * @param index Les index des grandes tables, par nom
+     * @param parcours Les parcours complets trouvés
+     */
+    private static void parcoursComplets(JsonNode noeud, Set<String> grandesTables, Map<String, Index> index,
+                                         List<String> parcours) {
+        String type = noeud.path("Node Type").asText();
+        if (type.equals("Seq Scan") && grandesTables.contains(noeud.path("Relation Name").asText())) {
+            parcours.add("Seq Scan sur " + noeud.path("Relation Name").asText());
+        }
+        String nomIndex = noeud.path("Index Name").asText();
+        Index parcouru = index.get(nomIndex);
+        if (parcouru != null && !Pattern.compile("\\b" + parcouru.premiereColonne() + "\\b")
+                .matcher(noeud.path("Index Cond").asText()).find()) {
+            parcours.add(type + " de " + nomIndex + " sans condition sur " + parcouru.premiereColonne());
+        }
+        for (JsonNode enfant : noeud.path("Plans")) {
+            parcoursComplets(enfant, grandesTables, index, parcours);
+        }
+    }
+
+    /**
+     * Index d'une grande table.
+     *
+     * @param table La table indexée
+     * @param premiereColonne La première colonne de l'index
+     */
+    private record Index(String table, String premiereColonne) {}
+
+    /**
+     * Remplace les paramètres JDBC (?) par des paramètres numérotés ($1, $2...),
+     * seule forme acceptée par EXPLAIN. Les littéraux entre apostrophes sont laissés intacts.
+     *
+     * @param sql Le texte SQL de la requête
+     * @return Le texte SQL avec des paramètres numérotés
+     */
+    private static String numeroter(String sql) {
+        StringBuilder resultat = new StringBuilder(sql.length() + 8);
+        boolean litteral = false;
+        int parametre = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                litteral = !litteral;
+            }
+            if (c == '?' && !litteral) {
+                resultat.append('$').append(++parametre);
+            } else {
+                resultat.append(c);
+            }
+        }
+        return resultat.toString();
+    }
+}
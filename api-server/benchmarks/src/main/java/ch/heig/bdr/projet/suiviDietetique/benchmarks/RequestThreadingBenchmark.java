@@ -0,0 +1,112 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.Main;
+import io.javalin.Javalin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'exécution des requêtes sur threads système et sur threads virtuels
+ * pour la route GET /api/patients/{id}/repas, qui bloque sur JDBC.
+ *
+ * Chaque valeur de {@code threadMode} est mesurée dans une JVM distincte, l'API étant
+ * démarrée sur un port libre avec API_THREAD_MODE correspondant. Le nombre de clients
+ * simultanés (@Threads) dépasse volontairement la taille du pool de threads système.
+ * La base de données est fournie par {@link BenchmarkDatabase} ; les paramètres du pool
+ * (DB_POOL_MAX_SIZE, ...) peuvent être passés en propriétés système.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(400)
+@State(Scope.Benchmark)
+public class RequestThreadingBenchmark {
+
+    /** Mode d'exécution des requêtes de l'API */
+    @Param({"platform", "virtual"})
+    public String threadMode;
+
+    /** Patient dont les repas sont récupérés */
+    @Param({"100000005"})
+    public int patient;
+
+    /** Compte utilisé pour ouvrir une session (voir init-scripts/03-insert-data.sql) */
+    private static final String USERNAME = System.getProperty("BENCH_USERNAME", "admin@test.com");
+    private static final String PASSWORD = System.getProperty("BENCH_PASSWORD", "pwd");
+
+    private Javalin app;
+    private HttpClient client;
+    private HttpRequest request;
+
+    /**
+     * Démarre l'API dans le mode demandé et ouvre une session partagée par tous les clients.
+     *
+     * @throws Exception Si le démarrage ou la connexion échoue
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase.ensureStarted();
+        System.setProperty("API_THREAD_MODE", threadMode);
+        app = Main.createApp().start(0);
+        String baseUrl = "http://localhost:" + app.port();
+
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .build();
+
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Connexion impossible : " + login.body());
+        }
+
+        request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/patients/" + patient + "/repas"))
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Récupère tous les repas du patient.
+     *
+     * @return Le corps de la réponse, consommé par JMH
+     * @throws Exception Si la requête échoue ou ne retourne pas 200 OK
+     */
+    @Benchmark
+    public byte[] getRepasByPatient() throws Exception {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Statut inattendu : " + response.statusCode());
+        }
+        return response.body();
+    }
+}
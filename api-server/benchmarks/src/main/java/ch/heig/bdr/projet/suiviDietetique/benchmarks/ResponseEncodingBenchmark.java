@@ -0,0 +1,156 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.config.ResponseFormat;
+import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
+import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeRepas;
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mesure l'envoi d'une page d'historique de repas (avec leurs consommables) dans chaque
+ * format de réponse (voir ResponseFormat) et avec chaque compression : temps de
+ * sérialisation et de compression, et taille du corps envoyé, affichée au début de
+ * chaque essai. Les niveaux de compression sont ceux de l'API par défaut (voir
+ * ResponseCompression).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseEncodingBenchmark {
+
+    /** Format de la réponse (ResponseFormat) */
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    /** Compression de la réponse */
+    @Param({"none", "gzip", "brotli"})
+    public String compression;
+
+    /** Nombre de repas de la page */
+    @Param({"50"})
+    public int repas;
+
+    /** Niveaux de compression par défaut de l'API */
+    private static final int GZIP_LEVEL = 6;
+    private static final int BROTLI_LEVEL = 4;
+
+    /** Noms de consommables de la base de démonstration */
+    private static final String[] NOMS = {"Pain complet", "Yaourt nature", "Pomme", "Riz basmati",
+            "Poulet rôti", "Haricots verts", "Lait demi-écrémé", "Fromage à pâte dure"};
+
+    private ResponseFormat responseFormat;
+    private List<Repas> page;
+
+    /**
+     * Construit la page de repas et affiche la taille du corps envoyé.
+     *
+     * @throws IOException Si la sérialisation échoue
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        responseFormat = ResponseFormat.valueOf(format.toUpperCase());
+        if (compression.equals("brotli")) {
+            Brotli4jLoader.ensureAvailability();
+        }
+        page = page(repas);
+        byte[] brut = responseFormat.getWriter().writeValueAsBytes(page);
+        System.out.printf("%nTaille du corps (%s, %s, %d repas) : %d octets (%d octets sans compression)%n",
+                format, compression, repas, encoder().length, brut.length);
+    }
+
+    /**
+     * Sérialise la page dans le format mesuré, puis la compresse.
+     *
+     * @return Le corps de la réponse
+     * @throws IOException Si la sérialisation ou la compression échoue
+     */
+    @Benchmark
+    public byte[] encoder() throws IOException {
+        byte[] corps = responseFormat.getWriter().writeValueAsBytes(page);
+        return switch (compression) {
+            case "gzip" -> gzip(corps);
+            case "brotli" -> Encoder.compress(corps, new Encoder.Parameters().setQuality(BROTLI_LEVEL));
+            default -> corps;
+        };
+    }
+
+    private static byte[] gzip(byte[] corps) throws IOException {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(corps.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sortie) {
+            {
+                def.setLevel(GZIP_LEVEL);
+            }
+        }) {
+            gzip.write(corps);
+        }
+        return sortie.toByteArray();
+    }
+
+    /**
+     * Construit une page de repas réaliste : totaux nutritionnels et trois consommables par repas.
+     *
+     * @param nombre Le nombre de repas
+     * @return La page de repas
+     */
+    private static List<Repas> page(int nombre) {
+        Random random = new Random(42);
+        OffsetDateTime date = OffsetDateTime.of(2024, 1, 1, 7, 30, 0, 0, ZoneOffset.ofHours(1));
+        List<Repas> page = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            List<ConsommableQuantity> consommables = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                int id = random.nextInt(NOMS.length);
+                consommables.add(new ConsommableQuantity(id + 1, NOMS[id], "Aliment", 50 + random.nextInt(300),
+                        valeur(random, 30), valeur(random, 60), valeur(random, 25), valeur(random, 500),
+                        valeur(random, 100), valeur(random, 800), valeur(random, 300), valeur(random, 90),
+                        valeur(random, 10), valeur(random, 400), valeur(random, 5), 50 + random.nextInt(250)));
+            }
+            TypeRepas type = TypeRepas.values()[i % TypeRepas.values().length];
+            Repas r = new Repas("100000008", "100000002", date.plusHours(5L * i), "Bon appétit", type,
+                    (double) valeur(random, 60), (double) valeur(random, 150), (double) valeur(random, 50),
+                    (double) valeur(random, 900), random.nextInt(600));
+            r.consommableQuantities = consommables;
+            r.totalPotassium = (double) valeur(random, 1500);
+            r.totalCholesterol = (double) valeur(random, 300);
+            r.totalSodium = (double) valeur(random, 2000);
+            r.totalVitA = (double) valeur(random, 900);
+            r.totalVitC = (double) valeur(random, 200);
+            r.totalVitD = (double) valeur(random, 20);
+            r.totalCalcium = (double) valeur(random, 1200);
+            r.totalFer = (double) valeur(random, 15);
+            page.add(r);
+        }
+        return page;
+    }
+
+    /** Valeur nutritionnelle arrondie au centième, comme celles lues en base */
+    private static float valeur(Random random, int max) {
+        return Math.round(random.nextFloat() * max * 100) / 100f;
+    }
+}
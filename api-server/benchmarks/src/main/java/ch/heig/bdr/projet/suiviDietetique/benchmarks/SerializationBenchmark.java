@@ -0,0 +1,97 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.models.Allergene;
+import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
+import ch.heig.bdr.projet.suiviDietetique.models.Patient;
+import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeRepas;
+import io.javalin.json.JavalinJackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure la sérialisation JSON des réponses les plus fréquentes de l'API,
+ * avec le mapper Jackson utilisé par Javalin pour ctx.json(...).
+ * Les listes sont construites en mémoire : aucune base de données n'est nécessaire.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /** Nombre d'éléments de chaque liste sérialisée */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private JavalinJackson jsonMapper;
+    private List<Repas> repas;
+    private List<Patient> patients;
+    private List<ConsommableQuantity> consommables;
+
+    /**
+     * Construit les listes à sérialiser et le mapper de Javalin.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        jsonMapper = new JavalinJackson();
+        repas = new ArrayList<>(size);
+        patients = new ArrayList<>(size);
+        consommables = new ArrayList<>(size);
+
+        OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        TypeRepas[] types = TypeRepas.values();
+        for (int i = 0; i < size; i++) {
+            repas.add(new Repas("100000005", i % 3 == 0 ? null : "100000002", start.plusHours(6L * i),
+                    "Bon appétit, repas terminé", types[i % types.length],
+                    25.5 + i % 7, 80.25 + i % 11, 30.0 + i % 5, 650.0 + i % 13, 250 + i % 3 * 100));
+
+            ArrayList<Allergene> allergenes = new ArrayList<>();
+            allergenes.add(new Allergene("Gluten"));
+            allergenes.add(new Allergene("Arachides"));
+            patients.add(new Patient(String.valueOf(100000005 + i), "100000001", "Nom" + i, "Prénom" + i,
+                    "patient" + i + "@test.com", Date.valueOf("1980-05-12"), i % 2 == 0 ? "Femme" : "Homme",
+                    Date.valueOf("2024-01-01"), allergenes));
+
+            consommables.add(new ConsommableQuantity(i, "Consommable " + i, i % 4 == 0 ? "Boisson" : "Aliment",
+                    120 + i % 50, 4.5f, 18.25f, 3.75f, 150f, 12f, 80f, 0.3f, 12.5f, 1.2f, 45f, 0.8f, 100 + i % 200));
+        }
+    }
+
+    /** Liste de repas, telle que renvoyée par GET /api/patients/{id}/repas */
+    @Benchmark
+    public String serializeRepas() {
+        return jsonMapper.toJsonString(repas, List.class);
+    }
+
+    /** Liste de patients, telle que renvoyée par GET /api/patients */
+    @Benchmark
+    public String serializePatients() {
+        return jsonMapper.toJsonString(patients, List.class);
+    }
+
+    /** Consommables d'un repas, tels que renvoyés par GET /api/repas/consommables */
+    @Benchmark
+    public String serializeConsommableQuantities() {
+        return jsonMapper.toJsonString(consommables, List.class);
+    }
+}
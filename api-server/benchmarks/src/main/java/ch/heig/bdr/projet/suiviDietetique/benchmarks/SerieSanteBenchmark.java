@@ -0,0 +1,233 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.SerieSante;
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.dao.DonneeSanteDAO;
+import ch.heig.bdr.projet.suiviDietetique.dao.PatientDAO;
+import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
+import ch.heig.bdr.projet.suiviDietetique.models.ProgressionSante;
+import ch.heig.bdr.projet.suiviDietetique.models.StatsSante;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare les lectures des mesures de santé d'un patient servies par sa série compressée
+ * en mémoire (SerieSante) aux mêmes lectures en SQL : toutes les mesures (PatientDAO),
+ * la dernière mesure (vue stats_sante_actuelles), les mesures des 90 derniers jours,
+ * leur agrégation par semaine et la progression du patient (fonction progression_patient).
+ *
+ * Les mesures du patient (une par jour, à heure variable) sont ajoutées avant l'essai et
+ * supprimées à la fin. La taille de la série, en octets par mesure, est affichée au début
+ * de chaque essai.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerieSanteBenchmark {
+
+    /** Patient dont les mesures sont lues */
+    @Param({"100000011"})
+    public String patient;
+
+    /** Nombre de mesures ajoutées au patient */
+    @Param({"100", "1000"})
+    public int mesures;
+
+    /** Fuseau des semaines (voir DonneeSanteService) */
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Zurich");
+
+    /** Date de la première mesure ajoutée, antérieure aux données de init-scripts */
+    private static final OffsetDateTime DEBUT = OffsetDateTime.of(2015, 1, 1, 7, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String INSERTION = "INSERT INTO suivi_dietetique.donnees_sante " +
+            "(noSS_patient, date, taille, poids, tourDeTaille, niveauActivitePhysique) " +
+            "SELECT ?, ?::TIMESTAMPTZ + g * INTERVAL '1 day' + (g * 37 % 120) * INTERVAL '1 minute', " +
+            "170, 80 - g / 30 + g % 3, 90 - g / 60, 'Modérément actif' " +
+            "FROM generate_series(0, ? - 1) g";
+
+    private static final String SUPPRESSION = "DELETE FROM suivi_dietetique.donnees_sante " +
+            "WHERE noSS_patient = ? AND date >= ? AND date < ?";
+
+    private static final String DERNIERE = "SELECT * FROM suivi_dietetique.stats_sante_actuelles " +
+            "WHERE noSS_patient = ?";
+
+    private static final String PLAGE = "SELECT * FROM suivi_dietetique.donnees_sante " +
+            "WHERE noSS_patient = ? AND date >= ? AND date < ? ORDER BY date";
+
+    private static final String SEMAINES = "SELECT date_trunc('week', date AT TIME ZONE 'Europe/Zurich')::DATE AS semaine, " +
+            "count(*), min(poids), max(poids), avg(poids), min(tourDeTaille), max(tourDeTaille), avg(tourDeTaille), " +
+            "min(poids / (taille / 100.0)^2), max(poids / (taille / 100.0)^2), avg(poids / (taille / 100.0)^2) " +
+            "FROM suivi_dietetique.donnees_sante WHERE noSS_patient = ? GROUP BY 1 ORDER BY 1";
+
+    private static final String PROGRESSION = "SELECT * FROM suivi_dietetique.progression_patient(?, ?, ?)";
+
+    private PatientDAO patientDAO;
+    private SerieSante serie;
+
+    /** Les 90 derniers jours de mesures ajoutées, en secondes et en dates */
+    private long debutPlage;
+    private long finPlage;
+
+    /**
+     * Ajoute les mesures du patient, construit sa série et affiche sa taille.
+     *
+     * @throws Exception Si la base ne peut pas être démarrée ou modifiée
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase.ensureStarted();
+        patientDAO = new PatientDAO();
+        supprimer();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(INSERTION)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            stmt.setObject(2, DEBUT);
+            stmt.setInt(3, mesures);
+            stmt.executeUpdate();
+        }
+
+        List<DonneeSante> donnees = new DonneeSanteDAO().getSerie(patient);
+        serie = SerieSante.de(patient, donnees);
+        LocalDate fin = DEBUT.toLocalDate().plusDays(mesures);
+        debutPlage = fin.minusDays(90).atStartOfDay(FUSEAU).toEpochSecond();
+        finPlage = fin.atStartOfDay(FUSEAU).toEpochSecond();
+        System.out.printf("%nSérie de %d mesures : %d octets (%.1f octets par mesure)%n",
+                serie.getNombre(), serie.getOctets(), (double) serie.getOctets() / serie.getNombre());
+    }
+
+    /**
+     * Supprime les mesures ajoutées.
+     *
+     * @throws Exception Si la suppression échoue
+     */
+    @TearDown(Level.Trial)
+    public void supprimer() throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SUPPRESSION)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            stmt.setObject(2, DEBUT);
+            stmt.setObject(3, DEBUT.plusDays(mesures + 1L));
+            stmt.executeUpdate();
+        }
+    }
+
+    /** Toutes les mesures : PatientDAO.getDonneeSantee */
+    @Benchmark
+    public List<DonneeSante> toutesSql() {
+        return patientDAO.getDonneeSantee(patient);
+    }
+
+    /** Toutes les mesures : décodage de la série */
+    @Benchmark
+    public List<DonneeSante> toutesMemoire() {
+        return serie.entre(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Dernière mesure : vue stats_sante_actuelles */
+    @Benchmark
+    public void derniereSql(Blackhole blackhole) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DERNIERE)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            lire(stmt, blackhole);
+        }
+    }
+
+    /** Dernière mesure : conservée décodée par la série */
+    @Benchmark
+    public DonneeSante derniereMemoire() {
+        return serie.derniere();
+    }
+
+    /** Mesures des 90 derniers jours : requête sur la clé primaire */
+    @Benchmark
+    public void plageSql(Blackhole blackhole) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(PLAGE)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            stmt.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochSecond(debutPlage), ZoneOffset.UTC));
+            stmt.setObject(3, OffsetDateTime.ofInstant(Instant.ofEpochSecond(finPlage), ZoneOffset.UTC));
+            lire(stmt, blackhole);
+        }
+    }
+
+    /** Mesures des 90 derniers jours : décodage de la série */
+    @Benchmark
+    public List<DonneeSante> plageMemoire() {
+        return serie.entre(debutPlage, finPlage);
+    }
+
+    /** Agrégation par semaine : GROUP BY en base */
+    @Benchmark
+    public void semainesSql(Blackhole blackhole) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SEMAINES)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            lire(stmt, blackhole);
+        }
+    }
+
+    /** Agrégation par semaine : parcours de la série */
+    @Benchmark
+    public List<StatsSante> semainesMemoire() {
+        return serie.parSemaine(Long.MIN_VALUE, Long.MAX_VALUE, FUSEAU);
+    }
+
+    /** Progression sur les 90 derniers jours : fonction progression_patient */
+    @Benchmark
+    public void progressionSql(Blackhole blackhole) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(PROGRESSION)) {
+            stmt.setInt(1, Integer.parseInt(patient));
+            stmt.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochSecond(debutPlage), ZoneOffset.UTC));
+            stmt.setObject(3, OffsetDateTime.ofInstant(Instant.ofEpochSecond(finPlage), ZoneOffset.UTC));
+            lire(stmt, blackhole);
+        }
+    }
+
+    /** Progression sur les 90 derniers jours : parcours de la série */
+    @Benchmark
+    public ProgressionSante progressionMemoire() {
+        return serie.progression(debutPlage, finPlage);
+    }
+
+    /**
+     * Exécute une requête et lit toutes les colonnes de toutes les lignes.
+     */
+    private static void lire(PreparedStatement stmt, Blackhole blackhole) throws Exception {
+        try (ResultSet rs = stmt.executeQuery()) {
+            int colonnes = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= colonnes; i++) {
+                    blackhole.consume(rs.getObject(i));
+                }
+            }
+        }
+    }
+}
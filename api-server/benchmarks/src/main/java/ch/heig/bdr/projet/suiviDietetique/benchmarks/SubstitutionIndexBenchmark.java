@@ -0,0 +1,141 @@
+package ch.heig.bdr.projet.suiviDietetique.benchmarks;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.SubstitutionIndex;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la recherche des substituts d'un consommable dans l'arbre à points de vue
+ * (SubstitutionIndex.chercher) au parcours complet des profils (SubstitutionIndex.parcourir),
+ * pour des catalogues générés de 10 000 à 1 000 000 de consommables.
+ *
+ * Les profils sont tirés autour de familles d'aliments (teneurs de référence variées d'un
+ * facteur aléatoire, certains nutriments absents), comme dans un vrai catalogue où les
+ * produits d'une même famille se ressemblent. Les recherches portent sur tous les types,
+ * sur le type du consommable, ou sur le type en excluant un consommable sur sept (allergies).
+ * Le temps de construction de l'index est affiché au début de chaque essai, et l'arbre est
+ * vérifié contre le parcours complet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class SubstitutionIndexBenchmark {
+
+    /** Nombre de consommables du catalogue */
+    @Param({"10000", "100000", "1000000"})
+    public int taille;
+
+    /** Filtre des substituts */
+    @Param({"aucun", "type", "allergies"})
+    public String filtre;
+
+    /** Nombre de substituts demandés, comme la valeur par défaut de l'API */
+    private static final int K = 10;
+
+    /** Nombre de familles d'aliments */
+    private static final int FAMILLES = 40;
+
+    /** Nombre de consommables à remplacer, parcourus à tour de rôle */
+    private static final int SOURCES = 256;
+
+    private SubstitutionIndex index;
+    private TypeConsommable[] types;
+    private BitSet exclus;
+    private int[] sources;
+    private int suivant;
+
+    /**
+     * Génère le catalogue et construit l'index.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int dimensions = SubstitutionIndex.NUTRIMENTS.size();
+        float[][] references = new float[FAMILLES][dimensions];
+        for (float[] reference : references) {
+            for (int j = 0; j < dimensions; j++) {
+                // Ordres de grandeur de 0,1 à 1000 ; un nutriment sur quatre absent de la famille
+                reference[j] = random.nextInt(4) == 0 ? 0 : (float) Math.pow(10, random.nextDouble() * 4 - 1);
+            }
+        }
+
+        int[] ids = new int[taille];
+        types = new TypeConsommable[taille];
+        float[][] colonnes = new float[dimensions][taille];
+        exclus = new BitSet();
+        for (int i = 0; i < taille; i++) {
+            int famille = random.nextInt(FAMILLES);
+            ids[i] = i + 1;
+            types[i] = famille % 4 == 0 ? TypeConsommable.BOISSON : TypeConsommable.ALIMENT;
+            for (int j = 0; j < dimensions; j++) {
+                colonnes[j][i] = references[famille][j] * (float) Math.exp(random.nextGaussian() * 0.4);
+            }
+            if (random.nextInt(7) == 0) {
+                exclus.set(ids[i]);
+            }
+        }
+        sources = new int[SOURCES];
+        for (int s = 0; s < SOURCES; s++) {
+            sources[s] = 1 + random.nextInt(taille);
+        }
+
+        long debut = System.nanoTime();
+        index = new SubstitutionIndex(ids, types, colonnes);
+        System.out.printf("%nIndex de %d consommables construit en %d ms%n",
+                taille, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+
+        for (int source : sources) {
+            if (!Arrays.equals(arbre(source), parcours(source))) {
+                throw new IllegalStateException("Substituts différents du parcours complet pour " + source);
+            }
+        }
+    }
+
+    /** Recherche dans l'arbre à points de vue */
+    @Benchmark
+    public int[] arbre() {
+        return arbre(source());
+    }
+
+    /** Comparaison du profil à tous les consommables */
+    @Benchmark
+    public int[] parcours() {
+        return parcours(source());
+    }
+
+    private int source() {
+        suivant = (suivant + 1) % SOURCES;
+        return sources[suivant];
+    }
+
+    private int[] arbre(int source) {
+        return index.chercher(source, type(source), "allergies".equals(filtre) ? exclus : null, K);
+    }
+
+    private int[] parcours(int source) {
+        return index.parcourir(source, type(source), "allergies".equals(filtre) ? exclus : null, K);
+    }
+
+    private TypeConsommable type(int source) {
+        return "aucun".equals(filtre) ? null : types[source - 1];
+    }
+}
@@ -1,9 +1,17 @@
 package ch.heig.bdr.projet.suiviDietetique;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.AllergyIndex;
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCaches;
+import ch.heig.bdr.projet.suiviDietetique.cache.SeriesSante;
+import ch.heig.bdr.projet.suiviDietetique.config.RequestExecution;
+import ch.heig.bdr.projet.suiviDietetique.config.ResponseCompression;
+import ch.heig.bdr.projet.suiviDietetique.metrics.RequestMetrics;
 import ch.heig.bdr.projet.suiviDietetique.security.AppAccessManager;
+import ch.heig.bdr.projet.suiviDietetique.security.Sessions;
 import ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes.AuthRoutesController;
 import ch.heig.bdr.projet.suiviDietetique.controllers.unauthRoutes.UnauthRoutesController;
 import io.javalin.*;
+import io.javalin.http.Header;
 
 /**
  * Classe principale de l'application de Suivi Diététique.
@@ -13,23 +21,57 @@ public class Main {
     /**
      * Point d'entrée principal de l'application.
      * Configure et démarre le serveur Javalin avec les paramètres suivants :
-     * - Port d'écoute : 7070
+     * - Port d'écoute : 80
      * - Gestionnaire d'accès personnalisé pour la sécurité
      * - Routes authentifiées et non authentifiées
      *
      * @param args Arguments de la ligne de commande (non utilisés)
      */
     public static void main(String[] args) {
+        createApp().start(80);
+    }
+
+    /**
+     * Crée l'instance Javalin de l'application, sans la démarrer.
+     * Le serveur Jetty exécute les requêtes sur des threads système ou virtuels
+     * selon la configuration (voir {@link RequestExecution}).
+     *
+     * @return L'instance Javalin configurée, avec toutes les routes enregistrées
+     */
+    public static Javalin createApp() {
         // Création et configuration de l'instance Javalin
         Javalin app = Javalin.create(config -> {
+            // Serveur Jetty avec le pool de threads du mode d'exécution configuré
+            config.jetty.server(RequestExecution::createServer);
+
+            // Compression Brotli ou gzip des réponses, au-delà d'une taille minimale
+            config.compression.custom(ResponseCompression.createStrategy());
+
             // Configuration du gestionnaire d'accès pour la sécurité
-            config.accessManager(new AppAccessManager());
-        }).start(80);
+            config.accessManager(new AppAccessManager(RequestExecution.getLimiter()));
+        });
+
+        // Les réponses compressées dépendent de l'en-tête Accept-Encoding de la requête
+        app.before(ctx -> ctx.header(Header.VARY, Header.ACCEPT_ENCODING));
+
+        // Mesure des latences de toutes les requêtes (exportées sur /api/metrics)
+        RequestMetrics.register(app);
+
+        // Vérification de la configuration des sessions dès le démarrage
+        Sessions.start();
+
+        // Construction de l'index des allergies dès le démarrage (mis à jour par LISTEN/NOTIFY)
+        AllergyIndex.start();
+
+        // Écoute des invalidations des caches de lectures dès le démarrage
+        LookupCaches.start();
+        SeriesSante.start();
 
         // Enregistrement des routes non authentifiées (publiques)
         UnauthRoutesController.registerRoutes(app);
-        
+
         // Enregistrement des routes authentifiées (protégées)
         AuthRoutesController.registerRoutes(app);
+        return app;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.dao.AllergeneDAO;
+import ch.heig.bdr.projet.suiviDietetique.dao.ChangeNotifications;
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.ConflitAllergie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index en mémoire des consommables interdits à chaque patient en raison de ses allergies.
+ *
+ * L'index associe à chaque allergène l'ensemble (BitSet indexé par identifiant) des
+ * consommables qui peuvent le contenir (table peut_contenir), et à chaque patient l'union
+ * de ces ensembles pour ses allergènes (table est_allergique). Vérifier un repas revient
+ * alors à tester un bit par consommable, sans accès à la base.
+ *
+ * L'index est tenu à jour par les notifications des triggers : une modification des
+ * allergies ne recalcule que les patients concernés, une modification de peut_contenir
+ * reconstruit l'index. Toutes les mises à jour sont faites par le thread d'écoute, seul
+ * écrivain. Tant que l'index n'est pas construit ou que l'écoute est interrompue, les
+ * vérifications sont faites directement en base.
+ */
+public final class AllergyIndex {
+    /** Canal notifié lors d'une modification des allergies des patients (noSS en charge utile) */
+    public static final String CHANNEL_ALLERGIES = "allergie_modifiee";
+
+    /** Canal notifié lors d'une modification des allergènes des consommables */
+    public static final String CHANNEL_CONSOMMABLES = "allergene_consommable_modifie";
+
+    /** Accès aux allergies en base */
+    private static final AllergeneDAO allergeneDAO = new AllergeneDAO();
+
+    /** Reconstructions complètes de l'index */
+    private static final LongAdder REBUILDS = new LongAdder();
+
+    /** Recalculs des allergies d'un patient */
+    private static final LongAdder PATIENT_REFRESHES = new LongAdder();
+
+    /** Vérifications faites avec l'index */
+    private static final LongAdder INDEX_CHECKS = new LongAdder();
+
+    /** Vérifications faites en base, faute d'index à jour */
+    private static final LongAdder DATABASE_CHECKS = new LongAdder();
+
+    /** Index courant (null tant qu'il n'est pas construit ou après l'échec d'une mise à jour) */
+    private static volatile Index current;
+
+    static {
+        ChangeNotifications.subscribe(CHANNEL_ALLERGIES, AllergyIndex::onAllergiesChanged);
+        ChangeNotifications.subscribe(CHANNEL_CONSOMMABLES, payload -> update(AllergyIndex::rebuild));
+    }
+
+    /**
+     * Allergies d'un patient.
+     *
+     * @param allergenes Les allergènes du patient
+     * @param interdits Les identifiants des consommables pouvant contenir l'un de ces allergènes
+     */
+    private record PatientAllergies(String[] allergenes, BitSet interdits) {}
+
+    /**
+     * Contenu de l'index. Les ensembles de bits ne sont jamais modifiés après publication ;
+     * seule la table des patients est mise à jour, entrée par entrée.
+     *
+     * @param consommablesParAllergene Les consommables pouvant contenir chaque allergène
+     * @param patients Les allergies des patients ayant au moins une allergie
+     */
+    private record Index(Map<String, BitSet> consommablesParAllergene, Map<Integer, PatientAllergies> patients) {
+
+        /**
+         * Calcule les allergies d'un patient à partir de la liste de ses allergènes.
+         *
+         * @param allergenes Les noms des allergènes du patient
+         * @return Les allergies du patient
+         */
+        PatientAllergies allergies(List<String> allergenes) {
+            BitSet interdits = new BitSet();
+            for (String allergene : allergenes) {
+                BitSet consommables = consommablesParAllergene.get(allergene);
+                if (consommables != null) {
+                    interdits.or(consommables);
+                }
+            }
+            return new PatientAllergies(allergenes.toArray(new String[0]), interdits);
+        }
+
+        /**
+         * Recherche les consommables interdits au patient dans une liste.
+         *
+         * @param noss Le numéro de sécurité sociale du patient
+         * @param idsConsommables Les identifiants des consommables à vérifier
+         * @return Les allergènes en cause, par identifiant de consommable
+         */
+        Map<Integer, List<String>> conflits(int noss, int[] idsConsommables) {
+            Map<Integer, List<String>> conflits = new LinkedHashMap<>();
+            PatientAllergies allergies = patients.get(noss);
+            if (allergies == null) {
+                return conflits;
+            }
+            for (int id : idsConsommables) {
+                if (id < 0 || !allergies.interdits().get(id) || conflits.containsKey(id)) {
+                    continue;
+                }
+                List<String> allergenes = new ArrayList<>();
+                for (String allergene : allergies.allergenes()) {
+                    BitSet consommables = consommablesParAllergene.get(allergene);
+                    if (consommables != null && consommables.get(id)) {
+                        allergenes.add(allergene);
+                    }
+                }
+                conflits.put(id, allergenes);
+            }
+            return conflits;
+        }
+    }
+
+    /** Classe utilitaire, non instanciable */
+    private AllergyIndex() {}
+
+    /**
+     * Démarre l'écoute des modifications et la construction de l'index.
+     * L'appel est facultatif : sans lui, l'index est construit à la première vérification.
+     */
+    public static void start() {
+        // Le chargement de la classe suffit à s'abonner aux notifications
+    }
+
+    /**
+     * Recherche les consommables d'une liste incompatibles avec les allergies d'un patient.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param idsConsommables Les identifiants des consommables à vérifier
+     * @return Les conflits trouvés (liste vide si tous les consommables sont compatibles)
+     * @throws Exception Si la vérification doit être faite en base et que la lecture échoue
+     */
+    public static List<ConflitAllergie> conflits(int noss, int[] idsConsommables) throws Exception {
+        Index index = current;
+        Map<Integer, List<String>> conflits;
+        if (index != null && ChangeNotifications.isConnected()) {
+            INDEX_CHECKS.increment();
+            conflits = index.conflits(noss, idsConsommables);
+        } else {
+            DATABASE_CHECKS.increment();
+            conflits = allergeneDAO.findConflits(noss, idsConsommables);
+        }
+        if (conflits.isEmpty()) {
+            return List.of();
+        }
+
+        ConsommableCatalog catalog = ConsommableCatalog.current();
+        List<ConflitAllergie> resultat = new ArrayList<>(conflits.size());
+        for (Map.Entry<Integer, List<String>> conflit : conflits.entrySet()) {
+            Consommable consommable = catalog.find(conflit.getKey());
+            resultat.add(new ConflitAllergie(conflit.getKey(),
+                    consommable == null ? null : consommable.getNom(), conflit.getValue()));
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne les consommables interdits à un patient en raison de ses allergies, et ceux
+     * pouvant contenir des allergènes donnés (noms sans tenir compte de la casse).
+     *
+     * @param noss Le numéro de sécurité sociale du patient, ou null
+     * @param allergenes Les allergènes à exclure en plus de ceux du patient
+     * @return Les identifiants des consommables interdits (ensemble à la disposition de l'appelant)
+     * @throws Exception Si l'index n'est pas à jour et que la lecture en base échoue
+     */
+    public static BitSet interdits(Integer noss, List<String> allergenes) throws Exception {
+        Index index = current;
+        Map<String, BitSet> consommablesParAllergene;
+        List<String> exclus = new ArrayList<>(allergenes);
+        if (index != null && ChangeNotifications.isConnected()) {
+            INDEX_CHECKS.increment();
+            consommablesParAllergene = index.consommablesParAllergene();
+            PatientAllergies allergies = noss == null ? null : index.patients().get(noss);
+            if (allergies != null) {
+                exclus.addAll(List.of(allergies.allergenes()));
+            }
+        } else {
+            DATABASE_CHECKS.increment();
+            consommablesParAllergene = allergeneDAO.getConsommablesParAllergene();
+            if (noss != null) {
+                exclus.addAll(allergeneDAO.getAllergiesPatient(noss));
+            }
+        }
+
+        BitSet interdits = new BitSet();
+        for (Map.Entry<String, BitSet> allergene : consommablesParAllergene.entrySet()) {
+            for (String exclu : exclus) {
+                if (allergene.getKey().equalsIgnoreCase(exclu)) {
+                    interdits.or(allergene.getValue());
+                    break;
+                }
+            }
+        }
+        return interdits;
+    }
+
+    /**
+     * Traite une notification de modification des allergies.
+     *
+     * @param payload Les noSS des patients modifiés, séparés par des virgules (vide ou null : tous)
+     */
+    private static void onAllergiesChanged(String payload) {
+        if (payload == null || payload.isEmpty() || current == null) {
+            update(AllergyIndex::rebuild);
+            return;
+        }
+        update(() -> {
+            Index index = current;
+            for (String noss : payload.split(",")) {
+                refreshPatient(index, Integer.parseInt(noss.trim()));
+            }
+        });
+    }
+
+    /**
+     * Applique une mise à jour de l'index. En cas d'échec, l'index est abandonné (vérifications
+     * en base) et l'erreur est propagée : l'écoute est alors réinitialisée, ce qui reconstruit l'index.
+     *
+     * @param update La mise à jour à appliquer
+     */
+    private static void update(IndexUpdate update) {
+        try {
+            update.apply();
+        } catch (Exception e) {
+            current = null;
+            throw new IllegalStateException("Mise à jour de l'index des allergies impossible", e);
+        }
+    }
+
+    /**
+     * Reconstruit entièrement l'index depuis la base.
+     *
+     * @throws Exception Si la lecture échoue
+     */
+    private static void rebuild() throws Exception {
+        Index index = new Index(allergeneDAO.getConsommablesParAllergene(), new ConcurrentHashMap<>());
+        for (Map.Entry<Integer, List<String>> patient : allergeneDAO.getAllergiesParPatient().entrySet()) {
+            index.patients().put(patient.getKey(), index.allergies(patient.getValue()));
+        }
+        current = index;
+        REBUILDS.increment();
+    }
+
+    /**
+     * Recalcule les allergies d'un patient depuis la base.
+     *
+     * @param index L'index à mettre à jour
+     * @param noss Le numéro de sécurité sociale du patient
+     * @throws Exception Si la lecture échoue
+     */
+    private static void refreshPatient(Index index, int noss) throws Exception {
+        List<String> allergenes = allergeneDAO.getAllergiesPatient(noss);
+        if (allergenes.isEmpty()) {
+            index.patients().remove(noss);
+        } else {
+            index.patients().put(noss, index.allergies(allergenes));
+        }
+        PATIENT_REFRESHES.increment();
+    }
+
+    /**
+     * Mise à jour de l'index pouvant lire la base.
+     */
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void apply() throws Exception;
+    }
+
+    public static boolean isReady() {
+        return current != null && ChangeNotifications.isConnected();
+    }
+
+    public static long getRebuilds() {
+        return REBUILDS.sum();
+    }
+
+    public static long getPatientRefreshes() {
+        return PATIENT_REFRESHES.sum();
+    }
+
+    public static long getIndexChecks() {
+        return INDEX_CHECKS.sum();
+    }
+
+    public static long getDatabaseChecks() {
+        return DATABASE_CHECKS.sum();
+    }
+}
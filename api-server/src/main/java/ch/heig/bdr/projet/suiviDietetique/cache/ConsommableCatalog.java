@@ -0,0 +1,436 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.dao.ChangeNotifications;
+import ch.heig.bdr.projet.suiviDietetique.dao.ConsommableDAO;
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.Nutriment;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+import io.javalin.json.JavalinJackson;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Catalogue des consommables conservé en mémoire.
+ *
+ * Le catalogue ne change que rarement : il est lu une fois depuis la base, puis servi
+ * depuis la mémoire jusqu'à ce que le trigger de la table consommable émette une
+ * notification sur le canal {@value #CHANNEL}. Chaque réplique de l'API reçoit cette
+ * notification et recharge son catalogue à la requête suivante.
+ *
+ * Un catalogue est immuable : les valeurs sont stockées par colonne dans des tableaux
+ * de types primitifs, triés par identifiant, et la réponse JSON complète est sérialisée
+ * une seule fois au chargement. L'ETag est calculé sur ces octets : il est donc identique
+ * sur toutes les répliques tant que le contenu est le même.
+ */
+public final class ConsommableCatalog {
+    /** Canal de notification émis par le trigger tg_notifier_consommable_modifie */
+    public static final String CHANNEL = "consommable_modifie";
+
+    /** Indices des colonnes de nutriments du {@link Builder} */
+    public static final int NUTRIMENT_PROTEINES = 0;
+    public static final int NUTRIMENT_FIBRES = 1;
+    public static final int NUTRIMENT_LIPIDES = 2;
+    public static final int NUTRIMENT_POTASSIUM = 3;
+    public static final int NUTRIMENT_CHOLESTEROL = 4;
+    public static final int NUTRIMENT_SODIUM = 5;
+    public static final int NUTRIMENT_VIT_A = 6;
+    public static final int NUTRIMENT_VIT_C = 7;
+    public static final int NUTRIMENT_VIT_D = 8;
+    public static final int NUTRIMENT_CALCIUM = 9;
+    public static final int NUTRIMENT_FER = 10;
+    public static final int NUTRIMENT_SUCRE = 11;
+    private static final int NUTRIMENTS = 12;
+
+    /** Génération courante, incrémentée à chaque notification */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /** Nombre de chargements depuis la base depuis le démarrage */
+    private static final AtomicLong LOADS = new AtomicLong();
+
+    /** Verrou des chargements (un verrou explicite n'immobilise pas le thread porteur d'un thread virtuel) */
+    private static final ReentrantLock LOAD_LOCK = new ReentrantLock();
+
+    /** Catalogue courant (null tant qu'aucun chargement n'a eu lieu) */
+    private static volatile ConsommableCatalog current;
+
+    static {
+        ChangeNotifications.subscribe(CHANNEL, payload -> invalidate());
+    }
+
+    /** Génération de la base à laquelle ce catalogue a été lu */
+    private final long generation;
+
+    private final int[] ids;
+    private final String[] noms;
+    private final TypeConsommable[] types;
+    private final int[] calories;
+    private final float[] proteines;
+    private final float[] glucides;
+    private final float[] fibres;
+    private final float[] sucre;
+    private final float[] lipides;
+    private final float[] potassium;
+    private final float[] cholesterol;
+    private final float[] sodium;
+    private final float[] vitA;
+    private final float[] vitC;
+    private final float[] vitD;
+    private final float[] calcium;
+    private final float[] fer;
+
+    /** Réponse JSON pré-sérialisée de la liste complète */
+    private final byte[] json;
+
+    /** ETag de la réponse JSON */
+    private final String etag;
+
+    /** Index des valeurs nutritionnelles, construit à la première requête (voir {@link #nutriments()}) */
+    private volatile NutrimentIndex nutriments;
+
+    /** Index des profils nutritionnels, construit à la première requête (voir {@link #substitutions()}) */
+    private volatile SubstitutionIndex substitutions;
+
+    /**
+     * Construit un catalogue immuable à partir des colonnes remplies par un {@link Builder}.
+     *
+     * @param builder Le constructeur contenant les lignes lues
+     * @param generation La génération à laquelle le chargement a commencé
+     */
+    private ConsommableCatalog(Builder builder, long generation) {
+        this.generation = generation;
+        int n = builder.size;
+
+        // Tri des lignes par identifiant pour la recherche dichotomique
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(builder.ids[a], builder.ids[b]));
+
+        ids = new int[n];
+        noms = new String[n];
+        types = new TypeConsommable[n];
+        calories = new int[n];
+        proteines = new float[n];
+        glucides = new float[n];
+        fibres = new float[n];
+        sucre = new float[n];
+        lipides = new float[n];
+        potassium = new float[n];
+        cholesterol = new float[n];
+        sodium = new float[n];
+        vitA = new float[n];
+        vitC = new float[n];
+        vitD = new float[n];
+        calcium = new float[n];
+        fer = new float[n];
+        for (int i = 0; i < n; i++) {
+            int row = order[i];
+            ids[i] = builder.ids[row];
+            noms[i] = builder.noms[row];
+            types[i] = builder.types[row];
+            calories[i] = builder.calories[row];
+            proteines[i] = builder.nutriments[NUTRIMENT_PROTEINES][row];
+            fibres[i] = builder.nutriments[NUTRIMENT_FIBRES][row];
+            sucre[i] = builder.nutriments[NUTRIMENT_SUCRE][row];
+            glucides[i] = fibres[i] + sucre[i];
+            lipides[i] = builder.nutriments[NUTRIMENT_LIPIDES][row];
+            potassium[i] = builder.nutriments[NUTRIMENT_POTASSIUM][row];
+            cholesterol[i] = builder.nutriments[NUTRIMENT_CHOLESTEROL][row];
+            sodium[i] = builder.nutriments[NUTRIMENT_SODIUM][row];
+            vitA[i] = builder.nutriments[NUTRIMENT_VIT_A][row];
+            vitC[i] = builder.nutriments[NUTRIMENT_VIT_C][row];
+            vitD[i] = builder.nutriments[NUTRIMENT_VIT_D][row];
+            calcium[i] = builder.nutriments[NUTRIMENT_CALCIUM][row];
+            fer[i] = builder.nutriments[NUTRIMENT_FER][row];
+        }
+
+        try {
+            json = JavalinJackson.defaultMapper().writeValueAsBytes(toList());
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            etag = "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (Exception e) {
+            throw new IllegalStateException("Sérialisation du catalogue des consommables impossible", e);
+        }
+    }
+
+    /**
+     * Retourne le catalogue à jour, en le rechargeant depuis la base s'il a été invalidé.
+     * Un seul chargement a lieu à la fois : les requêtes concurrentes attendent son résultat.
+     *
+     * @return Le catalogue des consommables
+     * @throws Exception Si le catalogue ne peut pas être lu depuis la base
+     */
+    public static ConsommableCatalog current() throws Exception {
+        ConsommableCatalog catalog = current;
+        if (catalog != null && catalog.generation == GENERATION.get()) {
+            return catalog;
+        }
+        LOAD_LOCK.lock();
+        try {
+            catalog = current;
+            long generation = GENERATION.get();
+            if (catalog == null || catalog.generation != generation) {
+                // Une notification reçue pendant la lecture rendra ce catalogue périmé
+                catalog = new ConsommableDAO().loadCatalog(new Builder()).build(generation);
+                LOADS.incrementAndGet();
+                current = catalog;
+            }
+            return catalog;
+        } finally {
+            LOAD_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Marque le catalogue courant comme périmé ; il sera relu à la prochaine requête.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    public static long getLoads() {
+        return LOADS.get();
+    }
+
+    /**
+     * Retourne le nombre de consommables du catalogue.
+     *
+     * @return Le nombre de consommables
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Retourne l'identifiant du consommable d'une ligne du catalogue.
+     *
+     * @param i L'indice de la ligne, par identifiant croissant
+     * @return L'identifiant du consommable
+     */
+    int id(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Retourne le nom du consommable d'une ligne du catalogue.
+     *
+     * @param i L'indice de la ligne, par identifiant croissant
+     * @return Le nom du consommable
+     */
+    String nom(int i) {
+        return noms[i];
+    }
+
+    /**
+     * Recherche un consommable par identifiant.
+     *
+     * @param id L'identifiant du consommable
+     * @return Le consommable, ou null s'il n'existe pas
+     */
+    public Consommable find(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? null : get(index);
+    }
+
+    /**
+     * Recherche le type d'un consommable par identifiant.
+     *
+     * @param id L'identifiant du consommable
+     * @return Le type du consommable, ou null s'il n'existe pas
+     */
+    public TypeConsommable findType(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? null : types[index];
+    }
+
+    /**
+     * Retourne tous les consommables, triés par identifiant croissant.
+     *
+     * @return Une nouvelle liste des consommables du catalogue
+     */
+    public List<Consommable> toList() {
+        List<Consommable> consommables = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            consommables.add(get(i));
+        }
+        return consommables;
+    }
+
+    /**
+     * Retourne la liste complète sérialisée en JSON.
+     * Le tableau retourné est partagé : il ne doit pas être modifié.
+     *
+     * @return Les octets JSON de la liste des consommables
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    /**
+     * Retourne l'ETag (fort) de la réponse JSON.
+     *
+     * @return L'ETag, guillemets compris
+     */
+    public String etag() {
+        return etag;
+    }
+
+    /**
+     * Retourne l'index des valeurs nutritionnelles de ce catalogue, construit au premier appel.
+     *
+     * @return L'index des valeurs nutritionnelles
+     */
+    public NutrimentIndex nutriments() {
+        NutrimentIndex index = nutriments;
+        if (index == null) {
+            // Deux constructions simultanées donnent le même index : la dernière est conservée
+            index = new NutrimentIndex(this);
+            nutriments = index;
+        }
+        return index;
+    }
+
+    /**
+     * Retourne l'index des profils nutritionnels de ce catalogue, construit au premier appel.
+     *
+     * @return L'index des profils nutritionnels
+     */
+    public SubstitutionIndex substitutions() {
+        SubstitutionIndex index = substitutions;
+        if (index == null) {
+            float[][] colonnes = new float[SubstitutionIndex.NUTRIMENTS.size()][];
+            for (int j = 0; j < colonnes.length; j++) {
+                colonnes[j] = colonne(SubstitutionIndex.NUTRIMENTS.get(j));
+            }
+            index = new SubstitutionIndex(ids, types, colonnes);
+            substitutions = index;
+        }
+        return index;
+    }
+
+    /**
+     * Retourne la colonne d'un nutriment, par ligne du catalogue.
+     * Le tableau retourné est partagé : il ne doit pas être modifié.
+     *
+     * @param nutriment Le nutriment
+     * @return Les teneurs des consommables en ce nutriment
+     */
+    float[] colonne(Nutriment nutriment) {
+        return switch (nutriment) {
+            case CALORIES -> {
+                float[] valeurs = new float[calories.length];
+                for (int i = 0; i < valeurs.length; i++) {
+                    valeurs[i] = calories[i];
+                }
+                yield valeurs;
+            }
+            case PROTEINES -> proteines;
+            case GLUCIDES -> glucides;
+            case FIBRES -> fibres;
+            case SUCRE -> sucre;
+            case LIPIDES -> lipides;
+            case POTASSIUM -> potassium;
+            case CHOLESTEROL -> cholesterol;
+            case SODIUM -> sodium;
+            case VIT_A -> vitA;
+            case VIT_C -> vitC;
+            case VIT_D -> vitD;
+            case CALCIUM -> calcium;
+            case FER -> fer;
+        };
+    }
+
+    /**
+     * Retourne le type du consommable d'une ligne du catalogue.
+     *
+     * @param i L'indice de la ligne, par identifiant croissant
+     * @return Le type du consommable
+     */
+    TypeConsommable type(int i) {
+        return types[i];
+    }
+
+    /**
+     * Reconstruit le consommable d'une ligne du catalogue.
+     *
+     * @param i L'indice de la ligne
+     * @return Le consommable correspondant
+     */
+    Consommable get(int i) {
+        return new Consommable(ids[i], noms[i], types[i].name, calories[i], proteines[i], glucides[i],
+                lipides[i], potassium[i], cholesterol[i], sodium[i], vitA[i], vitC[i], vitD[i],
+                calcium[i], fer[i]);
+    }
+
+    /**
+     * Accumule les lignes lues depuis la base, sans créer d'objet par consommable.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[64];
+        private String[] noms = new String[64];
+        private TypeConsommable[] types = new TypeConsommable[64];
+        private int[] calories = new int[64];
+        private float[][] nutriments = new float[NUTRIMENTS][64];
+
+        /** Indice de la ligne en cours de remplissage */
+        private int row = -1;
+
+        /**
+         * Commence une nouvelle ligne.
+         *
+         * @param id L'identifiant du consommable
+         * @param nom Le nom du consommable
+         * @param type Le type du consommable (Aliment ou Boisson)
+         * @param calories La valeur calorique
+         * @return Ce constructeur, pour renseigner les nutriments de la ligne
+         */
+        public Builder add(int id, String nom, String type, int calories) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                noms = Arrays.copyOf(noms, capacity);
+                types = Arrays.copyOf(types, capacity);
+                this.calories = Arrays.copyOf(this.calories, capacity);
+                for (int i = 0; i < NUTRIMENTS; i++) {
+                    nutriments[i] = Arrays.copyOf(nutriments[i], capacity);
+                }
+            }
+            row = size++;
+            ids[row] = id;
+            noms[row] = nom;
+            types[row] = TypeConsommable.type(type);
+            this.calories[row] = calories;
+            return this;
+        }
+
+        /**
+         * Renseigne un nutriment de la ligne en cours.
+         *
+         * @param nutriment L'indice du nutriment (constantes NUTRIMENT_*)
+         * @param value La teneur du nutriment
+         * @return Ce constructeur
+         */
+        public Builder set(int nutriment, float value) {
+            nutriments[nutriment][row] = value;
+            return this;
+        }
+
+        /**
+         * Construit le catalogue immuable.
+         *
+         * @param generation La génération à laquelle la lecture a commencé
+         * @return Le catalogue
+         */
+        ConsommableCatalog build(long generation) {
+            return new ConsommableCatalog(this, generation);
+        }
+    }
+}
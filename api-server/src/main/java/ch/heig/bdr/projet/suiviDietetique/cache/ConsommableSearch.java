@@ -0,0 +1,202 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recherche des consommables par nom (voir {@link ConsommableSearchIndex}), tenue à jour
+ * avec le catalogue en mémoire ({@link ConsommableCatalog}).
+ *
+ * À chaque nouveau catalogue, les noms sont comparés à ceux du catalogue précédent. Seuls les
+ * consommables ajoutés, renommés ou supprimés sont pris en compte : ils sont retirés de l'index
+ * principal (sans le reconstruire) et les noms ajoutés ou modifiés sont placés dans un petit
+ * index complémentaire, reconstruit à chaque modification. Une modification des seules valeurs
+ * nutritionnelles ne touche pas à l'index. L'index principal n'est reconstruit que lorsque plus
+ * de RECHERCHE_CONSOMMABLES_DELTA_MAX consommables ont été modifiés depuis sa construction.
+ */
+public final class ConsommableSearch {
+    /** Nombre de résultats par défaut et nombre maximal de résultats */
+    public static final int LIMITE_DEFAUT = 10;
+    public static final int LIMITE_MAX = 50;
+
+    /** Nombre de consommables modifiés au-delà duquel l'index principal est reconstruit */
+    private static final int DELTA_MAX = Env.getInt("RECHERCHE_CONSOMMABLES_DELTA_MAX", 1024);
+
+    /** Reconstructions de l'index principal */
+    private static final AtomicLong REBUILDS = new AtomicLong();
+
+    /** Mises à jour de l'index complémentaire */
+    private static final AtomicLong UPDATES = new AtomicLong();
+
+    /** Verrou des mises à jour (un verrou explicite n'immobilise pas le thread porteur d'un thread virtuel) */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    /** État courant (null tant qu'aucune recherche n'a eu lieu) */
+    private static volatile Etat current;
+
+    /**
+     * Index d'un catalogue.
+     *
+     * @param catalog Le catalogue indexé
+     * @param principal L'index construit à partir d'un catalogue antérieur
+     * @param exclus Les positions des consommables de l'index principal supprimés ou renommés depuis
+     * @param ajouts Les noms des consommables ajoutés ou renommés depuis, par identifiant
+     * @param complementaire L'index des ajouts
+     */
+    private record Etat(ConsommableCatalog catalog, ConsommableSearchIndex principal, BitSet exclus,
+                        Map<Integer, String> ajouts, ConsommableSearchIndex complementaire) {}
+
+    /** Classe utilitaire, non instanciable */
+    private ConsommableSearch() {}
+
+    /**
+     * Recherche les consommables dont le nom correspond à un texte saisi.
+     *
+     * @param texte Le texte saisi
+     * @param limite Le nombre maximal de résultats, entre 1 et {@value #LIMITE_MAX}
+     * @return Les consommables trouvés, du plus pertinent au moins pertinent
+     * @throws IllegalArgumentException Si la limite est invalide
+     * @throws Exception Si le catalogue ne peut pas être lu depuis la base
+     */
+    public static List<Consommable> chercher(String texte, int limite) throws Exception {
+        if (limite < 1 || limite > LIMITE_MAX) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + LIMITE_MAX);
+        }
+        ConsommableSearchIndex.Requete requete = ConsommableSearchIndex.Requete.de(texte);
+        if (requete.estVide()) {
+            return new ArrayList<>();
+        }
+        Etat etat = etat(ConsommableCatalog.current());
+
+        List<ConsommableSearchIndex.Resultat> resultats = etat.principal().chercher(requete, limite, etat.exclus());
+        if (!etat.ajouts().isEmpty()) {
+            resultats.addAll(etat.complementaire().chercher(requete, limite, null));
+            resultats.sort(ConsommableSearchIndex.ORDRE);
+        }
+
+        List<Consommable> consommables = new ArrayList<>(Math.min(limite, resultats.size()));
+        for (ConsommableSearchIndex.Resultat resultat : resultats) {
+            if (consommables.size() == limite) {
+                break;
+            }
+            consommables.add(etat.catalog().find(resultat.id()));
+        }
+        return consommables;
+    }
+
+    /**
+     * Retourne l'index du catalogue donné, en le mettant à jour si le catalogue a changé.
+     *
+     * @param catalog Le catalogue courant
+     * @return L'état de l'index pour ce catalogue
+     */
+    private static Etat etat(ConsommableCatalog catalog) {
+        Etat etat = current;
+        if (etat != null && etat.catalog() == catalog) {
+            return etat;
+        }
+        LOCK.lock();
+        try {
+            etat = current;
+            if (etat == null || etat.catalog() != catalog) {
+                etat = etat == null ? construire(catalog) : mettreAJour(etat, catalog);
+                current = etat;
+            }
+            return etat;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Construit l'index principal de tout le catalogue.
+     */
+    private static Etat construire(ConsommableCatalog catalog) {
+        int[] ids = new int[catalog.size()];
+        String[] noms = new String[catalog.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = catalog.id(i);
+            noms[i] = catalog.nom(i);
+        }
+        REBUILDS.incrementAndGet();
+        return new Etat(catalog, new ConsommableSearchIndex(ids, noms), new BitSet(), Map.of(),
+                ConsommableSearchIndex.VIDE);
+    }
+
+    /**
+     * Reporte les différences de noms entre le catalogue indexé et le nouveau catalogue.
+     * Les deux catalogues sont triés par identifiant : ils sont parcourus ensemble.
+     */
+    private static Etat mettreAJour(Etat etat, ConsommableCatalog catalog) {
+        ConsommableCatalog ancien = etat.catalog();
+        BitSet exclus = (BitSet) etat.exclus().clone();
+        TreeMap<Integer, String> ajouts = new TreeMap<>(etat.ajouts());
+        boolean modifie = false;
+        int i = 0;
+        int j = 0;
+        while (i < ancien.size() || j < catalog.size()) {
+            int idAncien = i < ancien.size() ? ancien.id(i) : Integer.MAX_VALUE;
+            int idNouveau = j < catalog.size() ? catalog.id(j) : Integer.MAX_VALUE;
+            if (idAncien == idNouveau && ancien.nom(i).equals(catalog.nom(j))) {
+                i++;
+                j++;
+                continue;
+            }
+            modifie = true;
+            if (idAncien <= idNouveau) {
+                retirer(etat, exclus, ajouts, idAncien);
+                i++;
+            }
+            if (idNouveau <= idAncien) {
+                ajouts.put(idNouveau, catalog.nom(j));
+                j++;
+            }
+        }
+        if (!modifie) {
+            return new Etat(catalog, etat.principal(), etat.exclus(), etat.ajouts(), etat.complementaire());
+        }
+        if (ajouts.size() + exclus.cardinality() > DELTA_MAX) {
+            return construire(catalog);
+        }
+
+        int[] ids = new int[ajouts.size()];
+        String[] noms = new String[ajouts.size()];
+        int k = 0;
+        for (Map.Entry<Integer, String> ajout : ajouts.entrySet()) {
+            ids[k] = ajout.getKey();
+            noms[k++] = ajout.getValue();
+        }
+        UPDATES.incrementAndGet();
+        return new Etat(catalog, etat.principal(), exclus, ajouts, new ConsommableSearchIndex(ids, noms));
+    }
+
+    /**
+     * Retire un consommable supprimé ou renommé : de l'index complémentaire s'il y a été
+     * ajouté, sinon de l'index principal.
+     */
+    private static void retirer(Etat etat, BitSet exclus, Map<Integer, String> ajouts, int id) {
+        if (ajouts.remove(id) != null) {
+            return;
+        }
+        int position = etat.principal().position(id);
+        if (position >= 0) {
+            exclus.set(position);
+        }
+    }
+
+    public static long getRebuilds() {
+        return REBUILDS.get();
+    }
+
+    public static long getUpdates() {
+        return UPDATES.get();
+    }
+}
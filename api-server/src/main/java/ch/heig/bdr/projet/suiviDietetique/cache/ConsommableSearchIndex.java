@@ -0,0 +1,635 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Index de recherche des consommables par nom, insensible aux accents, à la casse et à la
+ * ponctuation, tolérant les fautes de frappe.
+ *
+ * Les noms sont normalisés (décomposition Unicode sans diacritiques, minuscules) et découpés
+ * en termes. Chaque mot de la requête doit être le début d'un terme du nom. Les termes
+ * distincts sont triés dans un dictionnaire : les termes commençant par un préfixe forment
+ * un intervalle, trouvé par recherche dichotomique (chaque nœud d'un trie correspond à l'un
+ * de ces intervalles). À chaque terme est associée la liste croissante des consommables qui
+ * le contiennent, numérotés dans l'ordre d'affichage des résultats : nom le plus court
+ * d'abord, puis ordre alphabétique. Les k premiers résultats sont donc trouvés sans parcourir
+ * les listes au-delà du k-ième consommable retenu.
+ *
+ * Lorsqu'il y a moins de k résultats, les mots de la requête d'au moins cinq lettres sont
+ * recherchés avec une faute (deux à partir de neuf lettres) : substitution, insertion,
+ * suppression ou inversion de deux lettres. Une faute modifie au plus quatre trigrammes du
+ * mot : les termes candidats sont ceux qui partagent l'un des 4 × fautes + 1 trigrammes les
+ * plus rares du mot, puis leur distance au mot est vérifiée. Un mot plus court (cinq ou neuf
+ * lettres) peut perdre tous ses trigrammes : sa distance à chaque terme est alors vérifiée. Les
+ * résultats sont alors classés par nombre de fautes, puis dans l'ordre d'affichage.
+ *
+ * Un index est immuable : voir {@link ConsommableSearch} pour sa mise à jour.
+ */
+public final class ConsommableSearchIndex {
+    /** Nombre maximal de mots pris en compte dans une requête */
+    private static final int MOTS_MAX = 8;
+
+    /** Longueur minimale d'un mot pour tolérer une faute, puis deux */
+    private static final int LONGUEUR_UNE_FAUTE = 5;
+    private static final int LONGUEUR_DEUX_FAUTES = 9;
+
+    /** Index vide */
+    static final ConsommableSearchIndex VIDE = new ConsommableSearchIndex(new int[0], new String[0]);
+
+    /**
+     * Requête normalisée.
+     *
+     * @param mots Les mots de la requête
+     * @param fautes Le nombre de fautes tolérées pour chaque mot
+     */
+    record Requete(String[] mots, int[] fautes) {
+
+        /**
+         * Normalise et découpe le texte d'une requête.
+         *
+         * @param texte Le texte saisi
+         * @return La requête, sans mot si le texte ne contient ni lettre ni chiffre
+         */
+        static Requete de(String texte) {
+            String normalise = normaliser(texte);
+            String[] mots = normalise.isEmpty() ? new String[0] : normalise.split(" ");
+            if (mots.length > MOTS_MAX) {
+                mots = Arrays.copyOf(mots, MOTS_MAX);
+            }
+            int[] fautes = new int[mots.length];
+            for (int i = 0; i < mots.length; i++) {
+                int longueur = mots[i].length();
+                fautes[i] = longueur >= LONGUEUR_DEUX_FAUTES ? 2 : longueur >= LONGUEUR_UNE_FAUTE ? 1 : 0;
+            }
+            return new Requete(mots, fautes);
+        }
+
+        boolean estVide() {
+            return mots.length == 0;
+        }
+
+        private boolean tolereFautes() {
+            for (int f : fautes) {
+                if (f > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Résultat d'une recherche. L'ordre des résultats est celui de {@link #ORDRE}.
+     *
+     * @param id L'identifiant du consommable
+     * @param fautes Le nombre total de fautes de la correspondance
+     * @param cle Le nom normalisé du consommable
+     */
+    record Resultat(int id, int fautes, String cle) {}
+
+    /** Ordre des résultats : moins de fautes, nom plus court, ordre alphabétique, identifiant */
+    static final Comparator<Resultat> ORDRE = Comparator.comparingInt(Resultat::fautes)
+            .thenComparingInt(r -> r.cle().length())
+            .thenComparing(Resultat::cle)
+            .thenComparingInt(Resultat::id);
+
+    /**
+     * Consommable à indexer.
+     *
+     * @param id L'identifiant du consommable
+     * @param cle Son nom normalisé
+     */
+    private record Entree(int id, String cle) {}
+
+    /** Identifiants et noms normalisés des consommables, par position (ordre d'affichage) */
+    private final int[] ids;
+    private final String[] cles;
+
+    /** Identifiants triés et positions correspondantes */
+    private final int[] idsTries;
+    private final int[] positionsTriees;
+
+    /** Dictionnaire des termes, trié, et positions croissantes des consommables de chaque terme */
+    private final String[] termes;
+    private final int[] debutsTerme;
+    private final int[] positionsTerme;
+
+    /** Termes de chaque consommable (indices dans le dictionnaire) */
+    private final int[] debutsConsommable;
+    private final int[] termesConsommable;
+
+    /** Trigrammes triés des termes (préfixés d'une espace) et termes croissants de chaque trigramme */
+    private final long[] trigrammes;
+    private final int[] debutsTrigramme;
+    private final int[] termesTrigramme;
+
+    /**
+     * Construit l'index des noms donnés.
+     *
+     * @param ids Les identifiants des consommables
+     * @param noms Les noms des consommables, dans le même ordre
+     */
+    public ConsommableSearchIndex(int[] ids, String[] noms) {
+        int n = ids.length;
+        Entree[] entrees = new Entree[n];
+        for (int i = 0; i < n; i++) {
+            entrees[i] = new Entree(ids[i], normaliser(noms[i]));
+        }
+        Arrays.sort(entrees, ConsommableSearchIndex::comparer);
+
+        this.ids = new int[n];
+        this.cles = new String[n];
+        long[] parId = new long[n];
+        for (int p = 0; p < n; p++) {
+            this.ids[p] = entrees[p].id();
+            this.cles[p] = entrees[p].cle();
+            parId[p] = (long) entrees[p].id() << 32 | p;
+        }
+        Arrays.sort(parId);
+        idsTries = new int[n];
+        positionsTriees = new int[n];
+        for (int i = 0; i < n; i++) {
+            idsTries[i] = (int) (parId[i] >> 32);
+            positionsTriees[i] = (int) parId[i];
+        }
+
+        // Termes distincts de chaque consommable, puis dictionnaire trié
+        String[][] termesDe = new String[n][];
+        Map<String, Integer> indices = new HashMap<>();
+        int occurrences = 0;
+        for (int p = 0; p < n; p++) {
+            termesDe[p] = termesDistincts(cles[p]);
+            occurrences += termesDe[p].length;
+            for (String terme : termesDe[p]) {
+                indices.putIfAbsent(terme, 0);
+            }
+        }
+        termes = indices.keySet().toArray(new String[0]);
+        Arrays.sort(termes);
+        for (int t = 0; t < termes.length; t++) {
+            indices.put(termes[t], t);
+        }
+
+        debutsConsommable = new int[n + 1];
+        termesConsommable = new int[occurrences];
+        int[] compte = new int[termes.length + 1];
+        for (int p = 0, k = 0; p < n; p++) {
+            debutsConsommable[p] = k;
+            for (String terme : termesDe[p]) {
+                int t = indices.get(terme);
+                termesConsommable[k++] = t;
+                compte[t + 1]++;
+            }
+        }
+        debutsConsommable[n] = occurrences;
+
+        // Positions par terme : les consommables sont parcourus dans l'ordre, les listes sont croissantes
+        debutsTerme = new int[termes.length + 1];
+        for (int t = 0; t < termes.length; t++) {
+            debutsTerme[t + 1] = debutsTerme[t] + compte[t + 1];
+        }
+        positionsTerme = new int[occurrences];
+        int[] suivant = Arrays.copyOf(debutsTerme, termes.length);
+        for (int p = 0; p < n; p++) {
+            for (int k = debutsConsommable[p]; k < debutsConsommable[p + 1]; k++) {
+                positionsTerme[suivant[termesConsommable[k]]++] = p;
+            }
+        }
+
+        // Trigrammes distincts triés, puis paires (trigramme, terme) triées
+        int paires = 0;
+        for (String terme : termes) {
+            paires += Math.max(0, terme.length() - 1);
+        }
+        long[] tous = new long[paires];
+        int i3 = 0;
+        for (String terme : termes) {
+            for (int i = 0; i + 2 <= terme.length(); i++) {
+                tous[i3++] = trigramme(terme, i);
+            }
+        }
+        Arrays.sort(tous);
+        int distinctsTrigrammes = 0;
+        for (int k = 0; k < paires; k++) {
+            if (k == 0 || tous[k] != tous[k - 1]) {
+                tous[distinctsTrigrammes++] = tous[k];
+            }
+        }
+        trigrammes = Arrays.copyOf(tous, distinctsTrigrammes);
+        long[] couples = new long[paires];
+        int c = 0;
+        for (int t = 0; t < termes.length; t++) {
+            String terme = termes[t];
+            for (int i = 0; i + 2 <= terme.length(); i++) {
+                couples[c++] = (long) Arrays.binarySearch(trigrammes, trigramme(terme, i)) << 32 | t;
+            }
+        }
+        Arrays.sort(couples);
+        debutsTrigramme = new int[trigrammes.length + 1];
+        int[] termesTri = new int[paires];
+        int distinctsTri = 0;
+        for (int k = 0; k < paires; k++) {
+            if (k > 0 && couples[k] == couples[k - 1]) {
+                continue;
+            }
+            termesTri[distinctsTri++] = (int) couples[k];
+            debutsTrigramme[(int) (couples[k] >>> 32) + 1] = distinctsTri;
+        }
+        for (int t = 1; t <= trigrammes.length; t++) {
+            debutsTrigramme[t] = Math.max(debutsTrigramme[t], debutsTrigramme[t - 1]);
+        }
+        termesTrigramme = Arrays.copyOf(termesTri, distinctsTri);
+    }
+
+    /**
+     * Recherche les consommables correspondant à un texte.
+     *
+     * @param texte Le texte saisi
+     * @param limite Le nombre maximal de résultats
+     * @return Les identifiants des meilleurs résultats, dans l'ordre
+     */
+    public int[] chercher(String texte, int limite) {
+        return chercher(Requete.de(texte), limite, null).stream().mapToInt(Resultat::id).toArray();
+    }
+
+    /**
+     * Recherche les consommables correspondant à une requête.
+     *
+     * @param requete La requête normalisée
+     * @param limite Le nombre maximal de résultats
+     * @param exclus Les positions des consommables à ignorer, ou null
+     * @return Les meilleurs résultats, dans l'ordre {@link #ORDRE}
+     */
+    List<Resultat> chercher(Requete requete, int limite, BitSet exclus) {
+        if (requete.estVide() || ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String[] mots = requete.mots();
+        int[] intervalles = intervalles(mots);
+        List<Map<Integer, Integer>> exacts = new ArrayList<>(Collections.nCopies(mots.length, null));
+        List<Resultat> resultats = meilleurs(intervalles, exacts, limite, exclus);
+        if (resultats.size() < limite && requete.tolereFautes()) {
+            // La recherche approchée retrouve aussi les correspondances exactes
+            List<Map<Integer, Integer>> proches = new ArrayList<>(mots.length);
+            for (int m = 0; m < mots.length; m++) {
+                proches.add(requete.fautes()[m] == 0 ? null : termesProches(mots[m], requete.fautes()[m]));
+            }
+            resultats = meilleurs(intervalles, proches, limite, exclus);
+        }
+        return resultats;
+    }
+
+    /**
+     * Retourne la position d'un consommable.
+     *
+     * @param id L'identifiant du consommable
+     * @return Sa position, ou -1 s'il n'est pas dans l'index
+     */
+    int position(int id) {
+        int i = Arrays.binarySearch(idsTries, id);
+        return i < 0 ? -1 : positionsTriees[i];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Calcule l'intervalle des termes commençant par chaque mot : [debut, fin[ aux indices 2i et 2i+1.
+     */
+    private int[] intervalles(String[] mots) {
+        int[] intervalles = new int[mots.length * 2];
+        for (int i = 0; i < mots.length; i++) {
+            intervalles[2 * i] = premierTerme(mots[i]);
+            intervalles[2 * i + 1] = premierTerme(mots[i] + Character.MAX_VALUE);
+        }
+        return intervalles;
+    }
+
+    /** Indice du premier terme supérieur ou égal à la clé */
+    private int premierTerme(String cle) {
+        int i = Arrays.binarySearch(termes, cle);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    /**
+     * Recherche les meilleurs consommables dont un terme commence, exactement ou à quelques
+     * fautes près, par chaque mot.
+     *
+     * Les consommables sont parcourus depuis les termes du mot le plus sélectif. Chacun est
+     * classé par (fautes, position) : une liste de positions croissantes est abandonnée dès
+     * que ses fautes et la position courante ne peuvent plus entrer parmi les meilleurs.
+     *
+     * @param intervalles Les termes commençant exactement par chaque mot (voir {@link #intervalles})
+     * @param fautesParMot Pour chaque mot, les fautes des termes proches, ou null si le mot doit être exact
+     * @return Les meilleurs résultats, dans l'ordre {@link #ORDRE}
+     */
+    private List<Resultat> meilleurs(int[] intervalles, List<Map<Integer, Integer>> fautesParMot, int limite,
+                                     BitSet exclus) {
+        // Mot le plus sélectif
+        int choisi = -1;
+        int taille = Integer.MAX_VALUE;
+        for (int m = 0; m < fautesParMot.size(); m++) {
+            int occurrences = 0;
+            if (fautesParMot.get(m) == null) {
+                occurrences = debutsTerme[intervalles[2 * m + 1]] - debutsTerme[intervalles[2 * m]];
+            } else {
+                for (int t : fautesParMot.get(m).keySet()) {
+                    occurrences += debutsTerme[t + 1] - debutsTerme[t];
+                }
+            }
+            if (occurrences < taille) {
+                taille = occurrences;
+                choisi = m;
+            }
+        }
+        if (taille == 0) {
+            return new ArrayList<>();
+        }
+
+        // Ses termes, les exacts d'abord : ils remplissent le tas des meilleures clés
+        Map<Integer, Integer> fautesChoisies = fautesParMot.get(choisi);
+        int[] termesChoisis = fautesChoisies == null
+                ? IntStream.range(intervalles[2 * choisi], intervalles[2 * choisi + 1]).toArray()
+                : fautesChoisies.keySet().stream().sorted(Comparator.comparingInt(fautesChoisies::get))
+                        .mapToInt(Integer::intValue).toArray();
+
+        // Tas maximal des meilleures clés (fautes << 32 | position)
+        long[] tas = new long[limite];
+        int retenus = 0;
+        for (int i = 0; i < termesChoisis.length; i++) {
+            int t = termesChoisis[i];
+            long minimum = fautesChoisies == null ? 0 : (long) fautesChoisies.get(t) << 32;
+            for (int k = debutsTerme[t]; k < debutsTerme[t + 1]; k++) {
+                int p = positionsTerme[k];
+                if (retenus == limite && (minimum | p) >= tas[0]) {
+                    break;
+                }
+                if (exclus != null && exclus.get(p)) {
+                    continue;
+                }
+                int fautes = fautes(p, intervalles, fautesParMot);
+                long cle = (long) fautes << 32 | p;
+                if (fautes < 0 || (retenus == limite && cle >= tas[0]) || contient(tas, retenus, cle)) {
+                    continue;
+                }
+                if (retenus < limite) {
+                    tas[retenus] = cle;
+                    monter(tas, retenus++);
+                } else {
+                    tas[0] = cle;
+                    descendre(tas, limite);
+                }
+            }
+        }
+
+        long[] cles = Arrays.copyOf(tas, retenus);
+        Arrays.sort(cles);
+        List<Resultat> resultats = new ArrayList<>(retenus);
+        for (long cle : cles) {
+            int p = (int) cle;
+            resultats.add(new Resultat(ids[p], (int) (cle >>> 32), this.cles[p]));
+        }
+        return resultats;
+    }
+
+    /**
+     * Calcule le nombre total de fautes de la correspondance d'un consommable.
+     *
+     * @return La somme, pour chaque mot, des fautes du terme le plus proche, ou -1 si un mot ne correspond à aucun terme
+     */
+    private int fautes(int p, int[] intervalles, List<Map<Integer, Integer>> fautesParMot) {
+        int total = 0;
+        for (int m = 0; m < fautesParMot.size(); m++) {
+            Map<Integer, Integer> fautes = fautesParMot.get(m);
+            int meilleur = Integer.MAX_VALUE;
+            for (int k = debutsConsommable[p]; k < debutsConsommable[p + 1] && meilleur > 0; k++) {
+                int t = termesConsommable[k];
+                if (t >= intervalles[2 * m] && t < intervalles[2 * m + 1]) {
+                    meilleur = 0;
+                } else if (fautes != null) {
+                    meilleur = Math.min(meilleur, fautes.getOrDefault(t, Integer.MAX_VALUE));
+                }
+            }
+            if (meilleur == Integer.MAX_VALUE) {
+                return -1;
+            }
+            total += meilleur;
+        }
+        return total;
+    }
+
+    /**
+     * Recherche les termes commençant, à au plus maxFautes fautes près, par un mot.
+     *
+     * @return Les fautes de chaque terme proche, par indice de terme
+     */
+    private Map<Integer, Integer> termesProches(String mot, int maxFautes) {
+        Map<Integer, Integer> proches = new HashMap<>();
+        int nombre = mot.length() - 1;
+        if (nombre < 4 * maxFautes + 1) {
+            // Les fautes peuvent modifier tous les trigrammes du mot : tous les termes sont vérifiés
+            for (int t = 0; t < termes.length; t++) {
+                int d = distancePrefixe(mot, termes[t], maxFautes);
+                if (d <= maxFautes) {
+                    proches.put(t, d);
+                }
+            }
+            return proches;
+        }
+
+        // Trigrammes du mot, des plus rares aux plus fréquents (un trigramme absent est le plus rare)
+        int[][] listes = new int[nombre][];
+        for (int i = 0; i < nombre; i++) {
+            int t = Arrays.binarySearch(trigrammes, trigramme(mot, i));
+            listes[i] = t < 0 ? new int[] {0, 0} : new int[] {debutsTrigramme[t], debutsTrigramme[t + 1]};
+        }
+        Arrays.sort(listes, Comparator.comparingInt(l -> l[1] - l[0]));
+
+        Set<Integer> verifies = new HashSet<>();
+        for (int i = 0; i < 4 * maxFautes + 1; i++) {
+            for (int k = listes[i][0]; k < listes[i][1]; k++) {
+                int t = termesTrigramme[k];
+                if (verifies.add(t)) {
+                    int d = distancePrefixe(mot, termes[t], maxFautes);
+                    if (d <= maxFautes) {
+                        proches.put(t, d);
+                    }
+                }
+            }
+        }
+        return proches;
+    }
+
+    /**
+     * Calcule la plus petite distance d'édition (substitution, insertion, suppression, inversion
+     * de deux lettres voisines) entre un mot et un début de terme.
+     *
+     * @param mot Le mot
+     * @param terme Le terme
+     * @param max La distance au-delà de laquelle le calcul est interrompu
+     * @return La distance, ou max + 1 si elle dépasse max
+     */
+    static int distancePrefixe(String mot, String terme, int max) {
+        int m = mot.length();
+        int n = Math.min(terme.length(), m + max);
+        if (n < m - max) {
+            return max + 1;
+        }
+        int[] avantDerniere = new int[n + 1];
+        int[] derniere = new int[n + 1];
+        int[] courante = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            derniere[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            courante[0] = i;
+            int minimum = i;
+            for (int j = 1; j <= n; j++) {
+                char a = mot.charAt(i - 1);
+                char b = terme.charAt(j - 1);
+                int d = Math.min(Math.min(derniere[j] + 1, courante[j - 1] + 1), derniere[j - 1] + (a == b ? 0 : 1));
+                if (i > 1 && j > 1 && a == terme.charAt(j - 2) && mot.charAt(i - 2) == b) {
+                    d = Math.min(d, avantDerniere[j - 2] + 1);
+                }
+                courante[j] = d;
+                minimum = Math.min(minimum, d);
+            }
+            if (minimum > max) {
+                return max + 1;
+            }
+            int[] libre = avantDerniere;
+            avantDerniere = derniere;
+            derniere = courante;
+            courante = libre;
+        }
+        int distance = max + 1;
+        for (int j = 0; j <= n; j++) {
+            distance = Math.min(distance, derniere[j]);
+        }
+        return distance;
+    }
+
+    /**
+     * Normalise un texte : sans diacritiques, en minuscules, les suites de caractères autres
+     * que lettres et chiffres remplacées par une espace.
+     *
+     * @param texte Le texte
+     * @return Le texte normalisé, sans espace au début ni à la fin
+     */
+    static String normaliser(String texte) {
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        StringBuilder normalise = new StringBuilder(decompose.length());
+        for (int i = 0; i < decompose.length(); i++) {
+            char c = decompose.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                if (!normalise.isEmpty() && normalise.charAt(normalise.length() - 1) != ' ') {
+                    normalise.append(' ');
+                }
+                continue;
+            }
+            switch (Character.toLowerCase(c)) {
+                case 'œ' -> normalise.append("oe");
+                case 'æ' -> normalise.append("ae");
+                case 'ß' -> normalise.append("ss");
+                default -> normalise.append(Character.toLowerCase(c));
+            }
+        }
+        int longueur = normalise.length();
+        return longueur > 0 && normalise.charAt(longueur - 1) == ' '
+                ? normalise.substring(0, longueur - 1) : normalise.toString();
+    }
+
+    /**
+     * Compare deux consommables dans l'ordre d'affichage : nom le plus court, ordre alphabétique, identifiant.
+     */
+    private static int comparer(Entree a, Entree b) {
+        int c = Integer.compare(a.cle().length(), b.cle().length());
+        if (c == 0) {
+            c = a.cle().compareTo(b.cle());
+        }
+        return c != 0 ? c : Integer.compare(a.id(), b.id());
+    }
+
+    /**
+     * Découpe un nom normalisé en termes, sans doublon.
+     */
+    private static String[] termesDistincts(String cle) {
+        if (cle.isEmpty()) {
+            return new String[0];
+        }
+        String[] termes = cle.split(" ");
+        int distincts = 0;
+        suivant:
+        for (String terme : termes) {
+            for (int i = 0; i < distincts; i++) {
+                if (termes[i].equals(terme)) {
+                    continue suivant;
+                }
+            }
+            termes[distincts++] = terme;
+        }
+        return distincts == termes.length ? termes : Arrays.copyOf(termes, distincts);
+    }
+
+    /**
+     * Retourne le trigramme d'indice i d'un terme précédé d'une espace (l'espace marque le début du terme).
+     */
+    private static long trigramme(String terme, int i) {
+        char a = i == 0 ? ' ' : terme.charAt(i - 1);
+        return (long) a << 32 | (long) terme.charAt(i) << 16 | terme.charAt(i + 1);
+    }
+
+    private static boolean contient(long[] tas, int taille, long p) {
+        for (int i = 0; i < taille; i++) {
+            if (tas[i] == p) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void monter(long[] tas, int i) {
+        while (i > 0 && tas[(i - 1) / 2] < tas[i]) {
+            echanger(tas, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private static void descendre(long[] tas, int taille) {
+        int i = 0;
+        while (true) {
+            int plusGrand = i;
+            for (int enfant = 2 * i + 1; enfant <= 2 * i + 2 && enfant < taille; enfant++) {
+                if (tas[enfant] > tas[plusGrand]) {
+                    plusGrand = enfant;
+                }
+            }
+            if (plusGrand == i) {
+                return;
+            }
+            echanger(tas, i, plusGrand);
+            i = plusGrand;
+        }
+    }
+
+    private static void echanger(long[] tas, int i, int j) {
+        long t = tas[i];
+        tas[i] = tas[j];
+        tas[j] = t;
+    }
+}
@@ -0,0 +1,102 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+/**
+ * Estimation de la fréquence d'accès des clés d'un cache (count-min sketch).
+ *
+ * Chaque clé incrémente un compteur par ligne, à une position tirée de son hash ; sa
+ * fréquence estimée est le minimum de ces compteurs. Les compteurs sont plafonnés à 15
+ * et tous divisés par deux après un nombre d'accès proportionnel à la taille du tableau :
+ * les fréquences reflètent ainsi les accès récents, et une clé autrefois populaire ne
+ * reste pas indéfiniment dans le cache.
+ *
+ * Cette classe n'est pas synchronisée : elle est protégée par le verrou du cache.
+ */
+final class FrequencySketch {
+    /** Nombre de lignes (fonctions de hachage) */
+    private static final int DEPTH = 4;
+
+    /** Valeur maximale d'un compteur */
+    private static final int MAX_COUNT = 15;
+
+    /** Graines des fonctions de hachage, une par ligne */
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[][] counters;
+    private final int mask;
+
+    /** Nombre d'accès après lequel les compteurs sont divisés par deux */
+    private final int sampleSize;
+
+    /** Nombre d'accès depuis la dernière division */
+    private int samples;
+
+    /**
+     * Crée un tableau de fréquences.
+     *
+     * @param expectedEntries Le nombre d'entrées attendu dans le cache
+     */
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        this.counters = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Enregistre un accès à une clé.
+     *
+     * @param key La clé
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean incremented = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = index(hash, i);
+            if (counters[i][index] < MAX_COUNT) {
+                counters[i][index]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++samples >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estime la fréquence d'accès récente d'une clé.
+     *
+     * @param key La clé
+     * @return La fréquence estimée, entre 0 et 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, counters[i][index(hash, i)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Divise tous les compteurs par deux.
+     */
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] >>= 1;
+            }
+        }
+        samples /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,412 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache borné des lectures par clé, avec une politique d'admission W-TinyLFU.
+ *
+ * La taille du cache est mesurée en octets estimés (poids des entrées) et non en nombre
+ * d'entrées. Les nouvelles entrées passent d'abord par une petite fenêtre LRU (1 % du
+ * poids) ; celles qui en sortent n'entrent dans la partie principale qu'en évinçant une
+ * entrée moins fréquemment demandée, d'après un {@link FrequencySketch}. Une rafale de
+ * clés lues une seule fois (par exemple le parcours de tous les patients) ne peut donc
+ * pas chasser les entrées réellement utilisées. La partie principale est une SLRU : une
+ * entrée relue passe de la zone probatoire à la zone protégée (80 % du poids principal).
+ *
+ * Une entrée est retirée par {@link #invalidate} après une écriture, et expire au plus tard
+ * après la durée de vie configurée, pour les modifications faites hors de l'API. Une lecture
+ * commencée avant une invalidation n'est pas mise en cache. Tant que la condition d'activité
+ * est fausse (par exemple, les invalidations ne sont plus reçues), les lectures contournent
+ * le cache.
+ *
+ * Toutes les opérations sont faites sous un verrou explicite (qui n'immobilise pas le
+ * thread porteur d'un thread virtuel) ; la lecture en base est faite hors du verrou.
+ *
+ * @param <K> Le type des clés
+ * @param <V> Le type des valeurs
+ */
+public final class LookupCache<K, V> {
+    /** Caches créés, pour les métriques */
+    private static final List<LookupCache<?, ?>> CACHES = new CopyOnWriteArrayList<>();
+
+    /**
+     * Entrée du cache.
+     *
+     * @param value La valeur
+     * @param weight Le poids estimé, en octets
+     * @param loadedAt L'instant de la lecture en base (System.nanoTime)
+     */
+    private record Entry<V>(V value, int weight, long loadedAt) {}
+
+    /** Nom du cache dans les métriques */
+    private final String name;
+
+    /** Poids maximal du cache, en octets estimés */
+    private final long maxWeight;
+
+    /** Poids maximal de la fenêtre */
+    private final long windowMaxWeight;
+
+    /** Poids maximal de la partie principale (zones probatoire et protégée) */
+    private final long mainMaxWeight;
+
+    /** Poids maximal de la zone protégée */
+    private final long protectedMaxWeight;
+
+    /** Durée de vie d'une entrée, en nanosecondes */
+    private final long ttlNanos;
+
+    /** Estimation du poids d'une valeur, en octets */
+    private final ToIntFunction<V> weigher;
+
+    /** Condition d'utilisation du cache : fausse, les lectures sont faites en base */
+    private final BooleanSupplier active;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Segments, du moins récemment au plus récemment utilisé */
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    /** Fréquences d'accès récentes des clés */
+    private final FrequencySketch sketch;
+
+    /** Incrémenté à chaque invalidation : une lecture commencée avant n'est pas mise en cache */
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Crée un cache.
+     *
+     * @param name Le nom du cache dans les métriques
+     * @param maxWeight Le poids maximal, en octets estimés
+     * @param ttlSeconds La durée de vie d'une entrée, en secondes
+     * @param weigher L'estimation du poids d'une valeur, en octets
+     * @param typicalWeight Le poids typique d'une entrée, pour dimensionner les fréquences
+     */
+    public LookupCache(String name, long maxWeight, long ttlSeconds, ToIntFunction<V> weigher, int typicalWeight) {
+        this(name, maxWeight, ttlSeconds, weigher, typicalWeight, () -> true);
+    }
+
+    /**
+     * Crée un cache utilisé seulement tant qu'une condition est vraie.
+     *
+     * @param name Le nom du cache dans les métriques
+     * @param maxWeight Le poids maximal, en octets estimés
+     * @param ttlSeconds La durée de vie d'une entrée, en secondes
+     * @param weigher L'estimation du poids d'une valeur, en octets
+     * @param typicalWeight Le poids typique d'une entrée, pour dimensionner les fréquences
+     * @param active La condition d'utilisation du cache, vérifiée à chaque lecture
+     */
+    public LookupCache(String name, long maxWeight, long ttlSeconds, ToIntFunction<V> weigher, int typicalWeight,
+                       BooleanSupplier active) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(maxWeight / 100, 1);
+        this.mainMaxWeight = maxWeight - windowMaxWeight;
+        this.protectedMaxWeight = mainMaxWeight * 8 / 10;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.weigher = weigher;
+        this.active = active;
+        this.sketch = new FrequencySketch((int) Math.min(maxWeight / Math.max(typicalWeight, 1), 1 << 20));
+        CACHES.add(this);
+    }
+
+    /**
+     * Retourne la valeur d'une clé, lue en base si elle n'est pas en cache.
+     * Une valeur null (clé introuvable) n'est pas mise en cache. Si le cache est inactif,
+     * la valeur est lue en base sans être mise en cache.
+     *
+     * @param key La clé
+     * @param loader La lecture en base
+     * @return La valeur
+     */
+    public V get(K key, Supplier<V> loader) {
+        if (!active.getAsBoolean()) {
+            bypasses.increment();
+            return loader.get();
+        }
+        long readGeneration;
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Entry<V> entry = find(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            readGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        V value = loader.get();
+        if (value != null) {
+            put(key, value, readGeneration);
+        }
+        return value;
+    }
+
+    /**
+     * Retourne la valeur d'une clé si elle est en cache, sans lecture en base, par exemple
+     * pour mettre à jour une valeur modifiable après une écriture. L'accès n'est pas compté
+     * dans les succès et échecs du cache.
+     *
+     * @param key La clé
+     * @return La valeur, ou null si la clé n'est pas en cache, a expiré ou si le cache est inactif
+     */
+    public V getIfPresent(K key) {
+        if (!active.getAsBoolean()) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Entry<V> entry = find(key);
+            if (entry == null || System.nanoTime() - entry.loadedAt() >= ttlNanos) {
+                return null;
+            }
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire une clé du cache.
+     *
+     * @param key La clé
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation++;
+            if (remove(key) != null) {
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vide le cache.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            invalidations.add(window.size() + probation.size() + protectedSegment.size());
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowWeight = 0;
+            probationWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recherche une entrée et enregistre l'accès dans son segment.
+     * Une entrée relue en zone probatoire passe en zone protégée.
+     *
+     * @param key La clé
+     * @return L'entrée, ou null
+     */
+    private Entry<V> find(K key) {
+        Entry<V> entry = window.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = protectedSegment.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = probation.remove(key);
+        if (entry != null) {
+            probationWeight -= entry.weight();
+            protectedSegment.put(key, entry);
+            protectedWeight += entry.weight();
+            while (protectedWeight > protectedMaxWeight) {
+                Map.Entry<K, Entry<V>> demoted = protectedSegment.pollFirstEntry();
+                protectedWeight -= demoted.getValue().weight();
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationWeight += demoted.getValue().weight();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Ajoute une valeur lue en base, sauf si le cache a été invalidé depuis le début de la lecture.
+     *
+     * @param key La clé
+     * @param value La valeur
+     * @param readGeneration La génération au début de la lecture
+     */
+    private void put(K key, V value, long readGeneration) {
+        int weight = weigher.applyAsInt(value);
+        lock.lock();
+        try {
+            if (readGeneration != generation || weight > mainMaxWeight) {
+                return;
+            }
+            remove(key);
+            window.put(key, new Entry<>(value, weight, System.nanoTime()));
+            windowWeight += weight;
+            while (windowWeight > windowMaxWeight && !window.isEmpty()) {
+                Map.Entry<K, Entry<V>> candidate = window.pollFirstEntry();
+                windowWeight -= candidate.getValue().weight();
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fait entrer dans la partie principale une entrée sortie de la fenêtre, en évinçant
+     * les entrées les moins récemment utilisées tant qu'elles sont moins fréquentes qu'elle.
+     * Sinon, c'est l'entrée candidate qui est évincée.
+     *
+     * @param key La clé candidate
+     * @param entry L'entrée candidate
+     */
+    private void admit(K key, Entry<V> entry) {
+        int candidateFrequency = sketch.frequency(key);
+        while (probationWeight + protectedWeight + entry.weight() > mainMaxWeight) {
+            LinkedHashMap<K, Entry<V>> segment = probation.isEmpty() ? protectedSegment : probation;
+            Map.Entry<K, Entry<V>> victim = segment.firstEntry();
+            if (candidateFrequency <= sketch.frequency(victim.getKey())) {
+                evictions.increment();
+                return;
+            }
+            remove(victim.getKey());
+            evictions.increment();
+        }
+        probation.put(key, entry);
+        probationWeight += entry.weight();
+    }
+
+    /**
+     * Retire une clé de tous les segments.
+     *
+     * @param key La clé
+     * @return L'entrée retirée, ou null
+     */
+    private Entry<V> remove(K key) {
+        Entry<V> entry = window.remove(key);
+        if (entry != null) {
+            windowWeight -= entry.weight();
+            return entry;
+        }
+        entry = probation.remove(key);
+        if (entry != null) {
+            probationWeight -= entry.weight();
+            return entry;
+        }
+        entry = protectedSegment.remove(key);
+        if (entry != null) {
+            protectedWeight -= entry.weight();
+        }
+        return entry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Retourne le poids courant du cache.
+     *
+     * @return Le poids des entrées, en octets estimés
+     */
+    public long getWeight() {
+        lock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retourne le nombre d'entrées du cache.
+     *
+     * @return Le nombre d'entrées
+     */
+    public int getSize() {
+        lock.lock();
+        try {
+            return window.size() + probation.size() + protectedSegment.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Retourne le nombre de lectures faites en base parce que le cache était inactif.
+     *
+     * @return Le nombre de contournements
+     */
+    public long getBypasses() {
+        return bypasses.sum();
+    }
+
+    /**
+     * Retourne le nombre d'entrées évincées faute de place, ou refusées par la politique d'admission.
+     *
+     * @return Le nombre d'évictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Retourne les caches de l'instance.
+     *
+     * @return Les caches, dans l'ordre de création
+     */
+    public static List<LookupCache<?, ?>> caches() {
+        return CACHES;
+    }
+}
@@ -0,0 +1,186 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.ChangeNotifications;
+import ch.heig.bdr.projet.suiviDietetique.models.Allergene;
+import ch.heig.bdr.projet.suiviDietetique.models.Dieteticien;
+import ch.heig.bdr.projet.suiviDietetique.models.Infirmier;
+import ch.heig.bdr.projet.suiviDietetique.models.Patient;
+import ch.heig.bdr.projet.suiviDietetique.models.Personne;
+
+import java.util.List;
+
+/**
+ * Caches des lectures les plus fréquentes et rarement modifiées : patient, diététicien,
+ * infirmier, allergies d'un patient et diététicien d'un patient (voir {@link LookupCache}).
+ *
+ * Les services qui modifient un patient appellent {@link #invalidatePatient} : les entrées
+ * du patient sont retirées localement, puis une notification sur le canal {@value #CHANNEL}
+ * les fait retirer par les autres instances de l'API. Les modifications des allergies,
+ * notifiées par les triggers de la base, sont aussi prises en compte. Les entrées expirent
+ * en outre après LOOKUP_CACHE_TTL_S secondes, pour les modifications faites hors de l'API.
+ *
+ * Tant que l'écoute des notifications est interrompue, les invalidations des autres
+ * instances sont perdues : comme {@link AllergyIndex}, les caches sont alors contournés
+ * et les lectures faites en base. La reprise de l'écoute vide les caches.
+ */
+public final class LookupCaches {
+    /** Canal des invalidations entre instances (charge utile "patient:noSS", ou "*" pour tout vider) */
+    public static final String CHANNEL = "cache_invalide";
+
+    /** Charge utile d'une invalidation de tous les caches */
+    private static final String TOUT = "*";
+
+    /** Préfixe de la charge utile d'une invalidation d'un patient */
+    private static final String PATIENT = "patient:";
+
+    /** Poids maximal de chaque cache, en octets estimés */
+    private static final long MAX_BYTES = Env.getLong("LOOKUP_CACHE_MAX_BYTES", 4L * 1024 * 1024);
+
+    /** Durée de vie d'une entrée, en secondes */
+    private static final long TTL_SECONDS = Env.getLong("LOOKUP_CACHE_TTL_S", 300);
+
+    /** Patients, par noSS */
+    public static final LookupCache<String, Patient> PATIENTS =
+            new LookupCache<>("patient", MAX_BYTES, TTL_SECONDS, LookupCaches::poids, 400,
+                    ChangeNotifications::isConnected);
+
+    /** Diététiciens, par noSS */
+    public static final LookupCache<String, Dieteticien> DIETETICIENS =
+            new LookupCache<>("dieteticien", MAX_BYTES, TTL_SECONDS, LookupCaches::poids, 400,
+                    ChangeNotifications::isConnected);
+
+    /** Infirmiers, par noSS */
+    public static final LookupCache<String, Infirmier> INFIRMIERS =
+            new LookupCache<>("infirmier", MAX_BYTES, TTL_SECONDS, LookupCaches::poids, 400,
+                    ChangeNotifications::isConnected);
+
+    /** Allergies d'un patient, par noSS du patient */
+    public static final LookupCache<String, List<Allergene>> ALLERGIES =
+            new LookupCache<>("allergies", MAX_BYTES, TTL_SECONDS, LookupCaches::poidsAllergies, 200,
+                    ChangeNotifications::isConnected);
+
+    /** Diététicien d'un patient, par noSS du patient */
+    public static final LookupCache<String, Dieteticien> DIETETICIENS_PATIENT =
+            new LookupCache<>("dieteticien_patient", MAX_BYTES, TTL_SECONDS, LookupCaches::poids, 400,
+                    ChangeNotifications::isConnected);
+
+    static {
+        ChangeNotifications.subscribe(CHANNEL, LookupCaches::onInvalidation);
+        ChangeNotifications.subscribe(AllergyIndex.CHANNEL_ALLERGIES, LookupCaches::onAllergiesChanged);
+    }
+
+    /** Classe utilitaire, non instanciable */
+    private LookupCaches() {}
+
+    /**
+     * Démarre l'écoute des invalidations. L'appel est facultatif : sans lui, l'écoute
+     * commence à la première lecture.
+     */
+    public static void start() {
+        // Le chargement de la classe suffit à s'abonner aux notifications
+    }
+
+    /**
+     * Retire les entrées d'un patient de ce cache et de ceux des autres instances.
+     * À appeler après une modification du patient (données, allergies, diététicien).
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    public static void invalidatePatient(String noss) {
+        if (noss == null) {
+            return;
+        }
+        invalidatePatientLocal(noss);
+        publish(PATIENT + noss);
+    }
+
+    /**
+     * Vide les caches de cette instance et ceux des autres instances.
+     */
+    public static void invalidateAll() {
+        invalidateAllLocal();
+        publish(TOUT);
+    }
+
+    private static void invalidatePatientLocal(String noss) {
+        PATIENTS.invalidate(noss);
+        ALLERGIES.invalidate(noss);
+        DIETETICIENS_PATIENT.invalidate(noss);
+    }
+
+    private static void invalidateAllLocal() {
+        for (LookupCache<?, ?> cache : List.of(PATIENTS, DIETETICIENS, INFIRMIERS, ALLERGIES, DIETETICIENS_PATIENT)) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Prévient les autres instances. En cas d'échec, leurs entrées expireront d'elles-mêmes.
+     *
+     * @param payload La charge utile de l'invalidation
+     */
+    private static void publish(String payload) {
+        try {
+            ChangeNotifications.publish(CHANNEL, payload);
+        } catch (Exception e) {
+            System.err.println("Invalidation des caches non diffusée (" + payload + ") : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Traite une invalidation reçue d'une instance (y compris celle-ci).
+     *
+     * @param payload La charge utile, ou null au début de l'écoute
+     */
+    private static void onInvalidation(String payload) {
+        if (payload == null || payload.equals(TOUT)) {
+            invalidateAllLocal();
+        } else if (payload.startsWith(PATIENT)) {
+            invalidatePatientLocal(payload.substring(PATIENT.length()));
+        }
+    }
+
+    /**
+     * Traite une modification des allergies notifiée par les triggers de la base.
+     *
+     * @param payload Les noSS des patients concernés séparés par des virgules, vide si inconnus,
+     *                ou null au début de l'écoute
+     */
+    private static void onAllergiesChanged(String payload) {
+        if (payload == null || payload.isEmpty()) {
+            ALLERGIES.invalidateAll();
+            return;
+        }
+        for (String noss : payload.split(",")) {
+            ALLERGIES.invalidate(noss);
+        }
+    }
+
+    /**
+     * Estime le poids d'une personne en mémoire.
+     *
+     * @param personne La personne
+     * @return Le poids estimé, en octets
+     */
+    private static int poids(Personne personne) {
+        int poids = 160 + poids(personne.getNoSS()) + poids(personne.getNom()) + poids(personne.getPrenom())
+                + poids(personne.getEmail());
+        if (personne instanceof Patient patient) {
+            poids += poids(patient.getNossDieteticien()) + poidsAllergies(patient.getAllergenes());
+        }
+        return poids;
+    }
+
+    private static int poidsAllergies(List<Allergene> allergies) {
+        int poids = 64;
+        for (Allergene allergene : allergies) {
+            poids += 32 + poids(allergene.getNomAllergene());
+        }
+        return poids;
+    }
+
+    private static int poids(String s) {
+        return s == null ? 0 : 48 + 2 * s.length();
+    }
+}
@@ -0,0 +1,230 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.Nutriment;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index des valeurs nutritionnelles d'un catalogue des consommables, pour les requêtes par
+ * intervalles (« boissons de moins de 50 kcal et de moins de 20 mg de sodium »).
+ *
+ * Pour chaque nutriment, les lignes du catalogue sont triées par teneur : les consommables
+ * dont la teneur est dans un intervalle forment une plage de ce tri, trouvée par recherche
+ * dichotomique. Une requête parcourt la plage de sa condition la plus sélective et vérifie
+ * les autres conditions, le type et les exclusions directement dans les colonnes du
+ * catalogue. Lorsque l'ordre demandé est celui du parcours (requête sans condition, ou tri
+ * par la teneur de la condition la plus sélective), le parcours s'arrête à la limite.
+ *
+ * L'index appartient à un catalogue (voir {@link ConsommableCatalog#nutriments()}) : il est
+ * immuable et remplacé avec lui.
+ */
+public final class NutrimentIndex {
+    /** Syntaxe d'une condition : nutriment, opérateur et valeur (ex. sodium<20) */
+    private static final Pattern CONDITION = Pattern.compile(
+            "\\s*([A-Za-z_]+)\\s*(<=|>=|<|>|=)\\s*(-?[0-9]+(?:\\.[0-9]+)?)\\s*");
+
+    /**
+     * Condition sur la teneur d'un nutriment : min ≤ teneur ≤ max.
+     *
+     * @param nutriment Le nutriment
+     * @param min La teneur minimale, incluse
+     * @param max La teneur maximale, incluse
+     */
+    public record Condition(Nutriment nutriment, float min, float max) {
+
+        /**
+         * Lit une condition de la forme nutriment opérateur valeur, où l'opérateur est
+         * &lt;, &lt;=, &gt;, &gt;= ou = (ex. proteines&gt;20).
+         *
+         * @param texte La condition
+         * @return La condition lue
+         * @throws IllegalArgumentException Si la condition est invalide
+         */
+        public static Condition parse(String texte) {
+            Matcher matcher = CONDITION.matcher(texte);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Condition invalide : " + texte);
+            }
+            Nutriment nutriment = Nutriment.nutriment(matcher.group(1));
+            float valeur = Float.parseFloat(matcher.group(3));
+            return switch (matcher.group(2)) {
+                case "<" -> new Condition(nutriment, Float.NEGATIVE_INFINITY, Math.nextDown(valeur));
+                case "<=" -> new Condition(nutriment, Float.NEGATIVE_INFINITY, valeur);
+                case ">" -> new Condition(nutriment, Math.nextUp(valeur), Float.POSITIVE_INFINITY);
+                case ">=" -> new Condition(nutriment, valeur, Float.POSITIVE_INFINITY);
+                default -> new Condition(nutriment, valeur, valeur);
+            };
+        }
+    }
+
+    /** Catalogue indexé */
+    private final ConsommableCatalog catalog;
+
+    /** Teneurs par nutriment (indice ordinal) et par ligne du catalogue */
+    private final float[][] colonnes;
+
+    /** Lignes du catalogue triées par teneur croissante, et teneurs correspondantes, par nutriment */
+    private final int[][] lignesTriees;
+    private final float[][] teneursTriees;
+
+    /**
+     * Construit l'index des nutriments d'un catalogue.
+     *
+     * @param catalog Le catalogue
+     */
+    NutrimentIndex(ConsommableCatalog catalog) {
+        this.catalog = catalog;
+        Nutriment[] nutriments = Nutriment.values();
+        int n = catalog.size();
+        colonnes = new float[nutriments.length][];
+        lignesTriees = new int[nutriments.length][n];
+        teneursTriees = new float[nutriments.length][n];
+        long[] cles = new long[n];
+        for (Nutriment nutriment : nutriments) {
+            int c = nutriment.ordinal();
+            colonnes[c] = catalog.colonne(nutriment);
+            // Tri des paires (teneur, ligne) : les bits d'un float réordonnés se comparent comme des entiers
+            for (int i = 0; i < n; i++) {
+                int bits = Float.floatToIntBits(colonnes[c][i]);
+                cles[i] = (long) (bits ^ (bits >> 31 & 0x7fffffff)) << 32 | i;
+            }
+            Arrays.sort(cles);
+            for (int k = 0; k < n; k++) {
+                lignesTriees[c][k] = (int) cles[k];
+                teneursTriees[c][k] = colonnes[c][lignesTriees[c][k]];
+            }
+        }
+    }
+
+    /**
+     * Recherche les consommables satisfaisant toutes les conditions.
+     *
+     * @param conditions Les conditions sur les teneurs
+     * @param type Le type des consommables, ou null pour tous
+     * @param exclus Les identifiants des consommables à exclure, ou null
+     * @param tri Le nutriment selon lequel trier les résultats, ou null pour l'ordre des identifiants
+     * @param decroissant Si le tri par nutriment est décroissant
+     * @param limite Le nombre maximal de résultats
+     * @return Les consommables trouvés, dans l'ordre demandé
+     */
+    public List<Consommable> chercher(List<Condition> conditions, TypeConsommable type, BitSet exclus,
+                                      Nutriment tri, boolean decroissant, int limite) {
+        // Condition la plus sélective : sa plage de lignes est parcourue
+        Condition pilote = null;
+        int debut = 0;
+        int fin = catalog.size();
+        for (Condition condition : conditions) {
+            float[] teneurs = teneursTriees[condition.nutriment().ordinal()];
+            int premier = premiere(teneurs, condition.min(), false);
+            int dernier = premiere(teneurs, condition.max(), true);
+            if (pilote == null || dernier - premier < fin - debut) {
+                pilote = condition;
+                debut = premier;
+                fin = Math.max(premier, dernier);
+            }
+        }
+        int[] lignes;
+        boolean ordonne;
+        if (pilote != null) {
+            lignes = lignesTriees[pilote.nutriment().ordinal()];
+            ordonne = pilote.nutriment() == tri;
+        } else {
+            // Sans condition, le catalogue est parcouru dans l'ordre demandé
+            lignes = tri == null ? null : lignesTriees[tri.ordinal()];
+            ordonne = true;
+        }
+
+        // Si le parcours est dans l'ordre demandé, il s'arrête à la limite
+        boolean inverse = ordonne && tri != null && decroissant;
+        int[] retenues = new int[ordonne ? Math.max(1, Math.min(limite, fin - debut)) : 16];
+        int nombre = 0;
+        for (int k = 0; k < fin - debut && !(ordonne && nombre == limite); k++) {
+            int position = inverse ? fin - 1 - k : debut + k;
+            int ligne = lignes == null ? position : lignes[position];
+            if (accepte(ligne, conditions, pilote, type, exclus)) {
+                if (nombre == retenues.length) {
+                    retenues = Arrays.copyOf(retenues, nombre * 2);
+                }
+                retenues[nombre++] = ligne;
+            }
+        }
+        retenues = Arrays.copyOf(retenues, nombre);
+        if (!ordonne) {
+            trier(retenues, tri, decroissant);
+        }
+
+        List<Consommable> consommables = new ArrayList<>(Math.min(limite, nombre));
+        for (int i = 0; i < Math.min(limite, nombre); i++) {
+            consommables.add(catalog.get(retenues[i]));
+        }
+        return consommables;
+    }
+
+    /**
+     * Vérifie qu'une ligne satisfait les conditions (sauf celle dont la plage est parcourue),
+     * le type et les exclusions.
+     */
+    private boolean accepte(int ligne, List<Condition> conditions, Condition pilote, TypeConsommable type,
+                            BitSet exclus) {
+        if ((type != null && catalog.type(ligne) != type) || (exclus != null && exclus.get(catalog.id(ligne)))) {
+            return false;
+        }
+        for (Condition condition : conditions) {
+            if (condition == pilote) {
+                continue;
+            }
+            float teneur = colonnes[condition.nutriment().ordinal()][ligne];
+            if (teneur < condition.min() || teneur > condition.max()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Trie des lignes par identifiant (ordre des lignes) ou par teneur d'un nutriment, à
+     * teneur égale par identifiant dans le même sens, comme le parcours des lignes triées.
+     */
+    private void trier(int[] lignes, Nutriment tri, boolean decroissant) {
+        if (tri == null) {
+            Arrays.sort(lignes);
+            return;
+        }
+        float[] teneurs = colonnes[tri.ordinal()];
+        long[] cles = new long[lignes.length];
+        for (int i = 0; i < lignes.length; i++) {
+            int bits = Float.floatToIntBits(teneurs[lignes[i]]);
+            int ordre = bits ^ (bits >> 31 & 0x7fffffff);
+            long cle = (long) ordre << 32 | lignes[i];
+            cles[i] = decroissant ? ~cle : cle;
+        }
+        Arrays.sort(cles);
+        for (int i = 0; i < lignes.length; i++) {
+            lignes[i] = (int) (decroissant ? ~cles[i] : cles[i]);
+        }
+    }
+
+    /**
+     * Retourne l'indice de la première teneur supérieure (ou égale, si apres est faux) à une valeur.
+     */
+    private static int premiere(float[] teneurs, float valeur, boolean apres) {
+        int bas = 0;
+        int haut = teneurs.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (teneurs[milieu] < valeur || (apres && teneurs[milieu] == valeur)) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+}
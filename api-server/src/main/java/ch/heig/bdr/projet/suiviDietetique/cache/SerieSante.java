@@ -0,0 +1,519 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
+import ch.heig.bdr.projet.suiviDietetique.models.NiveauActivitePhysique;
+import ch.heig.bdr.projet.suiviDietetique.models.ProgressionSante;
+import ch.heig.bdr.projet.suiviDietetique.models.StatsSante;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Série chronologique compressée des mesures de santé d'un patient (table donnees_sante).
+ *
+ * Les mesures sont codées à la suite dans un tableau d'octets, par date croissante, à la
+ * manière de Gorilla (base de séries chronologiques de Facebook) :
+ * - la date, à la seconde, par sa différence de deuxième ordre (delta-of-delta) : pour des
+ *   mesures prises à intervalle régulier, elle est nulle et n'occupe aucun octet ;
+ * - la taille, le poids et le tour de taille par leur différence avec la mesure précédente,
+ *   omise si la valeur n'a pas changé ; le niveau d'activité n'est écrit que s'il change.
+ * Un octet d'en-tête par mesure indique les champs présents. Les différences sont écrites
+ * en entiers de longueur variable (zig-zag, 7 bits par octet) : une mesure occupe
+ * typiquement 2 à 6 octets, contre plus de 100 pour un objet DonneeSante.
+ *
+ * Les dates sont conservées à la seconde, précision des dates des réponses (voir DonneeSante)
+ * et de la suppression d'une mesure. Les mesures n'étant lisibles que dans l'ordre, les
+ * requêtes parcourent la série depuis le début ; la dernière mesure est conservée décodée.
+ *
+ * La série est lue sans verrou : une mesure ajoutée est écrite après la fin publiée, puis
+ * le nouvel état (tableau, longueur, dernière mesure) est publié par une écriture volatile.
+ * Une lecture en cours ne voit donc jamais une mesure partiellement écrite.
+ */
+public final class SerieSante {
+    /** Champs présents après l'octet d'en-tête d'une mesure */
+    private static final int DATE = 1;
+    private static final int TAILLE = 1 << 1;
+    private static final int POIDS = 1 << 2;
+    private static final int TOUR_DE_TAILLE = 1 << 3;
+    private static final int NIVEAU = 1 << 4;
+
+    /** Taille maximale d'une mesure codée : en-tête, date (10 octets) et trois valeurs (5 octets), niveau */
+    private static final int TAILLE_MAX_MESURE = 1 + 10 + 3 * 5 + 1;
+
+    private static final NiveauActivitePhysique[] NIVEAUX = NiveauActivitePhysique.values();
+
+    /** Unité de temps des pentes */
+    private static final double SECONDES_PAR_SEMAINE = 7 * 24 * 3600;
+
+    /**
+     * Mesure décodée.
+     *
+     * @param date La date, en secondes depuis l'époque Unix
+     * @param taille La taille en centimètres
+     * @param poids Le poids en kilogrammes
+     * @param tourDeTaille Le tour de taille en centimètres
+     * @param niveau Le rang du niveau d'activité physique (ordinal), -1 avant la première mesure
+     */
+    private record Mesure(long date, int taille, int poids, int tourDeTaille, int niveau) {}
+
+    /** Point de départ du codage de la première mesure */
+    private static final Mesure AUCUNE = new Mesure(0, 0, 0, 0, -1);
+
+    /**
+     * État publié de la série. Les octets [0, longueur[ du tableau ne sont plus jamais modifiés.
+     *
+     * @param octets Les mesures codées
+     * @param longueur Le nombre d'octets utilisés
+     * @param nombre Le nombre de mesures
+     * @param derniere La dernière mesure, point de départ du codage de la suivante
+     * @param dernierEcart L'écart entre les dates des deux dernières mesures, en secondes
+     */
+    private record Etat(byte[] octets, int longueur, int nombre, Mesure derniere, long dernierEcart) {}
+
+    /** Numéro de sécurité sociale du patient */
+    private final String nossPatient;
+
+    /** État courant, remplacé à chaque ajout */
+    private volatile Etat etat;
+
+    /**
+     * Crée une série vide.
+     *
+     * @param nossPatient Le numéro de sécurité sociale du patient
+     * @param capacite La capacité initiale, en octets
+     */
+    private SerieSante(String nossPatient, int capacite) {
+        this.nossPatient = nossPatient;
+        this.etat = new Etat(new byte[capacite], 0, 0, AUCUNE, 0);
+    }
+
+    /**
+     * Crée la série des mesures d'un patient.
+     *
+     * @param nossPatient Le numéro de sécurité sociale du patient
+     * @param mesures Les mesures du patient, par date croissante
+     * @return La série
+     * @throws IllegalArgumentException Si les mesures ne sont pas triées par date
+     */
+    public static SerieSante de(String nossPatient, List<DonneeSante> mesures) {
+        SerieSante serie = new SerieSante(nossPatient, 16 + 4 * mesures.size());
+        for (DonneeSante mesure : mesures) {
+            if (!serie.ajouter(mesure)) {
+                throw new IllegalArgumentException("Mesures non triées par date pour le patient " + nossPatient);
+            }
+        }
+        return serie;
+    }
+
+    /**
+     * Ajoute une mesure à la fin de la série. Une mesure antérieure à la dernière mesure
+     * de la série ne peut pas être ajoutée : la série doit alors être relue en base. Une mesure
+     * identique à la dernière (même seconde, mêmes valeurs) est considérée comme déjà présente :
+     * la série a pu être lue en base après l'insertion de la mesure et avant son ajout.
+     *
+     * @param mesure La mesure, datée
+     * @return true si la mesure a été ajoutée ou était déjà présente, false si elle est antérieure à la dernière
+     */
+    public synchronized boolean ajouter(DonneeSante mesure) {
+        Etat courant = etat;
+        Mesure precedente = courant.derniere();
+        Mesure nouvelle = new Mesure(mesure.getDate().toEpochSecond(), mesure.getTaille(), mesure.getPoids(),
+                mesure.getTourDeTaille(), NiveauActivitePhysique.type(mesure.getNiveauActivitePhysique()).ordinal());
+        if (courant.nombre() > 0 && nouvelle.date() < precedente.date()) {
+            return false;
+        }
+        if (courant.nombre() > 0 && nouvelle.equals(precedente)) {
+            return true;
+        }
+
+        // La première mesure n'a pas d'écart : sa date est écrite telle quelle
+        long ecart = courant.nombre() == 0 ? 0 : nouvelle.date() - precedente.date();
+        long deltaDate = courant.nombre() == 0 ? nouvelle.date() : ecart - courant.dernierEcart();
+
+        byte[] octets = courant.octets();
+        if (courant.longueur() + TAILLE_MAX_MESURE > octets.length) {
+            octets = Arrays.copyOf(octets, Math.max(2 * octets.length, courant.longueur() + TAILLE_MAX_MESURE));
+        }
+        int position = courant.longueur();
+        int entete = position++;
+        int champs = 0;
+        if (deltaDate != 0) {
+            champs |= DATE;
+            position = ecrire(octets, position, deltaDate);
+        }
+        if (nouvelle.taille() != precedente.taille()) {
+            champs |= TAILLE;
+            position = ecrire(octets, position, nouvelle.taille() - precedente.taille());
+        }
+        if (nouvelle.poids() != precedente.poids()) {
+            champs |= POIDS;
+            position = ecrire(octets, position, nouvelle.poids() - precedente.poids());
+        }
+        if (nouvelle.tourDeTaille() != precedente.tourDeTaille()) {
+            champs |= TOUR_DE_TAILLE;
+            position = ecrire(octets, position, nouvelle.tourDeTaille() - precedente.tourDeTaille());
+        }
+        if (nouvelle.niveau() != precedente.niveau()) {
+            champs |= NIVEAU;
+            octets[position++] = (byte) nouvelle.niveau();
+        }
+        octets[entete] = (byte) champs;
+
+        etat = new Etat(octets, position, courant.nombre() + 1, nouvelle, ecart);
+        return true;
+    }
+
+    /**
+     * Vérifie si la série contient une mesure à une date donnée (à la seconde).
+     *
+     * @param date La date, en secondes depuis l'époque Unix
+     * @return true si une mesure de la série a cette date
+     */
+    public boolean contient(long date) {
+        Etat courant = etat;
+        if (courant.nombre() == 0 || date > courant.derniere().date()) {
+            return false;
+        }
+        Lecteur lecteur = new Lecteur(courant);
+        while (lecteur.suivante()) {
+            if (lecteur.date >= date) {
+                return lecteur.date == date;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne la mesure la plus récente.
+     *
+     * @return La dernière mesure, ou null si la série est vide
+     */
+    public DonneeSante derniere() {
+        Etat courant = etat;
+        if (courant.nombre() == 0) {
+            return null;
+        }
+        Mesure m = courant.derniere();
+        return donneeSante(m.date(), m.taille(), m.poids(), m.tourDeTaille(), m.niveau());
+    }
+
+    /**
+     * Retourne les mesures prises sur [début, fin[, par date croissante.
+     *
+     * @param debut Le début inclus, en secondes depuis l'époque Unix (Long.MIN_VALUE : sans limite)
+     * @param fin La fin exclue, en secondes depuis l'époque Unix (Long.MAX_VALUE : sans limite)
+     * @return Les mesures de la période
+     */
+    public List<DonneeSante> entre(long debut, long fin) {
+        Etat courant = etat;
+        List<DonneeSante> mesures = new ArrayList<>(Math.min(courant.nombre(), 1024));
+        Lecteur lecteur = new Lecteur(courant);
+        while (lecteur.suivante() && lecteur.date < fin) {
+            if (lecteur.date >= debut) {
+                mesures.add(donneeSante(lecteur.date, lecteur.taille, lecteur.poids, lecteur.tourDeTaille,
+                        lecteur.niveau));
+            }
+        }
+        return mesures;
+    }
+
+    /**
+     * Agrège les mesures prises sur [début, fin[ par semaine (du lundi au dimanche, jours
+     * locaux du fuseau donné) : minimum, maximum et moyenne du poids, du tour de taille et de l'IMC.
+     *
+     * @param debut Le début inclus, en secondes depuis l'époque Unix (Long.MIN_VALUE : sans limite)
+     * @param fin La fin exclue, en secondes depuis l'époque Unix (Long.MAX_VALUE : sans limite)
+     * @param zone Le fuseau des jours et des semaines
+     * @return Les statistiques des semaines ayant au moins une mesure, par semaine croissante
+     */
+    public List<StatsSante> parSemaine(long debut, long fin, ZoneId zone) {
+        List<StatsSante> semaines = new ArrayList<>();
+        Lecteur lecteur = new Lecteur(etat);
+        StatsSante semaine = null;
+        long finSemaine = Long.MIN_VALUE;
+        long sommePoids = 0;
+        long sommeTour = 0;
+        double sommeImc = 0;
+        while (lecteur.suivante() && lecteur.date < fin) {
+            if (lecteur.date < debut) {
+                continue;
+            }
+            if (lecteur.date >= finSemaine) {
+                if (semaine != null) {
+                    terminer(semaine, sommePoids, sommeTour, sommeImc);
+                    semaines.add(semaine);
+                }
+                LocalDate lundi = LocalDate.ofInstant(Instant.ofEpochSecond(lecteur.date), zone).with(DayOfWeek.MONDAY);
+                finSemaine = lundi.plusWeeks(1).atStartOfDay(zone).toEpochSecond();
+                semaine = new StatsSante();
+                semaine.periode = lundi;
+                semaine.poidsMin = Integer.MAX_VALUE;
+                semaine.poidsMax = Integer.MIN_VALUE;
+                semaine.tourDeTailleMin = Integer.MAX_VALUE;
+                semaine.tourDeTailleMax = Integer.MIN_VALUE;
+                semaine.imcMin = Double.MAX_VALUE;
+                semaine.imcMax = -Double.MAX_VALUE;
+                sommePoids = 0;
+                sommeTour = 0;
+                sommeImc = 0;
+            }
+            double imc = imc(lecteur.poids, lecteur.taille);
+            semaine.nbMesures++;
+            semaine.poidsMin = Math.min(semaine.poidsMin, lecteur.poids);
+            semaine.poidsMax = Math.max(semaine.poidsMax, lecteur.poids);
+            semaine.tourDeTailleMin = Math.min(semaine.tourDeTailleMin, lecteur.tourDeTaille);
+            semaine.tourDeTailleMax = Math.max(semaine.tourDeTailleMax, lecteur.tourDeTaille);
+            semaine.imcMin = Math.min(semaine.imcMin, imc);
+            semaine.imcMax = Math.max(semaine.imcMax, imc);
+            sommePoids += lecteur.poids;
+            sommeTour += lecteur.tourDeTaille;
+            sommeImc += imc;
+        }
+        if (semaine != null) {
+            terminer(semaine, sommePoids, sommeTour, sommeImc);
+            semaines.add(semaine);
+        }
+        return semaines;
+    }
+
+    /**
+     * Calcule la progression des mesures prises sur [début, fin[ en un seul parcours de la
+     * série : première et dernière mesure, variations, extrêmes de l'IMC, et pentes des droites
+     * de régression linéaire (moindres carrés) du poids, du tour de taille et de l'IMC en
+     * fonction du temps, par semaine. Les sommes de la régression sont tenues à jour à chaque
+     * mesure (écarts à la moyenne, sans perte de précision sur de longues séries).
+     *
+     * @param debut Le début inclus, en secondes depuis l'époque Unix (Long.MIN_VALUE : sans limite)
+     * @param fin La fin exclue, en secondes depuis l'époque Unix (Long.MAX_VALUE : sans limite)
+     * @return La progression de la période ; sans mesure, seul le nombre de mesures (0) est renseigné
+     */
+    public ProgressionSante progression(long debut, long fin) {
+        ProgressionSante progression = new ProgressionSante();
+        progression.nossPatient = nossPatient;
+        Regression poids = new Regression();
+        Regression tourDeTaille = new Regression();
+        Regression imcs = new Regression();
+        Lecteur lecteur = new Lecteur(etat);
+        long premiere = 0;
+        long derniere = 0;
+        int dernierPoids = 0;
+        int dernierTour = 0;
+        double dernierImc = 0;
+        double imcMin = Double.MAX_VALUE;
+        double imcMax = -Double.MAX_VALUE;
+        while (lecteur.suivante() && lecteur.date < fin) {
+            if (lecteur.date < debut) {
+                continue;
+            }
+            double imc = imc(lecteur.poids, lecteur.taille);
+            if (progression.nbMesures++ == 0) {
+                premiere = lecteur.date;
+                progression.poidsDebut = lecteur.poids;
+                progression.tourDeTailleDebut = lecteur.tourDeTaille;
+                progression.imcDebut = arrondi(imc);
+            }
+            double semaines = (double) (lecteur.date - premiere) / SECONDES_PAR_SEMAINE;
+            poids.ajouter(semaines, lecteur.poids);
+            tourDeTaille.ajouter(semaines, lecteur.tourDeTaille);
+            imcs.ajouter(semaines, imc);
+            imcMin = Math.min(imcMin, imc);
+            imcMax = Math.max(imcMax, imc);
+            derniere = lecteur.date;
+            dernierPoids = lecteur.poids;
+            dernierTour = lecteur.tourDeTaille;
+            dernierImc = imc;
+        }
+        if (progression.nbMesures == 0) {
+            return progression;
+        }
+
+        progression.dateDebut = date(premiere);
+        progression.dateFin = date(derniere);
+        progression.poidsFin = dernierPoids;
+        progression.deltaPoids = dernierPoids - progression.poidsDebut;
+        progression.pentePoids = poids.pente();
+        progression.tourDeTailleFin = dernierTour;
+        progression.deltaTourDeTaille = dernierTour - progression.tourDeTailleDebut;
+        progression.penteTourDeTaille = tourDeTaille.pente();
+        progression.imcFin = arrondi(dernierImc);
+        progression.deltaImc = arrondi(progression.imcFin - progression.imcDebut);
+        progression.imcMin = arrondi(imcMin);
+        progression.imcMax = arrondi(imcMax);
+        progression.penteImc = imcs.pente();
+        return progression;
+    }
+
+    /**
+     * Régression linéaire simple calculée au fil des points (algorithme de Welford) : moyennes
+     * et co-moments centrés, mis à jour à chaque point.
+     */
+    private static final class Regression {
+        private int n;
+        private double moyenneX;
+        private double moyenneY;
+        private double comomentXX;
+        private double comomentXY;
+
+        void ajouter(double x, double y) {
+            n++;
+            double ecartX = x - moyenneX;
+            moyenneX += ecartX / n;
+            moyenneY += (y - moyenneY) / n;
+            comomentXX += ecartX * (x - moyenneX);
+            comomentXY += ecartX * (y - moyenneY);
+        }
+
+        /**
+         * @return La pente arrondie au centième, ou null sans au moins deux dates différentes
+         */
+        Double pente() {
+            return n < 2 || comomentXX == 0 ? null : arrondi(comomentXY / comomentXX);
+        }
+    }
+
+    /**
+     * Calcule les moyennes d'une semaine et arrondit les IMC au centième.
+     */
+    private static void terminer(StatsSante semaine, long sommePoids, long sommeTour, double sommeImc) {
+        semaine.poidsMoyen = arrondi((double) sommePoids / semaine.nbMesures);
+        semaine.tourDeTailleMoyen = arrondi((double) sommeTour / semaine.nbMesures);
+        semaine.imcMoyen = arrondi(sommeImc / semaine.nbMesures);
+        semaine.imcMin = arrondi(semaine.imcMin);
+        semaine.imcMax = arrondi(semaine.imcMax);
+    }
+
+    /** IMC non arrondi, calculé comme dans DonneeSante */
+    private static double imc(int poids, int taille) {
+        double metres = taille / 100.0;
+        return poids / (metres * metres);
+    }
+
+    private static double arrondi(double valeur) {
+        return Math.round(valeur * 100) / 100.0;
+    }
+
+    private DonneeSante donneeSante(long date, int taille, int poids, int tourDeTaille, int niveau) {
+        return new DonneeSante(nossPatient, date(date), taille, poids, tourDeTaille, NIVEAUX[niveau].name);
+    }
+
+    private static OffsetDateTime date(long secondes) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(secondes), ZoneOffset.UTC);
+    }
+
+    public String getNossPatient() {
+        return nossPatient;
+    }
+
+    /**
+     * @return Le nombre de mesures de la série
+     */
+    public int getNombre() {
+        return etat.nombre();
+    }
+
+    /**
+     * @return La taille des mesures codées, en octets
+     */
+    public int getOctets() {
+        return etat.longueur();
+    }
+
+    /**
+     * Estime le poids de la série en mémoire (voir LookupCache).
+     *
+     * @return Le poids estimé, en octets
+     */
+    public int getPoids() {
+        return 160 + etat.octets().length;
+    }
+
+    /**
+     * Écrit un entier en zig-zag et en longueur variable (7 bits par octet, poids faibles d'abord).
+     *
+     * @return La position qui suit l'entier écrit
+     */
+    private static int ecrire(byte[] octets, int position, long valeur) {
+        long v = (valeur << 1) ^ (valeur >> 63);
+        while ((v & ~0x7FL) != 0) {
+            octets[position++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        octets[position++] = (byte) v;
+        return position;
+    }
+
+    /**
+     * Décodage séquentiel des mesures d'un état publié.
+     */
+    private static final class Lecteur {
+        private final byte[] octets;
+        private final int longueur;
+        private int position;
+        private int lues;
+
+        /** Mesure courante */
+        long date;
+        int taille;
+        int poids;
+        int tourDeTaille;
+        int niveau = -1;
+        private long ecart;
+
+        Lecteur(Etat etat) {
+            this.octets = etat.octets();
+            this.longueur = etat.longueur();
+        }
+
+        /**
+         * Décode la mesure suivante.
+         *
+         * @return false si toutes les mesures ont été lues
+         */
+        boolean suivante() {
+            if (position >= longueur) {
+                return false;
+            }
+            int champs = octets[position++];
+            long deltaDate = (champs & DATE) != 0 ? lire() : 0;
+            if (lues++ == 0) {
+                date = deltaDate;
+            } else {
+                ecart += deltaDate;
+                date += ecart;
+            }
+            if ((champs & TAILLE) != 0) {
+                taille += (int) lire();
+            }
+            if ((champs & POIDS) != 0) {
+                poids += (int) lire();
+            }
+            if ((champs & TOUR_DE_TAILLE) != 0) {
+                tourDeTaille += (int) lire();
+            }
+            if ((champs & NIVEAU) != 0) {
+                niveau = octets[position++];
+            }
+            return true;
+        }
+
+        /** Lit un entier écrit par {@link SerieSante#ecrire} */
+        private long lire() {
+            long v = 0;
+            int decalage = 0;
+            byte b;
+            do {
+                b = octets[position++];
+                v |= (long) (b & 0x7F) << decalage;
+                decalage += 7;
+            } while (b < 0);
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
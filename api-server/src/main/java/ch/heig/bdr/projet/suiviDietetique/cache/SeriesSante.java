@@ -0,0 +1,118 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.ChangeNotifications;
+import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
+
+import java.util.function.Supplier;
+
+/**
+ * Séries chronologiques des mesures de santé des patients, en mémoire (voir {@link SerieSante}).
+ *
+ * La série d'un patient est lue en base à sa première consultation, puis conservée dans un
+ * {@link LookupCache} borné en octets. Une mesure insérée par cette instance est ajoutée à
+ * la fin de la série en cache. Les triggers de la base notifient toute modification de la
+ * table donnees_sante sur le canal {@value #CHANNEL} : une série est retirée du cache si
+ * elle ne contient pas déjà les mesures insérées, ou si des mesures ont été modifiées ou
+ * supprimées. Les séries expirent en outre après SERIES_SANTE_TTL_S secondes.
+ */
+public final class SeriesSante {
+    /**
+     * Canal des modifications de la table donnees_sante : charge utile "noSS@date" (date en
+     * secondes) par mesure insérée, "noSS" par patient dont des mesures ont été modifiées ou
+     * supprimées, séparés par des virgules ; vide si la liste est trop longue
+     */
+    public static final String CHANNEL = "donnees_sante_modifiees";
+
+    /** Séparateur du noSS et de la date d'une mesure insérée */
+    private static final char DATE = '@';
+
+    /** Poids maximal du cache des séries, en octets estimés */
+    private static final long MAX_BYTES = Env.getLong("SERIES_SANTE_MAX_BYTES", 8L * 1024 * 1024);
+
+    /** Durée de vie d'une série, en secondes */
+    private static final long TTL_SECONDS = Env.getLong("SERIES_SANTE_TTL_S", 3600);
+
+    /** Séries, par noSS du patient */
+    private static final LookupCache<String, SerieSante> SERIES =
+            new LookupCache<>("series_sante", MAX_BYTES, TTL_SECONDS, SerieSante::getPoids, 256);
+
+    static {
+        ChangeNotifications.subscribe(CHANNEL, SeriesSante::onChanged);
+    }
+
+    /** Classe utilitaire, non instanciable */
+    private SeriesSante() {}
+
+    /**
+     * Démarre l'écoute des modifications. Un canal abonné après le démarrage de l'écoute
+     * n'est écouté qu'au tour suivant de la boucle d'écoute (voir ChangeNotifications) :
+     * sans cet appel, les premières modifications pourraient ne pas être vues.
+     */
+    public static void start() {
+        // Le chargement de la classe suffit à s'abonner aux notifications
+    }
+
+    /**
+     * Retourne la série d'un patient, lue en base si elle n'est pas en cache.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param lecture La lecture de la série en base
+     * @return La série du patient
+     */
+    public static SerieSante get(String noss, Supplier<SerieSante> lecture) {
+        return SERIES.get(noss, lecture);
+    }
+
+    /**
+     * Ajoute une mesure insérée à la série en cache de son patient. Si la série n'est pas
+     * en cache, une lecture en cours, commencée avant l'insertion, n'y sera pas mise ; si la
+     * mesure ne peut pas être ajoutée à la fin de la série, celle-ci est retirée du cache.
+     *
+     * @param mesure La mesure insérée, datée
+     */
+    public static void ajouter(DonneeSante mesure) {
+        String noss = mesure.getNossPatient();
+        SerieSante serie = SERIES.getIfPresent(noss);
+        if (serie == null || !serie.ajouter(mesure)) {
+            SERIES.invalidate(noss);
+        }
+    }
+
+    /**
+     * Retire la série d'un patient du cache de cette instance. À appeler après une
+     * suppression ou une modification de ses mesures ; les autres instances sont
+     * prévenues par les triggers de la base.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    public static void invalidate(String noss) {
+        SERIES.invalidate(noss);
+    }
+
+    /**
+     * Traite une modification de la table donnees_sante notifiée par les triggers de la base.
+     *
+     * @param payload Les mesures insérées ("noSS@date") et les patients modifiés ("noSS"),
+     *                séparés par des virgules, vide si inconnus, ou null au début de l'écoute
+     */
+    private static void onChanged(String payload) {
+        if (payload == null || payload.isEmpty()) {
+            SERIES.invalidateAll();
+            return;
+        }
+        for (String element : payload.split(",")) {
+            int separateur = element.indexOf(DATE);
+            if (separateur < 0) {
+                SERIES.invalidate(element);
+                continue;
+            }
+            // Mesure insérée : déjà présente si elle a été insérée par cette instance
+            String noss = element.substring(0, separateur);
+            SerieSante serie = SERIES.getIfPresent(noss);
+            if (serie == null || !serie.contient(Long.parseLong(element.substring(separateur + 1)))) {
+                SERIES.invalidate(noss);
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.models.Nutriment;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Index des profils nutritionnels des consommables, pour proposer des substituts : les
+ * k consommables dont le profil est le plus proche de celui d'un consommable donné.
+ *
+ * Chaque consommable est un vecteur de ses teneurs en {@link #NUTRIMENTS}. Les teneurs
+ * s'étendent sur plusieurs ordres de grandeur (quelques µg de vitamine D, des centaines de
+ * kcal) : chaque composante est le logarithme de 1 + la teneur, divisé par son écart type
+ * sur le catalogue, pour que chaque nutriment pèse autant. La distance est euclidienne.
+ *
+ * Les vecteurs sont rangés dans un arbre à points de vue (VP-tree) implicite : un nœud est
+ * une plage du tableau dont le premier élément est le point de vue ; les éléments plus
+ * proches de lui que la distance médiane (le seuil du nœud) le suivent, puis les plus
+ * éloignés. Une recherche n'entre dans une moitié que si l'inégalité triangulaire n'exclut
+ * pas d'y trouver un voisin plus proche que le k-ième retenu. Le type et les exclusions
+ * sont vérifiés sur chaque candidat ; à distance égale, l'identifiant le plus petit passe
+ * en premier, comme dans le parcours complet ({@link #parcourir}).
+ *
+ * L'index appartient à un catalogue (voir {@link ConsommableCatalog#substitutions()}) : il
+ * est immuable et remplacé avec lui.
+ */
+public final class SubstitutionIndex {
+    /** Nutriments composant les profils (les glucides, somme des fibres et du sucre, en sont exclus) */
+    public static final List<Nutriment> NUTRIMENTS = Arrays.stream(Nutriment.values())
+            .filter(nutriment -> nutriment != Nutriment.GLUCIDES)
+            .toList();
+
+    /** Nombre maximal d'éléments d'une feuille, comparés un à un */
+    private static final int FEUILLE = 8;
+
+    /** Nombre de composantes des vecteurs */
+    private final int dimensions;
+
+    /** Identifiants des consommables, par ligne (identifiant croissant) */
+    private final int[] ids;
+
+    /** Ligne de chaque position de l'arbre, et position de chaque ligne */
+    private final int[] lignes;
+    private final int[] positions;
+
+    /** Type (indice ordinal) par position de l'arbre */
+    private final byte[] types;
+
+    /** Vecteurs normalisés par position de l'arbre, les uns à la suite des autres */
+    private final float[] points;
+
+    /** Distance médiane au point de vue, pour chaque nœud (position de son point de vue) */
+    private final float[] seuils;
+
+    /**
+     * Construit l'index des profils nutritionnels.
+     *
+     * @param ids Les identifiants des consommables, par ordre croissant
+     * @param types Les types des consommables
+     * @param colonnes Les teneurs des consommables, par nutriment de {@link #NUTRIMENTS}
+     */
+    public SubstitutionIndex(int[] ids, TypeConsommable[] types, float[][] colonnes) {
+        int n = ids.length;
+        this.ids = ids;
+        dimensions = colonnes.length;
+
+        float[] vecteurs = new float[n * dimensions];
+        for (int j = 0; j < dimensions; j++) {
+            double somme = 0;
+            double carres = 0;
+            for (int i = 0; i < n; i++) {
+                double valeur = Math.log1p(Math.max(0, colonnes[j][i]));
+                somme += valeur;
+                carres += valeur * valeur;
+            }
+            double moyenne = somme / Math.max(1, n);
+            double ecart = Math.sqrt(Math.max(0, carres / Math.max(1, n) - moyenne * moyenne));
+            // Un nutriment identique pour tous les consommables ne distingue aucun profil
+            double echelle = ecart > 0 ? 1 / ecart : 0;
+            for (int i = 0; i < n; i++) {
+                vecteurs[i * dimensions + j] = (float) (Math.log1p(Math.max(0, colonnes[j][i])) * echelle);
+            }
+        }
+
+        lignes = new int[n];
+        for (int i = 0; i < n; i++) {
+            lignes[i] = i;
+        }
+        seuils = new float[n];
+        construire(vecteurs, new float[n], new SplittableRandom(n), 0, n);
+
+        // Les vecteurs sont recopiés dans l'ordre de l'arbre : un nœud et ses descendants sont contigus
+        positions = new int[n];
+        this.types = new byte[n];
+        points = new float[n * dimensions];
+        for (int p = 0; p < n; p++) {
+            int ligne = lignes[p];
+            positions[ligne] = p;
+            this.types[p] = (byte) types[ligne].ordinal();
+            System.arraycopy(vecteurs, ligne * dimensions, points, p * dimensions, dimensions);
+        }
+    }
+
+    /**
+     * Recherche les consommables dont le profil est le plus proche de celui d'un consommable.
+     *
+     * @param id L'identifiant du consommable à remplacer (exclu des résultats)
+     * @param type Le type des substituts, ou null pour tous
+     * @param exclus Les identifiants des consommables à exclure, ou null
+     * @param k Le nombre maximal de substituts
+     * @return Les identifiants des substituts, du plus proche au plus éloigné
+     * @throws IllegalArgumentException Si le consommable n'est pas dans l'index
+     */
+    public int[] chercher(int id, TypeConsommable type, BitSet exclus, int k) {
+        Recherche recherche = new Recherche(ligne(id), type, exclus, k);
+        visiter(recherche, 0, lignes.length);
+        return recherche.resultats();
+    }
+
+    /**
+     * Recherche les mêmes substituts que {@link #chercher} en comparant le profil à tous les
+     * consommables. Sert de référence pour vérifier et mesurer l'arbre.
+     *
+     * @param id L'identifiant du consommable à remplacer (exclu des résultats)
+     * @param type Le type des substituts, ou null pour tous
+     * @param exclus Les identifiants des consommables à exclure, ou null
+     * @param k Le nombre maximal de substituts
+     * @return Les identifiants des substituts, du plus proche au plus éloigné
+     * @throws IllegalArgumentException Si le consommable n'est pas dans l'index
+     */
+    public int[] parcourir(int id, TypeConsommable type, BitSet exclus, int k) {
+        Recherche recherche = new Recherche(ligne(id), type, exclus, k);
+        for (int p = 0; p < lignes.length; p++) {
+            recherche.considerer(p);
+        }
+        return recherche.resultats();
+    }
+
+    /**
+     * Retourne la ligne d'un consommable.
+     */
+    private int ligne(int id) {
+        int ligne = Arrays.binarySearch(ids, id);
+        if (ligne < 0) {
+            throw new IllegalArgumentException("Aucun consommable pour l'identifiant : " + id);
+        }
+        return ligne;
+    }
+
+    /**
+     * Construit le nœud couvrant les positions [debut, fin) : choisit un point de vue au
+     * hasard, puis sépare les autres éléments autour de leur distance médiane à ce point.
+     */
+    private void construire(float[] vecteurs, float[] distances, SplittableRandom random, int debut, int fin) {
+        if (fin - debut <= FEUILLE) {
+            return;
+        }
+        echanger(lignes, distances, debut, debut + random.nextInt(fin - debut));
+        for (int p = debut + 1; p < fin; p++) {
+            distances[p] = distance(vecteurs, lignes[debut] * dimensions, vecteurs, lignes[p] * dimensions, dimensions);
+        }
+        int milieu = (debut + 1 + fin) >>> 1;
+        selectionner(lignes, distances, debut + 1, fin - 1, milieu);
+        seuils[debut] = distances[milieu];
+        construire(vecteurs, distances, random, debut + 1, milieu);
+        construire(vecteurs, distances, random, milieu, fin);
+    }
+
+    /**
+     * Parcourt le nœud couvrant les positions [debut, fin), la moitié du côté du profil
+     * recherché d'abord.
+     */
+    private void visiter(Recherche recherche, int debut, int fin) {
+        if (fin - debut <= FEUILLE) {
+            for (int p = debut; p < fin; p++) {
+                recherche.considerer(p);
+            }
+            return;
+        }
+        float d = recherche.considerer(debut);
+        float seuil = seuils[debut];
+        int milieu = (debut + 1 + fin) >>> 1;
+        if (d < seuil) {
+            visiter(recherche, debut + 1, milieu);
+            if (d + recherche.rayon >= seuil) {
+                visiter(recherche, milieu, fin);
+            }
+        } else {
+            visiter(recherche, milieu, fin);
+            if (d - recherche.rayon <= seuil) {
+                visiter(recherche, debut + 1, milieu);
+            }
+        }
+    }
+
+    /**
+     * Recherche en cours : profil recherché, filtres et meilleurs candidats.
+     */
+    private final class Recherche {
+        private final int source;
+        private final float[] profil;
+        private final int type;
+        private final BitSet exclus;
+        private final int k;
+
+        /** Tas maximal des meilleures clés (bits de la distance << 32 | ligne) */
+        private final long[] tas;
+        private int retenus;
+
+        /** Distance du k-ième candidat retenu, infinie tant qu'il en manque */
+        private float rayon = Float.POSITIVE_INFINITY;
+
+        Recherche(int source, TypeConsommable type, BitSet exclus, int k) {
+            this.source = source;
+            this.profil = Arrays.copyOfRange(points, positions[source] * dimensions,
+                    (positions[source] + 1) * dimensions);
+            this.type = type == null ? -1 : type.ordinal();
+            this.exclus = exclus;
+            this.k = k;
+            this.tas = new long[k];
+        }
+
+        /**
+         * Retient l'élément d'une position s'il est accepté et parmi les k plus proches.
+         *
+         * @return La distance de l'élément au profil recherché
+         */
+        float considerer(int p) {
+            int ligne = lignes[p];
+            float d = distance(profil, 0, points, p * dimensions, dimensions);
+            if (ligne == source || (type >= 0 && types[p] != type) || (exclus != null && exclus.get(ids[ligne]))) {
+                return d;
+            }
+            // Les distances sont positives : leurs bits se comparent comme des entiers
+            long cle = (long) Float.floatToIntBits(d) << 32 | ligne;
+            if (retenus < k) {
+                tas[retenus] = cle;
+                monter(tas, retenus++);
+            } else if (cle < tas[0]) {
+                tas[0] = cle;
+                descendre(tas, k);
+            } else {
+                return d;
+            }
+            if (retenus == k) {
+                rayon = Float.intBitsToFloat((int) (tas[0] >>> 32));
+            }
+            return d;
+        }
+
+        int[] resultats() {
+            long[] cles = Arrays.copyOf(tas, retenus);
+            Arrays.sort(cles);
+            int[] resultats = new int[retenus];
+            for (int i = 0; i < retenus; i++) {
+                resultats[i] = ids[(int) cles[i]];
+            }
+            return resultats;
+        }
+    }
+
+    private static float distance(float[] a, int debutA, float[] b, int debutB, int dimensions) {
+        float somme = 0;
+        for (int j = 0; j < dimensions; j++) {
+            float ecart = a[debutA + j] - b[debutB + j];
+            somme += ecart * ecart;
+        }
+        return (float) Math.sqrt(somme);
+    }
+
+    /**
+     * Place en position k l'élément de distance de rang k de [debut, fin], les distances
+     * inférieures ou égales avant lui et les supérieures ou égales après.
+     */
+    private static void selectionner(int[] lignes, float[] distances, int debut, int fin, int k) {
+        while (debut < fin) {
+            float pivot = distances[(debut + fin) >>> 1];
+            int i = debut;
+            int j = fin;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    echanger(lignes, distances, i++, j--);
+                }
+            }
+            if (k <= j) {
+                fin = j;
+            } else if (k >= i) {
+                debut = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void echanger(int[] lignes, float[] distances, int i, int j) {
+        int ligne = lignes[i];
+        lignes[i] = lignes[j];
+        lignes[j] = ligne;
+        float distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    private static void monter(long[] tas, int i) {
+        while (i > 0 && tas[(i - 1) / 2] < tas[i]) {
+            long t = tas[i];
+            tas[i] = tas[(i - 1) / 2];
+            tas[(i - 1) / 2] = t;
+            i = (i - 1) / 2;
+        }
+    }
+
+    private static void descendre(long[] tas, int taille) {
+        int i = 0;
+        while (true) {
+            int plusGrand = i;
+            for (int enfant = 2 * i + 1; enfant <= 2 * i + 2 && enfant < taille; enfant++) {
+                if (tas[enfant] > tas[plusGrand]) {
+                    plusGrand = enfant;
+                }
+            }
+            if (plusGrand == i) {
+                return;
+            }
+            long t = tas[i];
+            tas[i] = tas[plusGrand];
+            tas[plusGrand] = t;
+            i = plusGrand;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.ServiceUnavailableResponse;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite le nombre de requêtes exécutées simultanément par une instance de l'API.
+ *
+ * Avec des threads virtuels, le nombre de requêtes en cours n'est plus borné par
+ * la taille d'un pool de threads : des milliers de requêtes pourraient attendre
+ * en même temps une connexion du pool et saturer PostgreSQL. Le limiteur est donc
+ * dimensionné sur le pool de connexions ; une requête qui n'obtient pas de place
+ * dans le délai imparti est rejetée avec 503 Service Unavailable.
+ */
+public class ConcurrencyLimiter {
+    /** Nombre maximal de requêtes simultanées (0 = pas de limite) */
+    private final int limit;
+
+    /** Temps d'attente maximal d'une place, en millisecondes */
+    private final long timeoutMillis;
+
+    /** Places disponibles, attribuées dans l'ordre d'arrivée */
+    private final Semaphore permits;
+
+    /** Nombre de requêtes en attente d'une place */
+    private final LongAdder waiting = new LongAdder();
+
+    /** Nombre de requêtes rejetées faute de place */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructeur du limiteur.
+     *
+     * @param limit Le nombre maximal de requêtes simultanées (0 = pas de limite)
+     * @param timeoutMillis Le temps d'attente maximal d'une place, en millisecondes
+     */
+    public ConcurrencyLimiter(int limit, long timeoutMillis) {
+        this.limit = Math.max(limit, 0);
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(Math.max(this.limit, 1), true);
+    }
+
+    /**
+     * Exécute le handler d'une route en respectant la limite de concurrence.
+     *
+     * @param handler Le gestionnaire de la route à exécuter
+     * @param ctx Le contexte de la requête HTTP
+     * @throws ServiceUnavailableResponse Si aucune place ne se libère dans le délai imparti
+     * @throws Exception Si le handler échoue
+     */
+    public void execute(Handler handler, Context ctx) throws Exception {
+        if (limit == 0) {
+            handler.handle(ctx);
+            return;
+        }
+
+        if (!acquire()) {
+            rejected.increment();
+            ctx.header("Retry-After", "1");
+            throw new ServiceUnavailableResponse("Serveur surchargé : veuillez réessayer plus tard.");
+        }
+        try {
+            handler.handle(ctx);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Prend une place libre sans attendre, pour une lecture exécutée en parallèle par une
+     * requête déjà en cours (voir {@link FanOut}). Les places étant attribuées dans l'ordre
+     * d'arrivée, une place n'est jamais prise devant une requête en attente.
+     *
+     * @return true si une place a été prise (à rendre avec {@link #releaseExtra}) ou si le
+     *         limiteur est désactivé
+     */
+    public boolean tryAcquireExtra() {
+        if (limit == 0) {
+            return true;
+        }
+        try {
+            // Avec un délai, même nul, tryAcquire respecte l'ordre d'arrivée
+            return permits.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Rend une place prise par {@link #tryAcquireExtra}.
+     */
+    public void releaseExtra() {
+        if (limit != 0) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Attend une place libre pendant au plus le délai configuré.
+     *
+     * @return true si une place a été obtenue
+     */
+    private boolean acquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        waiting.increment();
+        try {
+            return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrement();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Retourne le nombre de requêtes en cours d'exécution.
+     *
+     * @return Le nombre de places occupées, par les requêtes et leurs lectures parallèles
+     */
+    public int getInFlight() {
+        return limit == 0 ? 0 : limit - permits.availablePermits();
+    }
+
+    public long getWaiting() {
+        return waiting.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -1,5 +1,8 @@
 package ch.heig.bdr.projet.suiviDietetique.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 
@@ -7,24 +10,138 @@ import java.sql.DriverManager;
  * Classe de configuration de la base de données.
  * Gère la connexion à la base de données PostgreSQL pour l'application de suivi diététique.
  * Utilise un schéma dédié 'suivi_dietetique' dans la base de données 'bdr'.
+ *
+ * Les connexions sont fournies par un pool borné (HikariCP) : une connexion fermée
+ * par un DAO est rendue au pool au lieu d'être réellement fermée, ce qui évite
+ * la poignée de main TCP, l'authentification et le choix du schéma à chaque requête.
+ * Le pool est configurable par variables d'environnement (voir {@link Env}).
  */
 public class Database {
     /** URL de connexion à la base de données PostgreSQL */
-    private static final String URL = "jdbc:postgresql://postgresql:5432/bdr?currentSchema=suivi_dietetique";
-    
+    private static final String URL = Env.get("DB_URL",
+            "jdbc:postgresql://postgresql:5432/bdr?currentSchema=suivi_dietetique");
+
     /** Nom d'utilisateur pour la connexion à la base de données */
-    private static final String USER = "bdr";
-    
+    private static final String USER = Env.get("DB_USER", "bdr");
+
     /** Mot de passe pour la connexion à la base de données */
-    private static final String PASSWORD = "bdr";
+    private static final String PASSWORD = Env.get("DB_PASSWORD", "bdr");
+
+    /** Nombre maximal de connexions ouvertes par instance de l'API */
+    private static final int POOL_MAX_SIZE = Env.getInt("DB_POOL_MAX_SIZE", 10);
+
+    /** Nombre minimal de connexions inactives conservées ouvertes */
+    private static final int POOL_MIN_IDLE = Env.getInt("DB_POOL_MIN_IDLE", 2);
+
+    /** Temps d'attente maximal pour obtenir une connexion, en millisecondes */
+    private static final long POOL_ACQUISITION_TIMEOUT_MS = Env.getLong("DB_POOL_ACQUISITION_TIMEOUT_MS", 5_000);
+
+    /** Temps maximal accordé à la validation d'une connexion, en millisecondes */
+    private static final long POOL_VALIDATION_TIMEOUT_MS = Env.getLong("DB_POOL_VALIDATION_TIMEOUT_MS", 2_000);
+
+    /** Durée de vie maximale d'une connexion avant son remplacement, en millisecondes */
+    private static final long POOL_MAX_LIFETIME_MS = Env.getLong("DB_POOL_MAX_LIFETIME_MS", 30 * 60_000);
+
+    /** Durée après laquelle une connexion inactive excédentaire est fermée, en millisecondes */
+    private static final long POOL_IDLE_TIMEOUT_MS = Env.getLong("DB_POOL_IDLE_TIMEOUT_MS", 10 * 60_000);
+
+    /** Durée d'emprunt au-delà de laquelle une fuite de connexion est signalée (0 = désactivé) */
+    private static final long POOL_LEAK_DETECTION_MS = Env.getLong("DB_POOL_LEAK_DETECTION_MS", 20_000);
 
     /**
-     * Établit et retourne une connexion à la base de données.
-     * 
+     * Nombre d'exécutions d'une requête avant que le pilote ne la prépare côté serveur.
+     * Avec 1, chaque requête de SqlStatement est préparée dès sa première exécution
+     * sur une connexion, puis réutilisée tant que la connexion reste dans le pool.
+     */
+    private static final int PREPARE_THRESHOLD = Env.getInt("DB_PREPARE_THRESHOLD", 1);
+
+    /** Nombre maximal de requêtes préparées conservées par connexion dans le cache du pilote */
+    private static final int PREPARED_STATEMENT_CACHE_SIZE = Env.getInt("DB_PREPARED_STATEMENT_CACHE_SIZE", 256);
+
+    /** Collecteur des métriques du pool */
+    private static final PoolMetrics METRICS = new PoolMetrics();
+
+    /**
+     * Conteneur du pool, initialisé au premier accès à la base de données.
+     */
+    private static final class Holder {
+        private static final HikariDataSource DATA_SOURCE = createDataSource();
+    }
+
+    /**
+     * Crée et configure le pool de connexions.
+     * Le pool démarre même si PostgreSQL n'est pas encore disponible
+     * (l'API peut démarrer avant la base de données dans docker-compose).
+     *
+     * @return Le pool de connexions configuré
+     */
+    private static HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("suivi-dietetique");
+        config.setJdbcUrl(URL);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+        config.setMaximumPoolSize(POOL_MAX_SIZE);
+        config.setMinimumIdle(Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE));
+        config.setConnectionTimeout(POOL_ACQUISITION_TIMEOUT_MS);
+        config.setValidationTimeout(POOL_VALIDATION_TIMEOUT_MS);
+        config.setMaxLifetime(POOL_MAX_LIFETIME_MS);
+        config.setIdleTimeout(POOL_IDLE_TIMEOUT_MS);
+        config.setLeakDetectionThreshold(POOL_LEAK_DETECTION_MS);
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(METRICS);
+        config.addDataSourceProperty("prepareThreshold", PREPARE_THRESHOLD);
+        config.addDataSourceProperty("preparedStatementCacheQueries", PREPARED_STATEMENT_CACHE_SIZE);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Emprunte une connexion au pool.
+     * La connexion doit être fermée (try-with-resources) pour être rendue au pool.
+     *
      * @return Une connexion active à la base de données PostgreSQL
-     * @throws Exception Si la connexion à la base de données échoue
+     * @throws Exception Si aucune connexion n'est disponible dans le délai configuré
      */
     public static Connection getConnection() throws Exception {
+        return Holder.DATA_SOURCE.getConnection();
+    }
+
+    /**
+     * Ouvre une connexion hors du pool, réservée à un usage de longue durée
+     * (ex: écoute des notifications LISTEN/NOTIFY) afin de ne pas immobiliser
+     * une connexion du pool. La connexion doit être fermée par l'appelant.
+     *
+     * @return Une nouvelle connexion à la base de données PostgreSQL
+     * @throws Exception Si la connexion ne peut pas être établie
+     */
+    public static Connection openDedicatedConnection() throws Exception {
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
-}
\ No newline at end of file
+
+    /**
+     * Retourne la taille maximale configurée du pool.
+     *
+     * @return Le nombre maximal de connexions simultanées
+     */
+    public static int getMaxPoolSize() {
+        return POOL_MAX_SIZE;
+    }
+
+    /**
+     * Retourne le temps d'attente maximal configuré pour obtenir une connexion.
+     *
+     * @return Le délai d'acquisition en millisecondes
+     */
+    public static long getAcquisitionTimeoutMillis() {
+        return POOL_ACQUISITION_TIMEOUT_MS;
+    }
+
+    /**
+     * Retourne les statistiques instantanées du pool de connexions.
+     *
+     * @return Les statistiques du pool (connexions actives, inactives, en attente, latence d'acquisition)
+     */
+    public static PoolStatistics getPoolStatistics() {
+        return METRICS.snapshot(POOL_MAX_SIZE, Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE));
+    }
+}
@@ -0,0 +1,81 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import java.util.Locale;
+
+/**
+ * Accès centralisé aux paramètres de configuration de l'application.
+ * Chaque paramètre est lu depuis les variables d'environnement (définies dans
+ * docker-compose.yml), puis depuis les propriétés système de la JVM,
+ * avec une valeur par défaut si aucun des deux n'est défini.
+ */
+public final class Env {
+
+    /** Classe utilitaire, non instanciable */
+    private Env() {}
+
+    /**
+     * Récupère la valeur textuelle d'un paramètre.
+     *
+     * @param name Le nom du paramètre (ex: DB_URL)
+     * @param defaultValue La valeur utilisée si le paramètre n'est pas défini
+     * @return La valeur du paramètre ou la valeur par défaut
+     */
+    public static String get(String name, String defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            value = System.getProperty(name);
+        }
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Récupère la valeur entière d'un paramètre.
+     *
+     * @param name Le nom du paramètre
+     * @param defaultValue La valeur utilisée si le paramètre n'est pas défini
+     * @return La valeur du paramètre ou la valeur par défaut
+     * @throws IllegalArgumentException Si la valeur n'est pas un entier valide
+     */
+    public static int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    /**
+     * Récupère la valeur entière longue d'un paramètre.
+     *
+     * @param name Le nom du paramètre
+     * @param defaultValue La valeur utilisée si le paramètre n'est pas défini
+     * @return La valeur du paramètre ou la valeur par défaut
+     * @throws IllegalArgumentException Si la valeur n'est pas un entier valide
+     */
+    public static long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valeur invalide pour " + name + " : " + value, e);
+        }
+    }
+
+    /**
+     * Récupère la valeur booléenne d'un paramètre.
+     * Les valeurs "true", "1", "yes" et "on" sont considérées comme vraies.
+     *
+     * @param name Le nom du paramètre
+     * @param defaultValue La valeur utilisée si le paramètre n'est pas défini
+     * @return La valeur du paramètre ou la valeur par défaut
+     */
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "on" -> true;
+            default -> false;
+        };
+    }
+}
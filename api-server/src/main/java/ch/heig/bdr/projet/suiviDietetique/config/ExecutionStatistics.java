@@ -0,0 +1,77 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Photographie de l'exécution des requêtes HTTP à un instant donné.
+ * Sérialisée en JSON par l'endpoint de supervision.
+ */
+public class ExecutionStatistics {
+    /** Mode d'exécution des requêtes (platform ou virtual) */
+    @JsonProperty("thread_mode")
+    private final String threadMode;
+
+    /** Nombre maximal de requêtes simultanées (0 = pas de limite) */
+    @JsonProperty("concurrency_limit")
+    private final int concurrencyLimit;
+
+    /** Temps d'attente maximal d'une place, en millisecondes */
+    @JsonProperty("queue_timeout_ms")
+    private final long queueTimeoutMs;
+
+    /** Nombre de requêtes en cours d'exécution */
+    @JsonProperty("in_flight")
+    private final int inFlight;
+
+    /** Nombre de requêtes en attente d'une place */
+    @JsonProperty("waiting")
+    private final long waiting;
+
+    /** Nombre de requêtes rejetées faute de place depuis le démarrage */
+    @JsonProperty("rejected")
+    private final long rejected;
+
+    /**
+     * Constructeur complet des statistiques d'exécution.
+     *
+     * @param threadMode Mode d'exécution des requêtes
+     * @param concurrencyLimit Limite de requêtes simultanées
+     * @param queueTimeoutMs Temps d'attente maximal d'une place
+     * @param inFlight Requêtes en cours
+     * @param waiting Requêtes en attente
+     * @param rejected Requêtes rejetées
+     */
+    public ExecutionStatistics(String threadMode, int concurrencyLimit, long queueTimeoutMs,
+                               int inFlight, long waiting, long rejected) {
+        this.threadMode = threadMode;
+        this.concurrencyLimit = concurrencyLimit;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.inFlight = inFlight;
+        this.waiting = waiting;
+        this.rejected = rejected;
+    }
+
+    public String getThreadMode() {
+        return threadMode;
+    }
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public long getQueueTimeoutMs() {
+        return queueTimeoutMs;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getWaiting() {
+        return waiting;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
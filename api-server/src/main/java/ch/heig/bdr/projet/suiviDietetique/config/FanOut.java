@@ -0,0 +1,125 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Exécution en parallèle de lectures indépendantes, pour les routes qui composent
+ * une réponse à partir de plusieurs requêtes SQL.
+ *
+ * Chaque lecture est exécutée sur un thread virtuel et occupe une connexion du pool.
+ * Le nombre de lectures parallèles de toute l'instance est donc borné (API_FANOUT_LIMIT,
+ * par défaut la moitié du pool). Chaque lecture parallèle prend en outre une place du
+ * limiteur de concurrence des requêtes ({@link RequestExecution#getLimiter()}), dimensionné
+ * sur le pool : requêtes et lectures parallèles partagent ainsi le même budget de
+ * connexions, et une lecture n'obtient une place que si aucune requête n'en attend.
+ * Les lectures qui n'obtiennent pas de place sont exécutées l'une après l'autre par le
+ * thread de la requête, comme sans parallélisme. Une requête ne peut ainsi ni attendre
+ * une place, ni accaparer le pool. Sans limiteur (mode platform par défaut), seule la
+ * limite API_FANOUT_LIMIT s'applique.
+ *
+ * Les lectures d'un appel sont structurées : l'appel se termine lorsque toutes sont
+ * terminées, et l'échec de l'une interrompt les autres.
+ */
+public final class FanOut {
+    /** Nombre maximal de lectures exécutées en parallèle par l'instance */
+    private static final int LIMIT = Env.getInt("API_FANOUT_LIMIT", Math.max(Database.getMaxPoolSize() / 2, 1));
+
+    /** Places de lecture parallèle disponibles */
+    private static final Semaphore PERMITS = new Semaphore(LIMIT);
+
+    /** Limiteur des requêtes, dont les lectures parallèles partagent les places */
+    private static final ConcurrencyLimiter LIMITER = RequestExecution.getLimiter();
+
+    /** Fabrique des threads virtuels des lectures */
+    private static final ThreadFactory THREADS = Thread.ofVirtual().name("api-fanout-", 0).factory();
+
+    /** Classe utilitaire, non instanciable */
+    private FanOut() {}
+
+    /**
+     * Exécute des lectures indépendantes et rassemble leurs résultats.
+     *
+     * La première lecture est toujours exécutée par le thread appelant, qui attend de toute
+     * façon les autres.
+     *
+     * @param lectures Les lectures à exécuter, par nom
+     * @param <K> Le type des noms
+     * @return Les résultats, par nom, dans l'ordre des lectures
+     * @throws Exception L'exception de la première lecture en échec
+     */
+    public static <K> Map<K, Object> all(Map<K, Callable<?>> lectures) throws Exception {
+        List<Map.Entry<K, Callable<?>>> taches = new ArrayList<>(lectures.entrySet());
+        Map<K, Future<?>> paralleles = new LinkedHashMap<>();
+        List<Map.Entry<K, Callable<?>>> locales = new ArrayList<>();
+        Map<K, Object> resultats = new LinkedHashMap<>();
+
+        try (ExecutorService scope = Executors.newThreadPerTaskExecutor(THREADS)) {
+            for (int i = 0; i < taches.size(); i++) {
+                Map.Entry<K, Callable<?>> tache = taches.get(i);
+                if (i > 0 && reserver()) {
+                    paralleles.put(tache.getKey(), scope.submit(() -> {
+                        try {
+                            return tache.getValue().call();
+                        } finally {
+                            LIMITER.releaseExtra();
+                            PERMITS.release();
+                        }
+                    }));
+                } else {
+                    locales.add(tache);
+                }
+            }
+
+            try {
+                for (Map.Entry<K, Callable<?>> tache : locales) {
+                    resultats.put(tache.getKey(), tache.getValue().call());
+                }
+                for (Map.Entry<K, Future<?>> future : paralleles.entrySet()) {
+                    resultats.put(future.getKey(), future.getValue().get());
+                }
+            } catch (ExecutionException e) {
+                scope.shutdownNow();
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            } catch (Exception e) {
+                scope.shutdownNow();
+                throw e;
+            }
+        }
+
+        Map<K, Object> ordonnes = new LinkedHashMap<>();
+        for (Map.Entry<K, Callable<?>> tache : taches) {
+            ordonnes.put(tache.getKey(), resultats.get(tache.getKey()));
+        }
+        return ordonnes;
+    }
+
+    /**
+     * Réserve sans attendre une place de lecture parallèle et une place du limiteur des requêtes.
+     *
+     * @return true si les deux places ont été obtenues
+     */
+    private static boolean reserver() {
+        if (!PERMITS.tryAcquire()) {
+            return false;
+        }
+        if (!LIMITER.tryAcquireExtra()) {
+            PERMITS.release();
+            return false;
+        }
+        return true;
+    }
+
+    public static int getLimit() {
+        return LIMIT;
+    }
+}
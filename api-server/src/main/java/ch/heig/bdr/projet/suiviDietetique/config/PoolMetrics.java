@@ -0,0 +1,99 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collecteur des métriques du pool de connexions.
+ * HikariCP appelle ce collecteur à chaque acquisition, création ou expiration
+ * de connexion. Les compteurs sont sans verrou (LongAdder) pour ne pas ralentir
+ * le chemin critique d'acquisition d'une connexion.
+ */
+public class PoolMetrics implements IMetricsTracker, MetricsTrackerFactory {
+
+    /** Nombre total d'acquisitions de connexion */
+    private final LongAdder acquisitions = new LongAdder();
+
+    /** Temps cumulé passé à attendre une connexion, en nanosecondes */
+    private final LongAdder acquisitionNanos = new LongAdder();
+
+    /** Temps d'attente maximal observé pour une acquisition, en nanosecondes */
+    private final AtomicLong maxAcquisitionNanos = new AtomicLong();
+
+    /** Nombre d'acquisitions ayant échoué faute de connexion disponible à temps */
+    private final LongAdder timeouts = new LongAdder();
+
+    /** Nombre de connexions physiques ouvertes vers PostgreSQL */
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    /** Temps cumulé pendant lequel les connexions ont été empruntées, en millisecondes */
+    private final LongAdder usageMillis = new LongAdder();
+
+    /** État instantané du pool (connexions actives, inactives, en attente), fourni par HikariCP */
+    private volatile PoolStats poolStats;
+
+    /**
+     * Appelé par HikariCP lors de la création du pool.
+     *
+     * @param poolName Le nom du pool
+     * @param poolStats L'état instantané du pool
+     * @return Ce collecteur
+     */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return this;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        connectionsCreated.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquisitions.increment();
+        acquisitionNanos.add(elapsedAcquiredNanos);
+        maxAcquisitionNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Construit une photographie des statistiques actuelles du pool.
+     *
+     * @param maxSize La taille maximale configurée du pool
+     * @param minIdle Le nombre minimal de connexions inactives configuré
+     * @return Les statistiques du pool
+     */
+    public PoolStatistics snapshot(int maxSize, int minIdle) {
+        PoolStats stats = poolStats;
+        long count = acquisitions.sum();
+        return new PoolStatistics(
+                stats != null ? stats.getActiveConnections() : 0,
+                stats != null ? stats.getIdleConnections() : 0,
+                stats != null ? stats.getTotalConnections() : 0,
+                stats != null ? stats.getPendingThreads() : 0,
+                maxSize,
+                minIdle,
+                count,
+                count == 0 ? 0 : acquisitionNanos.sum() / count / 1_000_000.0,
+                maxAcquisitionNanos.get() / 1_000_000.0,
+                timeouts.sum(),
+                connectionsCreated.sum(),
+                usageMillis.sum()
+        );
+    }
+}
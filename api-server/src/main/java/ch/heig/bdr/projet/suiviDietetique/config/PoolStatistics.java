@@ -0,0 +1,138 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Photographie des statistiques du pool de connexions à un instant donné.
+ * Sérialisée en JSON par l'endpoint de supervision.
+ */
+public class PoolStatistics {
+    /** Nombre de connexions actuellement empruntées */
+    @JsonProperty("active")
+    private final int active;
+
+    /** Nombre de connexions ouvertes et disponibles */
+    @JsonProperty("idle")
+    private final int idle;
+
+    /** Nombre total de connexions ouvertes */
+    @JsonProperty("total")
+    private final int total;
+
+    /** Nombre de threads en attente d'une connexion */
+    @JsonProperty("waiting")
+    private final int waiting;
+
+    /** Taille maximale configurée du pool */
+    @JsonProperty("max_size")
+    private final int maxSize;
+
+    /** Nombre minimal de connexions inactives configuré */
+    @JsonProperty("min_idle")
+    private final int minIdle;
+
+    /** Nombre total d'acquisitions depuis le démarrage */
+    @JsonProperty("acquisitions")
+    private final long acquisitions;
+
+    /** Temps moyen d'acquisition d'une connexion, en millisecondes */
+    @JsonProperty("acquisition_avg_ms")
+    private final double acquisitionAvgMs;
+
+    /** Temps maximal d'acquisition d'une connexion, en millisecondes */
+    @JsonProperty("acquisition_max_ms")
+    private final double acquisitionMaxMs;
+
+    /** Nombre d'acquisitions ayant expiré */
+    @JsonProperty("timeouts")
+    private final long timeouts;
+
+    /** Nombre de connexions physiques créées depuis le démarrage */
+    @JsonProperty("connections_created")
+    private final long connectionsCreated;
+
+    /** Temps cumulé d'utilisation des connexions, en millisecondes */
+    @JsonProperty("usage_total_ms")
+    private final long usageTotalMs;
+
+    /**
+     * Constructeur complet des statistiques du pool.
+     *
+     * @param active Connexions empruntées
+     * @param idle Connexions disponibles
+     * @param total Connexions ouvertes
+     * @param waiting Threads en attente
+     * @param maxSize Taille maximale du pool
+     * @param minIdle Minimum de connexions inactives
+     * @param acquisitions Nombre d'acquisitions
+     * @param acquisitionAvgMs Temps moyen d'acquisition
+     * @param acquisitionMaxMs Temps maximal d'acquisition
+     * @param timeouts Nombre d'acquisitions expirées
+     * @param connectionsCreated Connexions physiques créées
+     * @param usageTotalMs Temps cumulé d'utilisation
+     */
+    public PoolStatistics(int active, int idle, int total, int waiting, int maxSize, int minIdle,
+                          long acquisitions, double acquisitionAvgMs, double acquisitionMaxMs,
+                          long timeouts, long connectionsCreated, long usageTotalMs) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.waiting = waiting;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.acquisitions = acquisitions;
+        this.acquisitionAvgMs = acquisitionAvgMs;
+        this.acquisitionMaxMs = acquisitionMaxMs;
+        this.timeouts = timeouts;
+        this.connectionsCreated = connectionsCreated;
+        this.usageTotalMs = usageTotalMs;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public double getAcquisitionAvgMs() {
+        return acquisitionAvgMs;
+    }
+
+    public double getAcquisitionMaxMs() {
+        return acquisitionMaxMs;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public long getUsageTotalMs() {
+        return usageTotalMs;
+    }
+}
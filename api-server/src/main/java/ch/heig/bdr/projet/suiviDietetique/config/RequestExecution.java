@@ -0,0 +1,82 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration de l'exécution des requêtes HTTP par Jetty.
+ *
+ * Chaque handler de l'API bloque sur JDBC. En mode "platform" (par défaut), les
+ * requêtes sont exécutées par un pool borné de threads système ; sous forte charge,
+ * c'est ce pool, et non PostgreSQL, qui devient le goulot d'étranglement.
+ * En mode "virtual" (API_THREAD_MODE=virtual), chaque requête est exécutée sur un
+ * thread virtuel Java 21 : un thread bloqué sur JDBC ne retient plus de thread système.
+ * Les threads d'acceptation et de sélection de Jetty restent des threads système.
+ *
+ * Le nombre de requêtes simultanées est alors borné par un {@link ConcurrencyLimiter}
+ * dimensionné sur le pool de connexions à la base de données.
+ */
+public final class RequestExecution {
+    /** Mode d'exécution des requêtes */
+    private static final ThreadMode MODE = ThreadMode.fromName(Env.get("API_THREAD_MODE", "platform"));
+
+    /** Nombre maximal de threads système du pool Jetty */
+    private static final int PLATFORM_MAX_THREADS = Env.getInt("API_PLATFORM_MAX_THREADS", 250);
+
+    /** Nombre minimal de threads système conservés par le pool Jetty */
+    private static final int PLATFORM_MIN_THREADS = Env.getInt("API_PLATFORM_MIN_THREADS", 8);
+
+    /**
+     * Nombre maximal de requêtes exécutées simultanément (0 = pas de limite).
+     * Par défaut, la taille du pool de connexions en mode virtuel, et pas de limite
+     * en mode platform, déjà borné par son pool de threads.
+     */
+    private static final int CONCURRENCY_LIMIT = Env.getInt("API_CONCURRENCY_LIMIT",
+            MODE == ThreadMode.VIRTUAL ? Database.getMaxPoolSize() : 0);
+
+    /** Temps d'attente maximal d'une place, par défaut celui d'une connexion du pool */
+    private static final long QUEUE_TIMEOUT_MS = Env.getLong("API_CONCURRENCY_QUEUE_TIMEOUT_MS",
+            Database.getAcquisitionTimeoutMillis());
+
+    /** Limiteur de concurrence partagé par toutes les routes */
+    private static final ConcurrencyLimiter LIMITER = new ConcurrencyLimiter(CONCURRENCY_LIMIT, QUEUE_TIMEOUT_MS);
+
+    /** Classe utilitaire, non instanciable */
+    private RequestExecution() {}
+
+    /**
+     * Crée le serveur Jetty utilisé par Javalin, avec le pool de threads du mode configuré.
+     *
+     * @return Le serveur Jetty, non démarré
+     */
+    public static Server createServer() {
+        QueuedThreadPool threadPool = new QueuedThreadPool(PLATFORM_MAX_THREADS, PLATFORM_MIN_THREADS);
+        threadPool.setName("api-" + MODE.name().toLowerCase(Locale.ROOT));
+        if (MODE == ThreadMode.VIRTUAL) {
+            threadPool.setVirtualThreadsExecutor(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("api-virtual-", 0).factory()));
+        }
+        return new Server(threadPool);
+    }
+
+    public static ThreadMode getMode() {
+        return MODE;
+    }
+
+    public static ConcurrencyLimiter getLimiter() {
+        return LIMITER;
+    }
+
+    /**
+     * Retourne les statistiques instantanées d'exécution des requêtes.
+     *
+     * @return Le mode d'exécution et l'état du limiteur de concurrence
+     */
+    public static ExecutionStatistics getStatistics() {
+        return new ExecutionStatistics(MODE.name().toLowerCase(Locale.ROOT), LIMITER.getLimit(), LIMITER.getTimeoutMillis(),
+                LIMITER.getInFlight(), LIMITER.getWaiting(), LIMITER.getRejected());
+    }
+}
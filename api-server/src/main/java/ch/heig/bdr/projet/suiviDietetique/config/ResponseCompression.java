@@ -0,0 +1,70 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
+
+import java.util.Locale;
+
+/**
+ * Configuration de la compression des réponses HTTP.
+ *
+ * Les réponses sont compressées selon l'en-tête Accept-Encoding du client : Brotli, plus
+ * compact, est préféré à gzip lorsque le client l'accepte. Les réponses plus petites que
+ * API_COMPRESSION_MIN_BYTES sont envoyées sans compression : le gain serait inférieur au
+ * coût de la compression et aux en-têtes ajoutés.
+ *
+ * API_COMPRESSION choisit les algorithmes : "brotli" (Brotli et gzip, par défaut), "gzip"
+ * ou "none". Si la bibliothèque native de Brotli ne peut pas être chargée sur la plateforme,
+ * seul gzip est utilisé.
+ */
+public final class ResponseCompression {
+    /** Algorithmes de compression proposés */
+    private static final String MODE = Env.get("API_COMPRESSION", "brotli");
+
+    /** Taille minimale d'une réponse compressée, en octets */
+    private static final int MIN_BYTES = Env.getInt("API_COMPRESSION_MIN_BYTES", 1024);
+
+    /** Niveau de compression Brotli (0 à 11) : 4 compresse mieux que gzip pour un coût comparable */
+    private static final int BROTLI_LEVEL = Env.getInt("API_BROTLI_LEVEL", 4);
+
+    /** Niveau de compression gzip (1 à 9) */
+    private static final int GZIP_LEVEL = Env.getInt("API_GZIP_LEVEL", 6);
+
+    /** Classe utilitaire, non instanciable */
+    private ResponseCompression() {}
+
+    /**
+     * Crée la stratégie de compression de Javalin correspondant à la configuration.
+     *
+     * @return La stratégie de compression
+     * @throws IllegalArgumentException Si API_COMPRESSION n'est pas reconnu
+     */
+    public static CompressionStrategy createStrategy() {
+        CompressionStrategy strategy = switch (MODE.toLowerCase(Locale.ROOT)) {
+            case "brotli" -> new CompressionStrategy(brotliDisponible() ? new Brotli(BROTLI_LEVEL) : null,
+                    new Gzip(GZIP_LEVEL));
+            case "gzip" -> new CompressionStrategy(null, new Gzip(GZIP_LEVEL));
+            case "none" -> new CompressionStrategy(null, null);
+            default -> throw new IllegalArgumentException("Compression inconnue : " + MODE);
+        };
+        strategy.setMinSizeForCompression(MIN_BYTES);
+        return strategy;
+    }
+
+    /**
+     * Vérifie que la bibliothèque native de Brotli est chargée.
+     *
+     * @return true si Brotli peut être utilisé
+     */
+    private static boolean brotliDisponible() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            System.err.println("Brotli indisponible, compression gzip seule : " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.javalin.json.JavalinJackson;
+
+/**
+ * Formats de sérialisation des réponses, choisis par l'en-tête Accept de la requête.
+ *
+ * JSON reste le format par défaut. Les clients qui lisent beaucoup de données (historiques
+ * de repas, exports) peuvent demander CBOR (RFC 8949) ou Smile, deux encodages binaires du
+ * même modèle de données : les nombres y sont écrits en binaire et non en texte, ce qui
+ * réduit la taille des réponses et le temps de sérialisation. Les trois formats utilisent
+ * la configuration Jackson de Javalin : le contenu des réponses est le même.
+ */
+public enum ResponseFormat {
+    JSON("application/json", "json", new JsonFactory()),
+    CBOR("application/cbor", "cbor", new CBORFactory()),
+    SMILE("application/x-jackson-smile", "smile", new SmileFactory());
+
+    /** Type de contenu du format */
+    private final String contentType;
+
+    /** Nom court du format (métriques, ETag) */
+    private final String shortName;
+
+    /** Sérialisation, sans vidage du tampon après chaque valeur */
+    private final ObjectWriter writer;
+
+    ResponseFormat(String contentType, String shortName, JsonFactory factory) {
+        this.contentType = contentType;
+        this.shortName = shortName;
+        ObjectMapper mapper = JavalinJackson.defaultMapper().copyWith(factory);
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getShortName() {
+        return shortName;
+    }
+
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Choisit le format de la réponse d'après l'en-tête Accept : le format accepté avec
+     * la plus grande qualité (paramètre q), ou le premier cité à qualité égale. JSON est
+     * choisi si l'en-tête est absent ou ne cite aucun autre format connu.
+     *
+     * @param accept La valeur de l'en-tête Accept (peut être null)
+     * @return Le format de la réponse
+     */
+    public static ResponseFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        ResponseFormat choisi = JSON;
+        double meilleureQualite = 0;
+        for (String plage : accept.split(",")) {
+            String[] parties = plage.split(";");
+            ResponseFormat format = fromContentType(parties[0].trim());
+            if (format == null) {
+                continue;
+            }
+            double qualite = qualite(parties);
+            if (qualite > meilleureQualite) {
+                choisi = format;
+                meilleureQualite = qualite;
+            }
+        }
+        return choisi;
+    }
+
+    /**
+     * Retourne le format correspondant à un type de contenu, ou null s'il n'est pas servi.
+     * Les plages génériques (application/* et la plage universelle) désignent JSON.
+     *
+     * @param contentType Le type de contenu, sans paramètres
+     * @return Le format, ou null
+     */
+    private static ResponseFormat fromContentType(String contentType) {
+        if (contentType.equals("*/*") || contentType.equalsIgnoreCase("application/*")) {
+            return JSON;
+        }
+        for (ResponseFormat format : values()) {
+            if (format.contentType.equalsIgnoreCase(contentType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lit la qualité (paramètre q) d'une plage de l'en-tête Accept, 1 par défaut.
+     *
+     * @param parties La plage découpée aux points-virgules (type, puis paramètres)
+     * @return La qualité, entre 0 et 1
+     */
+    private static double qualite(String[] parties) {
+        for (int i = 1; i < parties.length; i++) {
+            String parametre = parties[i].trim();
+            if (parametre.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parametre.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
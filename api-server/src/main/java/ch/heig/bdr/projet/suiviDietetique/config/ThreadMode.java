@@ -0,0 +1,28 @@
+package ch.heig.bdr.projet.suiviDietetique.config;
+
+/**
+ * Mode d'exécution des requêtes HTTP par le serveur Jetty.
+ */
+public enum ThreadMode {
+    /** Pool borné de threads système (comportement historique) */
+    PLATFORM,
+
+    /** Un thread virtuel Java 21 par requête */
+    VIRTUAL;
+
+    /**
+     * Convertit une valeur de configuration en mode d'exécution.
+     *
+     * @param name Le nom du mode ("platform" ou "virtual", insensible à la casse)
+     * @return Le mode d'exécution correspondant
+     * @throws IllegalArgumentException Si le mode est inconnu
+     */
+    public static ThreadMode fromName(String name) {
+        for (ThreadMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Mode d'exécution inconnu : " + name);
+    }
+}
@@ -2,6 +2,7 @@ package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
 
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
 import ch.heig.bdr.projet.suiviDietetique.services.AllergeneService;
+import ch.heig.bdr.projet.suiviDietetique.services.VersionService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import java.util.Map;
@@ -15,6 +16,9 @@ public class AllergeneController {
     /** Service gérant les opérations sur les allergènes */
     private static final AllergeneService allergeneService = new AllergeneService();
 
+    /** Service fournissant la version de la liste des allergènes */
+    private static final VersionService versionService = new VersionService();
+
     /**
      * Enregistre les routes de l'API pour les allergènes.
      * Routes disponibles :
@@ -31,14 +35,19 @@ public class AllergeneController {
     /**
      * Gère la récupération de tous les allergènes.
      * Retourne la liste complète des allergènes au format JSON.
+     * Si le client possède déjà la version courante (If-None-Match), seule une réponse 304 est renvoyée.
      * 
      * @param ctx Le contexte de la requête HTTP
      * @return 200 OK avec la liste des allergènes
+     * @return 304 Not Modified si la liste n'a pas changé
      * @return 422 Unprocessable Entity en cas d'erreur
      */
     public static void getAllAllergene(Context ctx) {
         try {
-            ctx.json(allergeneService.getAllAllergeneDAO());
+            if (ConditionalResponse.nonModifie(ctx, "allergenes", versionService.getVersionAllergenes())) {
+                return;
+            }
+            EncodedResponse.send(ctx, allergeneService.getAllAllergeneDAO());
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des allergènes",
@@ -20,6 +20,8 @@ public class AuthRoutesController {
      * - La gestion des allergènes
      * - La gestion des consommables
      * - La gestion des données de santé
+     * - Les statistiques nutritionnelles
+     * - La supervision de l'instance
      *
      * @param app L'instance Javalin pour l'enregistrement des routes
      */
@@ -48,5 +50,10 @@ public class AuthRoutesController {
         // Enregistrement des routes pour la gestion des données de santé
         DonneeSanteController.registerRoutes(app);
 
+        // Enregistrement des routes des statistiques nutritionnelles
+        StatistiquesController.registerRoutes(app);
+
+        // Enregistrement des routes de supervision de l'instance
+        MonitoringController.registerRoutes(app);
     }
 }
@@ -0,0 +1,116 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+import ch.heig.bdr.projet.suiviDietetique.config.ResponseFormat;
+import ch.heig.bdr.projet.suiviDietetique.models.Version;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Réponses aux requêtes HTTP conditionnelles (If-None-Match, If-Modified-Since, RFC 9110).
+ *
+ * La route envoie l'ETag et la date de dernière modification de la ressource, calculés à partir
+ * de sa version (voir VersionService) ou de son contenu. Si le client possède déjà cette version,
+ * la réponse est 304 Not Modified, sans lecture des données ni sérialisation.
+ */
+final class ConditionalResponse {
+    /** Classe utilitaire, non instanciable */
+    private ConditionalResponse() {}
+
+    /**
+     * Envoie les en-têtes de validation d'une ressource versionnée, et répond 304 si le
+     * client possède déjà cette version. La ressource étant envoyée dans le format demandé
+     * par le client (voir {@link EncodedResponse}), l'ETag distingue aussi ce format.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param ressource Le nom de la ressource (avec ses paramètres éventuels), inclus dans l'ETag
+     * @param version La version courante de la ressource
+     * @return true si la réponse 304 a été envoyée : la route n'a plus rien à faire
+     */
+    static boolean nonModifie(Context ctx, String ressource, Version version) {
+        ResponseFormat format = EncodedResponse.format(ctx);
+        String etag = "\"" + ressource + "-" + version.numero()
+                + (format == ResponseFormat.JSON ? "" : "-" + format.getShortName()) + "\"";
+        ctx.header(Header.VARY, EncodedResponse.VARY);
+        return nonModifieEtag(ctx, etag, version.modifieLe());
+    }
+
+    /**
+     * Envoie les en-têtes de validation d'une ressource, et répond 304 si le client possède
+     * déjà la version courante. If-Modified-Since n'est pris en compte qu'en l'absence de
+     * If-None-Match.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param etag L'ETag courant, guillemets compris
+     * @param modifieLe La date de dernière modification, ou null si elle est inconnue
+     * @return true si la réponse 304 a été envoyée : la route n'a plus rien à faire
+     */
+    static boolean nonModifieEtag(Context ctx, String etag, OffsetDateTime modifieLe) {
+        ctx.header(Header.ETAG, etag);
+        // Réponses réservées aux utilisateurs connectés : pas de cache partagé, revalidation systématique
+        ctx.header(Header.CACHE_CONTROL, "private, no-cache");
+        if (modifieLe != null) {
+            ctx.header(Header.LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    modifieLe.atZoneSameInstant(ZoneOffset.UTC)));
+        }
+
+        String ifNoneMatch = ctx.header(Header.IF_NONE_MATCH);
+        boolean nonModifie = ifNoneMatch != null
+                ? matches(ifNoneMatch, etag)
+                : nonModifieDepuis(ctx.header(Header.IF_MODIFIED_SINCE), modifieLe);
+        if (nonModifie) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+        }
+        return nonModifie;
+    }
+
+    /**
+     * Vérifie si l'en-tête If-None-Match désigne l'ETag courant (comparaison faible, RFC 9110).
+     *
+     * @param ifNoneMatch La valeur de l'en-tête If-None-Match (peut être null)
+     * @param etag L'ETag courant
+     * @return true si le client possède déjà la version courante
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vérifie si la ressource n'a pas été modifiée depuis la date donnée par le client.
+     * Les dates HTTP étant à la seconde, la date de modification est tronquée à la seconde.
+     *
+     * @param ifModifiedSince La valeur de l'en-tête If-Modified-Since (peut être null)
+     * @param modifieLe La date de dernière modification, ou null si elle est inconnue
+     * @return true si la ressource n'a pas été modifiée depuis cette date
+     */
+    private static boolean nonModifieDepuis(String ifModifiedSince, OffsetDateTime modifieLe) {
+        if (ifModifiedSince == null || modifieLe == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime depuis = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return !modifieLe.truncatedTo(ChronoUnit.SECONDS).toInstant().isAfter(depuis.toInstant());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableCatalog;
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
 import ch.heig.bdr.projet.suiviDietetique.services.ConsommableService;
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+
 import java.util.Map;
 
 public class ConsommableController {
@@ -11,11 +14,24 @@ public class ConsommableController {
 
     public static void registerRoutes(Javalin app) {
         app.get("/api/consommables", ConsommableController::getAllConsommables, Role.ADMIN, Role.DIETETICIEN, Role.INFIRMIER, Role.PATIENT);
+        app.get("/api/consommables/requete", ConsommableController::requeteConsommables, Role.ADMIN, Role.DIETETICIEN, Role.INFIRMIER);
+        app.get("/api/consommables/recherche", ConsommableController::rechercherConsommables, Role.ADMIN, Role.DIETETICIEN, Role.INFIRMIER, Role.PATIENT);
+        app.get("/api/consommables/{id}/substituts", ConsommableController::getSubstituts, Role.ADMIN, Role.DIETETICIEN, Role.INFIRMIER);
     }
 
+    /**
+     * Renvoie le catalogue des consommables, servi depuis la mémoire (JSON pré-sérialisé).
+     * Si le client possède déjà la version courante (If-None-Match), seule une réponse 304 est renvoyée.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
     public static void getAllConsommables(Context ctx) {
         try {
-            ctx.json(consommableService.getAllConsommable());
+            ConsommableCatalog catalog = consommableService.getCatalog();
+            if (ConditionalResponse.nonModifieEtag(ctx, catalog.etag(), null)) {
+                return;
+            }
+            ctx.contentType(ContentType.APPLICATION_JSON).result(catalog.json());
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des consommables",
@@ -23,4 +39,66 @@ public class ConsommableController {
             ));
         }
     }
+
+    /**
+     * Recherche des consommables par nom, pour la saisie des repas. Paramètres : q (texte saisi,
+     * chaque mot étant un début de mot du nom, sans tenir compte des accents ni de la casse et
+     * à quelques fautes de frappe près) et limite (nombre de résultats, 10 par défaut, 50 au plus).
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    public static void rechercherConsommables(Context ctx) {
+        try {
+            EncodedResponse.send(ctx, consommableService.rechercher(ctx.queryParam("q"),
+                    ctx.queryParam(PageResponse.LIMITE)));
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la recherche des consommables",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+
+    /**
+     * Recherche des consommables selon leurs valeurs nutritionnelles, sans accès à la base.
+     * Paramètres : filtre (répétable, ex. filtre=sodium&lt;20, opérateurs &lt;, &lt;=, &gt;, &gt;=, =),
+     * type (ALIMENT ou BOISSON), patient (noSS dont exclure les allergènes), sans (allergènes
+     * à exclure, séparés par des virgules), tri (nutriment, précédé de - pour un ordre
+     * décroissant) et limite (50 par défaut, 1000 au plus).
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    public static void requeteConsommables(Context ctx) {
+        try {
+            EncodedResponse.send(ctx, consommableService.requeteNutriments(ctx.queryParams("filtre"),
+                    ctx.queryParam("type"), ctx.queryParam("patient"), ctx.queryParam("sans"),
+                    ctx.queryParam("tri"), ctx.queryParam(PageResponse.LIMITE)));
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la requête sur les consommables",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+
+    /**
+     * Propose des substituts à un consommable, au profil nutritionnel le plus proche, sans
+     * accès à la base. Paramètres : type (ALIMENT ou BOISSON, celui du consommable par défaut),
+     * patient (noSS dont exclure les allergènes), sans (allergènes à exclure, séparés par des
+     * virgules) et limite (10 par défaut, 50 au plus).
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    public static void getSubstituts(Context ctx) {
+        try {
+            EncodedResponse.send(ctx, consommableService.substituts(Integer.parseInt(ctx.pathParam("id")),
+                    ctx.queryParam("type"), ctx.queryParam("patient"), ctx.queryParam("sans"),
+                    ctx.queryParam(PageResponse.LIMITE)));
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la recherche des substituts",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
 }
@@ -6,11 +6,13 @@ import java.util.Map;
 import ch.heig.bdr.projet.suiviDietetique.models.Objectif;
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
 import ch.heig.bdr.projet.suiviDietetique.services.DieteticienService;
+import ch.heig.bdr.projet.suiviDietetique.services.VersionService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
 public class DieteticienController {
     private static final DieteticienService dieteticienService = new DieteticienService();
+    private static final VersionService versionService = new VersionService();
 
     public static void registerRoutes(Javalin app) {
         app.get("/api/dieteticiens/{id}", DieteticienController::handleGetdieteticien, Role.DIETETICIEN,Role.ADMIN);
@@ -24,7 +26,7 @@ public class DieteticienController {
     private static void handleGetdieteticien(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(dieteticienService.getOneDieteticien(noss));
+            EncodedResponse.send(ctx, dieteticienService.getOneDieteticien(noss));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération du diététicien",
@@ -36,7 +38,7 @@ public class DieteticienController {
     private static void handleGetdieteticienPatient(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(dieteticienService.getOneDieteticienPatient(noss));
+            EncodedResponse.send(ctx, dieteticienService.getOneDieteticienPatient(noss));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération du diététicien du patient",
@@ -47,7 +49,10 @@ public class DieteticienController {
 
     private static void handleGetdieteticiens(Context ctx){
         try {
-            ctx.json(dieteticienService.getAllDieteticiens());
+            if (ConditionalResponse.nonModifie(ctx, "dieteticiens", versionService.getVersionDieteticiens())) {
+                return;
+            }
+            EncodedResponse.send(ctx, dieteticienService.getAllDieteticiens());
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des diététiciens",
@@ -66,7 +71,7 @@ public class DieteticienController {
                     "details", "Aucun objectif n'existe pour ce diététicien"
                 ));
             } else {
-                ctx.json(objectifs);
+                EncodedResponse.send(ctx, objectifs);
             }
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
@@ -0,0 +1,63 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import ch.heig.bdr.projet.suiviDietetique.config.ResponseFormat;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+/**
+ * Envoi des données dans le format demandé par le client (voir {@link ResponseFormat}).
+ *
+ * Sans en-tête Accept, ou avec Accept: application/json, la réponse est identique à celle
+ * de ctx.json. Avec Accept: application/cbor ou application/x-jackson-smile, les mêmes
+ * données sont envoyées dans l'encodage binaire correspondant. L'en-tête Vary indique aux
+ * caches que la réponse dépend de l'en-tête Accept, en plus de la compression.
+ */
+final class EncodedResponse {
+    /** En-têtes de la requête dont dépend une réponse encodée (format et compression) */
+    static final String VARY = Header.ACCEPT + ", " + Header.ACCEPT_ENCODING;
+
+    /** Classe utilitaire, non instanciable */
+    private EncodedResponse() {}
+
+    /**
+     * Retourne le format de réponse demandé par le client.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return Le format négocié d'après l'en-tête Accept
+     */
+    static ResponseFormat format(Context ctx) {
+        return ResponseFormat.negotiate(ctx.header(Header.ACCEPT));
+    }
+
+    /**
+     * Envoie une valeur dans le format demandé par le client.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param valeur La valeur à envoyer
+     */
+    static void send(Context ctx, Object valeur) {
+        ResponseFormat format = preparer(ctx);
+        try {
+            ctx.result(format.getWriter().writeValueAsBytes(valeur));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Choisit le format de la réponse et envoie les en-têtes correspondants
+     * (Content-Type, Vary), avant l'écriture du corps.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return Le format de la réponse
+     */
+    static ResponseFormat preparer(Context ctx) {
+        ResponseFormat format = format(ctx);
+        ctx.header(Header.VARY, VARY);
+        ctx.contentType(format.getContentType());
+        return format;
+    }
+}
@@ -2,12 +2,14 @@ package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
 
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
 import ch.heig.bdr.projet.suiviDietetique.services.InfirmierService;
+import ch.heig.bdr.projet.suiviDietetique.services.VersionService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import java.util.Map;
 
 public class InfirmierController {
     private static final InfirmierService infirmierService = new InfirmierService();
+    private static final VersionService versionService = new VersionService();
 
     public static void registerRoutes(Javalin app) {
         app.get("/api/infirmiers/{id}", InfirmierController::handleGetInfirmier,
@@ -21,7 +23,7 @@ public class InfirmierController {
     private static void handleGetInfirmier(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(infirmierService.getOneInfirmier(noss));
+            EncodedResponse.send(ctx, infirmierService.getOneInfirmier(noss));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération de l'infirmier",
@@ -32,7 +34,10 @@ public class InfirmierController {
 
     private static void handleGetInfirmiers(Context ctx){
         try {
-            ctx.json(infirmierService.getAllInfirmiers());
+            if (ConditionalResponse.nonModifie(ctx, "infirmiers", versionService.getVersionInfirmiers())) {
+                return;
+            }
+            EncodedResponse.send(ctx, infirmierService.getAllInfirmiers());
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des infirmiers",
@@ -44,7 +49,12 @@ public class InfirmierController {
     private static void handleGetInfirmierRepas(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(infirmierService.getAllRepas(noss));
+            if (StreamResponse.demande(ctx)) {
+                StreamResponse.json(ctx, infirmierService.streamRepas(noss));
+                return;
+            }
+            PageResponse.json(ctx, infirmierService.getRepas(noss,
+                    ctx.queryParam(PageResponse.LIMITE), ctx.queryParam(PageResponse.CURSEUR)));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des repas de l'infirmier",
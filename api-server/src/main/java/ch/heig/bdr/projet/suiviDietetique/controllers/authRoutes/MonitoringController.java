@@ -0,0 +1,165 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCache;
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.config.RequestExecution;
+import ch.heig.bdr.projet.suiviDietetique.dao.StatementRegistry;
+import ch.heig.bdr.projet.suiviDietetique.metrics.PrometheusExporter;
+import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.services.SingleFlight;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.UnauthorizedResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import java.util.Map;
+
+/**
+ * Contrôleur gérant les routes API de supervision de l'application.
+ * Permet aux administrateurs de consulter l'état interne d'une instance de l'API.
+ */
+public class MonitoringController {
+    /** Jeton attendu par /api/metrics (en-tête Authorization: Bearer) ; la route est fermée s'il n'est pas défini */
+    private static final String METRICS_TOKEN = Env.get("METRICS_TOKEN", null);
+
+    /**
+     * Enregistre les routes de l'API de supervision.
+     * Routes disponibles :
+     * - GET /api/monitoring/pool : Statistiques du pool de connexions à la base de données
+     * - GET /api/monitoring/statements : Succès et échecs du cache de requêtes préparées
+     * - GET /api/monitoring/execution : Mode d'exécution des requêtes et état du limiteur de concurrence
+     * - GET /api/monitoring/coalescing : Regroupement des lectures identiques simultanées
+     * - GET /api/monitoring/caches : Succès, échecs et évictions des caches de lectures par clé
+     * - GET /api/metrics : Toutes les métriques de l'instance au format Prometheus
+     *   (sans session, protégé par METRICS_TOKEN ; toujours refusé s'il n'est pas défini)
+     *
+     * @param app L'instance Javalin pour l'enregistrement des routes
+     */
+    public static void registerRoutes(Javalin app) {
+        app.get("/api/monitoring/pool", MonitoringController::handleGetPoolStatistics, Role.ADMIN);
+        app.get("/api/monitoring/statements", MonitoringController::handleGetStatementStatistics, Role.ADMIN);
+        app.get("/api/monitoring/execution", MonitoringController::handleGetExecutionStatistics, Role.ADMIN);
+        app.get("/api/monitoring/coalescing", MonitoringController::handleGetCoalescingStatistics, Role.ADMIN);
+        app.get("/api/monitoring/caches", MonitoringController::handleGetCacheStatistics, Role.ADMIN);
+        app.get("/api/metrics", MonitoringController::handleGetMetrics, Role.ANYONE);
+    }
+
+    /**
+     * Gère la récupération des statistiques du pool de connexions.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les statistiques du pool
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleGetPoolStatistics(Context ctx) {
+        try {
+            ctx.json(Database.getPoolStatistics());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques du pool",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Gère la récupération des statistiques du cache de requêtes préparées.
+     * Retourne, pour chaque requête nommée, le nombre d'exécutions sur une connexion
+     * où elle était déjà préparée (hits) et le nombre de premières préparations (misses).
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les statistiques par requête
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleGetStatementStatistics(Context ctx) {
+        try {
+            ctx.json(StatementRegistry.getStatistics());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques des requêtes",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Gère la récupération des statistiques d'exécution des requêtes.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec le mode d'exécution et l'état du limiteur
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleGetExecutionStatistics(Context ctx) {
+        try {
+            ctx.json(RequestExecution.getStatistics());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques d'exécution",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Gère la récupération des statistiques de regroupement des lectures.
+     * Retourne, pour chaque groupe de lectures, le nombre de lectures exécutées en base,
+     * le nombre d'appels servis par une lecture déjà en cours et le taux de regroupement.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les statistiques par groupe
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleGetCoalescingStatistics(Context ctx) {
+        try {
+            ctx.json(SingleFlight.groups());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques de regroupement",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Gère la récupération des statistiques des caches de lectures par clé.
+     * Retourne, pour chaque cache, les succès, échecs, évictions et invalidations,
+     * ainsi que le nombre d'entrées et leur poids estimé.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les statistiques par cache
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleGetCacheStatistics(Context ctx) {
+        try {
+            ctx.json(LookupCache.caches());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques des caches",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Gère l'export des métriques pour Prometheus.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les métriques au format texte de Prometheus
+     * @return 401 Unauthorized si METRICS_TOKEN n'est pas défini ou si le jeton fourni est invalide
+     */
+    private static void handleGetMetrics(Context ctx) {
+        if (METRICS_TOKEN == null) {
+            throw new UnauthorizedResponse("Accès refusé : export des métriques désactivé (METRICS_TOKEN non défini).");
+        }
+        String expected = "Bearer " + METRICS_TOKEN;
+        String provided = ctx.header("Authorization");
+        if (provided == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                provided.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedResponse("Accès refusé : jeton de supervision invalide.");
+        }
+        ctx.contentType(PrometheusExporter.CONTENT_TYPE).result(PrometheusExporter.scrape());
+    }
+}
@@ -0,0 +1,66 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import ch.heig.bdr.projet.suiviDietetique.models.Page;
+import io.javalin.http.Context;
+
+/**
+ * Envoi des réponses paginées par curseur.
+ *
+ * Le corps de la réponse reste la liste des éléments de la page, en JSON ou dans le format
+ * demandé par le client (voir {@link EncodedResponse}). Lorsqu'une page suivante
+ * existe, son adresse est indiquée dans l'en-tête Link (rel="next") : c'est la même requête,
+ * avec le paramètre curseur de la page suivante. Les paramètres acceptés par les listes paginées
+ * sont limite (taille de page) et curseur.
+ */
+final class PageResponse {
+    /** Paramètre de requête portant le curseur */
+    static final String CURSEUR = "curseur";
+
+    /** Paramètre de requête portant la taille de page */
+    static final String LIMITE = "limite";
+
+    /** Classe utilitaire, non instanciable */
+    private PageResponse() {}
+
+    /**
+     * Envoie une page : les éléments dans le corps, l'adresse de la page suivante dans l'en-tête Link.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param page La page à envoyer
+     */
+    static void json(Context ctx, Page<?> page) {
+        if (page.curseurSuivant() != null) {
+            ctx.header("Link", "<" + lienSuivant(ctx, page.curseurSuivant()) + ">; rel=\"next\"");
+        }
+        EncodedResponse.send(ctx, page.elements());
+    }
+
+    /**
+     * Construit l'adresse de la page suivante, en reprenant les paramètres de la requête courante.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param curseur Le curseur de la page suivante
+     * @return Le chemin et les paramètres de la page suivante
+     */
+    private static String lienSuivant(Context ctx, String curseur) {
+        StringBuilder lien = new StringBuilder(ctx.path()).append("?");
+        for (Map.Entry<String, List<String>> param : ctx.queryParamMap().entrySet()) {
+            if (param.getKey().equals(CURSEUR)) {
+                continue;
+            }
+            for (String valeur : param.getValue()) {
+                lien.append(encode(param.getKey())).append("=").append(encode(valeur)).append("&");
+            }
+        }
+        return lien.append(CURSEUR).append("=").append(curseur).toString();
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
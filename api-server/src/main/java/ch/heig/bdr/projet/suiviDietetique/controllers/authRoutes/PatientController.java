@@ -1,7 +1,11 @@
 package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
 
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.services.DonneeSanteService;
+import ch.heig.bdr.projet.suiviDietetique.services.DossierPatientService;
 import ch.heig.bdr.projet.suiviDietetique.services.PatientService;
+import ch.heig.bdr.projet.suiviDietetique.services.VersionService;
+import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
 import ch.heig.bdr.projet.suiviDietetique.models.Patient;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -10,6 +14,9 @@ import java.util.Map;
 
 public class PatientController {
     private static final PatientService patientService = new PatientService();
+    private static final DossierPatientService dossierPatientService = new DossierPatientService();
+    private static final DonneeSanteService donneeSanteService = new DonneeSanteService();
+    private static final VersionService versionService = new VersionService();
 
     public static void registerRoutes(Javalin app) {
         app.get("/api/patients", PatientController::handleGetPatients,Role.DIETETICIEN, Role.INFIRMIER,Role.ADMIN);
@@ -17,8 +24,13 @@ public class PatientController {
                 Role.DIETETICIEN, Role.INFIRMIER,Role.ADMIN, Role.PATIENT);
         app.get("/api/dieteticiens/{id}/patients", PatientController::handleGetPatientDieteticien,Role.ADMIN,Role.DIETETICIEN);
         app.get("/api/patients/{id}/sante",PatientController::handleGetDonneeSante,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+        app.get("/api/patients/{id}/sante/derniere",PatientController::handleGetDerniereDonneeSante,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+        app.get("/api/patients/{id}/sante/semaines",PatientController::handleGetStatsSante,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+        app.get("/api/patients/{id}/progression",PatientController::handleGetProgression,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+        app.get("/api/dieteticiens/{id}/progressions",PatientController::handleGetProgressionsDieteticien,Role.ADMIN, Role.DIETETICIEN);
         app.get("/api/patients/{id}/objectifs",PatientController::handleGetObjectif,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
         app.post("/api/patients", PatientController::handlePostPatient,Role.ADMIN, Role.DIETETICIEN);
+        app.get("/api/patients/{id}/dossier",PatientController::handleGetDossier,Role.ADMIN,Role.DIETETICIEN,Role.INFIRMIER,Role.PATIENT);
         app.get("/api/patients/{id}/allergies",PatientController::handleGetAllergies,Role.ADMIN,Role.DIETETICIEN,Role.INFIRMIER,Role.PATIENT);
         app.put("/api/patients/{id}", PatientController::handleUpdatePatient,Role.ADMIN, Role.DIETETICIEN);
         app.delete("/api/patients/{id}", PatientController::handleDeletePatient,Role.ADMIN, Role.DIETETICIEN);
@@ -26,7 +38,12 @@ public class PatientController {
 
     private static void handleGetPatients(Context ctx){
         try {
-            ctx.json(patientService.getAllPatients());
+            if (StreamResponse.demande(ctx)) {
+                StreamResponse.json(ctx, patientService.streamPatients());
+                return;
+            }
+            PageResponse.json(ctx, patientService.getPatients(
+                    ctx.queryParam(PageResponse.LIMITE), ctx.queryParam(PageResponse.CURSEUR)));
         } catch (Exception e) {
             ctx.status(422).result("Error getting patients: " + e.getMessage());
         }
@@ -35,7 +52,7 @@ public class PatientController {
     private static void handleGetPatientDieteticien(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(patientService.getAllPatientDieteticien(noss));
+            EncodedResponse.send(ctx, patientService.getAllPatientDieteticien(noss));
         } catch (Exception e) {
             ctx.status(422).result("Error getting dietician's patients: " + e.getMessage());
         }
@@ -43,23 +60,104 @@ public class PatientController {
     private static void handleGetPatient(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(patientService.getOnePatient(noss));
+            EncodedResponse.send(ctx, patientService.getOnePatient(noss));
         } catch (Exception e) {
             ctx.status(422).result("Error getting patient: " + e.getMessage());
         }
     }
+    /**
+     * Renvoie les mesures de santé d'un patient, par date croissante. Paramètres optionnels :
+     * debut (premier jour inclus) et fin (premier jour exclu), au format yyyy-MM-dd.
+     */
     private static void handleGetDonneeSante(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(patientService.getAllDonneeSantee(noss));
+            if (ConditionalResponse.nonModifie(ctx, "sante-" + noss, versionService.getVersionPatient(noss))) {
+                return;
+            }
+            EncodedResponse.send(ctx, donneeSanteService.getDonneesSante(noss,
+                    ctx.queryParam("debut"), ctx.queryParam("fin")));
         } catch (Exception e) {
             ctx.status(422).result("Error getting health data: " + e.getMessage());
         }
     }
+
+    /**
+     * Renvoie la mesure de santé la plus récente d'un patient.
+     */
+    private static void handleGetDerniereDonneeSante(Context ctx){
+        try {
+            String noss = ctx.pathParam("id");
+            if (ConditionalResponse.nonModifie(ctx, "sante-derniere-" + noss, versionService.getVersionPatient(noss))) {
+                return;
+            }
+            DonneeSante derniere = donneeSanteService.getDerniereDonneeSante(noss);
+            if (derniere == null) {
+                ctx.status(404).json(Map.of("message", "Aucune donnée de santé pour ce patient"));
+                return;
+            }
+            EncodedResponse.send(ctx, derniere);
+        } catch (Exception e) {
+            ctx.status(422).result("Error getting health data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renvoie l'évolution des mesures de santé d'un patient par semaine (minimum, maximum et
+     * moyenne du poids, du tour de taille et de l'IMC). Paramètres optionnels : debut et fin,
+     * comme pour la liste des mesures.
+     */
+    private static void handleGetStatsSante(Context ctx){
+        try {
+            String noss = ctx.pathParam("id");
+            if (ConditionalResponse.nonModifie(ctx, "sante-semaines-" + noss, versionService.getVersionPatient(noss))) {
+                return;
+            }
+            EncodedResponse.send(ctx, donneeSanteService.getStatsSanteSemaines(noss,
+                    ctx.queryParam("debut"), ctx.queryParam("fin")));
+        } catch (Exception e) {
+            ctx.status(422).result("Error getting health statistics: " + e.getMessage());
+        }
+    }
+    /**
+     * Renvoie la progression des mesures de santé d'un patient : variations et tendances du
+     * poids, du tour de taille et de l'IMC. Paramètres optionnels : debut et fin, comme pour
+     * la liste des mesures (toutes les mesures par défaut).
+     */
+    private static void handleGetProgression(Context ctx){
+        try {
+            String noss = ctx.pathParam("id");
+            if (ConditionalResponse.nonModifie(ctx, "progression-" + noss, versionService.getVersionPatient(noss))) {
+                return;
+            }
+            EncodedResponse.send(ctx, donneeSanteService.getProgression(noss,
+                    ctx.queryParam("debut"), ctx.queryParam("fin")));
+        } catch (Exception e) {
+            ctx.status(422).result("Error getting health progression: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renvoie les progressions de tous les patients d'un diététicien, calculées en parallèle.
+     * Paramètres optionnels : debut et fin, comme pour la progression d'un patient.
+     */
+    private static void handleGetProgressionsDieteticien(Context ctx){
+        try {
+            String noss = ctx.pathParam("id");
+            EncodedResponse.send(ctx, donneeSanteService.getProgressionsDieteticien(noss,
+                    ctx.queryParam("debut"), ctx.queryParam("fin")));
+        } catch (Exception e) {
+            ctx.status(422).result("Error getting dietician's patients progression: " + e.getMessage());
+        }
+    }
+
     private static void handleGetObjectif(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(patientService.getAllObjectif(noss));
+            if (ConditionalResponse.nonModifie(ctx, "objectifs-" + noss, versionService.getVersionPatient(noss))) {
+                return;
+            }
+            EncodedResponse.send(ctx, patientService.getAllObjectif(noss));
         } catch (Exception e) {
             ctx.status(422).result("Error getting objectives: " + e.getMessage());
         }
@@ -83,12 +181,27 @@ public class PatientController {
     private static void handleGetAllergies(Context ctx){
         try {
             String noss = ctx.pathParam("id");
-            ctx.json(patientService.getAllAllergies(noss));
+            EncodedResponse.send(ctx, patientService.getAllAllergies(noss));
         } catch (Exception e) {
             ctx.status(422).result("Error getting allergies: " + e.getMessage());
         }
     }
 
+    /**
+     * Renvoie le dossier d'un patient en une seule réponse. Paramètres optionnels :
+     * sections (liste séparée par des virgules, toutes par défaut), et pour la section repas,
+     * interval et limite comme pour la liste des repas du patient.
+     */
+    private static void handleGetDossier(Context ctx){
+        try {
+            String noss = ctx.pathParam("id");
+            EncodedResponse.send(ctx, dossierPatientService.getDossier(noss, ctx.queryParam("sections"),
+                    ctx.queryParam("interval"), ctx.queryParam(PageResponse.LIMITE)));
+        } catch (Exception e) {
+            ctx.status(422).result("Error getting patient file: " + e.getMessage());
+        }
+    }
+
     private static void handleUpdatePatient(Context ctx){
         try {
             String noss = ctx.pathParam("id");
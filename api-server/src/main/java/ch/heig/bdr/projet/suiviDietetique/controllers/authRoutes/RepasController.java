@@ -1,23 +1,31 @@
 package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
 
 import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+import ch.heig.bdr.projet.suiviDietetique.dao.AllergieException;
 import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
 import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import ch.heig.bdr.projet.suiviDietetique.models.ResultatLotRepas;
 
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
 
 import ch.heig.bdr.projet.suiviDietetique.services.RepasService;
+import ch.heig.bdr.projet.suiviDietetique.services.VersionService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
 public class RepasController {
     private static final RepasService repasService = new RepasService();
+    private static final VersionService versionService = new VersionService();
 
     public static void registerRoutes(Javalin app) {
         app.post("/api/repas",RepasController::handleRepasCreation,Role.ADMIN, Role.PATIENT, Role.INFIRMIER, Role.DIETETICIEN);
+        app.post("/api/repas/lot",RepasController::handleRepasLotCreation,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN);
+        app.post("/api/repas/verification",RepasController::handleVerificationAllergies,Role.ADMIN, Role.PATIENT, Role.INFIRMIER, Role.DIETETICIEN);
         app.get("/api/patients/{id}/repas",RepasController::handleGetAllRepasByPatient,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
         app.get("/api/repas/consommables",RepasController::handleGetConsommablebyRepas,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
         app.get("/api/repas",RepasController::handleGetRepas,Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
@@ -29,18 +37,12 @@ public class RepasController {
             Repas repas = ctx.bodyAsClass(Repas.class);
             repasService.createRepas(repas);
             ctx.status(201).result("Repas créé avec succès.");
-        } catch (RuntimeException e) {
-            if (e.getMessage().contains("Erreur d'allergie")) {
-                ctx.status(422).json(Map.of(
-                    "error", "Un consommable contient un allergène pour ce patient.",
-                    "details", e.getMessage()
-                ));
-            } else {
-                ctx.status(422).json(Map.of(
-                    "error", "Erreur lors de la création du repas.",
-                    "details", e.getMessage()
-                ));
-            }
+        } catch (AllergieException e) {
+            ctx.status(422).json(Map.of(
+                "error", "Un consommable contient un allergène pour ce patient.",
+                "details", e.getMessage(),
+                "conflits", e.getConflits()
+            ));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la création du repas.",
@@ -49,15 +51,65 @@ public class RepasController {
         }
     }
 
+    /**
+     * Crée un lot de repas (liste de repas de même forme que pour la création d'un repas,
+     * de patients quelconques). Retourne le résultat de chaque repas : un repas refusé
+     * (allergie, patient inconnu, date déjà prise...) n'empêche pas la création des autres.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    private static void handleRepasLotCreation(Context ctx) {
+        try {
+            List<Repas> lot = Arrays.asList(ctx.bodyAsClass(Repas[].class));
+            ResultatLotRepas resultat = repasService.createRepasLot(lot);
+            ctx.status(resultat.crees() > 0 ? 201 : 422);
+            EncodedResponse.send(ctx, resultat);
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la création du lot de repas.",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Vérifie un repas contre les allergies du patient sans le créer (même corps que la création).
+     * Retourne la liste des consommables incompatibles, vide si le repas peut être créé.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    private static void handleVerificationAllergies(Context ctx) {
+        try {
+            Repas repas = ctx.bodyAsClass(Repas.class);
+            EncodedResponse.send(ctx, repasService.verifierAllergies(repas));
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la vérification des allergies.",
+                "details", e.getMessage()
+            ));
+        }
+    }
+
     private static void handleGetAllRepasByPatient(Context ctx){
         try {
             String noss = ctx.pathParam("id");
             String interval = ctx.queryParam("interval");
-            if (interval != null && !interval.isEmpty()){
-                ctx.json(repasService.getAllRepasByPatient_interval(noss,interval));
-            } else {
-                ctx.json(repasService.getAllRepasByPatient_All(noss));
+            if (interval != null && interval.isEmpty()){
+                interval = null;
+            }
+            if (StreamResponse.demande(ctx)) {
+                StreamResponse.json(ctx, repasService.streamRepasByPatient(noss, interval));
+                return;
+            }
+            String limite = ctx.queryParam(PageResponse.LIMITE);
+            String curseur = ctx.queryParam(PageResponse.CURSEUR);
+            // Un intervalle est relatif à l'heure courante : son contenu change sans modification
+            if (interval == null && ConditionalResponse.nonModifie(ctx,
+                    "repas-" + noss + "-" + Integer.toHexString(Objects.hash(limite, curseur)),
+                    versionService.getVersionPatient(noss))) {
+                return;
             }
+            PageResponse.json(ctx, repasService.getRepasByPatient(noss, interval, limite, curseur));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des repas du patient.",
@@ -70,7 +122,7 @@ public class RepasController {
         try {
             String noss = ctx.queryParam("noss");
             OffsetDateTime date = OffsetDateTime.parse(ctx.queryParam("date"));
-            ctx.json(repasService.getRepas(noss, date));
+            EncodedResponse.send(ctx, repasService.getRepas(noss, date));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération du repas.",
@@ -84,7 +136,7 @@ public class RepasController {
             String noss = ctx.queryParam("noss");
             OffsetDateTime date = OffsetDateTime.parse(ctx.queryParam("date"));
             List<ConsommableQuantity> consommables = repasService.getAllConsommableByRepas(noss, date);
-            ctx.json(consommables);
+            EncodedResponse.send(ctx, consommables);
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
                 "error", "Erreur lors de la récupération des consommables du repas.",
@@ -0,0 +1,70 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import java.util.Map;
+
+import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.services.StatistiquesService;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Contrôleur gérant les routes API des statistiques nutritionnelles agrégées.
+ * Les statistiques sont servies depuis les tables d'agrégats par jour et par semaine.
+ */
+public class StatistiquesController {
+    /** Service gérant les statistiques nutritionnelles */
+    private static final StatistiquesService statistiquesService = new StatistiquesService();
+
+    /**
+     * Enregistre les routes de l'API des statistiques.
+     * Routes disponibles :
+     * - GET /api/patients/{id}/nutrition : Évolution nutritionnelle d'un patient
+     *   (paramètres granularite=jour|semaine, debut et fin au format yyyy-MM-dd, fin exclue)
+     * - POST /api/statistiques/reconstruction : Reconstruction des statistiques de tous les patients
+     *
+     * @param app L'instance Javalin pour l'enregistrement des routes
+     */
+    public static void registerRoutes(Javalin app) {
+        app.get("/api/patients/{id}/nutrition", StatistiquesController::handleGetStatsNutrition,
+                Role.ADMIN, Role.INFIRMIER, Role.DIETETICIEN, Role.PATIENT);
+        app.post("/api/statistiques/reconstruction", StatistiquesController::handleReconstruction, Role.ADMIN);
+    }
+
+    /**
+     * Gère la récupération de l'évolution nutritionnelle d'un patient.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec les statistiques par période
+     * @return 422 Unprocessable Entity si les paramètres sont invalides
+     */
+    private static void handleGetStatsNutrition(Context ctx) {
+        try {
+            EncodedResponse.send(ctx, statistiquesService.getStatsNutrition(ctx.pathParam("id"),
+                    ctx.queryParam("granularite"), ctx.queryParam("debut"), ctx.queryParam("fin")));
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la récupération des statistiques nutritionnelles du patient.",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+
+    /**
+     * Gère la reconstruction des statistiques de tous les patients à partir de leurs repas.
+     * La requête se termine lorsque tous les paquets de patients ont été traités.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return 200 OK avec le résumé de la reconstruction
+     * @return 422 Unprocessable Entity en cas d'erreur
+     */
+    private static void handleReconstruction(Context ctx) {
+        try {
+            ctx.json(statistiquesService.reconstruireStats());
+        } catch (Exception e) {
+            ctx.status(422).json(Map.of(
+                "error", "Erreur lors de la reconstruction des statistiques.",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+}
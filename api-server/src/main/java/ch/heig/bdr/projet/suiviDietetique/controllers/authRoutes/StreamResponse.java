@@ -0,0 +1,62 @@
+package ch.heig.bdr.projet.suiviDietetique.controllers.authRoutes;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.javalin.http.Context;
+
+/**
+ * Envoi en flux des listes complètes (exports).
+ *
+ * Avec le paramètre export=true, une liste paginée est envoyée en entier, sans pagination :
+ * chaque élément lu en base est écrit directement dans la réponse par un JsonGenerator,
+ * sans que la liste soit construite en mémoire. La mémoire utilisée ne dépend donc pas
+ * du nombre d'éléments. Le corps reste une liste, comme pour une page, en JSON ou dans le
+ * format demandé par le client (voir {@link EncodedResponse}).
+ *
+ * Une erreur de lecture survenant après le début de l'envoi ne peut plus changer le statut
+ * de la réponse : la liste est alors laissée incomplète (non fermée), ce que le client
+ * détecte comme une erreur de lecture.
+ */
+final class StreamResponse {
+    /** Paramètre de requête demandant la liste complète en flux */
+    static final String EXPORT = "export";
+
+    /** Classe utilitaire, non instanciable */
+    private StreamResponse() {}
+
+    /**
+     * Indique si la requête demande la liste complète en flux.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return true si le paramètre export vaut true
+     */
+    static boolean demande(Context ctx) {
+        return Boolean.parseBoolean(ctx.queryParam(EXPORT));
+    }
+
+    /**
+     * Écrit les éléments d'un flux dans la réponse, sous forme de liste, puis ferme le flux.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param elements Les éléments à envoyer
+     */
+    static void json(Context ctx, Stream<?> elements) {
+        ObjectWriter writer = EncodedResponse.preparer(ctx).getWriter();
+        try (elements; JsonGenerator json = writer.createGenerator(ctx.outputStream())) {
+            // Une liste interrompue par une erreur ne doit pas être fermée à la fermeture du générateur
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartArray();
+            Iterator<?> it = elements.iterator();
+            while (it.hasNext()) {
+                writer.writeValue(json, it.next());
+            }
+            json.writeEndArray();
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'envoi d'une liste en flux : " + e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ch.heig.bdr.projet.suiviDietetique.controllers.unauthRoutes;
 
 import ch.heig.bdr.projet.suiviDietetique.models.User;
 import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.security.Sessions;
+import ch.heig.bdr.projet.suiviDietetique.security.UserSession;
 import ch.heig.bdr.projet.suiviDietetique.services.AuthService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -60,14 +62,9 @@ public class UnauthRoutesController {
             User user = authService.authenticate(username, password);
 
             if (user != null) {
-                // Créer les attributs de session
-                ctx.sessionAttribute("user", username);
-                ctx.sessionAttribute("user-role", user.getRole().toString());
-                ctx.sessionAttribute("user-noss", user.getNoss());
-                
-                // Configuration de la durée de la session (1 heure)
-                ctx.req().getSession().setMaxInactiveInterval(60 * 60);
-                
+                // Ouvrir la session (durée d'inactivité configurée, 1 heure par défaut)
+                Sessions.open(ctx, username, user.getRole(), user.getNoss());
+
                 // Renvoyer les informations de l'utilisateur
                 ctx.json(Map.of("username", username, "role",
                         user.getRole().toString(), "noss", user.getNoss()));
@@ -94,8 +91,8 @@ public class UnauthRoutesController {
      */
     private static void handleLogout(Context ctx) {
         try {
-            // Invalider la session
-            ctx.req().getSession().invalidate();
+            // Fermer la session
+            Sessions.close(ctx);
             ctx.status(200).json(Map.of("message", "Déconnexion réussie"));
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
@@ -116,19 +113,18 @@ public class UnauthRoutesController {
      */
     private static void handleCheckSession(Context ctx) {
         try {
-            // Récupérer les attributs de session
-            String username = ctx.sessionAttribute("user");
-            String userRole = ctx.sessionAttribute("user-role");
-            Integer userNoss = ctx.sessionAttribute("user-noss");
+            // Récupérer la session courante
+            UserSession session = Sessions.current(ctx);
 
             // Vérifier si la session est valide
-            if (username == null || userRole == null || userNoss == null) {
+            if (session == null) {
                 ctx.status(401).json(Map.of(
                     "error", "Non authentifié",
                     "details", "La session n'est pas valide"
                 ));
             } else {
-                ctx.json(Map.of("username", username, "role", userRole, "noss", userNoss));
+                ctx.json(Map.of("username", session.getUsername(),
+                        "role", session.getRole().toString(), "noss", session.getNoss()));
             }
         } catch (Exception e) {
             ctx.status(422).json(Map.of(
@@ -7,11 +7,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Classe d'accès aux données (DAO) pour la table des allergènes.
  * Gère les opérations de lecture des allergènes dans la base de données.
+ * Les lectures utilisées par l'index des allergies propagent leurs erreurs :
+ * un index incomplet ne doit jamais être considéré comme à jour.
  */
 public class AllergeneDAO {
     /**
@@ -24,8 +30,7 @@ public class AllergeneDAO {
         List<Allergene> allergenes = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
             // Requête SQL pour obtenir les noms d'allergènes uniques
-            String query = "SELECT DISTINCT(nom_allergene) FROM suivi_dietetique.est_allergique";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGENE_GET_ALL)) {
                 ResultSet rs = stmt.executeQuery();
                 // Pour chaque allergène trouvé, créer un nouvel objet Allergene
                 while (rs.next()) {
@@ -39,4 +44,91 @@ public class AllergeneDAO {
         }
         return allergenes;
     }
+
+    /**
+     * Récupère, pour chaque allergène, les identifiants des consommables qui peuvent le contenir.
+     *
+     * @return Les consommables de chaque allergène, sous forme d'ensembles de bits indexés par identifiant
+     * @throws Exception Si la lecture échoue
+     */
+    public Map<String, BitSet> getConsommablesParAllergene() throws Exception {
+        Map<String, BitSet> consommables = new HashMap<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGENE_CONSOMMABLE_GET_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                consommables.computeIfAbsent(rs.getString("nom_allergene"), nom -> new BitSet())
+                        .set(rs.getInt("id_consommable"));
+            }
+        }
+        return consommables;
+    }
+
+    /**
+     * Récupère les allergies de tous les patients.
+     *
+     * @return Les noms des allergènes de chaque patient, par numéro de sécurité sociale
+     * @throws Exception Si la lecture échoue
+     */
+    public Map<Integer, List<String>> getAllergiesParPatient() throws Exception {
+        Map<Integer, List<String>> allergies = new HashMap<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGIE_GET_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                allergies.computeIfAbsent(rs.getInt("noSS_patient"), noss -> new ArrayList<>())
+                        .add(rs.getString("nom_allergene"));
+            }
+        }
+        return allergies;
+    }
+
+    /**
+     * Récupère les allergies d'un patient.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @return Les noms des allergènes du patient
+     * @throws Exception Si la lecture échoue
+     */
+    public List<String> getAllergiesPatient(int noss) throws Exception {
+        List<String> allergies = new ArrayList<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_ALLERGIES)) {
+            stmt.setInt(1, noss);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allergies.add(rs.getString("nom_allergene"));
+                }
+            }
+        }
+        return allergies;
+    }
+
+    /**
+     * Recherche directement en base les consommables d'une liste incompatibles avec les allergies d'un patient.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param idsConsommables Les identifiants des consommables à vérifier
+     * @return Les allergènes en cause, par identifiant de consommable (vide si aucun conflit)
+     * @throws Exception Si la lecture échoue
+     */
+    public Map<Integer, List<String>> findConflits(int noss, int[] idsConsommables) throws Exception {
+        Map<Integer, List<String>> conflits = new LinkedHashMap<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGIE_FIND_CONFLITS)) {
+            Integer[] ids = new Integer[idsConsommables.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = idsConsommables[i];
+            }
+            stmt.setInt(1, noss);
+            stmt.setArray(2, connection.createArrayOf("integer", ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    conflits.computeIfAbsent(rs.getInt("id_consommable"), id -> new ArrayList<>())
+                            .add(rs.getString("nom_allergene"));
+                }
+            }
+        }
+        return conflits;
+    }
 }
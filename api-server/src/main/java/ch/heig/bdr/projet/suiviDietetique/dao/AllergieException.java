@@ -0,0 +1,40 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import ch.heig.bdr.projet.suiviDietetique.models.ConflitAllergie;
+
+import java.util.List;
+
+/**
+ * Exception levée lorsqu'un repas contient un consommable auquel le patient est allergique.
+ * Elle est levée avant l'insertion si l'index des allergies détecte le conflit, ou par
+ * le trigger de vérification des allergies (SQLSTATE {@value #SQLSTATE}) en dernier recours.
+ */
+public class AllergieException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** Code SQLSTATE levé par le trigger tg_verifier_allergies */
+    public static final String SQLSTATE = "SDA01";
+
+    /** Consommables en cause (vide si le conflit a été détecté par la base), non sérialisés */
+    private final transient List<ConflitAllergie> conflits;
+
+    /**
+     * Constructeur de l'exception.
+     *
+     * @param message Le message décrivant le conflit
+     * @param conflits Les consommables en cause
+     */
+    public AllergieException(String message, List<ConflitAllergie> conflits) {
+        super(message);
+        this.conflits = List.copyOf(conflits);
+    }
+
+    /**
+     * Récupère les consommables en cause.
+     *
+     * @return Les conflits détectés
+     */
+    public List<ConflitAllergie> getConflits() {
+        return conflits;
+    }
+}
@@ -0,0 +1,180 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Réception des notifications PostgreSQL (LISTEN/NOTIFY) émises par les triggers de la base.
+ *
+ * Un thread unique écoute les canaux abonnés sur une connexion dédiée, hors du pool.
+ * Les notifications étant perdues tant que le canal n'est pas écouté, les abonnés sont
+ * aussi prévenus dès que l'écoute commence, à chaque (re)connexion, avec une charge utile
+ * null : un cache abonné doit alors considérer l'ensemble de ses données comme périmées.
+ * Les callbacks sont exécutés dans l'ordre de réception, sur le thread d'écoute.
+ */
+public final class ChangeNotifications {
+    /** Temps d'attente maximal d'une notification avant de vérifier la connexion, en millisecondes */
+    private static final int POLL_TIMEOUT_MS = Env.getInt("DB_LISTEN_POLL_TIMEOUT_MS", 10_000);
+
+    /** Délai avant une nouvelle tentative de connexion, en millisecondes */
+    private static final long RECONNECT_DELAY_MS = Env.getLong("DB_LISTEN_RECONNECT_DELAY_MS", 5_000);
+
+    /** Format accepté pour un nom de canal (inséré tel quel dans la commande LISTEN) */
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    /** Callbacks par canal */
+    private static final Map<String, List<Consumer<String>>> SUBSCRIBERS = new ConcurrentHashMap<>();
+
+    /** Notifications reçues depuis le démarrage */
+    private static final AtomicLong RECEIVED = new AtomicLong();
+
+    /** Connexions (ou reconnexions) établies depuis le démarrage */
+    private static final AtomicLong CONNECTIONS = new AtomicLong();
+
+    /** Indique si le thread d'écoute est connecté et écoute les canaux abonnés à la connexion */
+    private static volatile boolean connected;
+
+    /** Thread d'écoute, démarré au premier abonnement */
+    private static Thread listener;
+
+    /** Classe utilitaire, non instanciable */
+    private ChangeNotifications() {}
+
+    /**
+     * Abonne un callback aux notifications d'un canal.
+     * Le callback est appelé depuis le thread d'écoute : il retarde le traitement des
+     * notifications suivantes et doit donc rester court. S'il lève une exception, la connexion
+     * d'écoute est réinitialisée et tous les abonnés sont de nouveau prévenus avec null.
+     *
+     * @param channel Le nom du canal PostgreSQL
+     * @param callback Le traitement à exécuter à chaque notification (avec sa charge utile)
+     *                 ou au début de l'écoute (avec null)
+     * @throws IllegalArgumentException Si le nom du canal est invalide
+     */
+    public static synchronized void subscribe(String channel, Consumer<String> callback) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Nom de canal invalide : " + channel);
+        }
+        SUBSCRIBERS.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(callback);
+        if (listener == null) {
+            listener = Thread.ofPlatform().name("pg-listen").daemon().start(ChangeNotifications::listen);
+        }
+    }
+
+    /**
+     * Émet une notification sur un canal, à destination de toutes les instances de l'API
+     * (y compris celle-ci, qui la reçoit comme les autres).
+     *
+     * @param channel Le nom du canal PostgreSQL
+     * @param payload La charge utile (au plus 8000 octets)
+     * @throws Exception Si la notification n'a pas pu être émise
+     */
+    public static void publish(String channel, String payload) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.NOTIFICATION_PUBLIER)) {
+            stmt.setString(1, channel);
+            stmt.setString(2, payload);
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Boucle du thread d'écoute : connexion, puis attente des notifications.
+     * Les canaux abonnés après la connexion sont écoutés au tour de boucle suivant.
+     */
+    private static void listen() {
+        while (true) {
+            try (Connection connection = Database.openDedicatedConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                listenNewChannels(connection, listening);
+                connected = true;
+                CONNECTIONS.incrementAndGet();
+                while (true) {
+                    listenNewChannels(connection, listening);
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null || notifications.length == 0) {
+                        if (!connection.isValid(2)) {
+                            break;
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        RECEIVED.incrementAndGet();
+                        dispatch(notification.getName(), notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Écoute des notifications interrompue : " + e.getMessage());
+            }
+            connected = false;
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Exécute LISTEN sur les canaux abonnés qui ne sont pas encore écoutés, puis prévient
+     * leurs abonnés des modifications éventuellement manquées avant l'écoute.
+     *
+     * @param connection La connexion d'écoute
+     * @param listening Les canaux déjà écoutés sur cette connexion
+     * @throws Exception Si la commande LISTEN échoue
+     */
+    private static void listenNewChannels(Connection connection, Set<String> listening) throws Exception {
+        for (String channel : SUBSCRIBERS.keySet()) {
+            if (listening.contains(channel)) {
+                continue;
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("LISTEN " + channel);
+            }
+            listening.add(channel);
+            dispatch(channel, null);
+        }
+    }
+
+    /**
+     * Prévient les abonnés d'un canal.
+     *
+     * @param channel Le nom du canal
+     * @param payload La charge utile de la notification, ou null au début de l'écoute
+     * @throws RuntimeException Si un callback échoue
+     */
+    private static void dispatch(String channel, String payload) {
+        for (Consumer<String> callback : SUBSCRIBERS.getOrDefault(channel, List.of())) {
+            callback.accept(payload);
+        }
+    }
+
+    public static boolean isConnected() {
+        return connected;
+    }
+
+    public static long getReceived() {
+        return RECEIVED.get();
+    }
+
+    public static long getConnections() {
+        return CONNECTIONS.get();
+    }
+}
@@ -1,5 +1,6 @@
 package ch.heig.bdr.projet.suiviDietetique.dao;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableCatalog;
 import ch.heig.bdr.projet.suiviDietetique.config.Database;
 import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
 
@@ -26,28 +27,8 @@ public class ConsommableDAO {
      */
     public List<Consommable> getAllConsommables() {
         List<Consommable> consommables = new ArrayList<>();
-        String query = "SELECT id, " +
-                "nom, " +
-                "type, " +
-                "calories, " +
-                "proteines, " +
-                "(glucides).fibres AS fibres, " +
-                "(glucides).sucre AS sucre, " +
-                "(lipides).total AS lipides_total, " +
-                "(lipides).gras_satures AS gras_satures, " +
-                "potassium, " +
-                "cholesterol, " +
-                "sodium, " +
-                "vit_A, " +
-                "vit_C, " +
-                "vit_D, " +
-                "calcium, " +
-                "fer " +
-                "FROM suivi_dietetique.consommable " +
-                "ORDER BY id ASC";
-
         try (Connection connection = Database.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(query);
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.CONSOMMABLE_GET_ALL);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
@@ -78,4 +59,37 @@ public class ConsommableDAO {
         }
         return consommables;
     }
+
+    /**
+     * Lit tous les consommables dans les colonnes d'un catalogue en mémoire.
+     * Contrairement à {@link #getAllConsommables()}, les erreurs sont propagées
+     * afin de ne jamais mettre en cache un catalogue vide par erreur.
+     *
+     * @param builder Le constructeur du catalogue à remplir
+     * @return Le constructeur rempli
+     * @throws Exception Si la lecture échoue
+     */
+    public ConsommableCatalog.Builder loadCatalog(ConsommableCatalog.Builder builder) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.CONSOMMABLE_GET_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                builder.add(rs.getInt("id"), rs.getString("nom"), rs.getString("type"), rs.getInt("calories"))
+                        .set(ConsommableCatalog.NUTRIMENT_PROTEINES, rs.getFloat("proteines"))
+                        .set(ConsommableCatalog.NUTRIMENT_FIBRES, rs.getFloat("fibres"))
+                        .set(ConsommableCatalog.NUTRIMENT_SUCRE, rs.getFloat("sucre"))
+                        .set(ConsommableCatalog.NUTRIMENT_LIPIDES, rs.getFloat("lipides_total"))
+                        .set(ConsommableCatalog.NUTRIMENT_POTASSIUM, rs.getFloat("potassium"))
+                        .set(ConsommableCatalog.NUTRIMENT_CHOLESTEROL, rs.getFloat("cholesterol"))
+                        .set(ConsommableCatalog.NUTRIMENT_SODIUM, rs.getFloat("sodium"))
+                        .set(ConsommableCatalog.NUTRIMENT_VIT_A, rs.getFloat("vit_a"))
+                        .set(ConsommableCatalog.NUTRIMENT_VIT_C, rs.getFloat("vit_c"))
+                        .set(ConsommableCatalog.NUTRIMENT_VIT_D, rs.getFloat("vit_d"))
+                        .set(ConsommableCatalog.NUTRIMENT_CALCIUM, rs.getFloat("calcium"))
+                        .set(ConsommableCatalog.NUTRIMENT_FER, rs.getFloat("fer"));
+            }
+        }
+        return builder;
+    }
 }
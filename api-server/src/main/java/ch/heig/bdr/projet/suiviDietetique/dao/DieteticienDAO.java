@@ -26,8 +26,7 @@ public class DieteticienDAO {
      */
     public Dieteticien getDieteticien(String noss) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM dieteticien_vue WHERE noss = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DIETETICIEN_GET_ONE)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -59,11 +58,7 @@ public class DieteticienDAO {
      */
     public Dieteticien getDieteticienPatient(String noss) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM dieteticien_vue " +
-                         "WHERE noss = (SELECT noss_dieteticien " +
-                         "             FROM patient_vue " +
-                         "             WHERE noss = ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DIETETICIEN_GET_BY_PATIENT)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -96,8 +91,7 @@ public class DieteticienDAO {
         List<Dieteticien> dieteticiens = new ArrayList<>();
 
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM dieteticien_vue";
-            try (PreparedStatement stmt = connection.prepareStatement(query);
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DIETETICIEN_GET_ALL);
                  ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     dieteticiens.add(new Dieteticien(
@@ -130,8 +124,7 @@ public class DieteticienDAO {
     public List<Objectif> getObjectifs(String nossDieteticien) {
         List<Objectif> objectifs = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM objectif WHERE noss_dieteticien = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DIETETICIEN_GET_OBJECTIFS)) {
                 stmt.setInt(1, Integer.parseInt(nossDieteticien));
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
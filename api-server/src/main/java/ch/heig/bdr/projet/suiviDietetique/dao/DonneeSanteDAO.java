@@ -1,6 +1,9 @@
 package ch.heig.bdr.projet.suiviDietetique.dao;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.sql.Connection;
 
 import ch.heig.bdr.projet.suiviDietetique.config.Database;
@@ -17,18 +20,15 @@ public class DonneeSanteDAO {
      * Insère une nouvelle donnée de santé dans la base de données.
      * Les valeurs sont automatiquement converties dans les types appropriés
      * pour la base de données, y compris la conversion du niveau d'activité
-     * en type énuméré PostgreSQL.
+     * en type énuméré PostgreSQL. La mesure est datée par la base (heure de l'insertion).
      * 
      * @param donneeSante L'objet contenant les données de santé à insérer
+     * @return La date de la mesure insérée
      * @throws RuntimeException Si une erreur survient lors de l'insertion
      */
-    public void insertDonneeSante(DonneeSante donneeSante) {
+    public OffsetDateTime insertDonneeSante(DonneeSante donneeSante) {
         try (Connection connection = Database.getConnection()) {
-            String insertQuery = "INSERT INTO suivi_dietetique.donnees_sante " +
-                               "(noSS_patient, taille, poids, tourDeTaille, niveauActivitePhysique) " +
-                               "VALUES (?, ?, ?, ?, ?::suivi_dietetique.niveau_activite)";
-            
-            try (PreparedStatement stmt = connection.prepareStatement(insertQuery)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DONNEE_SANTE_INSERT)) {
                 // Configuration des paramètres de la requête
                 stmt.setInt(1, Integer.parseInt(donneeSante.getNossPatient()));
                 stmt.setInt(2, donneeSante.getTaille());
@@ -36,7 +36,10 @@ public class DonneeSanteDAO {
                 stmt.setInt(4, donneeSante.getTourDeTaille());
                 stmt.setString(5, donneeSante.getNiveauActivitePhysique());
 
-                stmt.executeUpdate();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return rs.getObject("date", OffsetDateTime.class);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -44,6 +47,37 @@ public class DonneeSanteDAO {
         }
     }
 
+    /**
+     * Récupère toutes les mesures de santé d'un patient, par date croissante.
+     * Contrairement aux autres lectures, une erreur est propagée : une liste vide
+     * signifie que le patient n'a aucune mesure (voir SerieSante).
+     *
+     * @param nossPatient Le numéro de sécurité sociale du patient
+     * @return Les mesures du patient, de la plus ancienne à la plus récente
+     * @throws RuntimeException Si une erreur survient lors de la lecture
+     */
+    public List<DonneeSante> getSerie(String nossPatient) {
+        List<DonneeSante> mesures = new ArrayList<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DONNEE_SANTE_SERIE)) {
+            stmt.setInt(1, Integer.parseInt(nossPatient));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    mesures.add(new DonneeSante(
+                            nossPatient,
+                            rs.getObject("date", OffsetDateTime.class),
+                            rs.getInt("taille"),
+                            rs.getInt("poids"),
+                            rs.getInt("tourDeTaille"),
+                            rs.getString("niveauActivitePhysique")));
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de la lecture des données de santé : " + e.getMessage(), e);
+        }
+        return mesures;
+    }
+
     /**
      * Supprime une donnée de santé spécifique de la base de données.
      * La suppression se fait sur la base du numéro de sécurité sociale du patient
@@ -55,11 +89,11 @@ public class DonneeSanteDAO {
      */
     public void deleteDonneeSante(String nossPatient, OffsetDateTime date) {
         try (Connection connection = Database.getConnection()) {
-            // La fonction date_trunc permet de comparer les dates sans les millisecondes
-            String query = "DELETE FROM suivi_dietetique.donnees_sante WHERE noss_patient = ? AND date_trunc('second', date) = date_trunc('second', ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            // La date est comparée à la seconde près (intervalle d'une seconde, voir SqlStatement)
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.DONNEE_SANTE_DELETE)) {
                 stmt.setInt(1, Integer.parseInt(nossPatient));
                 stmt.setObject(2, date);
+                stmt.setObject(3, date);
                 
                 int rowsAffected = stmt.executeUpdate();
                 if (rowsAffected == 0) {
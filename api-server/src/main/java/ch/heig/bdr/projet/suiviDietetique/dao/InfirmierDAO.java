@@ -4,9 +4,12 @@ import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import ch.heig.bdr.projet.suiviDietetique.config.Database;
 import ch.heig.bdr.projet.suiviDietetique.models.Infirmier;
@@ -29,8 +32,7 @@ public class InfirmierDAO {
      */
     public Infirmier getInfirmier(String noss) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM infirmier_vue WHERE noss = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.INFIRMIER_GET_ONE)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -68,8 +70,7 @@ public class InfirmierDAO {
         List<Infirmier> infirmiers = new ArrayList<>();
 
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM infirmier_vue";
-            try (PreparedStatement stmt = connection.prepareStatement(query);
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.INFIRMIER_GET_ALL);
                  ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     infirmiers.add(new Infirmier(
@@ -94,36 +95,27 @@ public class InfirmierDAO {
     }
 
     /**
-     * Récupère tous les repas servis par un infirmier spécifique.
+     * Récupère une page des repas servis par un infirmier spécifique,
+     * triés par patient puis par date de consommation.
      * 
      * @param nossInfirmier Le numéro de sécurité sociale de l'infirmier
-     * @return La liste des repas servis par cet infirmier
+     * @param apresPatient Le patient du dernier repas de la page précédente
+     * @param apresDate La date du dernier repas de la page précédente (null pour la première page)
+     * @param limite Le nombre maximal de repas à retourner
+     * @return Les repas servis par cet infirmier qui suivent la clé (patient, date) donnée
      */
-    public List<Repas> getRepas(String nossInfirmier) {
+    public List<Repas> getRepasPage(String nossInfirmier, int apresPatient, OffsetDateTime apresDate, int limite) {
         List<Repas> repas = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM repas WHERE noss_infirmier = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.INFIRMIER_GET_REPAS_PAGE)) {
                 stmt.setInt(1, Integer.parseInt(nossInfirmier));
+                stmt.setInt(2, apresPatient);
+                stmt.setObject(3, apresDate);
+                stmt.setInt(4, limite);
 
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
-                        // Récupération de la date de consommation avec le fuseau horaire
-                        OffsetDateTime dateConsommation = rs.getObject("date_consommation", OffsetDateTime.class);
-
-                        // Conversion de l'ENUM PostgreSQL vers un ENUM Java
-                        String typeRepasString = rs.getString("type");
-                        TypeRepas typeRepas = TypeRepas.type(typeRepasString);
-                        String nossPatient = Integer.toString(rs.getInt("noss_patient"));
-
-                        // Création et ajout du repas dans la liste
-                        repas.add(new Repas(
-                                nossPatient,
-                                nossInfirmier,
-                                dateConsommation,
-                                rs.getString("remarque"),
-                                typeRepas
-                        ));
+                        repas.add(mapRepas(rs));
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -134,4 +126,46 @@ public class InfirmierDAO {
         }
         return repas;
     }
+
+    /**
+     * Lit en flux tous les repas servis par un infirmier, triés par patient puis par date
+     * de consommation. Les repas sont lus par lots au fur et à mesure du parcours
+     * (voir {@link ResultStream}).
+     *
+     * @param nossInfirmier Le numéro de sécurité sociale de l'infirmier
+     * @return Le flux des repas servis par cet infirmier, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Repas> streamRepas(String nossInfirmier) throws Exception {
+        // Requête de pagination sans borne : première clé possible et LIMIT NULL (sans limite)
+        return ResultStream.open(SqlStatement.INFIRMIER_GET_REPAS_PAGE, stmt -> {
+            stmt.setInt(1, Integer.parseInt(nossInfirmier));
+            stmt.setInt(2, Integer.MIN_VALUE);
+            stmt.setObject(3, null);
+            stmt.setNull(4, Types.INTEGER);
+        }, InfirmierDAO::mapRepas);
+    }
+
+    /**
+     * Construit un repas servi à partir de la ligne courante d'une lecture de la table repas.
+     *
+     * @param rs Le résultat positionné sur la ligne du repas
+     * @return Le repas, sans ses totaux nutritionnels
+     * @throws SQLException Si une colonne ne peut pas être lue
+     */
+    private static Repas mapRepas(ResultSet rs) throws SQLException {
+        // Récupération de la date de consommation avec le fuseau horaire
+        OffsetDateTime dateConsommation = rs.getObject("date_consommation", OffsetDateTime.class);
+
+        // Conversion de l'ENUM PostgreSQL vers un ENUM Java
+        TypeRepas typeRepas = TypeRepas.type(rs.getString("type"));
+
+        return new Repas(
+                Integer.toString(rs.getInt("noss_patient")),
+                Integer.toString(rs.getInt("noss_infirmier")),
+                dateConsommation,
+                rs.getString("remarque"),
+                typeRepas
+        );
+    }
 }
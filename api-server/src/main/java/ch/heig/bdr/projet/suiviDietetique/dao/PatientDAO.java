@@ -3,9 +3,11 @@ package ch.heig.bdr.projet.suiviDietetique.dao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import ch.heig.bdr.projet.suiviDietetique.config.Database;
 import ch.heig.bdr.projet.suiviDietetique.models.Allergene;
@@ -20,6 +22,18 @@ import ch.heig.bdr.projet.suiviDietetique.models.Patient;
  */
 public class PatientDAO {
 
+    /** Conversion d'une ligne de la vue patient_vue en patient */
+    private static final RowMapper<Patient> PATIENT_MAPPER = rs -> new Patient(
+            rs.getString("noss"),
+            rs.getString("noss_dieteticien"),
+            rs.getString("nom"),
+            rs.getString("prenom"),
+            rs.getString("email"),
+            rs.getDate("datenaissance"),
+            rs.getString("sexe"),
+            rs.getDate("dateadmission")
+    );
+
     /**
      * Insère un nouveau patient dans la base de données.
      * Cette opération est transactionnelle et insère les données à la fois dans
@@ -35,9 +49,7 @@ public class PatientDAO {
 
             try {
                 // Insérer dans la table personne
-                String insertPersonneQuery = "INSERT INTO personne (noSS, nom, prenom, dateNaissance, sexe) " +
-                        "VALUES (?, ?, ?, ?, ?::suivi_dietetique.sexe)";
-                try (PreparedStatement stmt = connection.prepareStatement(insertPersonneQuery)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PERSONNE_INSERT)) {
                     stmt.setInt(1, Integer.parseInt(patient.getNoSS()));
                     stmt.setString(2, patient.getNom());
                     stmt.setString(3, patient.getPrenom());
@@ -47,9 +59,7 @@ public class PatientDAO {
                 }
 
                 // Insérer dans la table patient
-                String insertPatientQuery = "INSERT INTO suivi_dietetique.patient (noSS, noSS_dieteticien) " +
-                        "VALUES (?, ?)";
-                try (PreparedStatement stmt = connection.prepareStatement(insertPatientQuery)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_INSERT)) {
                     if (patient.getNossDieteticien() == null) {
                         stmt.setNull(2, java.sql.Types.INTEGER);
                     } else {
@@ -59,9 +69,7 @@ public class PatientDAO {
                     stmt.executeUpdate();
                 }
 
-                String insertAllergy = "INSERT INTO est_allergique (noss_patient, nom_allergene) " +
-                    " VALUES (?,?)";
-                try (PreparedStatement stmt = connection.prepareStatement(insertAllergy)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGIE_INSERT)) {
                     for (Allergene allergene : patient.getAllergenes()) {
                         stmt.setInt(1, Integer.parseInt(patient.getNoSS()));
                         stmt.setString(2, allergene.getNomAllergene());
@@ -89,30 +97,26 @@ public class PatientDAO {
 
 
     /**
-     * Récupère la liste de tous les patients.
+     * Récupère une page de la liste des patients, triée par numéro de sécurité sociale.
      * Utilise la vue patient_vue qui combine les informations des tables
      * personne et patient.
      * 
-     * @return La liste de tous les patients
+     * @param apresNoss Le noSS du dernier patient de la page précédente (Integer.MIN_VALUE pour la première page)
+     * @param limite Le nombre maximal de patients à retourner
+     * @return Les patients dont le noSS suit celui donné
      */
-    public List<Patient> getAll() {
+    public List<Patient> getPage(int apresNoss, int limite) {
         List<Patient> patients = new ArrayList<>();
 
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM patient_vue";
-            try (PreparedStatement stmt = connection.prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    patients.add(new Patient(
-                            rs.getString("noss"),
-                            rs.getString("noss_dieteticien"),
-                            rs.getString("nom"),
-                            rs.getString("prenom"),
-                            rs.getString("email"),
-                            rs.getDate("datenaissance"),
-                            rs.getString("sexe"),
-                            rs.getDate("dateadmission")
-                    ));
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_PAGE)) {
+                stmt.setInt(1, apresNoss);
+                stmt.setInt(2, limite);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        patients.add(PATIENT_MAPPER.map(rs));
+                    }
                 }
             } catch (Exception e) {
                 System.err.println("Error:" + e.getMessage());
@@ -123,6 +127,21 @@ public class PatientDAO {
         return patients;
     }
 
+    /**
+     * Lit la liste complète des patients en flux, triée par numéro de sécurité sociale.
+     * Les patients sont lus par lots au fur et à mesure du parcours (voir {@link ResultStream}).
+     *
+     * @return Le flux des patients, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Patient> streamPatients() throws Exception {
+        // Requête de pagination sans borne : premier noSS possible et LIMIT NULL (sans limite)
+        return ResultStream.open(SqlStatement.PATIENT_GET_PAGE, stmt -> {
+            stmt.setInt(1, Integer.MIN_VALUE);
+            stmt.setNull(2, Types.INTEGER);
+        }, PATIENT_MAPPER);
+    }
+
     /**
      * Récupère un patient spécifique par son numéro de sécurité sociale.
      * 
@@ -131,21 +150,11 @@ public class PatientDAO {
      */
     public Patient getPatient(String noss) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM patient_vue WHERE noss = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_ONE)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        return new Patient(
-                                rs.getString("noss"),
-                                rs.getString("noss_dieteticien"),
-                                rs.getString("nom"),
-                                rs.getString("prenom"),
-                                rs.getString("email"),
-                                rs.getDate("datenaissance"),
-                                rs.getString("sexe"),
-                                rs.getDate("dateadmission")
-                        );
+                        return PATIENT_MAPPER.map(rs);
                     }
                 }
             }
@@ -165,21 +174,11 @@ public class PatientDAO {
         List<Patient> patients = new ArrayList<>();
 
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM patient_vue WHERE noss_dieteticien = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_BY_DIETETICIEN)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
-                        patients.add(new Patient(
-                                rs.getString("noss"),
-                                rs.getString("noss_dieteticien"),
-                                rs.getString("nom"),
-                                rs.getString("prenom"),
-                                rs.getString("email"),
-                                rs.getDate("datenaissance"),
-                                rs.getString("sexe"),
-                                rs.getDate("dateadmission")
-                        ));
+                        patients.add(PATIENT_MAPPER.map(rs));
                     }
                 }
             } catch (Exception e) {
@@ -199,10 +198,8 @@ public class PatientDAO {
      */
     public List<DonneeSante> getDonneeSantee(String noss) {
         List<DonneeSante> donneesSanteList = new ArrayList<>();
-        String query = "SELECT * FROM donnees_sante WHERE noSS_patient = ?";
-        
         try (Connection connection = Database.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(query)) {
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_DONNEES_SANTE)) {
             stmt.setInt(1, Integer.parseInt(noss));
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -232,10 +229,8 @@ public class PatientDAO {
      */
     public List<Objectif> getObjectif(String noss) {
         List<Objectif> objectifs = new ArrayList<>();
-        String query = "SELECT * FROM objectif WHERE noSS_patient = ?";
-        
         try (Connection connection = Database.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(query)) {
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_OBJECTIFS)) {
             stmt.setInt(1, Integer.parseInt(noss));
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -267,10 +262,8 @@ public class PatientDAO {
      */
     public List<Allergene> getAllergies(String noss) {
         List<Allergene> allergenes = new ArrayList<>();
-        String query = "SELECT nom_allergene FROM est_allergique WHERE noSS_patient = ?";
-    
         try (Connection connection = Database.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(query)) {
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_GET_ALLERGIES)) {
             stmt.setInt(1, Integer.parseInt(noss));
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -301,9 +294,7 @@ public class PatientDAO {
 
             try {
                 // Mise à jour des informations générales dans la table personne
-                String query1 = "UPDATE personne SET nom = ?, prenom = ?, datenaissance = ?, sexe = ?::suivi_dietetique.sexe " +
-                        "WHERE noss = ?";
-                try (PreparedStatement stmt = connection.prepareStatement(query1)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PERSONNE_UPDATE)) {
                     stmt.setString(1, updatedPatient.getNom());
                     stmt.setString(2, updatedPatient.getPrenom());
                     stmt.setDate(3, new java.sql.Date(updatedPatient.getDateNaissance().getTime()));
@@ -317,8 +308,7 @@ public class PatientDAO {
                 }
 
                 // Mise à jour des informations spécifiques au patient dans la table patient
-                String query2 = "UPDATE patient SET dateadmission = ?, noss_dieteticien = ? WHERE noss = ?";
-                try (PreparedStatement stmt = connection.prepareStatement(query2)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_UPDATE)) {
                     stmt.setDate(1, new java.sql.Date(updatedPatient.getDateAdmission().getTime()));
                     stmt.setInt(2, Integer.parseInt(updatedPatient.getNossDieteticien()));
                     stmt.setInt(3, Integer.parseInt(noss));
@@ -329,15 +319,13 @@ public class PatientDAO {
                     }
                 }
 
-                String deleteAllergy = "DELETE FROM est_allergique WHERE noss_patient = ?" ;
-                try (PreparedStatement stmt = connection.prepareStatement(deleteAllergy)) {
+                try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGIE_DELETE_BY_PATIENT)) {
                     stmt.setInt(1, Integer.parseInt(noss));
                     stmt.executeUpdate();
                 }
 
                 if (updatedPatient.getAllergenes() != null) {
-                    String insertAllergy = "INSERT INTO est_allergique (noss_patient, nom_allergene) VALUES (?, ?)" ;
-                    try (PreparedStatement stmt = connection.prepareStatement(insertAllergy)) {
+                    try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.ALLERGIE_INSERT)) {
                 
                         for (Allergene allergene : updatedPatient.getAllergenes()) {
                             stmt.setInt(1, Integer.parseInt(noss));
@@ -369,8 +357,7 @@ public class PatientDAO {
     public boolean deletePatient(String noss) {
         try (Connection connection = Database.getConnection()) {
             // Vérifie que la personne est un patient avant de la supprimer
-            String query = "DELETE FROM personne WHERE noss = ? AND noss IN (SELECT noss FROM patient)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.PATIENT_DELETE)) {
                 stmt.setInt(1, Integer.parseInt(noss));
     
                 int rowsAffected = stmt.executeUpdate();
@@ -3,10 +3,16 @@ package ch.heig.bdr.projet.suiviDietetique.dao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import ch.heig.bdr.projet.suiviDietetique.config.Database;
 import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
@@ -23,24 +29,17 @@ public class RepasDao {
     /**
      * Insère un nouveau repas avec ses consommables associés dans la base de données.
      * Cette opération est transactionnelle : soit tout est inséré, soit rien ne l'est.
-     * Vérifie également les allergies du patient avant l'insertion.
+     * Les allergies du patient sont vérifiées par la base (trigger tg_verifier_allergies).
      * 
      * @param repas Le repas à insérer avec ses consommables
-     * @throws RuntimeException Si une erreur survient lors de l'insertion ou si une allergie est détectée
+     * @throws AllergieException Si la base détecte une allergie
+     * @throws RuntimeException Si une autre erreur survient lors de l'insertion
      */
     public void insertRepas(Repas repas) {
         try (Connection connection = Database.getConnection()) {
             connection.setAutoCommit(false); // Commencer une transaction
     
-            String insertRepasQuery = "INSERT INTO suivi_dietetique.repas " +
-                                    "(noSS_patient, noSS_infirmier, type, remarque) " +
-                                    "VALUES (?, ?, ?::suivi_dietetique.type_repas, ?) RETURNING date_consommation";
-    
-            String insertConsommableQuery = "INSERT INTO suivi_dietetique.quantite_repas_consommable " +
-                                          "(id_consommable, noSS_patient, date_consommation, quantite) " +
-                                          "VALUES (?, ?, ?, ?)";
-    
-            try (PreparedStatement repasStmt = connection.prepareStatement(insertRepasQuery)) {
+            try (PreparedStatement repasStmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_INSERT)) {
                 // Ajouter les paramètres pour le repas
                 repasStmt.setInt(1, Integer.parseInt(repas.nossPatient));
     
@@ -57,16 +56,28 @@ public class RepasDao {
                     if (rs.next()) {
                         OffsetDateTime dateConsommation = rs.getObject("date_consommation", OffsetDateTime.class);
     
-                        // Insérer les consommables associés
-                        try (PreparedStatement consommableStmt = connection.prepareStatement(insertConsommableQuery)) {
-                            for (var conso : repas.consommableQuantities) {
-                                consommableStmt.setInt(1, conso.getId());
-                                consommableStmt.setInt(2, Integer.parseInt(repas.nossPatient));
-                                consommableStmt.setObject(3, dateConsommation);
-                                consommableStmt.setInt(4, conso.getQuantite());
-                                consommableStmt.addBatch();
+                        // Insérer les consommables associés en une instruction : les triggers ne s'exécutent qu'une fois
+                        List<ConsommableQuantity> consommables = repas.consommableQuantities;
+                        if (consommables != null && !consommables.isEmpty()) {
+                            int nombre = consommables.size();
+                            Integer[] ids = new Integer[nombre];
+                            Integer[] patients = new Integer[nombre];
+                            OffsetDateTime[] dates = new OffsetDateTime[nombre];
+                            Integer[] quantites = new Integer[nombre];
+                            for (int i = 0; i < nombre; i++) {
+                                ids[i] = consommables.get(i).getId();
+                                patients[i] = Integer.parseInt(repas.nossPatient);
+                                dates[i] = dateConsommation;
+                                quantites[i] = consommables.get(i).getQuantite();
+                            }
+                            try (PreparedStatement consommableStmt = StatementRegistry.prepare(connection,
+                                    SqlStatement.REPAS_CONSOMMABLE_INSERT_LOT)) {
+                                consommableStmt.setArray(1, connection.createArrayOf("integer", ids));
+                                consommableStmt.setArray(2, connection.createArrayOf("integer", patients));
+                                consommableStmt.setArray(3, connection.createArrayOf("timestamptz", dates));
+                                consommableStmt.setArray(4, connection.createArrayOf("integer", quantites));
+                                consommableStmt.executeUpdate();
                             }
-                            consommableStmt.executeBatch(); // Exécuter toutes les requêtes du batch
                         }
                     }
                 }
@@ -74,11 +85,13 @@ public class RepasDao {
                 connection.commit(); // Valider la transaction
             } catch (Exception e) {
                 connection.rollback(); // Annuler toute la transaction en cas d'erreur
-                if (e.getMessage().contains("allergique")) {
-                    throw new RuntimeException("Erreur d'allergie détectée : " + e.getMessage());
+                if (isAllergie(e)) {
+                    throw new AllergieException("Erreur d'allergie détectée : " + e.getMessage(), List.of());
                 }
                 throw e; // Rejeter d'autres erreurs
             }
+        } catch (AllergieException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de l'insertion du repas : " + e.getMessage());
@@ -86,45 +99,147 @@ public class RepasDao {
     }
 
     /**
-     * Récupère la liste des repas d'un patient sur un intervalle de temps spécifique.
-     * Les repas sont triés par date de consommation décroissante et incluent
-     * les statistiques nutritionnelles calculées.
+     * Insère un lot de repas (de patients quelconques) et leurs consommables dans une seule
+     * transaction, en deux instructions quel que soit le nombre de repas : les triggers
+     * (vérification des allergies, totaux, statistiques, versions) ne sont exécutés qu'une
+     * fois pour tout le lot. Un repas sans date reçoit l'heure de la transaction, décalée
+     * d'une seconde par repas sans date du même patient plus tôt dans le lot. Un repas dont
+     * la date est déjà prise pour son patient, en base ou plus tôt dans le lot, n'est pas inséré.
+     *
+     * @param lot Les repas à insérer (patient et type renseignés)
+     * @return Pour chaque repas du lot, dans l'ordre, sa date de consommation enregistrée (à la
+     *         microseconde), ou null s'il n'a pas été inséré
+     * @throws AllergieException Si la base détecte une allergie : aucun repas n'est inséré
+     * @throws RuntimeException Si une autre erreur survient : aucun repas n'est inséré
+     */
+    public List<OffsetDateTime> insertRepasLot(List<Repas> lot) {
+        int taille = lot.size();
+        Integer[] patients = new Integer[taille];
+        Integer[] infirmiers = new Integer[taille];
+        OffsetDateTime[] dates = new OffsetDateTime[taille];
+        Integer[] decalages = new Integer[taille];
+        Map<Integer, Integer> sansDate = new HashMap<>();
+        String[] types = new String[taille];
+        String[] remarques = new String[taille];
+        for (int i = 0; i < taille; i++) {
+            Repas repas = lot.get(i);
+            patients[i] = Integer.parseInt(repas.nossPatient);
+            infirmiers[i] = repas.nossInfirmier == null || repas.nossInfirmier.isEmpty()
+                    ? null : Integer.valueOf(repas.nossInfirmier);
+            dates[i] = repas.dateConsommation;
+            decalages[i] = dates[i] != null ? 0 : sansDate.merge(patients[i], 1, Integer::sum) - 1;
+            types[i] = repas.type.name;
+            remarques[i] = repas.comment;
+        }
+
+        try (Connection connection = Database.getConnection()) {
+            connection.setAutoCommit(false); // Commencer une transaction
+
+            try {
+                // Date enregistrée de chaque repas inséré, à la position du repas dans le lot
+                OffsetDateTime[] inseres = new OffsetDateTime[taille];
+                try (PreparedStatement repasStmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_INSERT_LOT)) {
+                    repasStmt.setArray(1, connection.createArrayOf("integer", patients));
+                    repasStmt.setArray(2, connection.createArrayOf("integer", infirmiers));
+                    repasStmt.setArray(3, connection.createArrayOf("timestamptz", dates));
+                    repasStmt.setArray(4, connection.createArrayOf("integer", decalages));
+                    repasStmt.setArray(5, connection.createArrayOf("text", types));
+                    repasStmt.setArray(6, connection.createArrayOf("text", remarques));
+                    try (ResultSet rs = repasStmt.executeQuery()) {
+                        while (rs.next()) {
+                            inseres[rs.getInt("indice") - 1] = rs.getObject("date_consommation", OffsetDateTime.class);
+                        }
+                    }
+                }
+
+                List<OffsetDateTime> resultats = Arrays.asList(inseres);
+                List<Integer> consoIds = new ArrayList<>();
+                List<Integer> consoPatients = new ArrayList<>();
+                List<OffsetDateTime> consoDates = new ArrayList<>();
+                List<Integer> consoQuantites = new ArrayList<>();
+                for (int i = 0; i < taille; i++) {
+                    List<ConsommableQuantity> consommables = lot.get(i).consommableQuantities;
+                    if (inseres[i] == null || consommables == null) {
+                        continue;
+                    }
+                    for (ConsommableQuantity conso : consommables) {
+                        consoIds.add(conso.getId());
+                        consoPatients.add(patients[i]);
+                        consoDates.add(inseres[i]);
+                        consoQuantites.add(conso.getQuantite());
+                    }
+                }
+
+                if (!consoIds.isEmpty()) {
+                    try (PreparedStatement consommableStmt = StatementRegistry.prepare(connection,
+                            SqlStatement.REPAS_CONSOMMABLE_INSERT_LOT)) {
+                        consommableStmt.setArray(1, connection.createArrayOf("integer", consoIds.toArray()));
+                        consommableStmt.setArray(2, connection.createArrayOf("integer", consoPatients.toArray()));
+                        consommableStmt.setArray(3, connection.createArrayOf("timestamptz", consoDates.toArray()));
+                        consommableStmt.setArray(4, connection.createArrayOf("integer", consoQuantites.toArray()));
+                        consommableStmt.executeUpdate();
+                    }
+                }
+
+                connection.commit(); // Valider la transaction
+                return resultats;
+            } catch (Exception e) {
+                connection.rollback(); // Annuler tout le lot en cas d'erreur
+                if (isAllergie(e)) {
+                    throw new AllergieException("Erreur d'allergie détectée : " + e.getMessage(), List.of());
+                }
+                throw e;
+            }
+        } catch (AllergieException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de l'insertion du lot de repas : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vérifie si une erreur provient du trigger de vérification des allergies.
+     * Pour une insertion par lot, l'erreur d'origine est chaînée à l'exception du lot.
+     *
+     * @param e L'erreur levée pendant l'insertion
+     * @return true si l'erreur a le code SQLSTATE des allergies
+     */
+    private static boolean isAllergie(Exception e) {
+        SQLException sqlException = e instanceof SQLException ? (SQLException) e : null;
+        while (sqlException != null) {
+            if (AllergieException.SQLSTATE.equals(sqlException.getSQLState())) {
+                return true;
+            }
+            sqlException = sqlException.getNextException();
+        }
+        return false;
+    }
+
+    /**
+     * Récupère une page des repas d'un patient, triés par date de consommation décroissante,
+     * éventuellement limités à un intervalle de temps.
+     * Les repas incluent leurs totaux nutritionnels stockés.
      * 
      * @param noSS_patient Le numéro de sécurité sociale du patient
-     * @param interval L'intervalle de temps (format accepté par PostgreSQL)
-     * @return La liste des repas avec leurs statistiques nutritionnelles
+     * @param interval L'intervalle de temps (format accepté par PostgreSQL), ou null pour tout l'historique
+     * @param avant La date du dernier repas de la page précédente (null pour la première page)
+     * @param limite Le nombre maximal de repas à retourner
+     * @return Les repas antérieurs à la date donnée, du plus récent au plus ancien
      */
-    public List<Repas> getRepasPatient_interval(String noSS_patient, String interval) {
+    public List<Repas> getRepasPatientPage(String noSS_patient, String interval, OffsetDateTime avant, int limite) {
         List<Repas> repas = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * " +
-                         "FROM suivi_dietetique.getRepasWithStats_Interval(?, ?)" +
-                         "ORDER BY date_consommation DESC";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_GET_PAGE)) {
                 stmt.setInt(1, Integer.parseInt(noSS_patient));
-                stmt.setString(2, interval);
+                stmt.setObject(2, avant);
+                stmt.setString(3, interval);
+                stmt.setInt(4, limite);
 
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
                         // Conversion de la date (timestamptz vers OffsetDateTime)
                         OffsetDateTime dateConsommation = rs.getObject("date_consommation", OffsetDateTime.class);
-
-                        // Conversion de l'ENUM PostgreSQL vers un ENUM Java
-                        String typeRepasString = rs.getString("type_repas");
-                        TypeRepas typeRepas = TypeRepas.type(typeRepasString);
-
-                        repas.add(new Repas(
-                                noSS_patient,
-                                rs.getString("noss_infirmier"),
-                                dateConsommation,
-                                rs.getString("remarque"),
-                                typeRepas,
-                                rs.getDouble("total_proteines"),
-                                rs.getDouble("total_glucides"),
-                                rs.getDouble("total_lipides"),
-                                rs.getDouble("total_calories"),
-                                rs.getInt("total_hydratation")
-                        ));
+                        repas.add(mapRepas(rs, noSS_patient, dateConsommation));
                     }
                 }
             }
@@ -134,6 +249,26 @@ public class RepasDao {
         return repas;
     }
 
+    /**
+     * Lit en flux tous les repas d'un patient, triés par date de consommation décroissante,
+     * éventuellement limités à un intervalle de temps. Les repas sont lus par lots au fur et
+     * à mesure du parcours (voir {@link ResultStream}).
+     *
+     * @param noSS_patient Le numéro de sécurité sociale du patient
+     * @param interval L'intervalle de temps (format accepté par PostgreSQL), ou null pour tout l'historique
+     * @return Le flux des repas du patient, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Repas> streamRepasPatient(String noSS_patient, String interval) throws Exception {
+        // Requête de pagination sans borne : aucune date de départ et LIMIT NULL (sans limite)
+        return ResultStream.open(SqlStatement.REPAS_GET_PAGE, stmt -> {
+            stmt.setInt(1, Integer.parseInt(noSS_patient));
+            stmt.setObject(2, null);
+            stmt.setString(3, interval);
+            stmt.setNull(4, Types.INTEGER);
+        }, rs -> mapRepas(rs, noSS_patient, rs.getObject("date_consommation", OffsetDateTime.class)));
+    }
+
     /**
      * Récupère tous les repas d'un patient, triés par date de consommation décroissante.
      * Inclut les statistiques nutritionnelles calculées pour chaque repas.
@@ -144,30 +279,13 @@ public class RepasDao {
     public List<Repas> getRepasPatient_All(String noSS_patient) {
         List<Repas> repas = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * " +
-                         "FROM suivi_dietetique.getAllRepasWithStats(?) " +
-                         "ORDER BY date_consommation DESC";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_GET_BY_PATIENT)) {
                 stmt.setInt(1, Integer.parseInt(noSS_patient));
 
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
                         OffsetDateTime dateConsommation = rs.getObject("date_consommation", OffsetDateTime.class);
-                        String typeRepasString = rs.getString("type_repas");
-                        TypeRepas typeRepas = TypeRepas.type(typeRepasString);
-
-                        repas.add(new Repas(
-                                noSS_patient,
-                                rs.getString("noss_infirmier"),
-                                dateConsommation,
-                                rs.getString("remarque"),
-                                typeRepas,
-                                rs.getDouble("total_proteines"),
-                                rs.getDouble("total_glucides"),
-                                rs.getDouble("total_lipides"),
-                                rs.getDouble("total_calories"),
-                                rs.getInt("total_hydratation")
-                        ));
+                        repas.add(mapRepas(rs, noSS_patient, dateConsommation));
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -189,34 +307,17 @@ public class RepasDao {
     public Repas getOneRepas(String noss_Patient, OffsetDateTime date) {
         Repas repas = null;
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * " +
-                         "FROM suivi_dietetique.getAllRepasWithStats(?) " +
-                         "WHERE date_trunc('second', date_consommation) = date_trunc('second', ?)";
-    
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_GET_ONE)) {
                 stmt.setInt(1, Integer.parseInt(noss_Patient));
     
                 // Convertir la date en UTC pour la comparaison
                 OffsetDateTime utcDate = date.withOffsetSameInstant(ZoneOffset.UTC);
                 stmt.setObject(2, utcDate);
-    
+                stmt.setObject(3, utcDate);
+
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        String typeRepasString = rs.getString("type_repas");
-                        TypeRepas typeRepas = TypeRepas.type(typeRepasString);
-            
-                        repas = new Repas(
-                                noss_Patient,
-                                rs.getString("noss_infirmier"),
-                                date,
-                                rs.getString("remarque"),
-                                typeRepas,
-                                rs.getDouble("total_proteines"),
-                                rs.getDouble("total_glucides"),
-                                rs.getDouble("total_lipides"),
-                                rs.getDouble("total_calories"),
-                                rs.getInt("total_hydratation")
-                        );
+                        repas = mapRepas(rs, noss_Patient, date);
                     }
                 }
             }
@@ -226,6 +327,43 @@ public class RepasDao {
         return repas;
     }
 
+    /**
+     * Construit un repas à partir de la ligne courante d'une lecture de repas.
+     * Les totaux nutritionnels sont ceux stockés avec le repas lors de son insertion.
+     *
+     * @param rs Le résultat positionné sur la ligne du repas
+     * @param noss_Patient Le numéro de sécurité sociale du patient
+     * @param dateConsommation La date de consommation du repas
+     * @return Le repas avec ses totaux nutritionnels
+     * @throws SQLException Si une colonne ne peut pas être lue
+     */
+    private static Repas mapRepas(ResultSet rs, String noss_Patient, OffsetDateTime dateConsommation) throws SQLException {
+        // Conversion de l'ENUM PostgreSQL vers un ENUM Java
+        TypeRepas typeRepas = TypeRepas.type(rs.getString("type_repas"));
+
+        Repas repas = new Repas(
+                noss_Patient,
+                rs.getString("noss_infirmier"),
+                dateConsommation,
+                rs.getString("remarque"),
+                typeRepas,
+                rs.getDouble("total_proteines"),
+                rs.getDouble("total_glucides"),
+                rs.getDouble("total_lipides"),
+                rs.getDouble("total_calories"),
+                rs.getInt("total_hydratation")
+        );
+        repas.totalPotassium = rs.getDouble("total_potassium");
+        repas.totalCholesterol = rs.getDouble("total_cholesterol");
+        repas.totalSodium = rs.getDouble("total_sodium");
+        repas.totalVitA = rs.getDouble("total_vit_A");
+        repas.totalVitC = rs.getDouble("total_vit_C");
+        repas.totalVitD = rs.getDouble("total_vit_D");
+        repas.totalCalcium = rs.getDouble("total_calcium");
+        repas.totalFer = rs.getDouble("total_fer");
+        return repas;
+    }
+
     /**
      * Récupère la liste des consommables et leurs quantités pour un repas spécifique.
      * Les consommables sont triés par nom décroissant et incluent toutes leurs
@@ -238,17 +376,13 @@ public class RepasDao {
     public List<ConsommableQuantity> getConsommablesOfRepas(String noss, OffsetDateTime date) {
         List<ConsommableQuantity> consommableQuantities = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * " +
-                         "FROM suivi_dietetique.consommables_repas " +
-                         "WHERE noss_patient = ? AND date_trunc('second', date_consommation) = date_trunc('second', ?) " +
-                         "ORDER BY consommable_nom DESC";
-
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_GET_CONSOMMABLES)) {
                 stmt.setInt(1, Integer.parseInt(noss));
 
                 // Convertir la date en UTC pour la requête
                 OffsetDateTime utcDate = date.withOffsetSameInstant(ZoneOffset.UTC);
                 stmt.setObject(2, utcDate);
+                stmt.setObject(3, utcDate);
 
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
@@ -295,11 +429,10 @@ public class RepasDao {
      */
     public boolean deleteRepasPatient(String noSS_patient, OffsetDateTime dateConsommation) {
         try (Connection connection = Database.getConnection()) {
-            String query = "DELETE FROM suivi_dietetique.repas WHERE noss_patient = ? " +
-                         "AND date_trunc('second', date_consommation) = date_trunc('second', ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.REPAS_DELETE)) {
                 stmt.setInt(1, Integer.parseInt(noSS_patient));
                 stmt.setObject(2, dateConsommation);
+                stmt.setObject(3, dateConsommation);
                 stmt.executeUpdate();
                 return true;
             }
@@ -0,0 +1,134 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+
+/**
+ * Lecture en flux du résultat d'une requête nommée, pour les listes complètes (exports).
+ *
+ * Par défaut, le pilote PostgreSQL charge tout le résultat en mémoire dès l'exécution.
+ * Ici, la requête est exécutée dans une transaction (auto-commit désactivé) avec une taille
+ * de lot (setFetchSize) : le pilote lit alors le résultat par un curseur côté serveur, lot
+ * par lot, et seules les lignes du lot courant sont en mémoire. Chaque ligne est convertie
+ * à la demande, au fur et à mesure de la consommation du flux.
+ *
+ * La connexion reste empruntée au pool jusqu'à la fermeture du flux, qui doit donc être
+ * fermé par l'appelant (try-with-resources).
+ */
+public final class ResultStream {
+    /** Nombre de lignes lues par aller-retour avec la base */
+    private static final int FETCH_SIZE = Env.getInt("DB_FETCH_SIZE", 500);
+
+    /** Classe utilitaire, non instanciable */
+    private ResultStream() {}
+
+    /**
+     * Affectation des paramètres d'une requête préparée.
+     */
+    @FunctionalInterface
+    public interface Parametres {
+        /**
+         * Affecte les paramètres de la requête.
+         *
+         * @param stmt La requête préparée
+         * @throws SQLException Si un paramètre ne peut pas être affecté
+         */
+        void affecter(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Exécute une requête nommée et retourne ses lignes sous forme de flux.
+     * Les erreurs de préparation ou d'exécution sont levées immédiatement ; une erreur
+     * de lecture pendant le parcours est levée par le flux (RuntimeException).
+     *
+     * @param statement La requête à exécuter
+     * @param parametres L'affectation des paramètres de la requête
+     * @param mapper La conversion d'une ligne en objet
+     * @param <T> Le type des éléments du flux
+     * @return Le flux des lignes converties, à fermer par l'appelant
+     * @throws Exception Si aucune connexion n'est disponible ou si la requête échoue
+     */
+    public static <T> Stream<T> open(SqlStatement statement, Parametres parametres, RowMapper<T> mapper) throws Exception {
+        Connection connection = Database.getConnection();
+        PreparedStatement stmt = null;
+        try {
+            // Le curseur côté serveur n'est utilisé qu'à l'intérieur d'une transaction
+            connection.setAutoCommit(false);
+            stmt = StatementRegistry.prepare(connection, statement);
+            stmt.setFetchSize(FETCH_SIZE);
+            parametres.affecter(stmt);
+            ResultSet rs = stmt.executeQuery();
+            PreparedStatement ouverte = stmt;
+            return StreamSupport.stream(new Lignes<>(rs, mapper), false)
+                    .onClose(() -> fermer(connection, ouverte, rs));
+        } catch (Exception e) {
+            fermer(connection, stmt, null);
+            throw e;
+        }
+    }
+
+    /**
+     * Libère le résultat, la requête et la connexion, puis termine la transaction de lecture.
+     *
+     * @param connection La connexion empruntée
+     * @param stmt La requête préparée, ou null
+     * @param rs Le résultat, ou null
+     */
+    private static void fermer(Connection connection, PreparedStatement stmt, ResultSet rs) {
+        try (connection) {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+                if (stmt != null) {
+                    stmt.close();
+                }
+            } finally {
+                // Lecture seule : l'annulation termine la transaction et ferme le curseur
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une lecture en flux : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parcours des lignes d'un résultat, converties une à une.
+     *
+     * @param <T> Le type des éléments
+     */
+    private static final class Lignes<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+
+        Lignes(ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new RuntimeException("Erreur lors de la lecture des résultats : " + e.getMessage(), e);
+            }
+        }
+    }
+}
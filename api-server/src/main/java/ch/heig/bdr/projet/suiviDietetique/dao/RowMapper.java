@@ -0,0 +1,22 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Conversion de la ligne courante d'un résultat de requête en objet.
+ * Partagée par les lectures en liste et par les lectures en flux ({@link ResultStream}).
+ *
+ * @param <T> Le type des objets construits
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Construit un objet à partir de la ligne courante.
+     *
+     * @param rs Le résultat positionné sur la ligne à convertir
+     * @return L'objet correspondant à la ligne
+     * @throws SQLException Si une colonne ne peut pas être lue
+     */
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,108 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.security.Role;
+import ch.heig.bdr.projet.suiviDietetique.security.UserSession;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Classe d'accès aux données (DAO) pour la table Session.
+ * Les sessions sont identifiées par l'empreinte de leur jeton : le jeton lui-même
+ * n'est jamais stocké en base.
+ * Contrairement aux autres DAO, les erreurs sont propagées : une session qui n'a pas
+ * pu être enregistrée ne doit pas être considérée comme ouverte.
+ */
+public class SessionDAO {
+
+    /**
+     * Enregistre une nouvelle session.
+     *
+     * @param id L'empreinte du jeton de session
+     * @param session La session à enregistrer
+     * @throws Exception Si l'insertion échoue
+     */
+    public void insert(String id, UserSession session) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.SESSION_INSERT)) {
+            stmt.setString(1, id);
+            stmt.setString(2, session.getUsername());
+            stmt.setString(3, session.getRole().toString());
+            stmt.setInt(4, session.getNoss());
+            stmt.setTimestamp(5, Timestamp.from(session.getExpiresAt()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recherche une session non expirée.
+     *
+     * @param id L'empreinte du jeton de session
+     * @return La session trouvée, ou null si elle n'existe pas ou a expiré
+     * @throws Exception Si la lecture échoue
+     */
+    public UserSession find(String id) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.SESSION_FIND)) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new UserSession(
+                            rs.getString("email"),
+                            Role.fromName(rs.getString("role")),
+                            rs.getInt("noSS"),
+                            rs.getTimestamp("expiration").toInstant()
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Repousse l'expiration d'une session.
+     *
+     * @param id L'empreinte du jeton de session
+     * @param expiresAt Le nouvel instant d'expiration
+     * @throws Exception Si la mise à jour échoue
+     */
+    public void touch(String id, Instant expiresAt) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.SESSION_TOUCH)) {
+            stmt.setTimestamp(1, Timestamp.from(expiresAt));
+            stmt.setString(2, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Supprime une session.
+     *
+     * @param id L'empreinte du jeton de session
+     * @throws Exception Si la suppression échoue
+     */
+    public void delete(String id) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.SESSION_DELETE)) {
+            stmt.setString(1, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Supprime toutes les sessions expirées.
+     *
+     * @return Le nombre de sessions supprimées
+     * @throws Exception Si la suppression échoue
+     */
+    public int deleteExpired() throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.SESSION_DELETE_EXPIRED)) {
+            return stmt.executeUpdate();
+        }
+    }
+}
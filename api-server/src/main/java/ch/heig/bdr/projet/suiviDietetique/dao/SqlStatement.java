@@ -0,0 +1,335 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+/**
+ * Registre central des requêtes SQL nommées utilisées par les DAO.
+ * Chaque requête est déclarée une seule fois ici et préparée via
+ * {@link StatementRegistry#prepare}, ce qui garantit un texte SQL identique
+ * d'un appel à l'autre : le pilote PostgreSQL peut ainsi réutiliser la requête
+ * préparée côté serveur sur chaque connexion du pool, sans nouvelle analyse
+ * ni nouvelle planification.
+ */
+public enum SqlStatement {
+
+    // ---------------------------------------------------------------- Allergènes
+    /** Liste des allergènes distincts déclarés pour au moins un patient */
+    ALLERGENE_GET_ALL("SELECT DISTINCT(nom_allergene) FROM suivi_dietetique.est_allergique"),
+
+    /** Allergènes que peut contenir chaque consommable */
+    ALLERGENE_CONSOMMABLE_GET_ALL("SELECT id_consommable, nom_allergene FROM suivi_dietetique.peut_contenir"),
+
+    /** Allergies de tous les patients */
+    ALLERGIE_GET_ALL("SELECT noSS_patient, nom_allergene FROM suivi_dietetique.est_allergique"),
+
+    /** Consommables d'une liste contenant un allergène du patient, avec l'allergène concerné */
+    ALLERGIE_FIND_CONFLITS("SELECT pc.id_consommable, pc.nom_allergene " +
+            "FROM suivi_dietetique.est_allergique ea " +
+            "JOIN suivi_dietetique.peut_contenir pc ON pc.nom_allergene = ea.nom_allergene " +
+            "WHERE ea.noSS_patient = ? AND pc.id_consommable = ANY(?)"),
+
+    // ---------------------------------------------------------------- Consommables
+    /** Catalogue complet des consommables avec leurs valeurs nutritionnelles */
+    CONSOMMABLE_GET_ALL("SELECT id, " +
+            "nom, " +
+            "type, " +
+            "calories, " +
+            "proteines, " +
+            "(glucides).fibres AS fibres, " +
+            "(glucides).sucre AS sucre, " +
+            "(lipides).total AS lipides_total, " +
+            "(lipides).gras_satures AS gras_satures, " +
+            "potassium, " +
+            "cholesterol, " +
+            "sodium, " +
+            "vit_A, " +
+            "vit_C, " +
+            "vit_D, " +
+            "calcium, " +
+            "fer " +
+            "FROM suivi_dietetique.consommable " +
+            "ORDER BY id ASC"),
+
+    // ---------------------------------------------------------------- Diététiciens
+    /** Diététicien par numéro de sécurité sociale */
+    DIETETICIEN_GET_ONE("SELECT * FROM dieteticien_vue WHERE noss = ?"),
+
+    /** Diététicien qui suit un patient */
+    DIETETICIEN_GET_BY_PATIENT("SELECT * FROM dieteticien_vue " +
+            "WHERE noss = (SELECT noss_dieteticien " +
+            "             FROM patient_vue " +
+            "             WHERE noss = ?)"),
+
+    /** Liste de tous les diététiciens */
+    DIETETICIEN_GET_ALL("SELECT * FROM dieteticien_vue"),
+
+    /** Objectifs fixés par un diététicien */
+    DIETETICIEN_GET_OBJECTIFS("SELECT * FROM objectif WHERE noss_dieteticien = ?"),
+
+    // ---------------------------------------------------------------- Données de santé
+    /** Insertion d'une mesure de santé, datée par la base (date retournée) */
+    DONNEE_SANTE_INSERT("INSERT INTO suivi_dietetique.donnees_sante " +
+            "(noSS_patient, taille, poids, tourDeTaille, niveauActivitePhysique) " +
+            "VALUES (?, ?, ?, ?, ?::suivi_dietetique.niveau_activite) " +
+            "RETURNING date"),
+
+    /** Mesures de santé d'un patient, par date croissante (ordre de la clé primaire) */
+    DONNEE_SANTE_SERIE("SELECT date, taille, poids, tourDeTaille, niveauActivitePhysique " +
+            "FROM suivi_dietetique.donnees_sante " +
+            "WHERE noSS_patient = ? " +
+            "ORDER BY date"),
+
+    /** Suppression d'une mesure de santé (date comparée à la seconde près) */
+    DONNEE_SANTE_DELETE("DELETE FROM suivi_dietetique.donnees_sante " +
+            "WHERE noss_patient = ? AND " + Conditions.memeSeconde("date")),
+
+    // ---------------------------------------------------------------- Infirmiers
+    /** Infirmier par numéro de sécurité sociale */
+    INFIRMIER_GET_ONE("SELECT * FROM infirmier_vue WHERE noss = ?"),
+
+    /** Liste de tous les infirmiers */
+    INFIRMIER_GET_ALL("SELECT * FROM infirmier_vue"),
+
+    /** Page des repas servis par un infirmier, après la clé (patient, date) donnée (date null : première page) */
+    INFIRMIER_GET_REPAS_PAGE("SELECT * FROM repas WHERE noss_infirmier = ? " +
+            "AND (noss_patient, date_consommation) > (?, COALESCE(?::TIMESTAMPTZ, '-infinity')) " +
+            "ORDER BY noss_patient, date_consommation LIMIT ?"),
+
+    // ---------------------------------------------------------------- Patients
+    /** Insertion des informations générales d'une personne */
+    PERSONNE_INSERT("INSERT INTO personne (noSS, nom, prenom, dateNaissance, sexe) " +
+            "VALUES (?, ?, ?, ?, ?::suivi_dietetique.sexe)"),
+
+    /** Mise à jour des informations générales d'une personne */
+    PERSONNE_UPDATE("UPDATE personne SET nom = ?, prenom = ?, datenaissance = ?, sexe = ?::suivi_dietetique.sexe " +
+            "WHERE noss = ?"),
+
+    /** Insertion des informations spécifiques d'un patient */
+    PATIENT_INSERT("INSERT INTO suivi_dietetique.patient (noSS, noSS_dieteticien) VALUES (?, ?)"),
+
+    /** Mise à jour des informations spécifiques d'un patient */
+    PATIENT_UPDATE("UPDATE patient SET dateadmission = ?, noss_dieteticien = ? WHERE noss = ?"),
+
+    /** Suppression d'un patient (et de la personne associée) */
+    PATIENT_DELETE("DELETE FROM personne WHERE noss = ? AND noss IN (SELECT noss FROM patient)"),
+
+    /**
+     * Page de patients, après le noSS donné. Les noSS de la page sont choisis dans la table
+     * patient avant la jointure de la vue : la condition noss > ? ne porte que sur patient et,
+     * dans le plan générique, les tables jointes seraient sinon lues depuis leur début. Les noSS
+     * sont passés sous forme de tableau (calculé une seule fois) : la vue est alors lue par clé,
+     * alors qu'une semi-jointure par fusion relirait patient depuis le début jusqu'au curseur.
+     */
+    PATIENT_GET_PAGE("SELECT * FROM patient_vue " +
+            "WHERE noss = ANY(ARRAY(SELECT noss FROM patient WHERE noss > ? ORDER BY noss LIMIT ?)) " +
+            "ORDER BY noss"),
+
+    /** Patient par numéro de sécurité sociale */
+    PATIENT_GET_ONE("SELECT * FROM patient_vue WHERE noss = ?"),
+
+    /** Patients suivis par un diététicien */
+    PATIENT_GET_BY_DIETETICIEN("SELECT * FROM patient_vue WHERE noss_dieteticien = ?"),
+
+    /** Historique des données de santé d'un patient */
+    PATIENT_GET_DONNEES_SANTE("SELECT * FROM donnees_sante WHERE noSS_patient = ?"),
+
+    /** Objectifs d'un patient */
+    PATIENT_GET_OBJECTIFS("SELECT * FROM objectif WHERE noSS_patient = ?"),
+
+    /** Allergies d'un patient */
+    PATIENT_GET_ALLERGIES("SELECT nom_allergene FROM est_allergique WHERE noSS_patient = ?"),
+
+    /** Ajout d'une allergie à un patient */
+    ALLERGIE_INSERT("INSERT INTO est_allergique (noss_patient, nom_allergene) VALUES (?, ?)"),
+
+    /** Suppression de toutes les allergies d'un patient */
+    ALLERGIE_DELETE_BY_PATIENT("DELETE FROM est_allergique WHERE noss_patient = ?"),
+
+    // ---------------------------------------------------------------- Repas
+    /** Insertion d'un repas, retourne sa date de consommation */
+    REPAS_INSERT("INSERT INTO suivi_dietetique.repas " +
+            "(noSS_patient, noSS_infirmier, type, remarque) " +
+            "VALUES (?, ?, ?::suivi_dietetique.type_repas, ?) RETURNING date_consommation"),
+
+    /**
+     * Insertion d'un lot de repas en une instruction, à partir de tableaux (un élément par repas).
+     * Une date absente est remplacée par l'heure de début de la transaction, comme pour REPAS_INSERT,
+     * plus un décalage en secondes qui distingue les repas sans date d'un même patient.
+     * Un repas dont la date est déjà prise pour ce patient (en base ou plus tôt dans le lot)
+     * est ignoré. Chaque repas inséré est retourné avec sa date enregistrée (à la microseconde)
+     * et l'indice (à partir de 1) du premier repas du lot ayant son patient et sa date.
+     */
+    REPAS_INSERT_LOT("WITH l AS (" +
+            "SELECT l.*, COALESCE(l.date_consommation, now() + l.decalage * INTERVAL '1 second') AS date_repas " +
+            "FROM unnest(?::INTEGER[], ?::INTEGER[], ?::TIMESTAMPTZ[], ?::INTEGER[], ?::TEXT[], ?::TEXT[]) " +
+            "WITH ORDINALITY AS l(noss_patient, noss_infirmier, date_consommation, decalage, type, remarque, indice)), " +
+            "inseres AS (INSERT INTO suivi_dietetique.repas " +
+            "(noSS_patient, noSS_infirmier, date_consommation, type, remarque) " +
+            "SELECT noss_patient, noss_infirmier, date_repas, type::suivi_dietetique.type_repas, remarque " +
+            "FROM l ORDER BY indice " +
+            "ON CONFLICT (noSS_patient, date_consommation) DO NOTHING " +
+            "RETURNING noSS_patient, date_consommation) " +
+            "SELECT DISTINCT ON (i.noSS_patient, i.date_consommation) l.indice, i.date_consommation " +
+            "FROM inseres i JOIN l ON l.noss_patient = i.noSS_patient AND l.date_repas = i.date_consommation " +
+            "ORDER BY i.noSS_patient, i.date_consommation, l.indice"),
+
+    /**
+     * Insertion des consommables d'un repas ou d'un lot de repas en une instruction (un élément
+     * par consommable) : les triggers par instruction ne s'exécutent qu'une fois
+     */
+    REPAS_CONSOMMABLE_INSERT_LOT("INSERT INTO suivi_dietetique.quantite_repas_consommable " +
+            "(id_consommable, noSS_patient, date_consommation, quantite) " +
+            "SELECT * FROM unnest(?::INTEGER[], ?::INTEGER[], ?::TIMESTAMPTZ[], ?::INTEGER[])"),
+
+    /**
+     * Page des repas d'un patient, du plus récent au plus ancien, antérieurs à la date donnée
+     * (null : première page) et éventuellement limités à un intervalle (null : tout l'historique)
+     */
+    REPAS_GET_PAGE("SELECT " + Columns.REPAS_TOTAUX + " " +
+            "FROM suivi_dietetique.repas " +
+            "WHERE noss_patient = ? AND nb_consommables > 0 " +
+            "AND date_consommation < COALESCE(?::TIMESTAMPTZ, 'infinity') " +
+            "AND date_consommation >= COALESCE(CURRENT_DATE - ?::INTERVAL, '-infinity') " +
+            "ORDER BY date_consommation DESC LIMIT ?"),
+
+    /** Tous les repas d'un patient, avec totaux nutritionnels stockés */
+    REPAS_GET_BY_PATIENT("SELECT " + Columns.REPAS_TOTAUX + " " +
+            "FROM suivi_dietetique.repas " +
+            "WHERE noss_patient = ? AND nb_consommables > 0 " +
+            "ORDER BY date_consommation DESC"),
+
+    /** Un repas d'un patient (date comparée à la seconde près) */
+    REPAS_GET_ONE("SELECT " + Columns.REPAS_TOTAUX + " " +
+            "FROM suivi_dietetique.repas " +
+            "WHERE noss_patient = ? AND nb_consommables > 0 " +
+            "AND " + Conditions.memeSeconde("date_consommation")),
+
+    /** Consommables d'un repas (date comparée à la seconde près) */
+    REPAS_GET_CONSOMMABLES("SELECT * " +
+            "FROM suivi_dietetique.consommables_repas " +
+            "WHERE noss_patient = ? AND " + Conditions.memeSeconde("date_consommation") + " " +
+            "ORDER BY consommable_nom DESC"),
+
+    /** Suppression d'un repas (date comparée à la seconde près) */
+    REPAS_DELETE("DELETE FROM suivi_dietetique.repas WHERE noss_patient = ? " +
+            "AND " + Conditions.memeSeconde("date_consommation")),
+
+    // ---------------------------------------------------------------- Notifications
+    /** Notification des autres instances de l'API (canal, charge utile) */
+    NOTIFICATION_PUBLIER("SELECT pg_notify(?, ?)"),
+
+    // ---------------------------------------------------------------- Sessions
+    /** Création d'une session partagée */
+    SESSION_INSERT("INSERT INTO suivi_dietetique.session (id, email, role, noSS, expiration) " +
+            "VALUES (?, ?, ?::suivi_dietetique.role_utilisateur, ?, ?)"),
+
+    /** Session non expirée par identifiant */
+    SESSION_FIND("SELECT email, role, noSS, expiration FROM suivi_dietetique.session " +
+            "WHERE id = ? AND expiration > now()"),
+
+    /** Prolongation d'une session */
+    SESSION_TOUCH("UPDATE suivi_dietetique.session SET expiration = ? WHERE id = ?"),
+
+    /** Suppression d'une session (déconnexion) */
+    SESSION_DELETE("DELETE FROM suivi_dietetique.session WHERE id = ?"),
+
+    /** Purge des sessions expirées */
+    SESSION_DELETE_EXPIRED("DELETE FROM suivi_dietetique.session WHERE expiration <= now()"),
+
+    // ---------------------------------------------------------------- Statistiques
+    /** Statistiques nutritionnelles journalières d'un patient sur [début, fin[ */
+    STATS_NUTRITION_JOUR("SELECT jour AS periode, " + Columns.STATS_TOTAUX + " " +
+            "FROM suivi_dietetique.stats_jour_patient " +
+            "WHERE noss_patient = ? AND jour >= ? AND jour < ? " +
+            "ORDER BY jour"),
+
+    /** Statistiques nutritionnelles hebdomadaires d'un patient sur [début, fin[ (semaines commençant le lundi) */
+    STATS_NUTRITION_SEMAINE("SELECT semaine AS periode, " + Columns.STATS_TOTAUX + " " +
+            "FROM suivi_dietetique.stats_semaine_patient " +
+            "WHERE noss_patient = ? AND semaine >= ? AND semaine < ? " +
+            "ORDER BY semaine"),
+
+    /** Numéros de sécurité sociale de tous les patients, triés */
+    STATS_PATIENTS("SELECT noSS FROM suivi_dietetique.patient ORDER BY noSS"),
+
+    /** Reconstruction des statistiques d'un paquet de patients */
+    STATS_RECONSTRUIRE("SELECT suivi_dietetique.reconstruire_stats_patients(?)"),
+
+    // ---------------------------------------------------------------- Versions
+    /** Version cumulée d'une liste de tables (somme des compteurs) et date de la dernière modification */
+    VERSION_TABLES("SELECT coalesce(sum(version), 0) AS version, max(modifie_le) AS modifie_le " +
+            "FROM suivi_dietetique.version_table WHERE nom = ANY(?)"),
+
+    /** Version de l'historique d'un patient */
+    VERSION_PATIENT("SELECT version, modifie_le FROM suivi_dietetique.version_patient WHERE noSS = ?"),
+
+    // ---------------------------------------------------------------- Utilisateurs
+    /** Insertion d'un utilisateur */
+    UTILISATEUR_INSERT("INSERT INTO Utilisateur (email, mdpHache, role, " +
+            "dateCreation) VALUES (?, ?, ?::suivi_dietetique.role_utilisateur, ?)"),
+
+    /** Utilisateur par adresse email */
+    UTILISATEUR_FIND_BY_EMAIL("SELECT * FROM Utilisateur WHERE email = ?"),
+
+    /** Utilisateur par numéro de sécurité sociale */
+    UTILISATEUR_FIND_BY_NOSS("SELECT * FROM Utilisateur WHERE noss = ?"),
+
+    /** Suppression d'un utilisateur */
+    UTILISATEUR_DELETE("DELETE FROM utilisateur WHERE email = ?");
+
+    /** Texte SQL de la requête */
+    private final String sql;
+
+    /**
+     * Constructeur d'une requête nommée.
+     *
+     * @param sql Le texte SQL de la requête
+     */
+    SqlStatement(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Retourne le texte SQL de la requête.
+     *
+     * @return Le texte SQL
+     */
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * Listes de colonnes partagées par plusieurs requêtes.
+     * (Une classe imbriquée est nécessaire : les constantes d'une énumération sont
+     * créées avant ses champs statiques.)
+     */
+    private static final class Columns {
+        /** Colonnes d'un repas et de ses totaux nutritionnels stockés */
+        static final String REPAS_TOTAUX = "date_consommation, type AS type_repas, remarque, noss_infirmier, " +
+                "total_proteines, total_glucides, total_lipides, total_calories, total_hydratation, " +
+                "total_potassium, total_cholesterol, total_sodium, total_vit_A, total_vit_C, total_vit_D, " +
+                "total_calcium, total_fer";
+
+        /** Colonnes des statistiques nutritionnelles agrégées */
+        static final String STATS_TOTAUX = "nb_repas, total_proteines, total_glucides, total_lipides, " +
+                "total_calories, total_hydratation, total_potassium, total_cholesterol, total_sodium, " +
+                "total_vit_A, total_vit_C, total_vit_D, total_calcium, total_fer";
+    }
+
+    /**
+     * Conditions partagées par plusieurs requêtes.
+     */
+    private static final class Conditions {
+        /**
+         * Compare une date à un paramètre à la seconde près, sous la forme d'un intervalle
+         * semi-ouvert [seconde, seconde + 1s[. Contrairement à une égalité sur date_trunc(colonne),
+         * la colonne reste nue : la base peut chercher la date dans l'index (noSS_patient, date).
+         * La condition utilise deux paramètres, auxquels la même date est affectée.
+         *
+         * @param colonne La colonne de date comparée
+         * @return La condition SQL
+         */
+        static String memeSeconde(String colonne) {
+            return colonne + " >= date_trunc('second', ?::TIMESTAMPTZ) " +
+                    "AND " + colonne + " < date_trunc('second', ?::TIMESTAMPTZ) + INTERVAL '1 second'";
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import ch.heig.bdr.projet.suiviDietetique.metrics.StatementMetrics;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Point d'entrée unique des DAO pour préparer les requêtes de {@link SqlStatement}.
+ *
+ * Le pilote PostgreSQL conserve, pour chaque connexion physique, un cache des requêtes
+ * préparées côté serveur (paramètre prepareThreshold). Comme les connexions sont
+ * réutilisées par le pool, une requête déjà préparée sur une connexion est exécutée
+ * directement, sans phase d'analyse ni de planification. Le registre suit, par
+ * connexion physique, les requêtes déjà préparées afin de compter les succès
+ * (requête déjà chaude) et les échecs (première préparation) du cache.
+ * Une connexion n'étant utilisée que par un thread à la fois, l'ensemble des requêtes
+ * d'une connexion est modifié sans verrou ; le passage de la connexion d'un thread à
+ * l'autre par le pool suffit à rendre ses modifications visibles.
+ * Les requêtes retournées sont instrumentées par {@link StatementMetrics}.
+ */
+public final class StatementRegistry {
+
+    /** Requêtes déjà préparées, par connexion physique (retirées à la fermeture de la connexion) */
+    private static final Map<Connection, EnumSet<SqlStatement>> PREPARED = new ConcurrentHashMap<>();
+
+    /** Nombre de préparations d'une requête déjà chaude sur la connexion, par requête */
+    private static final LongAdder[] HITS = counters();
+
+    /** Nombre de premières préparations sur une connexion, par requête */
+    private static final LongAdder[] MISSES = counters();
+
+    /** Classe utilitaire, non instanciable */
+    private StatementRegistry() {}
+
+    /**
+     * Prépare une requête nommée sur la connexion fournie.
+     *
+     * @param connection La connexion empruntée au pool
+     * @param statement La requête à préparer
+     * @return La requête préparée, à fermer par l'appelant
+     * @throws SQLException Si la préparation échoue
+     */
+    public static PreparedStatement prepare(Connection connection, SqlStatement statement) throws SQLException {
+        record(connection, statement);
+        return StatementMetrics.instrument(connection.prepareStatement(statement.sql()), statement);
+    }
+
+    /**
+     * Enregistre l'utilisation d'une requête sur la connexion physique sous-jacente.
+     *
+     * @param connection La connexion (éventuellement un proxy du pool)
+     * @param statement La requête utilisée
+     * @throws SQLException Si la connexion physique ne peut pas être obtenue
+     */
+    private static void record(Connection connection, SqlStatement statement) throws SQLException {
+        Connection physical = connection.isWrapperFor(PGConnection.class)
+                ? (Connection) connection.unwrap(PGConnection.class)
+                : connection;
+        EnumSet<SqlStatement> prepared = PREPARED.get(physical);
+        if (prepared == null) {
+            // Nouvelle connexion physique : occasion d'oublier celles que le pool a fermées
+            purgeClosed();
+            prepared = PREPARED.computeIfAbsent(physical, c -> EnumSet.noneOf(SqlStatement.class));
+        }
+        boolean firstUse = prepared.add(statement);
+        (firstUse ? MISSES : HITS)[statement.ordinal()].increment();
+    }
+
+    /**
+     * Retire du registre les connexions physiques fermées.
+     */
+    private static void purgeClosed() {
+        PREPARED.keySet().removeIf(physical -> {
+            try {
+                return physical.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Retourne les compteurs de succès et d'échecs du cache pour chaque requête utilisée.
+     * Les requêtes sont triées par nombre d'utilisations décroissant.
+     *
+     * @return Les statistiques par requête nommée
+     */
+    public static List<StatementStatistics> getStatistics() {
+        List<StatementStatistics> statistics = new ArrayList<>();
+        for (SqlStatement statement : SqlStatement.values()) {
+            long hits = HITS[statement.ordinal()].sum();
+            long misses = MISSES[statement.ordinal()].sum();
+            if (hits + misses > 0) {
+                statistics.add(new StatementStatistics(statement.name(), hits, misses));
+            }
+        }
+        statistics.sort((a, b) -> Long.compare(b.getHits() + b.getMisses(), a.getHits() + a.getMisses()));
+        return statistics;
+    }
+
+    /**
+     * Crée un compteur par requête nommée.
+     *
+     * @return Les compteurs indexés par ordinal de {@link SqlStatement}
+     */
+    private static LongAdder[] counters() {
+        LongAdder[] counters = new LongAdder[SqlStatement.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,56 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Statistiques d'utilisation du cache de requêtes préparées pour une requête nommée.
+ */
+public class StatementStatistics {
+    /** Nom de la requête dans {@link SqlStatement} */
+    @JsonProperty("statement")
+    private final String statement;
+
+    /** Nombre d'exécutions sur une connexion où la requête était déjà préparée */
+    @JsonProperty("hits")
+    private final long hits;
+
+    /** Nombre de premières préparations de la requête sur une connexion */
+    @JsonProperty("misses")
+    private final long misses;
+
+    /**
+     * Constructeur des statistiques d'une requête.
+     *
+     * @param statement Le nom de la requête
+     * @param hits Le nombre de succès du cache
+     * @param misses Le nombre d'échecs du cache
+     */
+    public StatementStatistics(String statement, long hits, long misses) {
+        this.statement = statement;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retourne la proportion d'exécutions servies par une requête déjà préparée.
+     *
+     * @return Le taux de succès, entre 0 et 1
+     */
+    @JsonProperty("hit_ratio")
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
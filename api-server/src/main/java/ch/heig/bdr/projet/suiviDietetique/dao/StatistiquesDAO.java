@@ -0,0 +1,115 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.models.Granularite;
+import ch.heig.bdr.projet.suiviDietetique.models.StatsNutrition;
+
+/**
+ * Classe d'accès aux statistiques nutritionnelles agrégées des patients.
+ * Les tables stats_jour_patient et stats_semaine_patient sont tenues à jour par les triggers
+ * de la base à chaque insertion ou suppression de repas ; cette classe les lit et permet de
+ * les reconstruire à partir des repas.
+ */
+public class StatistiquesDAO {
+
+    /**
+     * Récupère les statistiques nutritionnelles d'un patient sur une période, par jour ou par semaine.
+     * Les périodes sans repas ne sont pas retournées.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param granularite La période d'agrégation
+     * @param debut Le premier jour inclus (un lundi pour une agrégation par semaine)
+     * @param fin Le premier jour exclu
+     * @return Les statistiques triées par période croissante
+     * @throws Exception Si la lecture échoue
+     */
+    public List<StatsNutrition> getStatsNutrition(int noss, Granularite granularite, LocalDate debut, LocalDate fin)
+            throws Exception {
+        SqlStatement statement = granularite == Granularite.SEMAINE
+                ? SqlStatement.STATS_NUTRITION_SEMAINE : SqlStatement.STATS_NUTRITION_JOUR;
+        List<StatsNutrition> stats = new ArrayList<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, statement)) {
+            stmt.setInt(1, noss);
+            stmt.setObject(2, debut);
+            stmt.setObject(3, fin);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    StatsNutrition s = new StatsNutrition();
+                    s.periode = rs.getObject("periode", LocalDate.class);
+                    s.nbRepas = rs.getInt("nb_repas");
+                    s.totalProteines = rs.getDouble("total_proteines");
+                    s.totalGlucides = rs.getDouble("total_glucides");
+                    s.totalLipides = rs.getDouble("total_lipides");
+                    s.totalCalories = rs.getInt("total_calories");
+                    s.totalHydratation = rs.getInt("total_hydratation");
+                    s.totalPotassium = rs.getDouble("total_potassium");
+                    s.totalCholesterol = rs.getDouble("total_cholesterol");
+                    s.totalSodium = rs.getDouble("total_sodium");
+                    s.totalVitA = rs.getDouble("total_vit_A");
+                    s.totalVitC = rs.getDouble("total_vit_C");
+                    s.totalVitD = rs.getDouble("total_vit_D");
+                    s.totalCalcium = rs.getDouble("total_calcium");
+                    s.totalFer = rs.getDouble("total_fer");
+                    stats.add(s);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Récupère les numéros de sécurité sociale de tous les patients.
+     *
+     * @return Les numéros triés par ordre croissant
+     * @throws Exception Si la lecture échoue
+     */
+    public int[] getPatients() throws Exception {
+        int[] patients = new int[64];
+        int size = 0;
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.STATS_PATIENTS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (size == patients.length) {
+                    patients = Arrays.copyOf(patients, size * 2);
+                }
+                patients[size++] = rs.getInt(1);
+            }
+        }
+        return Arrays.copyOf(patients, size);
+    }
+
+    /**
+     * Reconstruit les statistiques d'un paquet de patients à partir de leurs repas,
+     * dans une transaction propre à ce paquet.
+     *
+     * @param patients Les numéros de sécurité sociale des patients du paquet
+     * @return Le nombre de repas pris en compte
+     * @throws Exception Si la reconstruction échoue (les statistiques du paquet sont alors inchangées)
+     */
+    public int reconstruireStats(int[] patients) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.STATS_RECONSTRUIRE)) {
+            Integer[] noss = new Integer[patients.length];
+            for (int i = 0; i < noss.length; i++) {
+                noss[i] = patients[i];
+            }
+            stmt.setArray(1, connection.createArrayOf("integer", noss));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -28,9 +28,7 @@ public class UserDAO {
     public void insert(String email, String hashedPassword, Role role) {
         try (Connection connection = Database.getConnection()) {
             // Préparation de la requête SQL avec cast du rôle en type personnalisé
-            String query = "INSERT INTO Utilisateur (email, mdpHache, role, " +
-                    "dateCreation) VALUES (?, ?, ?::suivi_dietetique.role_utilisateur, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.UTILISATEUR_INSERT)) {
                 // Configuration des paramètres de la requête
                 stmt.setString(1, email);
                 stmt.setString(2, hashedPassword);
@@ -51,8 +49,7 @@ public class UserDAO {
      */
     public User findByEmail(String email) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM Utilisateur WHERE email = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.UTILISATEUR_FIND_BY_EMAIL)) {
                 stmt.setString(1, email);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -81,8 +78,7 @@ public class UserDAO {
      */
     public User findByNoss(String noss) {
         try (Connection connection = Database.getConnection()) {
-            String query = "SELECT * FROM Utilisateur WHERE noss = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.UTILISATEUR_FIND_BY_NOSS)) {
                 stmt.setInt(1, Integer.parseInt(noss));
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -111,8 +107,7 @@ public class UserDAO {
      */
     public boolean deleteUser(String email) {
         try (Connection connection = Database.getConnection()) {
-            String query = "DELETE FROM utilisateur WHERE email = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            try (PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.UTILISATEUR_DELETE)) {
                 stmt.setString(1, email);
 
                 // Exécution de la suppression et vérification du nombre de lignes affectées
@@ -0,0 +1,55 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.models.Version;
+
+/**
+ * Classe d'accès aux versions des ressources (tables version_table et version_patient).
+ * Les compteurs sont incrémentés par les triggers tg_version_* à chaque modification ;
+ * une version se lit par clé primaire, sans accéder aux lignes de la ressource.
+ */
+public class VersionDAO {
+
+    /**
+     * Récupère la version cumulée de plusieurs tables.
+     *
+     * @param tables Les noms des tables
+     * @return La version (somme des compteurs des tables)
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionTables(String... tables) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.VERSION_TABLES)) {
+            stmt.setArray(1, connection.createArrayOf("text", tables));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new Version(rs.getLong("version"), rs.getObject("modifie_le", OffsetDateTime.class));
+            }
+        }
+    }
+
+    /**
+     * Récupère la version de l'historique d'un patient (repas, données de santé, objectifs).
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @return La version (0 si l'historique n'a jamais été modifié)
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionPatient(int noss) throws Exception {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement stmt = StatementRegistry.prepare(connection, SqlStatement.VERSION_PATIENT)) {
+            stmt.setInt(1, noss);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return new Version(0, null);
+                }
+                return new Version(rs.getLong("version"), rs.getObject("modifie_le", OffsetDateTime.class));
+            }
+        }
+    }
+}
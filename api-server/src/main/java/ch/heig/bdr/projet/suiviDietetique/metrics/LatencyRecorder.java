@@ -0,0 +1,65 @@
+package ch.heig.bdr.projet.suiviDietetique.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences alimenté sans verrou par les threads de traitement.
+ *
+ * L'enregistrement passe par un {@link Recorder} HdrHistogram (écriture sans attente) ;
+ * au moment de l'export, l'intervalle écoulé est basculé puis cumulé dans un histogramme
+ * total, lu uniquement par l'exportateur. Les valeurs sont enregistrées en microsecondes,
+ * de 1 µs à 1 minute, avec deux chiffres significatifs (erreur relative inférieure à 1 %).
+ */
+public class LatencyRecorder {
+    /** Latence maximale mesurable, en microsecondes */
+    private static final long HIGHEST_TRACKABLE_MICROS = 60_000_000L;
+
+    /** Précision des histogrammes, en chiffres significatifs */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /** Enregistreur de l'intervalle courant */
+    private final Recorder recorder = new Recorder(1, HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    /** Cumul des intervalles déjà exportés */
+    private final Histogram total = new Histogram(1, HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    /** Somme exacte des latences enregistrées, en nanosecondes */
+    private final LongAdder sumNanos = new LongAdder();
+
+    /** Histogramme recyclé entre deux exports */
+    private Histogram interval;
+
+    /**
+     * Enregistre une latence.
+     *
+     * @param nanos La durée mesurée, en nanosecondes
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1_000, 1), HIGHEST_TRACKABLE_MICROS);
+        recorder.recordValue(micros);
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Cumule les latences enregistrées depuis le dernier appel et retourne une copie du total.
+     *
+     * @return L'histogramme cumulé depuis le démarrage, en microsecondes
+     */
+    public synchronized Histogram cumulative() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return total.copy();
+    }
+
+    /**
+     * Retourne la somme des latences enregistrées.
+     *
+     * @return La somme en secondes
+     */
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+}
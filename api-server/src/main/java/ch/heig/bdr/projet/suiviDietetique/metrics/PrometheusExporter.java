@@ -0,0 +1,338 @@
+package ch.heig.bdr.projet.suiviDietetique.metrics;
+
+import ch.heig.bdr.projet.suiviDietetique.cache.AllergyIndex;
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableCatalog;
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableSearch;
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCache;
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.config.ExecutionStatistics;
+import ch.heig.bdr.projet.suiviDietetique.config.PoolStatistics;
+import ch.heig.bdr.projet.suiviDietetique.config.RequestExecution;
+import ch.heig.bdr.projet.suiviDietetique.dao.ChangeNotifications;
+import ch.heig.bdr.projet.suiviDietetique.dao.SqlStatement;
+import ch.heig.bdr.projet.suiviDietetique.dao.StatementRegistry;
+import ch.heig.bdr.projet.suiviDietetique.dao.StatementStatistics;
+import ch.heig.bdr.projet.suiviDietetique.services.SingleFlight;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+/**
+ * Export des métriques de l'instance au format texte de Prometheus (version 0.0.4).
+ *
+ * Les latences sont exportées sous forme de résumés (summary) dont les quantiles sont
+ * calculés sur les histogrammes HdrHistogram cumulés depuis le démarrage de l'instance.
+ */
+public final class PrometheusExporter {
+    /** Type de contenu attendu par Prometheus */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /** Quantiles exportés pour chaque résumé de latence */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /** Classe utilitaire, non instanciable */
+    private PrometheusExporter() {}
+
+    /**
+     * Produit l'ensemble des métriques de l'instance.
+     *
+     * @return Les métriques au format texte de Prometheus
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        writeRequests(out);
+        writeStatements(out);
+        writePool(out);
+        writeExecution(out);
+        writeCaches(out);
+        writeLookupCaches(out);
+        writeCoalescing(out);
+        writeJvm(out);
+        return out.toString();
+    }
+
+    /**
+     * Latences des requêtes HTTP par route, méthode, statut et rôle.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeRequests(StringBuilder out) {
+        header(out, "suivi_http_request_duration_seconds", "summary",
+                "Durée de traitement des requêtes HTTP par route, méthode, statut et rôle");
+        StringBuilder max = new StringBuilder();
+        for (Map.Entry<RequestMetrics.RouteKey, LatencyRecorder> entry : RequestMetrics.getLatencies().entrySet()) {
+            RequestMetrics.RouteKey key = entry.getKey();
+            String labels = "method=\"" + escape(key.method()) + "\",route=\"" + escape(key.route())
+                    + "\",status=\"" + key.status() + "\",role=\"" + escape(key.role()) + "\"";
+            Histogram histogram = writeSummary(out, "suivi_http_request_duration_seconds", labels, entry.getValue());
+            sample(max, "suivi_http_request_duration_max_seconds", labels, histogram.getMaxValue() / 1e6);
+        }
+        header(out, "suivi_http_request_duration_max_seconds", "gauge",
+                "Durée maximale de traitement observée depuis le démarrage");
+        out.append(max);
+    }
+
+    /**
+     * Temps d'exécution, lignes et erreurs des requêtes nommées des DAO.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeStatements(StringBuilder out) {
+        header(out, "suivi_db_statement_duration_seconds", "summary",
+                "Durée des requêtes SQL nommées, lecture des lignes comprise");
+        StringBuilder rows = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        for (SqlStatement statement : SqlStatement.values()) {
+            LatencyRecorder latency = StatementMetrics.latency(statement);
+            String labels = "statement=\"" + statement.name() + "\"";
+            Histogram histogram = latency.cumulative();
+            if (histogram.getTotalCount() == 0 && StatementMetrics.errors(statement) == 0) {
+                continue;
+            }
+            writeSummary(out, "suivi_db_statement_duration_seconds", labels, histogram, latency.sumSeconds());
+            sample(rows, "suivi_db_statement_rows_total", labels, StatementMetrics.rows(statement));
+            sample(errors, "suivi_db_statement_errors_total", labels, StatementMetrics.errors(statement));
+        }
+        header(out, "suivi_db_statement_rows_total", "counter", "Lignes lues ou modifiées par requête SQL nommée");
+        out.append(rows);
+        header(out, "suivi_db_statement_errors_total", "counter", "Exécutions en erreur par requête SQL nommée");
+        out.append(errors);
+
+        header(out, "suivi_db_statement_prepared_total", "counter",
+                "Préparations des requêtes nommées, déjà préparées sur la connexion (hit) ou non (miss)");
+        for (StatementStatistics statistics : StatementRegistry.getStatistics()) {
+            String labels = "statement=\"" + statistics.getStatement() + "\"";
+            sample(out, "suivi_db_statement_prepared_total", labels + ",result=\"hit\"", statistics.getHits());
+            sample(out, "suivi_db_statement_prepared_total", labels + ",result=\"miss\"", statistics.getMisses());
+        }
+    }
+
+    /**
+     * État du pool de connexions.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writePool(StringBuilder out) {
+        PoolStatistics pool = Database.getPoolStatistics();
+        header(out, "suivi_db_pool_connections", "gauge", "Connexions du pool par état");
+        sample(out, "suivi_db_pool_connections", "state=\"active\"", pool.getActive());
+        sample(out, "suivi_db_pool_connections", "state=\"idle\"", pool.getIdle());
+        gauge(out, "suivi_db_pool_max_connections", "Taille maximale du pool", pool.getMaxSize());
+        gauge(out, "suivi_db_pool_waiting_threads", "Threads en attente d'une connexion", pool.getWaiting());
+        counter(out, "suivi_db_pool_acquisitions_total", "Connexions empruntées au pool", pool.getAcquisitions());
+        counter(out, "suivi_db_pool_acquisition_timeouts_total", "Emprunts expirés", pool.getTimeouts());
+        counter(out, "suivi_db_pool_connections_created_total", "Connexions physiques créées", pool.getConnectionsCreated());
+        gauge(out, "suivi_db_pool_acquisition_avg_seconds", "Temps moyen d'emprunt d'une connexion",
+                pool.getAcquisitionAvgMs() / 1e3);
+        gauge(out, "suivi_db_pool_acquisition_max_seconds", "Temps maximal d'emprunt d'une connexion",
+                pool.getAcquisitionMaxMs() / 1e3);
+    }
+
+    /**
+     * État du limiteur de concurrence des requêtes.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeExecution(StringBuilder out) {
+        ExecutionStatistics execution = RequestExecution.getStatistics();
+        gauge(out, "suivi_http_concurrency_limit", "Requêtes simultanées autorisées (0 = pas de limite)",
+                execution.getConcurrencyLimit());
+        gauge(out, "suivi_http_in_flight_requests", "Requêtes en cours d'exécution", execution.getInFlight());
+        gauge(out, "suivi_http_queued_requests", "Requêtes en attente d'une place", execution.getWaiting());
+        counter(out, "suivi_http_rejected_requests_total", "Requêtes rejetées faute de place", execution.getRejected());
+    }
+
+    /**
+     * Écoute des notifications PostgreSQL, caches qu'elles invalident et index des allergies.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeCaches(StringBuilder out) {
+        gauge(out, "suivi_db_listen_connected", "Connexion d'écoute LISTEN/NOTIFY active (1) ou non (0)",
+                ChangeNotifications.isConnected() ? 1 : 0);
+        counter(out, "suivi_db_listen_connections_total", "Connexions d'écoute établies",
+                ChangeNotifications.getConnections());
+        counter(out, "suivi_db_notifications_total", "Notifications PostgreSQL reçues",
+                ChangeNotifications.getReceived());
+        header(out, "suivi_cache_loads_total", "counter", "Chargements des caches depuis la base");
+        sample(out, "suivi_cache_loads_total", "cache=\"consommables\"", ConsommableCatalog.getLoads());
+        sample(out, "suivi_cache_loads_total", "cache=\"allergies\"", AllergyIndex.getRebuilds());
+        sample(out, "suivi_cache_loads_total", "cache=\"recherche_consommables\"", ConsommableSearch.getRebuilds());
+        counter(out, "suivi_consommable_search_updates_total", "Mises à jour incrémentales de l'index de recherche des consommables",
+                ConsommableSearch.getUpdates());
+
+        gauge(out, "suivi_allergy_index_ready", "Index des allergies à jour et utilisé (1) ou vérifications en base (0)",
+                AllergyIndex.isReady() ? 1 : 0);
+        counter(out, "suivi_allergy_index_patient_refreshes_total", "Recalculs des allergies d'un patient",
+                AllergyIndex.getPatientRefreshes());
+        header(out, "suivi_allergy_checks_total", "counter", "Vérifications d'allergies par source");
+        sample(out, "suivi_allergy_checks_total", "source=\"index\"", AllergyIndex.getIndexChecks());
+        sample(out, "suivi_allergy_checks_total", "source=\"database\"", AllergyIndex.getDatabaseChecks());
+    }
+
+    /**
+     * Succès, échecs, évictions et occupation des caches de lectures par clé.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeLookupCaches(StringBuilder out) {
+        StringBuilder evictions = new StringBuilder();
+        StringBuilder invalidations = new StringBuilder();
+        StringBuilder entries = new StringBuilder();
+        StringBuilder weight = new StringBuilder();
+        header(out, "suivi_lookup_cache_requests_total", "counter", "Lectures servies par le cache (hit), en base (miss) ou en base car le cache est inactif (bypass)");
+        for (LookupCache<?, ?> cache : LookupCache.caches()) {
+            String labels = "cache=\"" + escape(cache.getName()) + "\"";
+            sample(out, "suivi_lookup_cache_requests_total", labels + ",result=\"hit\"", cache.getHits());
+            sample(out, "suivi_lookup_cache_requests_total", labels + ",result=\"miss\"", cache.getMisses());
+            sample(out, "suivi_lookup_cache_requests_total", labels + ",result=\"bypass\"", cache.getBypasses());
+            sample(evictions, "suivi_lookup_cache_evictions_total", labels, cache.getEvictions());
+            sample(invalidations, "suivi_lookup_cache_invalidations_total", labels, cache.getInvalidations());
+            sample(entries, "suivi_lookup_cache_entries", labels, cache.getSize());
+            sample(weight, "suivi_lookup_cache_weight_bytes", labels, cache.getWeight());
+        }
+        header(out, "suivi_lookup_cache_evictions_total", "counter",
+                "Entrées évincées faute de place ou refusées par la politique d'admission");
+        out.append(evictions);
+        header(out, "suivi_lookup_cache_invalidations_total", "counter", "Entrées retirées après une écriture");
+        out.append(invalidations);
+        header(out, "suivi_lookup_cache_entries", "gauge", "Entrées en cache");
+        out.append(entries);
+        header(out, "suivi_lookup_cache_weight_bytes", "gauge", "Poids estimé des entrées en cache");
+        out.append(weight);
+    }
+
+    /**
+     * Regroupement des lectures identiques simultanées, par groupe de lectures.
+     * Le taux de regroupement est shared / (executed + shared).
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeCoalescing(StringBuilder out) {
+        header(out, "suivi_singleflight_calls_total", "counter",
+                "Appels de lecture exécutés en base (executed) ou servis par une lecture en cours (shared)");
+        for (SingleFlight<?, ?> group : SingleFlight.groups()) {
+            String labels = "group=\"" + escape(group.getName()) + "\"";
+            sample(out, "suivi_singleflight_calls_total", labels + ",result=\"executed\"", group.getExecuted());
+            sample(out, "suivi_singleflight_calls_total", labels + ",result=\"shared\"", group.getShared());
+        }
+    }
+
+    /**
+     * Mémoire, threads, ramasse-miettes et processus de la JVM.
+     *
+     * @param out Le texte en cours de construction
+     */
+    private static void writeJvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(out, "jvm_memory_used_bytes", "gauge", "Mémoire utilisée par zone");
+        sample(out, "jvm_memory_used_bytes", "area=\"heap\"", heap.getUsed());
+        sample(out, "jvm_memory_used_bytes", "area=\"nonheap\"", nonHeap.getUsed());
+        header(out, "jvm_memory_committed_bytes", "gauge", "Mémoire réservée par zone");
+        sample(out, "jvm_memory_committed_bytes", "area=\"heap\"", heap.getCommitted());
+        sample(out, "jvm_memory_committed_bytes", "area=\"nonheap\"", nonHeap.getCommitted());
+        gauge(out, "jvm_memory_heap_max_bytes", "Taille maximale du tas", heap.getMax());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge(out, "jvm_threads_live", "Threads système actifs", threads.getThreadCount());
+        gauge(out, "jvm_threads_daemon", "Threads système démons", threads.getDaemonThreadCount());
+        gauge(out, "jvm_threads_peak", "Pic de threads système", threads.getPeakThreadCount());
+
+        header(out, "jvm_gc_collections_total", "counter", "Collections par ramasse-miettes");
+        StringBuilder time = new StringBuilder();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String labels = "gc=\"" + escape(gc.getName()) + "\"";
+            sample(out, "jvm_gc_collections_total", labels, Math.max(gc.getCollectionCount(), 0));
+            sample(time, "jvm_gc_collection_seconds_total", labels, Math.max(gc.getCollectionTime(), 0) / 1e3);
+        }
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Temps passé en collection par ramasse-miettes");
+        out.append(time);
+
+        gauge(out, "jvm_classes_loaded", "Classes chargées",
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+        gauge(out, "process_uptime_seconds", "Durée de fonctionnement de l'instance",
+                ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            counter(out, "process_cpu_seconds_total", "Temps CPU consommé par le processus",
+                    os.getProcessCpuTime() / 1e9);
+        }
+    }
+
+    /**
+     * Écrit un résumé de latence : quantiles, somme et nombre d'observations.
+     *
+     * @param out Le texte en cours de construction
+     * @param name Le nom de la métrique
+     * @param labels Les étiquettes de la série
+     * @param latency L'enregistreur de latence
+     * @return L'histogramme cumulé utilisé
+     */
+    private static Histogram writeSummary(StringBuilder out, String name, String labels, LatencyRecorder latency) {
+        Histogram histogram = latency.cumulative();
+        writeSummary(out, name, labels, histogram, latency.sumSeconds());
+        return histogram;
+    }
+
+    /**
+     * Écrit un résumé de latence à partir d'un histogramme cumulé.
+     *
+     * @param out Le texte en cours de construction
+     * @param name Le nom de la métrique
+     * @param labels Les étiquettes de la série
+     * @param histogram L'histogramme cumulé, en microsecondes
+     * @param sumSeconds La somme exacte des latences, en secondes
+     */
+    private static void writeSummary(StringBuilder out, String name, String labels, Histogram histogram,
+                                     double sumSeconds) {
+        for (double quantile : QUANTILES) {
+            sample(out, name, labels + ",quantile=\"" + quantile + "\"",
+                    histogram.getValueAtPercentile(quantile * 100) / 1e6);
+        }
+        sample(out, name + "_sum", labels, sumSeconds);
+        sample(out, name + "_count", labels, histogram.getTotalCount());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, "gauge", help);
+        sample(out, name, null, value);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, double value) {
+        header(out, name, "counter", help);
+        sample(out, name, null, value);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Échappe une valeur d'étiquette selon le format texte de Prometheus.
+     *
+     * @param value La valeur brute
+     * @return La valeur échappée
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
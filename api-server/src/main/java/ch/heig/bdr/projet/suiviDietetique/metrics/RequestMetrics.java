@@ -0,0 +1,87 @@
+package ch.heig.bdr.projet.suiviDietetique.metrics;
+
+import ch.heig.bdr.projet.suiviDietetique.security.Sessions;
+import ch.heig.bdr.projet.suiviDietetique.security.UserSession;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instrumentation des requêtes HTTP : une latence est enregistrée pour chaque requête,
+ * par route (le modèle de chemin, ex: /api/patients/{id}), méthode, code de statut
+ * et rôle de l'utilisateur.
+ *
+ * Les routes inconnues sont regroupées sous un seul libellé afin de borner le nombre
+ * de séries exportées.
+ */
+public final class RequestMetrics {
+    /** Attribut de requête contenant l'instant de début du traitement */
+    private static final String START_ATTRIBUTE = "metrics-start";
+
+    /** Libellé des requêtes qui ne correspondent à aucune route */
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    /** Libellé du rôle des requêtes sans session */
+    private static final String ANONYMOUS_ROLE = "Anonyme";
+
+    /**
+     * Identifiant d'une série de latences.
+     *
+     * @param method La méthode HTTP
+     * @param route Le modèle de chemin de la route
+     * @param status Le code de statut de la réponse
+     * @param role Le rôle de l'utilisateur
+     */
+    public record RouteKey(String method, String route, int status, String role) {}
+
+    /** Latences par série */
+    private static final Map<RouteKey, LatencyRecorder> LATENCIES = new ConcurrentHashMap<>();
+
+    /** Classe utilitaire, non instanciable */
+    private RequestMetrics() {}
+
+    /**
+     * Ajoute l'instrumentation à toutes les requêtes de l'application.
+     *
+     * @param app L'instance Javalin à instrumenter
+     */
+    public static void register(Javalin app) {
+        app.before(ctx -> ctx.attribute(START_ATTRIBUTE, System.nanoTime()));
+        app.after(RequestMetrics::record);
+    }
+
+    /**
+     * Enregistre la latence d'une requête terminée.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    private static void record(Context ctx) {
+        Long start = ctx.attribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Sans route correspondante, Javalin renvoie un message au lieu d'un chemin
+        String route = ctx.endpointHandlerPath();
+        if (route == null || !route.startsWith("/")) {
+            route = UNMATCHED_ROUTE;
+        }
+        UserSession session = Sessions.peek(ctx);
+        String role = session == null ? ANONYMOUS_ROLE : session.getRole().toString();
+
+        RouteKey key = new RouteKey(ctx.method().name(), route, ctx.statusCode(), role);
+        LATENCIES.computeIfAbsent(key, k -> new LatencyRecorder()).record(elapsed);
+    }
+
+    /**
+     * Retourne les latences enregistrées, par série.
+     *
+     * @return Les enregistreurs de latence par route, méthode, statut et rôle
+     */
+    public static Map<RouteKey, LatencyRecorder> getLatencies() {
+        return LATENCIES;
+    }
+}
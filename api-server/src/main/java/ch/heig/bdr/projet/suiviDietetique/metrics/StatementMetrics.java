@@ -0,0 +1,198 @@
+package ch.heig.bdr.projet.suiviDietetique.metrics;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.SqlStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temps d'exécution et nombre de lignes des requêtes nommées des DAO.
+ *
+ * Chaque requête de {@link SqlStatement} correspond à une méthode de DAO : mesurer les
+ * requêtes donne donc le temps passé par méthode de DAO. Pour une lecture, la durée va de
+ * l'exécution à la fermeture du ResultSet, conversion des lignes en objets comprise, et
+ * les lignes comptées sont les lignes lues. Pour une écriture, ce sont les lignes modifiées.
+ * Désactivable avec METRICS_STATEMENTS_ENABLED=false.
+ */
+public final class StatementMetrics {
+    /** Indique si les requêtes sont instrumentées */
+    private static final boolean ENABLED = Env.getBoolean("METRICS_STATEMENTS_ENABLED", true);
+
+    /** Latences par requête, indexées par ordinal */
+    private static final LatencyRecorder[] LATENCIES = new LatencyRecorder[SqlStatement.values().length];
+
+    /** Lignes lues ou modifiées par requête */
+    private static final LongAdder[] ROWS = new LongAdder[SqlStatement.values().length];
+
+    /** Exécutions en erreur par requête */
+    private static final LongAdder[] ERRORS = new LongAdder[SqlStatement.values().length];
+
+    static {
+        for (int i = 0; i < LATENCIES.length; i++) {
+            LATENCIES[i] = new LatencyRecorder();
+            ROWS[i] = new LongAdder();
+            ERRORS[i] = new LongAdder();
+        }
+    }
+
+    /** Classe utilitaire, non instanciable */
+    private StatementMetrics() {}
+
+    /**
+     * Instrumente une requête préparée.
+     *
+     * @param stmt La requête préparée par le pilote
+     * @param statement La requête nommée correspondante
+     * @return La requête instrumentée (ou la requête d'origine si l'instrumentation est désactivée)
+     */
+    public static PreparedStatement instrument(PreparedStatement stmt, SqlStatement statement) {
+        if (!ENABLED) {
+            return stmt;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new StatementHandler(stmt, statement.ordinal()));
+    }
+
+    public static LatencyRecorder latency(SqlStatement statement) {
+        return LATENCIES[statement.ordinal()];
+    }
+
+    public static long rows(SqlStatement statement) {
+        return ROWS[statement.ordinal()].sum();
+    }
+
+    public static long errors(SqlStatement statement) {
+        return ERRORS[statement.ordinal()].sum();
+    }
+
+    /**
+     * Appelle la méthode cible en propageant l'exception d'origine.
+     *
+     * @param target L'objet cible
+     * @param method La méthode appelée
+     * @param args Les arguments
+     * @return Le résultat de la méthode
+     * @throws Throwable L'exception levée par la méthode
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Exécution en cours d'une requête, terminée une seule fois.
+     */
+    private static final class Execution {
+        private final int index;
+        private final long start = System.nanoTime();
+        private long rows;
+        private boolean finished;
+
+        Execution(int index) {
+            this.index = index;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                LATENCIES[index].record(System.nanoTime() - start);
+                ROWS[index].add(rows);
+            }
+        }
+    }
+
+    /**
+     * Mesure les exécutions d'une requête préparée.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final PreparedStatement target;
+        private final int index;
+
+        /** Lecture dont le ResultSet n'est pas encore fermé */
+        private Execution pending;
+
+        StatementHandler(PreparedStatement target, int index) {
+            this.target = target;
+            this.index = index;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean execution = name.startsWith("execute") && (args == null || args.length == 0);
+            if (!execution) {
+                if (name.equals("close") && pending != null) {
+                    pending.finish();
+                }
+                return StatementMetrics.invoke(target, method, args);
+            }
+
+            if (pending != null) {
+                pending.finish();
+            }
+            Execution current = new Execution(index);
+            Object result;
+            try {
+                result = StatementMetrics.invoke(target, method, args);
+            } catch (Throwable e) {
+                ERRORS[index].increment();
+                current.finish();
+                throw e;
+            }
+
+            if (result instanceof ResultSet rs) {
+                pending = current;
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, new ResultSetHandler(rs, current));
+            }
+            if (result instanceof Integer updated) {
+                current.rows = Math.max(updated, 0);
+            } else if (result instanceof Long updated) {
+                current.rows = Math.max(updated, 0);
+            } else if (result instanceof int[] batch) {
+                for (int updated : batch) {
+                    current.rows += Math.max(updated, 0);
+                }
+            }
+            current.finish();
+            return result;
+        }
+    }
+
+    /**
+     * Compte les lignes lues d'un ResultSet et termine la mesure à sa fermeture.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet target, Execution execution) {
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementMetrics.invoke(target, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result)) {
+                        execution.rows++;
+                    }
+                }
+                case "close" -> execution.finish();
+                default -> { }
+            }
+            return result;
+        }
+    }
+}
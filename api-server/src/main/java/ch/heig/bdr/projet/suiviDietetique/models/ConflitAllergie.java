@@ -0,0 +1,71 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Classe représentant un consommable incompatible avec les allergies d'un patient.
+ * Elle indique le consommable concerné et les allergènes du patient qu'il peut contenir.
+ * Seuls les champs sont sérialisés en JSON (les accesseurs sont ignorés pour éviter les doublons).
+ */
+public class ConflitAllergie {
+    /** Identifiant du consommable */
+    @JsonProperty("id_consommable")
+    protected int id_consommable;
+
+    /** Nom du consommable (null s'il est absent du catalogue) */
+    @JsonProperty("nom_consommable")
+    protected String nom_consommable;
+
+    /** Allergènes du patient que le consommable peut contenir */
+    @JsonProperty("allergenes")
+    protected List<String> allergenes;
+
+    /** Constructeur par défaut nécessaire pour la désérialisation JSON */
+    public ConflitAllergie() {}
+
+    /**
+     * Constructeur pour créer un conflit d'allergie.
+     *
+     * @param id_consommable L'identifiant du consommable
+     * @param nom_consommable Le nom du consommable
+     * @param allergenes Les allergènes du patient contenus dans le consommable
+     */
+    public ConflitAllergie(int id_consommable, String nom_consommable, List<String> allergenes) {
+        this.id_consommable = id_consommable;
+        this.nom_consommable = nom_consommable;
+        this.allergenes = allergenes;
+    }
+
+    /**
+     * Récupère l'identifiant du consommable.
+     *
+     * @return L'identifiant du consommable
+     */
+    @JsonIgnore
+    public int getIdConsommable() {
+        return id_consommable;
+    }
+
+    /**
+     * Récupère le nom du consommable.
+     *
+     * @return Le nom du consommable
+     */
+    @JsonIgnore
+    public String getNomConsommable() {
+        return nom_consommable;
+    }
+
+    /**
+     * Récupère les allergènes en cause.
+     *
+     * @return Les allergènes du patient contenus dans le consommable
+     */
+    @JsonIgnore
+    public List<String> getAllergenes() {
+        return allergenes;
+    }
+}
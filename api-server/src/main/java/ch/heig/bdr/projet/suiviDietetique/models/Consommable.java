@@ -163,6 +163,15 @@ public class Consommable {
         return id;
     }
 
+    /**
+     * Récupère le nom du consommable.
+     * 
+     * @return Le nom du consommable
+     */
+    public String getNom(){
+        return nom;
+    }
+
     /**
      * Retourne une représentation textuelle du consommable avec toutes ses valeurs nutritionnelles.
      * 
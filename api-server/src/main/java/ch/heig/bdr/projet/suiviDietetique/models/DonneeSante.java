@@ -3,9 +3,7 @@ package ch.heig.bdr.projet.suiviDietetique.models;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.text.NumberFormat;
 import java.time.OffsetDateTime;
-import java.util.Locale;
 
 import static java.lang.Math.pow;
 
@@ -62,7 +60,6 @@ public class DonneeSante {
      * @param poids Poids en kilogrammes
      * @param tourDeTaille Tour de taille en centimètres
      * @param niveauActivitePhysique Niveau d'activité physique (sera converti en énumération)
-     * @throws RuntimeException Si une erreur survient lors du calcul de l'IMC
      */
     public DonneeSante(String nossPatient, OffsetDateTime date, int taille, int poids, int tourDeTaille, String niveauActivitePhysique) {
         this.nossPatient = nossPatient;
@@ -72,15 +69,10 @@ public class DonneeSante {
         this.tourDeTaille = tourDeTaille;
         this.niveauActivitePhysique = NiveauActivitePhysique.type(niveauActivitePhysique);
 
-        // Calcul de l'IMC avec conversion de la taille en mètres
+        // Calcul de l'IMC avec conversion de la taille en mètres, arrondi à deux décimales
+        // (arrondi numérique : les mesures d'une série sont recréées à chaque lecture, voir SerieSante)
         double imcValue = (double) poids / pow((((double) taille) / 100.0), 2);
-        try {
-            // Formatage de l'IMC avec deux décimales selon la locale française
-            NumberFormat nf = NumberFormat.getInstance(Locale.FRANCE);
-            this.IMC = nf.parse(String.format(Locale.FRANCE, "%.2f", imcValue)).doubleValue();
-        } catch (Exception e) {
-            throw new RuntimeException("Erreur de conversion de l'IMC", e);
-        }
+        this.IMC = Math.round(imcValue * 100) / 100.0;
     }
 
     /**
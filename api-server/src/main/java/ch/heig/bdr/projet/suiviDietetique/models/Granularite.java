@@ -0,0 +1,41 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+/**
+ * Énumération représentant la période d'agrégation des statistiques nutritionnelles.
+ */
+public enum Granularite {
+    /** Statistiques par jour (jour local des repas) */
+    JOUR("jour"),
+
+    /** Statistiques par semaine ISO, du lundi au dimanche */
+    SEMAINE("semaine");
+
+    /** Nom de la granularité, tel qu'attendu dans les paramètres de requête */
+    public String name;
+
+    /**
+     * Constructeur privé de l'énumération.
+     *
+     * @param s Le nom de la granularité
+     */
+    private Granularite(String s) {
+        this.name = s;
+    }
+
+    /**
+     * Convertit une chaîne de caractères en valeur de l'énumération Granularite.
+     * La comparaison est insensible à la casse.
+     *
+     * @param s La chaîne de caractères à convertir
+     * @return La valeur de l'énumération correspondante
+     * @throws IllegalArgumentException Si la chaîne ne correspond à aucune valeur de l'énumération
+     */
+    public static Granularite granularite(String s) {
+        for (Granularite granularite : Granularite.values()) {
+            if (granularite.name.equalsIgnoreCase(s)) {
+                return granularite;
+            }
+        }
+        throw new IllegalArgumentException("Aucune granularité correspondante pour le nom : " + s);
+    }
+}
@@ -0,0 +1,38 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+/**
+ * Valeurs nutritionnelles d'un consommable sur lesquelles portent les requêtes du catalogue,
+ * désignées par le nom de la propriété JSON correspondante de {@link Consommable}
+ * (fibres et sucre composent les glucides).
+ */
+public enum Nutriment {
+    CALORIES("calories"),
+    PROTEINES("proteines"),
+    GLUCIDES("glucides"),
+    FIBRES("fibres"),
+    SUCRE("sucre"),
+    LIPIDES("lipides"),
+    POTASSIUM("potassium"),
+    CHOLESTEROL("cholesterol"),
+    SODIUM("sodium"),
+    VIT_A("vit_A"),
+    VIT_C("vit_C"),
+    VIT_D("vit_D"),
+    CALCIUM("calcium"),
+    FER("fer");
+
+    public final String name;
+
+    private Nutriment(String s) {
+        this.name = s;
+    }
+
+    public static Nutriment nutriment(String s) {
+        for (Nutriment nutriment : Nutriment.values()) {
+            if (nutriment.name.equalsIgnoreCase(s)) {
+                return nutriment;
+            }
+        }
+        throw new IllegalArgumentException("Aucun nutriment correspondant pour le nom : " + s);
+    }
+}
@@ -0,0 +1,12 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.util.List;
+
+/**
+ * Page d'une liste parcourue par curseur.
+ *
+ * @param elements Les éléments de la page, dans l'ordre de la liste
+ * @param curseurSuivant Le curseur de la page suivante, ou null s'il s'agit de la dernière page
+ * @param <T> Le type des éléments
+ */
+public record Page<T>(List<T> elements, String curseurSuivant) {}
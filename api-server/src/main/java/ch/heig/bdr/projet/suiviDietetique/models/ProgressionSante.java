@@ -0,0 +1,55 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.time.OffsetDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Classe représentant la progression des mesures de santé d'un patient sur une période :
+ * première et dernière mesure de la période, variations, et tendances (pente de la droite
+ * de régression linéaire, par semaine) du poids, du tour de taille et de l'IMC.
+ * Sans mesure sur la période, seuls le patient et le nombre de mesures (0) sont renseignés ;
+ * les pentes nécessitent au moins deux mesures à des dates différentes. Les valeurs non
+ * renseignées sont omises des réponses.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProgressionSante {
+    /** Numéro de sécurité sociale du patient */
+    public String nossPatient;
+
+    /** Nombre de mesures de la période */
+    public int nbMesures;
+
+    /** Dates de la première et de la dernière mesure de la période */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    public OffsetDateTime dateDebut;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    public OffsetDateTime dateFin;
+
+    /** Poids en kilogrammes : première et dernière mesure, variation, et pente en kilogrammes par semaine */
+    public Integer poidsDebut;
+    public Integer poidsFin;
+    public Integer deltaPoids;
+    public Double pentePoids;
+
+    /** Tour de taille en centimètres : première et dernière mesure, variation, et pente en centimètres par semaine */
+    public Integer tourDeTailleDebut;
+    public Integer tourDeTailleFin;
+    public Integer deltaTourDeTaille;
+    public Double penteTourDeTaille;
+
+    /** IMC : première et dernière mesure, variation, extrêmes de la période, et pente par semaine */
+    public Double imcDebut;
+    public Double imcFin;
+    public Double deltaImc;
+    public Double imcMin;
+    public Double imcMax;
+    public Double penteImc;
+
+    /**
+     * Constructeur par défaut nécessaire pour la désérialisation JSON.
+     */
+    public ProgressionSante() {
+    }
+}
@@ -48,6 +48,30 @@ public class Repas {
     /** Total de l'hydratation en millilitres */
     public int totalHydratation;
 
+    /** Total du potassium en milligrammes */
+    public Double totalPotassium;
+
+    /** Total du cholestérol en milligrammes */
+    public Double totalCholesterol;
+
+    /** Total du sodium en milligrammes */
+    public Double totalSodium;
+
+    /** Total de la vitamine A en microgrammes */
+    public Double totalVitA;
+
+    /** Total de la vitamine C en milligrammes */
+    public Double totalVitC;
+
+    /** Total de la vitamine D en microgrammes */
+    public Double totalVitD;
+
+    /** Total du calcium en milligrammes */
+    public Double totalCalcium;
+
+    /** Total du fer en milligrammes */
+    public Double totalFer;
+
     /**
      * Constructeur par défaut nécessaire pour la désérialisation JSON.
      */
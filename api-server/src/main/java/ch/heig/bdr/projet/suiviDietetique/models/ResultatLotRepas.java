@@ -0,0 +1,12 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.util.List;
+
+/**
+ * Résultat de la création d'un lot de repas.
+ *
+ * @param crees Le nombre de repas créés
+ * @param refuses Le nombre de repas refusés
+ * @param resultats Le résultat de chaque repas, dans l'ordre du lot
+ */
+public record ResultatLotRepas(int crees, int refuses, List<ResultatRepas> resultats) {}
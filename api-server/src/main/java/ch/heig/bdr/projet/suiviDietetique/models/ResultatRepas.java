@@ -0,0 +1,53 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Résultat de la création d'un repas d'un lot.
+ * Un repas refusé n'empêche pas la création des autres repas du lot.
+ *
+ * @param index La position du repas dans le lot (à partir de 0)
+ * @param nossPatient Le numéro de sécurité sociale du patient
+ * @param cree true si le repas a été créé
+ * @param dateConsommation La date de consommation du repas créé, ou null s'il a été refusé
+ * @param erreur La raison du refus, ou null si le repas a été créé
+ * @param conflits Les consommables incompatibles avec les allergies du patient, ou null s'il n'y en a pas
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResultatRepas(int index,
+                            String nossPatient,
+                            boolean cree,
+                            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+                            OffsetDateTime dateConsommation,
+                            String erreur,
+                            List<ConflitAllergie> conflits) {
+
+    /**
+     * Crée le résultat d'un repas créé.
+     *
+     * @param index La position du repas dans le lot
+     * @param nossPatient Le patient
+     * @param dateConsommation La date de consommation du repas créé
+     * @return Le résultat
+     */
+    public static ResultatRepas cree(int index, String nossPatient, OffsetDateTime dateConsommation) {
+        return new ResultatRepas(index, nossPatient, true, dateConsommation, null, null);
+    }
+
+    /**
+     * Crée le résultat d'un repas refusé.
+     *
+     * @param index La position du repas dans le lot
+     * @param nossPatient Le patient
+     * @param erreur La raison du refus
+     * @param conflits Les consommables incompatibles, ou null
+     * @return Le résultat
+     */
+    public static ResultatRepas refuse(int index, String nossPatient, String erreur, List<ConflitAllergie> conflits) {
+        return new ResultatRepas(index, nossPatient, false, null, erreur, conflits);
+    }
+}
@@ -0,0 +1,64 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Classe représentant les apports nutritionnels d'un patient sur une période
+ * (un jour ou une semaine), cumulés sur tous les repas de la période.
+ * Un point de la courbe d'évolution nutritionnelle d'un patient.
+ */
+public class StatsNutrition {
+    /** Premier jour de la période (le lundi pour une semaine) */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    public LocalDate periode;
+
+    /** Nombre de repas de la période */
+    public int nbRepas;
+
+    /** Total des protéines en grammes */
+    public double totalProteines;
+
+    /** Total des glucides en grammes */
+    public double totalGlucides;
+
+    /** Total des lipides en grammes */
+    public double totalLipides;
+
+    /** Total des calories */
+    public int totalCalories;
+
+    /** Total de l'hydratation en millilitres */
+    public int totalHydratation;
+
+    /** Total du potassium en milligrammes */
+    public double totalPotassium;
+
+    /** Total du cholestérol en milligrammes */
+    public double totalCholesterol;
+
+    /** Total du sodium en milligrammes */
+    public double totalSodium;
+
+    /** Total de la vitamine A en microgrammes */
+    public double totalVitA;
+
+    /** Total de la vitamine C en milligrammes */
+    public double totalVitC;
+
+    /** Total de la vitamine D en microgrammes */
+    public double totalVitD;
+
+    /** Total du calcium en milligrammes */
+    public double totalCalcium;
+
+    /** Total du fer en milligrammes */
+    public double totalFer;
+
+    /**
+     * Constructeur par défaut nécessaire pour la désérialisation JSON.
+     */
+    public StatsNutrition() {
+    }
+}
@@ -0,0 +1,40 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Classe représentant les mesures de santé d'un patient sur une semaine : minimum,
+ * maximum et moyenne du poids, du tour de taille et de l'IMC.
+ * Un point de la courbe d'évolution des mesures d'un patient.
+ */
+public class StatsSante {
+    /** Premier jour de la semaine (le lundi) */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    public LocalDate periode;
+
+    /** Nombre de mesures de la semaine */
+    public int nbMesures;
+
+    /** Poids minimal, maximal et moyen en kilogrammes */
+    public int poidsMin;
+    public int poidsMax;
+    public double poidsMoyen;
+
+    /** Tour de taille minimal, maximal et moyen en centimètres */
+    public int tourDeTailleMin;
+    public int tourDeTailleMax;
+    public double tourDeTailleMoyen;
+
+    /** IMC minimal, maximal et moyen */
+    public double imcMin;
+    public double imcMax;
+    public double imcMoyen;
+
+    /**
+     * Constructeur par défaut nécessaire pour la désérialisation JSON.
+     */
+    public StatsSante() {
+    }
+}
@@ -0,0 +1,12 @@
+package ch.heig.bdr.projet.suiviDietetique.models;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Version d'une ressource de l'API, tenue à jour par les triggers de la base.
+ * Le numéro augmente à chaque modification des données de la ressource.
+ *
+ * @param numero Le numéro de version (0 si la ressource n'a jamais été modifiée)
+ * @param modifieLe La date de la dernière modification, ou null si elle est inconnue
+ */
+public record Version(long numero, OffsetDateTime modifieLe) {}
@@ -1,5 +1,6 @@
 package ch.heig.bdr.projet.suiviDietetique.security;
 
+import ch.heig.bdr.projet.suiviDietetique.config.ConcurrencyLimiter;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import io.javalin.http.UnauthorizedResponse;
@@ -13,8 +14,20 @@ import java.util.Set;
  * Gestionnaire d'accès de l'application qui implémente la logique de contrôle d'accès
  * pour toutes les routes de l'API. Cette classe vérifie les autorisations des utilisateurs
  * en fonction de leur rôle et des permissions requises pour chaque route.
+ * Les requêtes autorisées sont exécutées dans la limite de concurrence de l'instance.
  */
 public class AppAccessManager implements AccessManager {
+    /** Limiteur du nombre de requêtes exécutées simultanément */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Constructeur du gestionnaire d'accès.
+     *
+     * @param limiter Le limiteur de concurrence appliqué aux requêtes autorisées
+     */
+    public AppAccessManager(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
 
     /**
      * Gère l'accès aux routes de l'application en vérifiant les permissions de l'utilisateur.
@@ -28,22 +41,22 @@ public class AppAccessManager implements AccessManager {
     public void manage(@NotNull Handler handler, @NotNull Context ctx, @NotNull Set<? extends RouteRole> permittedRoles) throws Exception {
         // Si la route est accessible à tous, exécuter directement le handler
         if (permittedRoles.contains(Role.ANYONE)) {
-            handler.handle(ctx);
+            limiter.execute(handler, ctx);
             return;
         }
 
-        // Récupérer le rôle de l'utilisateur depuis la session
-        String userRole = ctx.sessionAttribute("user-role");
+        // Récupérer la session de l'utilisateur (voir Sessions pour le stockage utilisé)
+        UserSession session = Sessions.current(ctx);
 
         // Vérifier si l'utilisateur est connecté
-        if (userRole == null) {
+        if (session == null) {
             throw new UnauthorizedResponse("Accès refusé : vous devez vous " +
                     "connecter pour accéder à cette ressource.");
         }
 
         // Vérifier si l'utilisateur a les permissions nécessaires
-        if (permittedRoles.contains(Role.fromName(userRole))) {
-            handler.handle(ctx);
+        if (permittedRoles.contains(session.getRole())) {
+            limiter.execute(handler, ctx);
         } else {
             throw new UnauthorizedResponse("Accès refusé : vous n'avez pas les permissions nécessaires.");
         }
@@ -0,0 +1,88 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import io.javalin.http.Context;
+import io.javalin.http.Cookie;
+import io.javalin.http.SameSite;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Base des stockages de session transportés par un cookie propre à l'API,
+ * lisible par n'importe quelle réplique.
+ */
+public abstract class CookieSessionStore implements SessionStore {
+    /** Nom du cookie de session */
+    protected static final String COOKIE_NAME = "suivi-session";
+
+    /** Durée d'inactivité après laquelle la session expire */
+    protected final Duration ttl;
+
+    /** Indique si le cookie n'est envoyé que sur HTTPS */
+    private final boolean secureCookie;
+
+    /**
+     * Constructeur du stockage par cookie.
+     *
+     * @param ttl La durée d'inactivité maximale d'une session
+     * @param secureCookie true pour restreindre le cookie à HTTPS
+     */
+    protected CookieSessionStore(Duration ttl, boolean secureCookie) {
+        this.ttl = ttl;
+        this.secureCookie = secureCookie;
+    }
+
+    /**
+     * Indique si une session doit être prolongée : c'est le cas lorsque plus de
+     * la moitié de sa durée de vie est écoulée, afin de ne pas réécrire la session
+     * à chaque requête.
+     *
+     * @param session La session courante
+     * @param now L'instant de référence
+     * @return true si l'expiration doit être repoussée
+     */
+    protected boolean needsRenewal(UserSession session, Instant now) {
+        return Duration.between(now, session.getExpiresAt()).compareTo(ttl.dividedBy(2)) < 0;
+    }
+
+    /**
+     * Lit la valeur du cookie de session de la requête.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return La valeur du cookie, ou null s'il est absent
+     */
+    protected String readCookie(Context ctx) {
+        String value = ctx.cookie(COOKIE_NAME);
+        return (value == null || value.isBlank()) ? null : value;
+    }
+
+    /**
+     * Écrit le cookie de session dans la réponse.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param value La valeur du cookie
+     */
+    protected void writeCookie(Context ctx, String value) {
+        ctx.cookie(cookie(value, (int) ttl.toSeconds()));
+    }
+
+    /**
+     * Supprime le cookie de session côté client.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     */
+    protected void clearCookie(Context ctx) {
+        ctx.cookie(cookie("", 0));
+    }
+
+    /**
+     * Construit le cookie de session (HttpOnly, SameSite=Lax, valable pour toute l'API).
+     *
+     * @param value La valeur du cookie
+     * @param maxAge La durée de vie du cookie en secondes
+     * @return Le cookie à envoyer
+     */
+    private Cookie cookie(String value, int maxAge) {
+        return new Cookie(COOKIE_NAME, value, "/", maxAge, secureCookie, 0, true, null, null, SameSite.LAX);
+    }
+}
@@ -0,0 +1,153 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import ch.heig.bdr.projet.suiviDietetique.dao.SessionDAO;
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions partagées entre les répliques, stockées dans la table suivi_dietetique.session.
+ *
+ * Le cookie contient un jeton aléatoire ; seule son empreinte SHA-256 est stockée en base.
+ * Un petit cache local évite une lecture en base à chaque requête : une session lue
+ * y reste au plus SESSION_CACHE_TTL_MS. Une déconnexion est donc immédiate sur la
+ * réplique qui la traite, et effective sur les autres après ce délai au plus.
+ */
+public class DatabaseSessionStore extends CookieSessionStore {
+    /** Générateur des jetons de session */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Taille d'un jeton de session, en octets */
+    private static final int TOKEN_BYTES = 32;
+
+    /** DAO pour l'accès aux sessions */
+    private final SessionDAO sessionDAO = new SessionDAO();
+
+    /** Sessions récemment lues, par empreinte de jeton */
+    private final Map<String, CachedSession> cache = new ConcurrentHashMap<>();
+
+    /** Durée de conservation d'une session dans le cache local */
+    private final Duration cacheTtl;
+
+    /** Nombre maximal de sessions dans le cache local */
+    private final int cacheMaxEntries;
+
+    /**
+     * Session présente dans le cache local.
+     *
+     * @param session La session lue en base
+     * @param cachedUntil L'instant jusqu'auquel la session peut être servie depuis le cache
+     */
+    private record CachedSession(UserSession session, Instant cachedUntil) {}
+
+    /**
+     * Constructeur du stockage en base de données.
+     *
+     * @param ttl La durée d'inactivité maximale d'une session
+     * @param secureCookie true pour restreindre le cookie à HTTPS
+     * @param cacheTtl La durée de conservation d'une session dans le cache local
+     * @param cacheMaxEntries Le nombre maximal de sessions dans le cache local
+     */
+    public DatabaseSessionStore(Duration ttl, boolean secureCookie, Duration cacheTtl, int cacheMaxEntries) {
+        super(ttl, secureCookie);
+        this.cacheTtl = cacheTtl;
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    @Override
+    public UserSession open(Context ctx, String username, Role role, int noss) throws Exception {
+        // Les connexions sont rares : on en profite pour purger les sessions expirées
+        sessionDAO.deleteExpired();
+
+        byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(token);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+        String id = hash(value);
+
+        UserSession session = new UserSession(username, role, noss, Instant.now().plus(ttl));
+        sessionDAO.insert(id, session);
+        remember(id, session, Instant.now());
+        writeCookie(ctx, value);
+        return session;
+    }
+
+    @Override
+    public UserSession read(Context ctx) throws Exception {
+        String value = readCookie(ctx);
+        if (value == null) {
+            return null;
+        }
+        String id = hash(value);
+        Instant now = Instant.now();
+
+        CachedSession cached = cache.get(id);
+        if (cached != null && now.isBefore(cached.cachedUntil()) && !cached.session().isExpired(now)) {
+            return cached.session();
+        }
+
+        UserSession session = sessionDAO.find(id);
+        if (session == null) {
+            cache.remove(id);
+            return null;
+        }
+        if (needsRenewal(session, now)) {
+            session = session.withExpiration(now.plus(ttl));
+            sessionDAO.touch(id, session.getExpiresAt());
+            writeCookie(ctx, value);
+        }
+        remember(id, session, now);
+        return session;
+    }
+
+    @Override
+    public void close(Context ctx) throws Exception {
+        String value = readCookie(ctx);
+        if (value != null) {
+            String id = hash(value);
+            cache.remove(id);
+            sessionDAO.delete(id);
+        }
+        clearCookie(ctx);
+    }
+
+    /**
+     * Place une session dans le cache local, en libérant de la place si nécessaire.
+     *
+     * @param id L'empreinte du jeton de session
+     * @param session La session à conserver
+     * @param now L'instant de lecture
+     */
+    private void remember(String id, UserSession session, Instant now) {
+        if (cacheTtl.isZero() || cacheMaxEntries <= 0) {
+            return;
+        }
+        if (cache.size() >= cacheMaxEntries) {
+            cache.values().removeIf(entry -> !now.isBefore(entry.cachedUntil()));
+            if (cache.size() >= cacheMaxEntries) {
+                cache.clear();
+            }
+        }
+        cache.put(id, new CachedSession(session, now.plus(cacheTtl)));
+    }
+
+    /**
+     * Calcule l'empreinte SHA-256 d'un jeton de session.
+     *
+     * @param value Le jeton transmis dans le cookie
+     * @return L'empreinte hexadécimale, utilisée comme identifiant en base
+     * @throws NoSuchAlgorithmException Si SHA-256 n'est pas disponible
+     */
+    private static String hash(String value) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
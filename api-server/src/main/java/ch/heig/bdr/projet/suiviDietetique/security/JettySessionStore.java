@@ -0,0 +1,56 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import io.javalin.http.Context;
+import jakarta.servlet.http.HttpSession;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Sessions conservées en mémoire par Jetty (comportement historique).
+ * Une session n'est connue que de la réplique qui l'a créée : le répartiteur de charge
+ * doit alors utiliser des sessions persistantes (sticky) et un redémarrage de la
+ * réplique déconnecte ses utilisateurs.
+ */
+public class JettySessionStore implements SessionStore {
+    /** Durée d'inactivité après laquelle la session expire */
+    private final Duration ttl;
+
+    /**
+     * Constructeur du stockage en mémoire.
+     *
+     * @param ttl La durée d'inactivité maximale d'une session
+     */
+    public JettySessionStore(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public UserSession open(Context ctx, String username, Role role, int noss) {
+        ctx.sessionAttribute("user", username);
+        ctx.sessionAttribute("user-role", role.toString());
+        ctx.sessionAttribute("user-noss", noss);
+        ctx.req().getSession().setMaxInactiveInterval((int) ttl.toSeconds());
+        return new UserSession(username, role, noss, Instant.now().plus(ttl));
+    }
+
+    @Override
+    public UserSession read(Context ctx) {
+        HttpSession session = ctx.req().getSession(false);
+        if (session == null) {
+            return null;
+        }
+        String username = (String) session.getAttribute("user");
+        String userRole = (String) session.getAttribute("user-role");
+        Integer userNoss = (Integer) session.getAttribute("user-noss");
+        if (username == null || userRole == null || userNoss == null) {
+            return null;
+        }
+        return new UserSession(username, Role.fromName(userRole), userNoss, Instant.now().plus(ttl));
+    }
+
+    @Override
+    public void close(Context ctx) {
+        ctx.req().getSession().invalidate();
+    }
+}
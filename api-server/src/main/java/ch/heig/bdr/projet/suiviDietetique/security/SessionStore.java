@@ -0,0 +1,40 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import io.javalin.http.Context;
+
+/**
+ * Mécanisme de stockage des sessions utilisateur.
+ * Les implémentations sont choisies par la variable d'environnement SESSION_STORE
+ * (voir {@link Sessions}).
+ */
+public interface SessionStore {
+
+    /**
+     * Ouvre une session pour l'utilisateur authentifié et l'associe à la réponse.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param username L'adresse email de l'utilisateur
+     * @param role Le rôle de l'utilisateur
+     * @param noss Le numéro de sécurité sociale de l'utilisateur
+     * @return La session créée
+     * @throws Exception Si la session ne peut pas être enregistrée
+     */
+    UserSession open(Context ctx, String username, Role role, int noss) throws Exception;
+
+    /**
+     * Retrouve la session associée à la requête.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return La session valide de l'utilisateur, ou null si aucune session n'est active
+     * @throws Exception Si la session ne peut pas être lue
+     */
+    UserSession read(Context ctx) throws Exception;
+
+    /**
+     * Ferme la session associée à la requête.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @throws Exception Si la session ne peut pas être supprimée
+     */
+    void close(Context ctx) throws Exception;
+}
@@ -0,0 +1,127 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Point d'accès aux sessions utilisateur de l'application.
+ *
+ * Le stockage est choisi par la variable d'environnement SESSION_STORE :
+ * - jetty : sessions en mémoire de la réplique (nécessite des sessions persistantes côté Traefik)
+ * - postgres : sessions partagées en base, avec un cache local de courte durée
+ * - token : jetons signés HMAC, vérifiés sans accès à la base ni à la mémoire
+ */
+public final class Sessions {
+    /** Attribut de requête mémorisant la session déjà lue */
+    private static final String CURRENT_SESSION = "current-session";
+
+    /** Durée d'inactivité après laquelle une session expire (1 heure par défaut) */
+    private static final Duration TTL = Duration.ofSeconds(Env.getLong("SESSION_TTL_SECONDS", 60 * 60));
+
+    /** Stockage des sessions configuré */
+    private static final SessionStore STORE = createStore();
+
+    /** Classe utilitaire, non instanciable */
+    private Sessions() {}
+
+    /**
+     * Crée le stockage des sessions selon la configuration.
+     *
+     * @return Le stockage des sessions
+     * @throws IllegalArgumentException Si SESSION_STORE est inconnu
+     * @throws IllegalStateException Si SESSION_STORE=token sans SESSION_SECRET
+     */
+    private static SessionStore createStore() {
+        boolean secureCookie = Env.getBoolean("SESSION_COOKIE_SECURE", false);
+        String type = Env.get("SESSION_STORE", "jetty").toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "jetty" -> new JettySessionStore(TTL);
+            case "postgres" -> new DatabaseSessionStore(TTL, secureCookie,
+                    Duration.ofMillis(Env.getLong("SESSION_CACHE_TTL_MS", 5_000)),
+                    Env.getInt("SESSION_CACHE_MAX_ENTRIES", 10_000));
+            case "token" -> new TokenSessionStore(secret(), TTL, secureCookie);
+            default -> throw new IllegalArgumentException("Stockage de session inconnu : " + type);
+        };
+    }
+
+    /**
+     * Récupère le secret de signature des jetons, commun à toutes les répliques.
+     *
+     * @return Le secret de signature
+     * @throws IllegalStateException Si SESSION_SECRET n'est pas défini : un secret propre à
+     *         chaque réplique invaliderait les sessions ouvertes sur les autres
+     */
+    private static byte[] secret() {
+        String secret = Env.get("SESSION_SECRET", null);
+        if (secret == null) {
+            throw new IllegalStateException("SESSION_SECRET doit être défini avec SESSION_STORE=token");
+        }
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Crée le stockage des sessions dès le démarrage : une configuration invalide empêche
+     * l'application de démarrer au lieu de faire échouer les premières requêtes.
+     */
+    public static void start() {
+        // Le stockage est créé à l'initialisation de la classe
+    }
+
+    /**
+     * Ouvre une session pour un utilisateur authentifié.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @param username L'adresse email de l'utilisateur
+     * @param role Le rôle de l'utilisateur
+     * @param noss Le numéro de sécurité sociale de l'utilisateur
+     * @return La session créée
+     * @throws Exception Si la session ne peut pas être enregistrée
+     */
+    public static UserSession open(Context ctx, String username, Role role, int noss) throws Exception {
+        UserSession session = STORE.open(ctx, username, role, noss);
+        ctx.attribute(CURRENT_SESSION, session);
+        return session;
+    }
+
+    /**
+     * Retourne la session de la requête courante.
+     * La session n'est lue qu'une fois par requête, même si plusieurs composants la consultent.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return La session active, ou null si l'utilisateur n'est pas connecté
+     * @throws Exception Si la session ne peut pas être lue
+     */
+    public static UserSession current(Context ctx) throws Exception {
+        UserSession session = ctx.attribute(CURRENT_SESSION);
+        if (session == null) {
+            session = STORE.read(ctx);
+            ctx.attribute(CURRENT_SESSION, session);
+        }
+        return session;
+    }
+
+    /**
+     * Retourne la session de la requête courante si elle a déjà été lue, sans accéder au stockage.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @return La session déjà lue, ou null
+     */
+    public static UserSession peek(Context ctx) {
+        return ctx.attribute(CURRENT_SESSION);
+    }
+
+    /**
+     * Ferme la session de la requête courante.
+     *
+     * @param ctx Le contexte de la requête HTTP
+     * @throws Exception Si la session ne peut pas être supprimée
+     */
+    public static void close(Context ctx) throws Exception {
+        STORE.close(ctx);
+        ctx.attribute(CURRENT_SESSION, null);
+    }
+}
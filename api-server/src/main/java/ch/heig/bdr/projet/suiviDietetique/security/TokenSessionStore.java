@@ -0,0 +1,134 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import io.javalin.http.Context;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Sessions sans état : le cookie contient les informations de l'utilisateur et leur
+ * signature HMAC-SHA256. Toute réplique partageant le même secret (SESSION_SECRET)
+ * vérifie la session sans accès à la base de données ni à la mémoire.
+ *
+ * Format du jeton : base64url(noss:ROLE:expiration:email) "." base64url(signature).
+ * Une déconnexion supprime le cookie du client, mais un jeton copié reste valide
+ * jusqu'à son expiration.
+ */
+public class TokenSessionStore extends CookieSessionStore {
+    /** Algorithme de signature des jetons */
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /** Encodeur base64 sans remplissage, utilisable dans un cookie */
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /** Décodeur base64 correspondant */
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** Clé de signature partagée par toutes les répliques */
+    private final SecretKeySpec key;
+
+    /**
+     * Constructeur du stockage par jetons signés.
+     *
+     * @param secret Le secret de signature partagé
+     * @param ttl La durée de validité d'un jeton
+     * @param secureCookie true pour restreindre le cookie à HTTPS
+     */
+    public TokenSessionStore(byte[] secret, Duration ttl, boolean secureCookie) {
+        super(ttl, secureCookie);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    @Override
+    public UserSession open(Context ctx, String username, Role role, int noss) throws GeneralSecurityException {
+        UserSession session = new UserSession(username, role, noss, Instant.now().plus(ttl));
+        writeCookie(ctx, encode(session));
+        return session;
+    }
+
+    @Override
+    public UserSession read(Context ctx) throws GeneralSecurityException {
+        String token = readCookie(ctx);
+        if (token == null) {
+            return null;
+        }
+        UserSession session = decode(token);
+        Instant now = Instant.now();
+        if (session == null || session.isExpired(now)) {
+            return null;
+        }
+        if (needsRenewal(session, now)) {
+            session = session.withExpiration(now.plus(ttl));
+            writeCookie(ctx, encode(session));
+        }
+        return session;
+    }
+
+    @Override
+    public void close(Context ctx) {
+        clearCookie(ctx);
+    }
+
+    /**
+     * Sérialise et signe une session.
+     *
+     * @param session La session à encoder
+     * @return Le jeton signé
+     * @throws GeneralSecurityException Si la signature échoue
+     */
+    private String encode(UserSession session) throws GeneralSecurityException {
+        String payload = session.getNoss() + ":" + session.getRole().name() + ":"
+                + session.getExpiresAt().getEpochSecond() + ":" + session.getUsername();
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(sign(bytes));
+    }
+
+    /**
+     * Vérifie la signature d'un jeton et en extrait la session.
+     *
+     * @param token Le jeton reçu
+     * @return La session, ou null si le jeton est malformé ou sa signature invalide
+     * @throws GeneralSecurityException Si la vérification échoue
+     */
+    private UserSession decode(String token) throws GeneralSecurityException {
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split(":", 4);
+            if (fields.length != 4) {
+                return null;
+            }
+            return new UserSession(fields[3], Role.valueOf(fields[1]), Integer.parseInt(fields[0]),
+                    Instant.ofEpochSecond(Long.parseLong(fields[2])));
+        } catch (IllegalArgumentException e) {
+            // Base64, rôle ou nombre invalide : jeton rejeté
+            return null;
+        }
+    }
+
+    /**
+     * Calcule la signature HMAC d'un contenu.
+     *
+     * @param payload Le contenu à signer
+     * @return La signature
+     * @throws GeneralSecurityException Si l'algorithme n'est pas disponible
+     */
+    private byte[] sign(byte[] payload) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(key);
+        return mac.doFinal(payload);
+    }
+}
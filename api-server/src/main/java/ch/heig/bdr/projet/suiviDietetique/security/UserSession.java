@@ -0,0 +1,72 @@
+package ch.heig.bdr.projet.suiviDietetique.security;
+
+import java.time.Instant;
+
+/**
+ * Session d'un utilisateur connecté, indépendante du mécanisme de stockage.
+ * Contient les informations nécessaires au contrôle d'accès des routes.
+ */
+public class UserSession {
+    /** Adresse email de l'utilisateur */
+    private final String username;
+
+    /** Rôle de l'utilisateur */
+    private final Role role;
+
+    /** Numéro de sécurité sociale de l'utilisateur (0 pour un administrateur) */
+    private final int noss;
+
+    /** Instant d'expiration de la session */
+    private final Instant expiresAt;
+
+    /**
+     * Constructeur d'une session utilisateur.
+     *
+     * @param username L'adresse email de l'utilisateur
+     * @param role Le rôle de l'utilisateur
+     * @param noss Le numéro de sécurité sociale de l'utilisateur
+     * @param expiresAt L'instant d'expiration de la session
+     */
+    public UserSession(String username, Role role, int noss, Instant expiresAt) {
+        this.username = username;
+        this.role = role;
+        this.noss = noss;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public int getNoss() {
+        return noss;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Indique si la session est expirée à l'instant donné.
+     *
+     * @param now L'instant de référence
+     * @return true si la session n'est plus valide
+     */
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    /**
+     * Crée une copie de la session avec une nouvelle date d'expiration.
+     *
+     * @param expiresAt Le nouvel instant d'expiration
+     * @return La session prolongée
+     */
+    public UserSession withExpiration(Instant expiresAt) {
+        return new UserSession(username, role, noss, expiresAt);
+    }
+}
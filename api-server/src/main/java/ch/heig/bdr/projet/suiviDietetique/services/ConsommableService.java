@@ -1,14 +1,127 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
-import ch.heig.bdr.projet.suiviDietetique.dao.ConsommableDAO;
+import ch.heig.bdr.projet.suiviDietetique.cache.AllergyIndex;
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableCatalog;
+import ch.heig.bdr.projet.suiviDietetique.cache.ConsommableSearch;
+import ch.heig.bdr.projet.suiviDietetique.cache.NutrimentIndex;
+import ch.heig.bdr.projet.suiviDietetique.cache.SubstitutionIndex;
 import ch.heig.bdr.projet.suiviDietetique.models.Consommable;
+import ch.heig.bdr.projet.suiviDietetique.models.Nutriment;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class ConsommableService {
-    private final ConsommableDAO consommableDAO = new ConsommableDAO();
+    /** Nombre de résultats par défaut et nombre maximal de résultats d'une requête par nutriments */
+    private static final int LIMITE_REQUETE_DEFAUT = 50;
+    private static final int LIMITE_REQUETE_MAX = 1000;
 
-    public List<Consommable> getAllConsommable() {
-        return consommableDAO.getAllConsommables();
+    /** Nombre de substituts par défaut et nombre maximal de substituts */
+    private static final int LIMITE_SUBSTITUTS_DEFAUT = 10;
+    private static final int LIMITE_SUBSTITUTS_MAX = 50;
+
+    public List<Consommable> getAllConsommable() throws Exception {
+        return ConsommableCatalog.current().toList();
+    }
+
+    public ConsommableCatalog getCatalog() throws Exception {
+        return ConsommableCatalog.current();
+    }
+
+    /**
+     * Recherche les consommables par nom, sans tenir compte des accents ni de la casse,
+     * en tolérant quelques fautes de frappe (voir {@link ConsommableSearch}).
+     *
+     * @param texte Le texte saisi
+     * @param limite Le nombre maximal de résultats, ou null pour la valeur par défaut
+     * @return Les consommables trouvés, du plus pertinent au moins pertinent
+     * @throws IllegalArgumentException Si le texte est absent ou si la limite est invalide
+     * @throws Exception Si le catalogue ne peut pas être lu depuis la base
+     */
+    public List<Consommable> rechercher(String texte, String limite) throws Exception {
+        if (texte == null) {
+            throw new IllegalArgumentException("Le paramètre q est obligatoire");
+        }
+        return ConsommableSearch.chercher(texte,
+                limite == null ? ConsommableSearch.LIMITE_DEFAUT : Integer.parseInt(limite));
+    }
+
+    /**
+     * Recherche les consommables selon leurs valeurs nutritionnelles, en mémoire (voir
+     * {@link NutrimentIndex}), en excluant ceux qui peuvent contenir un allergène du
+     * patient ou un allergène donné.
+     *
+     * @param filtres Les conditions, de la forme nutriment opérateur valeur (ex. sodium&lt;20)
+     * @param type Le type des consommables (ALIMENT ou BOISSON), ou null pour tous
+     * @param patient Le numéro de sécurité sociale du patient dont exclure les allergènes, ou null
+     * @param sans Les noms des allergènes à exclure, séparés par des virgules, ou null
+     * @param tri Le nutriment de tri, précédé de - pour un tri décroissant, ou null pour trier par identifiant
+     * @param limite Le nombre maximal de résultats, ou null pour la valeur par défaut
+     * @return Les consommables trouvés, dans l'ordre demandé
+     * @throws IllegalArgumentException Si un paramètre est invalide
+     * @throws Exception Si le catalogue ou les allergies ne peuvent pas être lus depuis la base
+     */
+    public List<Consommable> requeteNutriments(List<String> filtres, String type, String patient, String sans,
+                                               String tri, String limite) throws Exception {
+        List<NutrimentIndex.Condition> conditions = new ArrayList<>(filtres.size());
+        for (String filtre : filtres) {
+            conditions.add(NutrimentIndex.Condition.parse(filtre));
+        }
+        int nombre = limite == null ? LIMITE_REQUETE_DEFAUT : Integer.parseInt(limite);
+        if (nombre < 1 || nombre > LIMITE_REQUETE_MAX) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + LIMITE_REQUETE_MAX);
+        }
+        boolean decroissant = tri != null && tri.startsWith("-");
+        Nutriment nutrimentTri = tri == null ? null : Nutriment.nutriment(decroissant ? tri.substring(1) : tri);
+
+        BitSet exclus = null;
+        if (patient != null || sans != null) {
+            exclus = AllergyIndex.interdits(patient == null ? null : Integer.parseInt(patient),
+                    sans == null ? List.of() : List.of(sans.split("\\s*,\\s*")));
+        }
+        return ConsommableCatalog.current().nutriments().chercher(conditions,
+                type == null ? null : TypeConsommable.type(type), exclus, nutrimentTri, decroissant, nombre);
+    }
+
+    /**
+     * Propose des substituts à un consommable : les consommables au profil nutritionnel le
+     * plus proche (voir {@link SubstitutionIndex}), du même type par défaut, en excluant ceux
+     * qui peuvent contenir un allergène du patient ou un allergène donné.
+     *
+     * @param id L'identifiant du consommable à remplacer
+     * @param type Le type des substituts (ALIMENT ou BOISSON), ou null pour celui du consommable
+     * @param patient Le numéro de sécurité sociale du patient dont exclure les allergènes, ou null
+     * @param sans Les noms des allergènes à exclure, séparés par des virgules, ou null
+     * @param limite Le nombre maximal de substituts, ou null pour la valeur par défaut
+     * @return Les substituts, du plus proche au plus éloigné
+     * @throws IllegalArgumentException Si un paramètre est invalide ou si le consommable n'existe pas
+     * @throws Exception Si le catalogue ou les allergies ne peuvent pas être lus depuis la base
+     */
+    public List<Consommable> substituts(int id, String type, String patient, String sans, String limite)
+            throws Exception {
+        int nombre = limite == null ? LIMITE_SUBSTITUTS_DEFAUT : Integer.parseInt(limite);
+        if (nombre < 1 || nombre > LIMITE_SUBSTITUTS_MAX) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + LIMITE_SUBSTITUTS_MAX);
+        }
+        ConsommableCatalog catalog = ConsommableCatalog.current();
+        TypeConsommable typeConsommable = catalog.findType(id);
+        if (typeConsommable == null) {
+            throw new IllegalArgumentException("Aucun consommable pour l'identifiant : " + id);
+        }
+
+        BitSet exclus = null;
+        if (patient != null || sans != null) {
+            exclus = AllergyIndex.interdits(patient == null ? null : Integer.parseInt(patient),
+                    sans == null ? List.of() : List.of(sans.split("\\s*,\\s*")));
+        }
+        int[] ids = catalog.substitutions().chercher(id,
+                type == null ? typeConsommable : TypeConsommable.type(type), exclus, nombre);
+        List<Consommable> consommables = new ArrayList<>(ids.length);
+        for (int substitut : ids) {
+            consommables.add(catalog.find(substitut));
+        }
+        return consommables;
     }
 }
@@ -0,0 +1,118 @@
+package ch.heig.bdr.projet.suiviDietetique.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.models.Page;
+
+/**
+ * Curseurs de pagination des listes (pagination par clé).
+ *
+ * Une page est lue à partir de la clé du dernier élément de la page précédente
+ * (WHERE clé > dernière clé ORDER BY clé LIMIT n) : la base parcourt directement l'index
+ * depuis cette position, et le temps de réponse ne dépend pas du nombre de pages déjà lues.
+ *
+ * Le curseur transmis au client encode cette clé et le nom de la liste en base64url. Il est
+ * opaque pour le client mais n'est pas secret : il ne donne accès à rien de plus que la liste
+ * elle-même, dont les droits sont vérifiés à chaque requête.
+ */
+public final class Curseur {
+    /** Nombre d'éléments par page lorsque le client n'en demande pas */
+    public static final int LIMITE_PAR_DEFAUT = Env.getInt("PAGE_SIZE_DEFAULT", 50);
+
+    /** Nombre maximal d'éléments par page */
+    public static final int LIMITE_MAX = Env.getInt("PAGE_SIZE_MAX", 200);
+
+    /** Version du format des curseurs */
+    private static final String VERSION = "v1";
+
+    /** Séparateur des champs d'un curseur décodé */
+    private static final String SEPARATEUR = "|";
+
+    /** Classe utilitaire, non instanciable */
+    private Curseur() {}
+
+    /**
+     * Lit la taille de page demandée par le client.
+     *
+     * @param limite Le paramètre de requête, ou null
+     * @return La taille de page, ramenée à {@link #LIMITE_MAX} si elle le dépasse
+     * @throws IllegalArgumentException Si la valeur n'est pas un entier positif
+     */
+    public static int limite(String limite) {
+        if (limite == null || limite.isEmpty()) {
+            return LIMITE_PAR_DEFAUT;
+        }
+        int valeur;
+        try {
+            valeur = Integer.parseInt(limite);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Taille de page invalide : " + limite);
+        }
+        if (valeur < 1) {
+            throw new IllegalArgumentException("Taille de page invalide : " + limite);
+        }
+        return Math.min(valeur, LIMITE_MAX);
+    }
+
+    /**
+     * Encode la clé d'un élément en curseur.
+     *
+     * @param liste Le nom de la liste parcourue
+     * @param cles Les valeurs de la clé de pagination
+     * @return Le curseur opaque
+     */
+    public static String encoder(String liste, Object... cles) {
+        StringBuilder s = new StringBuilder(VERSION).append(SEPARATEUR).append(liste);
+        for (Object cle : cles) {
+            s.append(SEPARATEUR).append(cle);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur produit par {@link #encoder}.
+     *
+     * @param liste Le nom de la liste parcourue (un curseur d'une autre liste est refusé)
+     * @param curseur Le curseur reçu du client
+     * @param nbCles Le nombre de valeurs de la clé de pagination
+     * @return Les valeurs de la clé, sous forme de texte
+     * @throws IllegalArgumentException Si le curseur est invalide
+     */
+    public static String[] decoder(String liste, String curseur, int nbCles) {
+        String[] champs;
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            champs = s.split("\\" + SEPARATEUR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide.");
+        }
+        if (champs.length != nbCles + 2 || !VERSION.equals(champs[0]) || !liste.equals(champs[1])) {
+            throw new IllegalArgumentException("Curseur invalide.");
+        }
+        String[] cles = new String[nbCles];
+        System.arraycopy(champs, 2, cles, 0, nbCles);
+        return cles;
+    }
+
+    /**
+     * Construit une page à partir des lignes lues. Le DAO lit un élément de plus que la
+     * taille de page : sa présence indique qu'une page suivante existe.
+     *
+     * @param lignes Les lignes lues (au plus limite + 1)
+     * @param limite La taille de page
+     * @param curseur Le calcul du curseur à partir du dernier élément de la page
+     * @param <T> Le type des éléments
+     * @return La page
+     */
+    public static <T> Page<T> page(List<T> lignes, int limite, Function<T, String> curseur) {
+        if (lignes.size() <= limite) {
+            return new Page<>(lignes, null);
+        }
+        List<T> elements = lignes.subList(0, limite);
+        return new Page<>(elements, curseur.apply(elements.get(limite - 1)));
+    }
+}
@@ -2,18 +2,23 @@ package ch.heig.bdr.projet.suiviDietetique.services;
 
 import java.util.List;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCaches;
 import ch.heig.bdr.projet.suiviDietetique.dao.DieteticienDAO;
 import ch.heig.bdr.projet.suiviDietetique.models.Dieteticien;
 import ch.heig.bdr.projet.suiviDietetique.models.Objectif;
 
 public class DieteticienService {
+    /** Lectures simultanées du diététicien d'un patient (voir {@link SingleFlight}), par patient */
+    private static final SingleFlight<String, Dieteticien> DIETETICIENS_PATIENT = new SingleFlight<>("dieteticien_patient");
+
     private final DieteticienDAO dieteticienDAO = new DieteticienDAO();
     public Dieteticien getOneDieteticien(String noss){
-        return dieteticienDAO.getDieteticien(noss);
+        return LookupCaches.DIETETICIENS.get(noss, () -> dieteticienDAO.getDieteticien(noss));
     }
 
     public Dieteticien getOneDieteticienPatient(String noss){
-        return dieteticienDAO.getDieteticienPatient(noss);
+        return LookupCaches.DIETETICIENS_PATIENT.get(noss,
+                () -> DIETETICIENS_PATIENT.execute(noss, () -> dieteticienDAO.getDieteticienPatient(noss)));
     }
 
     public List<Dieteticien> getAllDieteticiens() {
@@ -23,4 +28,13 @@ public class DieteticienService {
     public List<Objectif> getAllObjectif(String noss){
         return dieteticienDAO.getObjectifs(noss);
     }
+
+    /**
+     * Détache la lecture en cours du diététicien d'un patient, après une écriture.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    static void oublierLectures(String noss) {
+        DIETETICIENS_PATIENT.forget(noss);
+    }
 }
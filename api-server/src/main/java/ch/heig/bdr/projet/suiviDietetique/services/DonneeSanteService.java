@@ -1,35 +1,181 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.SerieSante;
+import ch.heig.bdr.projet.suiviDietetique.cache.SeriesSante;
+import ch.heig.bdr.projet.suiviDietetique.config.FanOut;
 import ch.heig.bdr.projet.suiviDietetique.dao.DonneeSanteDAO;
+import ch.heig.bdr.projet.suiviDietetique.dao.PatientDAO;
 import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
+import ch.heig.bdr.projet.suiviDietetique.models.Patient;
+import ch.heig.bdr.projet.suiviDietetique.models.ProgressionSante;
+import ch.heig.bdr.projet.suiviDietetique.models.StatsSante;
 
 /**
  * Service gérant les opérations liées aux données de santé des patients.
  * Cette classe fait le lien entre les contrôleurs et la couche d'accès aux données (DAO).
  * Elle permet d'insérer et de supprimer des données de santé dans la base de données.
+ *
+ * Les lectures sont servies par la série compressée du patient, gardée en mémoire
+ * (voir {@link SeriesSante}) : la base n'est lue qu'au premier accès à un patient.
  */
 public class DonneeSanteService {
+    /** Fuseau des jours et des semaines, comme pour les statistiques nutritionnelles (jour_repas) */
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Zurich");
+
+    /** Lectures simultanées de la série d'un patient (voir {@link SingleFlight}), par patient */
+    private static final SingleFlight<String, SerieSante> SERIES = new SingleFlight<>("series_sante");
+
     /** Instance du DAO pour l'accès aux données de santé */
     private final DonneeSanteDAO donneeSanteDAO = new DonneeSanteDAO();
 
+    /** Instance du DAO des patients, pour la liste des patients d'un diététicien */
+    private final PatientDAO patientDAO = new PatientDAO();
+
     /**
-     * Insère une nouvelle donnée de santé dans la base de données.
-     * 
+     * Insère une nouvelle donnée de santé dans la base de données, puis l'ajoute à la série
+     * du patient si celle-ci est en mémoire.
+     *
      * @param donneeSante L'objet DonneeSante contenant les informations à insérer
      */
     public void insertDonneeSante(DonneeSante donneeSante) {
-        donneeSanteDAO.insertDonneeSante(donneeSante);
+        OffsetDateTime date = donneeSanteDAO.insertDonneeSante(donneeSante);
+        PatientService.oublierLectures(donneeSante.getNossPatient());
+        SeriesSante.ajouter(new DonneeSante(donneeSante.getNossPatient(), date, donneeSante.getTaille(),
+                donneeSante.getPoids(), donneeSante.getTourDeTaille(), donneeSante.getNiveauActivitePhysique()));
     }
 
     /**
      * Supprime une donnée de santé spécifique de la base de données.
-     * 
+     *
      * @param noss Le numéro de sécurité sociale du patient
      * @param date La date et l'heure de la donnée de santé à supprimer
      */
     public void deleteDonneeSante(String noss, OffsetDateTime date) {
         donneeSanteDAO.deleteDonneeSante(noss, date);
+        PatientService.oublierLectures(noss);
+        SeriesSante.invalidate(noss);
+    }
+
+    /**
+     * Récupère les mesures d'un patient prises sur [début, fin[, par date croissante.
+     * Sans début ni fin, toutes les mesures du patient sont retournées.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param debut Le premier jour inclus, au format ISO (yyyy-MM-dd), ou null
+     * @param fin Le premier jour exclu, au format ISO (yyyy-MM-dd), ou null
+     * @return Les mesures de la période
+     * @throws DateTimeParseException Si une date est invalide
+     */
+    public List<DonneeSante> getDonneesSante(String noss, String debut, String fin) {
+        return getSerie(noss).entre(debutPeriode(debut), finPeriode(fin));
+    }
+
+    /**
+     * Récupère la mesure la plus récente d'un patient.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @return La dernière mesure, ou null si le patient n'en a aucune
+     */
+    public DonneeSante getDerniereDonneeSante(String noss) {
+        return getSerie(noss).derniere();
+    }
+
+    /**
+     * Récupère l'évolution des mesures d'un patient par semaine (minimum, maximum et moyenne
+     * du poids, du tour de taille et de l'IMC) sur [début, fin[. Sans début ni fin, toutes
+     * les semaines ayant au moins une mesure sont retournées.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param debut Le premier jour inclus, au format ISO (yyyy-MM-dd), ou null
+     * @param fin Le premier jour exclu, au format ISO (yyyy-MM-dd), ou null
+     * @return Les statistiques des semaines ayant au moins une mesure, par semaine croissante
+     * @throws DateTimeParseException Si une date est invalide
+     */
+    public List<StatsSante> getStatsSanteSemaines(String noss, String debut, String fin) {
+        return getSerie(noss).parSemaine(debutPeriode(debut), finPeriode(fin), FUSEAU);
+    }
+
+    /**
+     * Calcule la progression des mesures d'un patient sur [début, fin[ : variations, tendances
+     * (pentes par semaine) du poids, du tour de taille et de l'IMC, et extrêmes de l'IMC.
+     * Les bornes ne doivent pas correspondre à des mesures : la progression porte sur la
+     * première et la dernière mesure de la période.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param debut Le premier jour inclus, au format ISO (yyyy-MM-dd), ou null
+     * @param fin Le premier jour exclu, au format ISO (yyyy-MM-dd), ou null
+     * @return La progression du patient sur la période
+     * @throws DateTimeParseException Si une date est invalide
+     */
+    public ProgressionSante getProgression(String noss, String debut, String fin) {
+        return getSerie(noss).progression(debutPeriode(debut), finPeriode(fin));
+    }
+
+    /**
+     * Calcule la progression de tous les patients d'un diététicien sur [début, fin[ (voir
+     * {@link #getProgression}). Les séries des patients qui ne sont pas en mémoire sont lues
+     * en base en parallèle (voir {@link FanOut}).
+     *
+     * @param nossDieteticien Le numéro de sécurité sociale du diététicien
+     * @param debut Le premier jour inclus, au format ISO (yyyy-MM-dd), ou null
+     * @param fin Le premier jour exclu, au format ISO (yyyy-MM-dd), ou null
+     * @return Les progressions des patients du diététicien, par noSS croissant
+     * @throws DateTimeParseException Si une date est invalide
+     * @throws Exception Si la lecture d'une série échoue
+     */
+    public List<ProgressionSante> getProgressionsDieteticien(String nossDieteticien, String debut, String fin)
+            throws Exception {
+        long debutPeriode = debutPeriode(debut);
+        long finPeriode = finPeriode(fin);
+        Map<String, Callable<?>> calculs = new LinkedHashMap<>();
+        patientDAO.getPatientDieteticien(nossDieteticien).stream()
+                .map(Patient::getNoSS)
+                .sorted(Comparator.comparingInt(Integer::parseInt))
+                .forEach(noss -> calculs.put(noss, () -> getSerie(noss).progression(debutPeriode, finPeriode)));
+
+        List<ProgressionSante> progressions = new ArrayList<>(calculs.size());
+        for (Object progression : FanOut.all(calculs).values()) {
+            progressions.add((ProgressionSante) progression);
+        }
+        return progressions;
+    }
+
+    /**
+     * Retourne la série d'un patient, lue en base au premier accès.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @return La série du patient
+     */
+    private SerieSante getSerie(String noss) {
+        return SeriesSante.get(noss, () -> SERIES.execute(noss,
+                () -> SerieSante.de(noss, donneeSanteDAO.getSerie(noss))));
+    }
+
+    private static long debutPeriode(String debut) {
+        return debut == null ? Long.MIN_VALUE : LocalDate.parse(debut).atStartOfDay(FUSEAU).toEpochSecond();
+    }
+
+    private static long finPeriode(String fin) {
+        return fin == null ? Long.MAX_VALUE : LocalDate.parse(fin).atStartOfDay(FUSEAU).toEpochSecond();
+    }
+
+    /**
+     * Oublie les lectures en cours de la série d'un patient, après une écriture.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    static void oublierLectures(String noss) {
+        SERIES.forget(noss);
     }
 }
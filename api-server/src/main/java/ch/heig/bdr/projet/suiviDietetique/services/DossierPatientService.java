@@ -0,0 +1,88 @@
+package ch.heig.bdr.projet.suiviDietetique.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import ch.heig.bdr.projet.suiviDietetique.config.FanOut;
+
+/**
+ * Dossier d'un patient : les informations affichées par sa page, lues en un seul appel.
+ *
+ * Chaque section du dossier correspond à une route existante (patient, diététicien, données
+ * de santé, objectifs, allergies, première page des repas). Les sections sont indépendantes :
+ * elles sont lues en parallèle (voir {@link FanOut}), et le client peut ne demander que
+ * celles qu'il affiche.
+ */
+public class DossierPatientService {
+    /** Sections du dossier, dans l'ordre de la réponse */
+    public static final List<String> SECTIONS =
+            List.of("patient", "dieteticien", "sante", "objectifs", "allergies", "repas");
+
+    private final PatientService patientService = new PatientService();
+    private final DieteticienService dieteticienService = new DieteticienService();
+    private final RepasService repasService = new RepasService();
+
+    /**
+     * Lit les sections demandées du dossier d'un patient.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param sections Les sections demandées, séparées par des virgules, ou null pour toutes
+     * @param interval L'intervalle des repas (voir la liste des repas du patient), ou null
+     * @param limite La taille de la page de repas, ou null
+     * @return Les sections demandées, par nom ; la section repas est une page de repas
+     * @throws IllegalArgumentException Si une section ou un paramètre des repas est invalide
+     * @throws Exception Si la lecture d'une section échoue
+     */
+    public Map<String, Object> getDossier(String noss, String sections, String interval, String limite)
+            throws Exception {
+        Map<String, Callable<?>> lectures = new LinkedHashMap<>();
+        for (String section : sections(sections)) {
+            lectures.put(section, switch (section) {
+                case "patient" -> () -> patientService.getOnePatient(noss);
+                case "dieteticien" -> () -> dieteticienService.getOneDieteticienPatient(noss);
+                case "sante" -> () -> patientService.getAllDonneeSantee(noss);
+                case "objectifs" -> () -> patientService.getAllObjectif(noss);
+                case "allergies" -> () -> patientService.getAllAllergies(noss);
+                case "repas" -> {
+                    // Paramètres vérifiés avant de lancer les lectures
+                    Curseur.limite(limite);
+                    yield () -> repasService.getRepasByPatient(noss, interval, limite, null);
+                }
+                default -> throw new IllegalStateException(section);
+            });
+        }
+        return FanOut.all(lectures);
+    }
+
+    /**
+     * Lit la liste des sections demandées.
+     *
+     * @param sections Les sections séparées par des virgules, ou null pour toutes
+     * @return Les sections demandées, sans doublon, dans l'ordre de {@link #SECTIONS}
+     * @throws IllegalArgumentException Si une section est inconnue ou si aucune n'est demandée
+     */
+    private static List<String> sections(String sections) {
+        if (sections == null) {
+            return SECTIONS;
+        }
+        List<String> demandees = new ArrayList<>();
+        for (String section : sections.split(",")) {
+            String nom = section.trim();
+            if (nom.isEmpty()) {
+                continue;
+            }
+            if (!SECTIONS.contains(nom)) {
+                throw new IllegalArgumentException("Section inconnue : " + nom
+                        + " (sections disponibles : " + String.join(", ", SECTIONS) + ")");
+            }
+            demandees.add(nom);
+        }
+        if (demandees.isEmpty()) {
+            throw new IllegalArgumentException("Aucune section demandée.");
+        }
+        return SECTIONS.stream().filter(demandees::contains).toList();
+    }
+}
@@ -1,21 +1,62 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.stream.Stream;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCaches;
 import ch.heig.bdr.projet.suiviDietetique.dao.InfirmierDAO;
 import ch.heig.bdr.projet.suiviDietetique.models.Infirmier;
+import ch.heig.bdr.projet.suiviDietetique.models.Page;
 import ch.heig.bdr.projet.suiviDietetique.models.Repas;
 
 public class InfirmierService {
+    /** Nom de la liste des repas d'un infirmier dans les curseurs de pagination */
+    private static final String CURSEUR_REPAS_INFIRMIER = "repas-infirmier";
+
     private final InfirmierDAO infirmierDAO = new InfirmierDAO();
     public Infirmier getOneInfirmier(String noss){
-        return infirmierDAO.getInfirmier(noss);
+        return LookupCaches.INFIRMIERS.get(noss, () -> infirmierDAO.getInfirmier(noss));
     }
 
     public List<Infirmier> getAllInfirmiers() {
         return infirmierDAO.getAll();
     }
-    public List<Repas> getAllRepas(String nossInfirmier){
-        return infirmierDAO.getRepas(nossInfirmier);
+
+    /**
+     * Récupère une page des repas servis par un infirmier, triés par patient puis par date.
+     * La clé de pagination est (patient, date de consommation).
+     *
+     * @param nossInfirmier Le numéro de sécurité sociale de l'infirmier
+     * @param limite La taille de page demandée, ou null
+     * @param curseur Le curseur de la page précédente, ou null pour la première page
+     * @return La page de repas
+     * @throws IllegalArgumentException Si le curseur ou la taille de page est invalide
+     */
+    public Page<Repas> getRepas(String nossInfirmier, String limite, String curseur){
+        int taille = Curseur.limite(limite);
+        int apresPatient = Integer.MIN_VALUE;
+        OffsetDateTime apresDate = null;
+        if (curseur != null) {
+            String[] cle = Curseur.decoder(CURSEUR_REPAS_INFIRMIER, curseur, 2);
+            apresPatient = Integer.parseInt(cle[0]);
+            apresDate = Instant.parse(cle[1]).atOffset(ZoneOffset.UTC);
+        }
+        List<Repas> repas = infirmierDAO.getRepasPage(nossInfirmier, apresPatient, apresDate, taille + 1);
+        return Curseur.page(repas, taille,
+                r -> Curseur.encoder(CURSEUR_REPAS_INFIRMIER, r.nossPatient, r.dateConsommation.toInstant()));
+    }
+
+    /**
+     * Lit en flux tous les repas servis par un infirmier, pour un export sans pagination.
+     *
+     * @param nossInfirmier Le numéro de sécurité sociale de l'infirmier
+     * @return Le flux des repas, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Repas> streamRepas(String nossInfirmier) throws Exception {
+        return infirmierDAO.streamRepas(nossInfirmier);
     }
 }
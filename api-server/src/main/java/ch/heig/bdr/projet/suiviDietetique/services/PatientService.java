@@ -1,22 +1,58 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCaches;
 import ch.heig.bdr.projet.suiviDietetique.dao.PatientDAO;
 import ch.heig.bdr.projet.suiviDietetique.models.Allergene;
 import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
 import ch.heig.bdr.projet.suiviDietetique.models.Patient;
 import ch.heig.bdr.projet.suiviDietetique.models.Objectif;
+import ch.heig.bdr.projet.suiviDietetique.models.Page;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class PatientService {
 
+    /** Nom de la liste des patients dans les curseurs de pagination */
+    private static final String CURSEUR_PATIENTS = "patients";
+
+    /** Lectures simultanées d'un patient et de son dossier (voir {@link SingleFlight}), par patient */
+    private static final SingleFlight<String, Patient> PATIENTS = new SingleFlight<>("patient");
+    private static final SingleFlight<String, List<Objectif>> OBJECTIFS = new SingleFlight<>("objectifs");
+    private static final SingleFlight<String, List<Allergene>> ALLERGIES = new SingleFlight<>("allergies");
+
     private final PatientDAO patientDAO = new PatientDAO();
+    private final DonneeSanteService donneeSanteService = new DonneeSanteService();
 
     public void insertPatient(Patient patient) {
-        patientDAO.insertPatient(patient);}
+        patientDAO.insertPatient(patient);
+        oublierLectures(patient.getNoSS());
+        LookupCaches.invalidatePatient(patient.getNoSS());}
+
+    /**
+     * Récupère une page de la liste des patients, triée par numéro de sécurité sociale.
+     *
+     * @param limite La taille de page demandée, ou null
+     * @param curseur Le curseur de la page précédente, ou null pour la première page
+     * @return La page de patients
+     * @throws IllegalArgumentException Si le curseur ou la taille de page est invalide
+     */
+    public Page<Patient> getPatients(String limite, String curseur) {
+        int taille = Curseur.limite(limite);
+        int apres = curseur == null ? Integer.MIN_VALUE
+                : Integer.parseInt(Curseur.decoder(CURSEUR_PATIENTS, curseur, 1)[0]);
+        List<Patient> patients = patientDAO.getPage(apres, taille + 1);
+        return Curseur.page(patients, taille, p -> Curseur.encoder(CURSEUR_PATIENTS, p.getNoSS()));
+    }
 
-    public List<Patient> getAllPatients() {
-        return patientDAO.getAll();
+    /**
+     * Lit la liste complète des patients en flux, pour un export sans pagination.
+     *
+     * @return Le flux des patients, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Patient> streamPatients() throws Exception {
+        return patientDAO.streamPatients();
     }
 
     public List<Patient> getAllPatientDieteticien(String noss){
@@ -24,27 +60,45 @@ public class PatientService {
     }
 
     public Patient getOnePatient(String noss){
-        return patientDAO.getPatient(noss);
+        return LookupCaches.PATIENTS.get(noss, () -> PATIENTS.execute(noss, () -> patientDAO.getPatient(noss)));
     }
 
     public List<DonneeSante> getAllDonneeSantee(String noss){
-        return patientDAO.getDonneeSantee(noss);
+        return donneeSanteService.getDonneesSante(noss, null, null);
     }
 
     public List<Objectif> getAllObjectif(String noss){
-        return patientDAO.getObjectif(noss);
+        return OBJECTIFS.execute(noss, () -> patientDAO.getObjectif(noss));
     }
 
     public List<Allergene> getAllAllergies(String noss){
-        return patientDAO.getAllergies(noss);
+        return LookupCaches.ALLERGIES.get(noss, () -> ALLERGIES.execute(noss, () -> patientDAO.getAllergies(noss)));
     }
 
     public void updatePatient(Patient patient, String noss){ 
         patientDAO.updatePatient(patient, noss);
+        oublierLectures(noss);
+        LookupCaches.invalidatePatient(noss);
     }
 
     public boolean deleteOnePatient(String noss){
-         return patientDAO.deletePatient(noss);
+         boolean supprime = patientDAO.deletePatient(noss);
+         oublierLectures(noss);
+         LookupCaches.invalidatePatient(noss);
+         return supprime;
+    }
+
+    /**
+     * Détache les lectures en cours du dossier d'un patient, après une écriture.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    static void oublierLectures(String noss) {
+        PATIENTS.forget(noss);
+        DonneeSanteService.oublierLectures(noss);
+        OBJECTIFS.forget(noss);
+        ALLERGIES.forget(noss);
+        DieteticienService.oublierLectures(noss);
     }
 
 }
\ No newline at end of file
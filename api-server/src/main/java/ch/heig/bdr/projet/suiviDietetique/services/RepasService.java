@@ -1,25 +1,224 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
+import ch.heig.bdr.projet.suiviDietetique.cache.AllergyIndex;
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.AllergieException;
+import ch.heig.bdr.projet.suiviDietetique.models.ConflitAllergie;
 import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
+import ch.heig.bdr.projet.suiviDietetique.models.Page;
 import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import ch.heig.bdr.projet.suiviDietetique.models.ResultatLotRepas;
+import ch.heig.bdr.projet.suiviDietetique.models.ResultatRepas;
 
 import ch.heig.bdr.projet.suiviDietetique.dao.RepasDao;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class RepasService {
+    /** Nom de la liste des repas d'un patient dans les curseurs de pagination */
+    private static final String CURSEUR_REPAS = "repas";
+
+    /** Lectures simultanées des pages de repas d'un patient */
+    private static final SingleFlight<CleRepas, Page<Repas>> PAGES_REPAS = new SingleFlight<>("repas_patient");
+
+    /**
+     * Clé d'une lecture de page de repas : le patient et les paramètres de la page.
+     */
+    private record CleRepas(String noss, String interval, String limite, String curseur) {}
+
+    /** Nombre maximal de repas d'un lot */
+    private static final int TAILLE_MAX_LOT = Env.getInt("API_REPAS_LOT_MAX", 500);
+
     private final RepasDao repasDAO = new RepasDao();
 
+    /**
+     * Crée un repas après avoir vérifié les allergies du patient, avant toute transaction.
+     *
+     * @param repas Le repas à créer
+     * @throws AllergieException Si un consommable contient un allergène du patient
+     */
     public void createRepas(Repas repas){
+        List<ConflitAllergie> conflits = verifierAllergies(repas);
+        if (!conflits.isEmpty()) {
+            String consommables = conflits.stream()
+                    .map(c -> c.getNomConsommable() + " (" + String.join(", ", c.getAllergenes()) + ")")
+                    .collect(Collectors.joining(", "));
+            throw new AllergieException("Erreur d'allergie détectée : le patient " + repas.nossPatient
+                    + " est allergique à " + consommables, conflits);
+        }
         repasDAO.insertRepas(repas);
+        oublierLectures(repas.nossPatient);
+    }
+
+    /**
+     * Crée un lot de repas, de patients quelconques (par exemple tous les repas d'un service
+     * au déjeuner). Chaque repas est validé et vérifié contre les allergies de son patient
+     * (index en mémoire) ; les repas valides sont ensuite insérés ensemble, en une transaction
+     * et deux instructions. Si l'insertion du lot échoue (allergie ajoutée entre-temps, patient
+     * ou consommable inconnu...), chaque repas est inséré seul pour n'écarter que ceux en cause.
+     * Un repas refusé n'empêche donc pas la création des autres.
+     *
+     * @param lot Les repas à créer
+     * @return Le résultat de chaque repas, dans l'ordre du lot
+     * @throws IllegalArgumentException Si le lot est vide ou dépasse la taille maximale
+     */
+    public ResultatLotRepas createRepasLot(List<Repas> lot){
+        if (lot == null || lot.isEmpty() || lot.size() > TAILLE_MAX_LOT) {
+            throw new IllegalArgumentException("Le lot doit contenir entre 1 et " + TAILLE_MAX_LOT + " repas.");
+        }
+        ResultatRepas[] resultats = new ResultatRepas[lot.size()];
+        List<Integer> valides = new ArrayList<>();
+        for (int i = 0; i < lot.size(); i++) {
+            Repas repas = lot.get(i);
+            try {
+                String erreur = valider(repas);
+                List<ConflitAllergie> conflits = erreur == null ? verifierAllergies(repas) : List.of();
+                if (erreur == null && !conflits.isEmpty()) {
+                    erreur = "Un consommable contient un allergène pour ce patient.";
+                }
+                if (erreur != null) {
+                    resultats[i] = ResultatRepas.refuse(i, repas == null ? null : repas.nossPatient, erreur,
+                            conflits.isEmpty() ? null : conflits);
+                } else {
+                    valides.add(i);
+                }
+            } catch (Exception e) {
+                resultats[i] = ResultatRepas.refuse(i, repas.nossPatient, e.getMessage(), null);
+            }
+        }
+
+        try {
+            inserer(lot, valides, resultats);
+        } catch (Exception e) {
+            // Le lot est annulé en entier : chaque repas est inséré seul pour isoler ceux en cause
+            for (int i : valides) {
+                try {
+                    inserer(lot, List.of(i), resultats);
+                } catch (Exception erreurRepas) {
+                    resultats[i] = ResultatRepas.refuse(i, lot.get(i).nossPatient, erreurRepas.getMessage(), null);
+                }
+            }
+        }
+
+        int crees = 0;
+        for (ResultatRepas resultat : resultats) {
+            if (resultat.cree()) {
+                crees++;
+                oublierLectures(resultat.nossPatient());
+            }
+        }
+        return new ResultatLotRepas(crees, resultats.length - crees, List.of(resultats));
     }
-    public List<Repas> getAllRepasByPatient_All(String noss){
-        return repasDAO.getRepasPatient_All(noss);
+
+    /**
+     * Insère des repas d'un lot dans une transaction et enregistre leur résultat.
+     *
+     * @param lot Le lot de repas
+     * @param indices Les positions des repas à insérer
+     * @param resultats Les résultats du lot, complétés pour les repas insérés ou ignorés
+     */
+    private void inserer(List<Repas> lot, List<Integer> indices, ResultatRepas[] resultats){
+        if (indices.isEmpty()) {
+            return;
+        }
+        List<Repas> repas = indices.stream().map(lot::get).toList();
+        List<OffsetDateTime> dates = repasDAO.insertRepasLot(repas);
+        for (int j = 0; j < indices.size(); j++) {
+            int i = indices.get(j);
+            resultats[i] = dates.get(j) != null
+                    ? ResultatRepas.cree(i, lot.get(i).nossPatient, dates.get(j))
+                    : ResultatRepas.refuse(i, lot.get(i).nossPatient,
+                            "Un repas existe déjà à cette date pour ce patient.", null);
+        }
     }
 
-    public List<Repas> getAllRepasByPatient_interval(String noss, String interval){
-        return repasDAO.getRepasPatient_interval(noss, interval);
+    /**
+     * Vérifie qu'un repas d'un lot peut être inséré (patient, infirmier et type renseignés).
+     *
+     * @param repas Le repas à valider
+     * @return La raison du refus, ou null si le repas est valide
+     */
+    private static String valider(Repas repas){
+        if (repas == null) {
+            return "Repas absent.";
+        }
+        if (repas.nossPatient == null || !repas.nossPatient.matches("\\d{1,9}")) {
+            return "Numéro de sécurité sociale du patient invalide.";
+        }
+        if (repas.nossInfirmier != null && !repas.nossInfirmier.isEmpty()
+                && !repas.nossInfirmier.matches("\\d{1,9}")) {
+            return "Numéro de sécurité sociale de l'infirmier invalide.";
+        }
+        if (repas.type == null) {
+            return "Type de repas absent.";
+        }
+        return null;
+    }
+
+    /**
+     * Vérifie les consommables d'un repas contre les allergies du patient, sans créer le repas.
+     *
+     * @param repas Le repas à vérifier (patient et consommables)
+     * @return Les consommables incompatibles (liste vide si le repas est compatible)
+     */
+    public List<ConflitAllergie> verifierAllergies(Repas repas){
+        int[] ids = repas.consommableQuantities == null ? new int[0]
+                : repas.consommableQuantities.stream().mapToInt(ConsommableQuantity::getId).toArray();
+        try {
+            return AllergyIndex.conflits(Integer.parseInt(repas.nossPatient), ids);
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de la vérification des allergies : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Récupère une page des repas d'un patient, du plus récent au plus ancien.
+     * La clé de pagination est (patient, date de consommation). Les lectures simultanées
+     * de la même page sont regroupées (voir {@link SingleFlight}).
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param interval L'intervalle de temps (format accepté par PostgreSQL), ou null pour tout l'historique
+     * @param limite La taille de page demandée, ou null
+     * @param curseur Le curseur de la page précédente, ou null pour la première page
+     * @return La page de repas
+     * @throws IllegalArgumentException Si le curseur ou la taille de page est invalide
+     */
+    public Page<Repas> getRepasByPatient(String noss, String interval, String limite, String curseur){
+        return PAGES_REPAS.execute(new CleRepas(noss, interval, limite, curseur),
+                () -> lirePageRepas(noss, interval, limite, curseur));
+    }
+
+    private Page<Repas> lirePageRepas(String noss, String interval, String limite, String curseur){
+        int taille = Curseur.limite(limite);
+        OffsetDateTime avant = null;
+        if (curseur != null) {
+            String[] cle = Curseur.decoder(CURSEUR_REPAS, curseur, 2);
+            if (!cle[0].equals(noss)) {
+                throw new IllegalArgumentException("Curseur invalide.");
+            }
+            avant = Instant.parse(cle[1]).atOffset(ZoneOffset.UTC);
+        }
+        List<Repas> repas = repasDAO.getRepasPatientPage(noss, interval, avant, taille + 1);
+        return Curseur.page(repas, taille,
+                r -> Curseur.encoder(CURSEUR_REPAS, r.nossPatient, r.dateConsommation.toInstant()));
+    }
+
+    /**
+     * Lit en flux tous les repas d'un patient, pour un export sans pagination.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param interval L'intervalle de temps, ou null pour tout l'historique
+     * @return Le flux des repas, à fermer par l'appelant
+     * @throws Exception Si la lecture ne peut pas démarrer
+     */
+    public Stream<Repas> streamRepasByPatient(String noss, String interval) throws Exception {
+        return repasDAO.streamRepasPatient(noss, interval);
     }
 
     public Repas getRepas(String noss,OffsetDateTime date){
@@ -31,6 +230,17 @@ public class RepasService {
     }
 
     public boolean deleteRepas(String noss, OffsetDateTime dateRepas){
-        return repasDAO.deleteRepasPatient(noss, dateRepas);
+        boolean supprime = repasDAO.deleteRepasPatient(noss, dateRepas);
+        oublierLectures(noss);
+        return supprime;
+    }
+
+    /**
+     * Détache les lectures en cours des repas d'un patient, après une écriture.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     */
+    private static void oublierLectures(String noss) {
+        PAGES_REPAS.forgetIf(cle -> cle.noss().equals(noss));
     }
 }
@@ -0,0 +1,155 @@
+package ch.heig.bdr.projet.suiviDietetique.services;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement des lectures identiques simultanées (single-flight).
+ *
+ * Lorsque plusieurs requêtes demandent en même temps la même lecture (par exemple
+ * plusieurs soignants qui ouvrent le même patient pendant la visite), seule la première
+ * l'exécute en base ; les suivantes attendent son résultat et le reçoivent tel quel.
+ * Rien n'est conservé après la lecture : une requête qui arrive une fois la lecture
+ * terminée en lance une nouvelle.
+ *
+ * Le résultat est partagé entre les appelants et ne doit donc pas être modifié. Après
+ * une écriture, le service concerné appelle {@link #forget} : les requêtes suivantes
+ * ne rejoignent plus une lecture lancée avant l'écriture.
+ *
+ * @param <K> Le type de la clé d'une lecture
+ * @param <V> Le type du résultat
+ */
+public final class SingleFlight<K, V> {
+    /** Groupes de lectures créés, pour les métriques */
+    private static final List<SingleFlight<?, ?>> GROUPS = new CopyOnWriteArrayList<>();
+
+    /** Nom du groupe dans les métriques */
+    private final String name;
+
+    /** Lectures en cours, par clé */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** Nombre de lectures exécutées en base */
+    private final LongAdder executed = new LongAdder();
+
+    /** Nombre d'appels servis par une lecture déjà en cours */
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Crée un groupe de lectures.
+     *
+     * @param name Le nom du groupe dans les métriques
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+        GROUPS.add(this);
+    }
+
+    /**
+     * Exécute une lecture, ou attend le résultat de la même lecture déjà en cours.
+     *
+     * @param key La clé de la lecture
+     * @param lecture La lecture à exécuter si aucune n'est en cours pour cette clé
+     * @return Le résultat de la lecture
+     */
+    public V execute(K key, Supplier<V> lecture) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+        try {
+            V value = lecture.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Détache les lectures en cours d'une clé : les appels suivants en lancent une nouvelle.
+     * Les appelants qui attendent déjà une lecture en reçoivent le résultat.
+     *
+     * @param key La clé des lectures à détacher
+     */
+    public void forget(K key) {
+        if (key != null) {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * Détache les lectures en cours dont la clé vérifie une condition.
+     *
+     * @param condition La condition sur la clé
+     */
+    public void forgetIf(Predicate<K> condition) {
+        inFlight.keySet().removeIf(condition);
+    }
+
+    /**
+     * Attend le résultat d'une lecture lancée par un autre appel.
+     *
+     * @param flight La lecture en cours
+     * @return Son résultat
+     */
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getShared() {
+        return shared.sum();
+    }
+
+    /**
+     * Retourne la part des appels servis par une lecture déjà en cours.
+     *
+     * @return Le taux de regroupement, entre 0 et 1
+     */
+    public double getCoalescingRatio() {
+        long executedCalls = getExecuted();
+        long sharedCalls = getShared();
+        long total = executedCalls + sharedCalls;
+        return total == 0 ? 0 : (double) sharedCalls / total;
+    }
+
+    /**
+     * Retourne les groupes de lectures de l'instance.
+     *
+     * @return Les groupes, dans l'ordre de création
+     */
+    public static List<SingleFlight<?, ?>> groups() {
+        return GROUPS;
+    }
+}
@@ -0,0 +1,122 @@
+package ch.heig.bdr.projet.suiviDietetique.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Database;
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.dao.StatistiquesDAO;
+import ch.heig.bdr.projet.suiviDietetique.models.Granularite;
+import ch.heig.bdr.projet.suiviDietetique.models.StatsNutrition;
+
+/**
+ * Service gérant les statistiques nutritionnelles agrégées des patients.
+ * Les statistiques sont lues dans les tables d'agrégats par jour et par semaine,
+ * sans relire les repas ; leur reconstruction complète est faite par paquets de patients.
+ */
+public class StatistiquesService {
+    /** Nombre de patients reconstruits par transaction */
+    private static final int PATIENTS_PAR_PAQUET = Env.getInt("STATS_REBUILD_BATCH_SIZE", 200);
+
+    /** Nombre de paquets reconstruits en parallèle (au plus la moitié du pool, le reste servant aux requêtes) */
+    private static final int PARALLELISME = Env.getInt("STATS_REBUILD_PARALLELISM", 4);
+
+    /** Fuseau des jours et des semaines des agrégats (voir jour_repas) */
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Zurich");
+
+    /** Période retournée par défaut : 30 jours ou 12 semaines */
+    private static final int JOURS_PAR_DEFAUT = 30;
+    private static final int SEMAINES_PAR_DEFAUT = 12;
+
+    /** Instance du DAO pour l'accès aux statistiques */
+    private final StatistiquesDAO statistiquesDAO = new StatistiquesDAO();
+
+    /**
+     * Récupère l'évolution nutritionnelle d'un patient, par jour ou par semaine, sur [début, fin[.
+     * Sans fin, la période se termine aujourd'hui inclus (jour local, Europe/Zurich) ; sans début, elle couvre les 30 derniers
+     * jours ou les 12 dernières semaines. Par semaine, le début est ramené au lundi de sa semaine.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @param granularite "jour" ou "semaine" (jour si null)
+     * @param debut Le premier jour inclus, au format ISO (yyyy-MM-dd), ou null
+     * @param fin Le premier jour exclu, au format ISO (yyyy-MM-dd), ou null
+     * @return Les statistiques des périodes ayant au moins un repas, par période croissante
+     * @throws IllegalArgumentException Si un paramètre est invalide
+     * @throws Exception Si la lecture échoue
+     */
+    public List<StatsNutrition> getStatsNutrition(String noss, String granularite, String debut, String fin)
+            throws Exception {
+        Granularite g = granularite == null ? Granularite.JOUR : Granularite.granularite(granularite);
+        LocalDate dateFin = fin == null ? LocalDate.now(FUSEAU).plusDays(1) : LocalDate.parse(fin);
+        LocalDate dateDebut;
+        if (debut != null) {
+            dateDebut = LocalDate.parse(debut);
+        } else if (g == Granularite.SEMAINE) {
+            dateDebut = dateFin.minusWeeks(SEMAINES_PAR_DEFAUT);
+        } else {
+            dateDebut = dateFin.minusDays(JOURS_PAR_DEFAUT);
+        }
+        if (g == Granularite.SEMAINE) {
+            dateDebut = dateDebut.with(DayOfWeek.MONDAY);
+        }
+        if (!dateDebut.isBefore(dateFin)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin.");
+        }
+        return statistiquesDAO.getStatsNutrition(Integer.parseInt(noss), g, dateDebut, dateFin);
+    }
+
+    /**
+     * Reconstruit les statistiques de tous les patients à partir de leurs repas.
+     * Les patients sont découpés en paquets reconstruits chacun dans sa propre transaction,
+     * plusieurs paquets à la fois. Les insertions de repas restent possibles pendant la
+     * reconstruction : la base les ordonne patient par patient (verrous consultatifs).
+     * Un échec interrompt la reconstruction ; les paquets déjà traités restent valides et
+     * la reconstruction peut être relancée.
+     *
+     * @return Le nombre de patients, de paquets et de repas traités, et la durée en millisecondes
+     * @throws Exception Si la reconstruction d'un paquet échoue
+     */
+    public Map<String, Object> reconstruireStats() throws Exception {
+        long start = System.nanoTime();
+        int[] patients = statistiquesDAO.getPatients();
+
+        List<int[]> paquets = new ArrayList<>();
+        for (int i = 0; i < patients.length; i += PATIENTS_PAR_PAQUET) {
+            paquets.add(Arrays.copyOfRange(patients, i, Math.min(i + PATIENTS_PAR_PAQUET, patients.length)));
+        }
+
+        int threads = Math.max(1, Math.min(PARALLELISME, Math.min(paquets.size(), Database.getMaxPoolSize() / 2)));
+        long repas = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Integer>> resultats = new ArrayList<>();
+            for (int[] paquet : paquets) {
+                resultats.add(executor.submit(() -> statistiquesDAO.reconstruireStats(paquet)));
+            }
+            try {
+                for (Future<Integer> resultat : resultats) {
+                    repas += resultat.get();
+                }
+            } catch (ExecutionException e) {
+                resultats.forEach(r -> r.cancel(true));
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        Map<String, Object> resume = new LinkedHashMap<>();
+        resume.put("patients", patients.length);
+        resume.put("paquets", paquets.size());
+        resume.put("repas", repas);
+        resume.put("dureeMs", (System.nanoTime() - start) / 1_000_000);
+        return resume;
+    }
+}
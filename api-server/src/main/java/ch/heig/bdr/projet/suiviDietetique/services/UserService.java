@@ -1,6 +1,7 @@
 package ch.heig.bdr.projet.suiviDietetique.services;
 
 
+import ch.heig.bdr.projet.suiviDietetique.cache.LookupCaches;
 import ch.heig.bdr.projet.suiviDietetique.dao.UserDAO;
 
 import ch.heig.bdr.projet.suiviDietetique.models.User;
@@ -11,10 +12,14 @@ public class UserService {
 
     public void createUser(String email, String hashedPassword, Role role){
         userDAO.insert(email,hashedPassword,role);
+        // L'adresse email apparaît dans les personnes en cache
+        LookupCaches.invalidateAll();
     }
 
     public boolean deleteOneUser(String email){
-        return userDAO.deleteUser(email);
+        boolean supprime = userDAO.deleteUser(email);
+        LookupCaches.invalidateAll();
+        return supprime;
     }
 
     public User findByNoss(String noss) {
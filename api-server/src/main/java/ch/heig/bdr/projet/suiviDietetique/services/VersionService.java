@@ -0,0 +1,67 @@
+package ch.heig.bdr.projet.suiviDietetique.services;
+
+import ch.heig.bdr.projet.suiviDietetique.dao.VersionDAO;
+import ch.heig.bdr.projet.suiviDietetique.models.Version;
+
+/**
+ * Versions des ressources servies avec un ETag (requêtes HTTP conditionnelles).
+ *
+ * La version doit être lue avant les données : si une modification a lieu entre les deux,
+ * le client reçoit les nouvelles données avec l'ancienne version, et les relit simplement
+ * à la requête suivante. L'inverse (une version plus récente que les données) est impossible.
+ */
+public class VersionService {
+    /** Tables lues par les vues des employés (employe_vue) */
+    private static final String[] TABLES_EMPLOYE = {"personne", "utilisateur", "employe", "service"};
+
+    private final VersionDAO versionDAO = new VersionDAO();
+
+    /**
+     * Version de la liste des allergènes déclarés.
+     *
+     * @return La version
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionAllergenes() throws Exception {
+        return versionDAO.getVersionTables("est_allergique");
+    }
+
+    /**
+     * Version de la liste des diététiciens.
+     *
+     * @return La version
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionDieteticiens() throws Exception {
+        return versionDAO.getVersionTables(tablesEmploye("dieteticien"));
+    }
+
+    /**
+     * Version de la liste des infirmiers.
+     *
+     * @return La version
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionInfirmiers() throws Exception {
+        return versionDAO.getVersionTables(tablesEmploye("infirmier"));
+    }
+
+    /**
+     * Version de l'historique d'un patient : repas, données de santé et objectifs.
+     *
+     * @param noss Le numéro de sécurité sociale du patient
+     * @return La version
+     * @throws NumberFormatException Si le numéro n'est pas un entier
+     * @throws Exception Si la lecture échoue
+     */
+    public Version getVersionPatient(String noss) throws Exception {
+        return versionDAO.getVersionPatient(Integer.parseInt(noss));
+    }
+
+    private static String[] tablesEmploye(String table) {
+        String[] tables = new String[TABLES_EMPLOYE.length + 1];
+        System.arraycopy(TABLES_EMPLOYE, 0, tables, 0, TABLES_EMPLOYE.length);
+        tables[TABLES_EMPLOYE.length] = table;
+        return tables;
+    }
+}
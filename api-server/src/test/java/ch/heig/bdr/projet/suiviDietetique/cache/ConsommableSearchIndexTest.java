@@ -0,0 +1,273 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests de la recherche des consommables par nom : normalisation, correspondances exactes
+ * par préfixe et tolérance aux fautes (substitutions, insertions, suppressions et inversions),
+ * vérifiées contre un parcours complet du catalogue.
+ */
+class ConsommableSearchIndexTest {
+
+    private static final String[] NOMS = {
+            "Yaourt nature", "Chocolat noir", "Fromage blanc", "Pomme", "Lentilles vertes",
+            "Crème brûlée", "Pomme de terre", "Œuf dur", "Chocolat au lait", "Pâtes complètes"};
+
+    private static ConsommableSearchIndex index() {
+        int[] ids = new int[NOMS.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        return new ConsommableSearchIndex(ids, NOMS);
+    }
+
+    @Test
+    void lesNomsSontNormalises() {
+        assertEquals("creme brulee", ConsommableSearchIndex.normaliser("  Crème-Brûlée ! "));
+        assertEquals("oeuf dur", ConsommableSearchIndex.normaliser("Œuf (dur)"));
+        assertEquals("", ConsommableSearchIndex.normaliser(" ... "));
+    }
+
+    @Test
+    void lesPrefixesExactsSontTrouvesDansLOrdreDAffichage() {
+        ConsommableSearchIndex index = index();
+
+        // Nom le plus court d'abord, puis ordre alphabétique
+        assertArrayEquals(new int[] {4, 7}, index.chercher("pom", 10));
+        assertArrayEquals(new int[] {2, 9}, index.chercher("CHOCO", 10));
+        assertArrayEquals(new int[] {6}, index.chercher("creme", 10));
+        assertArrayEquals(new int[] {8}, index.chercher("oeuf", 10));
+        assertArrayEquals(new int[] {9}, index.chercher("lait choc", 10));
+        assertArrayEquals(new int[] {4}, index.chercher("pom", 1));
+        assertArrayEquals(new int[0], index.chercher("  ", 10));
+        assertArrayEquals(new int[0], index.chercher("kiwi", 10));
+    }
+
+    @Test
+    void uneFauteEstTolereeAPartirDeCinqLettres() {
+        ConsommableSearchIndex index = index();
+
+        assertArrayEquals(new int[] {1}, index.chercher("yaourh", 10), "Substitution");
+        assertArrayEquals(new int[] {1}, index.chercher("ymaourt", 10), "Insertion");
+        assertArrayEquals(new int[] {3}, index.chercher("fromge", 10), "Suppression");
+        assertArrayEquals(new int[] {2, 9}, index.chercher("chocolta", 10), "Inversion finale");
+        assertArrayEquals(new int[] {2, 9}, index.chercher("cohcolat", 10), "Inversion initiale");
+        assertArrayEquals(new int[0], index.chercher("yoaurht", 10), "Deux fautes sur sept lettres");
+    }
+
+    @Test
+    void lesFautesDansUnPrefixeCourtSontTolerees() {
+        ConsommableSearchIndex index = index();
+
+        // Cinq lettres : une faute peut modifier tous les trigrammes du mot
+        assertArrayEquals(new int[] {1}, index.chercher("yoaur", 10));
+        assertArrayEquals(new int[] {6}, index.chercher("cerme", 10));
+        assertArrayEquals(new int[] {3}, index.chercher("fromga", 10));
+        assertArrayEquals(new int[] {4, 7}, index.chercher("pomne", 10));
+        // Moins de cinq lettres : pas de faute tolérée
+        assertArrayEquals(new int[0], index.chercher("yoau", 10));
+        assertArrayEquals(new int[0], index.chercher("pone", 10));
+    }
+
+    @Test
+    void deuxFautesSontTolereesAPartirDeNeufLettres() {
+        ConsommableSearchIndex index = index();
+
+        assertArrayEquals(new int[] {5}, index.chercher("lentillles", 10));
+        assertArrayEquals(new int[] {5}, index.chercher("lnetilels", 10));
+        assertArrayEquals(new int[] {2, 9}, index.chercher("hcocolatt", 10));
+    }
+
+    @Test
+    void lesCorrespondancesExactesPassentAvantLesFautes() {
+        ConsommableSearchIndex index = new ConsommableSearchIndex(new int[] {1, 2, 3},
+                new String[] {"Poire", "Poise", "Poireau"});
+
+        assertArrayEquals(new int[] {1, 3, 2}, index.chercher("poire", 10));
+        // Assez de correspondances exactes : la recherche approchée n'est pas faite
+        assertArrayEquals(new int[] {1, 3}, index.chercher("poire", 2));
+        assertArrayEquals(new int[] {1}, index.chercher("poire", 1));
+    }
+
+    @Test
+    void lesConsommablesExclusSontIgnores() {
+        ConsommableSearchIndex index = index();
+        BitSet exclus = new BitSet();
+        exclus.set(index.position(4));
+
+        List<ConsommableSearchIndex.Resultat> resultats =
+                index.chercher(ConsommableSearchIndex.Requete.de("pomme"), 10, exclus);
+
+        assertEquals(1, resultats.size());
+        assertEquals(7, resultats.get(0).id());
+        assertEquals(-1, index.position(42));
+    }
+
+    @Test
+    void laDistanceDePrefixeCompteUneInversionCommeUneFaute() {
+        assertEquals(0, ConsommableSearchIndex.distancePrefixe("choco", "chocolat", 2));
+        assertEquals(1, ConsommableSearchIndex.distancePrefixe("yoaur", "yaourt", 1));
+        assertEquals(1, ConsommableSearchIndex.distancePrefixe("ab", "ba", 1));
+        assertEquals(1, ConsommableSearchIndex.distancePrefixe("ab", "ba", 0));
+        assertEquals(2, ConsommableSearchIndex.distancePrefixe("xyzab", "abcde", 1));
+        assertEquals(3, ConsommableSearchIndex.distancePrefixe("chocolat", "choc", 2));
+    }
+
+    @Test
+    void laDistanceDePrefixeEstCelleDuMeilleurDebutDeTerme() {
+        Random random = new Random(7);
+        for (int essai = 0; essai < 5_000; essai++) {
+            String mot = mot(random, 1 + random.nextInt(8), "abc");
+            String terme = mot(random, random.nextInt(10), "abc");
+            int max = random.nextInt(3);
+
+            int attendue = Integer.MAX_VALUE;
+            for (int j = 0; j <= terme.length(); j++) {
+                attendue = Math.min(attendue, distance(mot, terme.substring(0, j)));
+            }
+            assertEquals(Math.min(attendue, max + 1), ConsommableSearchIndex.distancePrefixe(mot, terme, max),
+                    mot + " / " + terme + " / " + max);
+        }
+    }
+
+    /**
+     * Des catalogues aléatoires aux termes voisins sont interrogés avec des préfixes de termes
+     * modifiés au hasard. Les résultats doivent être exactement les meilleurs d'un parcours
+     * de tous les consommables.
+     */
+    @Test
+    void lesResultatsSontCeuxDuParcoursComplet() {
+        Random random = new Random(42);
+        for (int essai = 0; essai < 20; essai++) {
+            int taille = 50 + random.nextInt(300);
+            List<String> racines = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                racines.add(mot(random, 3 + random.nextInt(9), "aeioulnrst"));
+            }
+            int[] ids = new int[taille];
+            String[] noms = new String[taille];
+            for (int i = 0; i < taille; i++) {
+                ids[i] = 1000 + i;
+                StringBuilder nom = new StringBuilder();
+                for (int m = 1 + random.nextInt(3); m > 0; m--) {
+                    nom.append(modifier(random, racines.get(random.nextInt(racines.size())), random.nextInt(2)))
+                            .append(' ');
+                }
+                noms[i] = nom.toString();
+            }
+            ConsommableSearchIndex index = new ConsommableSearchIndex(ids, noms);
+
+            for (int q = 0; q < 200; q++) {
+                StringBuilder texte = new StringBuilder();
+                for (int m = 1 + random.nextInt(2); m > 0; m--) {
+                    String racine = racines.get(random.nextInt(racines.size()));
+                    String prefixe = racine.substring(0, 1 + random.nextInt(racine.length()));
+                    texte.append(modifier(random, prefixe, random.nextInt(3))).append(' ');
+                }
+                ConsommableSearchIndex.Requete requete = ConsommableSearchIndex.Requete.de(texte.toString());
+                int limite = 1 + random.nextInt(20);
+
+                assertEquals(parcourir(ids, noms, requete, limite), index.chercher(requete, limite, null),
+                        "Requête « " + texte + "», limite " + limite);
+            }
+        }
+    }
+
+    /**
+     * Compare la requête à chaque consommable et retourne les meilleurs résultats.
+     */
+    private static List<ConsommableSearchIndex.Resultat> parcourir(int[] ids, String[] noms,
+                                                                  ConsommableSearchIndex.Requete requete, int limite) {
+        List<ConsommableSearchIndex.Resultat> resultats = new ArrayList<>();
+        if (requete.estVide()) {
+            return resultats;
+        }
+        suivant:
+        for (int i = 0; i < ids.length; i++) {
+            String cle = ConsommableSearchIndex.normaliser(noms[i]);
+            String[] termes = cle.split(" ");
+            int total = 0;
+            for (int m = 0; m < requete.mots().length; m++) {
+                String mot = requete.mots()[m];
+                int maxFautes = requete.fautes()[m];
+                int meilleur = maxFautes + 1;
+                for (String terme : termes) {
+                    meilleur = Math.min(meilleur, terme.startsWith(mot) ? 0
+                            : ConsommableSearchIndex.distancePrefixe(mot, terme, maxFautes));
+                }
+                if (meilleur > maxFautes) {
+                    continue suivant;
+                }
+                total += meilleur;
+            }
+            resultats.add(new ConsommableSearchIndex.Resultat(ids[i], total, cle));
+        }
+        resultats.sort(ConsommableSearchIndex.ORDRE);
+        return new ArrayList<>(resultats.subList(0, Math.min(limite, resultats.size())));
+    }
+
+    /**
+     * Distance d'édition avec inversion de deux lettres voisines, par récurrence directe.
+     */
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
+                        d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String mot(Random random, int longueur, String lettres) {
+        StringBuilder mot = new StringBuilder(longueur);
+        for (int i = 0; i < longueur; i++) {
+            mot.append(lettres.charAt(random.nextInt(lettres.length())));
+        }
+        return mot.toString();
+    }
+
+    /**
+     * Applique des fautes au hasard à un mot : substitution, insertion, suppression ou inversion.
+     */
+    private static String modifier(Random random, String mot, int fautes) {
+        StringBuilder modifie = new StringBuilder(mot);
+        for (int f = 0; f < fautes && !modifie.isEmpty(); f++) {
+            int i = random.nextInt(modifie.length());
+            char lettre = "aeioulnrst".charAt(random.nextInt(10));
+            switch (random.nextInt(4)) {
+                case 0 -> modifie.setCharAt(i, lettre);
+                case 1 -> modifie.insert(i, lettre);
+                case 2 -> {
+                    if (modifie.length() > 1) {
+                        modifie.deleteCharAt(i);
+                    }
+                }
+                default -> {
+                    if (i + 1 < modifie.length()) {
+                        char a = modifie.charAt(i);
+                        modifie.setCharAt(i, modifie.charAt(i + 1));
+                        modifie.setCharAt(i + 1, a);
+                    }
+                }
+            }
+        }
+        return modifie.toString();
+    }
+}
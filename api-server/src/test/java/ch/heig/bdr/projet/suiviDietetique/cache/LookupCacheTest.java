@@ -0,0 +1,196 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du cache des lectures par clé : succès, invalidation et garde de génération
+ * (une lecture commencée avant une invalidation n'est pas mise en cache).
+ */
+class LookupCacheTest {
+
+    private static LookupCache<Integer, String> cache() {
+        return new LookupCache<>("test", 1 << 20, 3600, value -> 64, 64);
+    }
+
+    @Test
+    void uneValeurLueEstServieDepuisLeCache() {
+        LookupCache<Integer, String> cache = cache();
+        AtomicInteger lectures = new AtomicInteger();
+
+        assertEquals("a", cache.get(1, () -> { lectures.incrementAndGet(); return "a"; }));
+        assertEquals("a", cache.get(1, () -> { lectures.incrementAndGet(); return "b"; }));
+
+        assertEquals(1, lectures.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void uneValeurNulleNestPasMiseEnCache() {
+        LookupCache<Integer, String> cache = cache();
+
+        assertNull(cache.get(1, () -> null));
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void uneInvalidationForceUneNouvelleLecture() {
+        LookupCache<Integer, String> cache = cache();
+        cache.get(1, () -> "ancienne");
+
+        cache.invalidate(1);
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals("nouvelle", cache.get(1, () -> "nouvelle"));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    void unCacheInactifEstContourne() {
+        AtomicBoolean actif = new AtomicBoolean(true);
+        LookupCache<Integer, String> cache = new LookupCache<>("test", 1 << 20, 3600, value -> 64, 64, actif::get);
+        cache.get(1, () -> "ancienne");
+
+        // Invalidations non reçues : l'entrée en cache n'est plus servie, ni remplacée
+        actif.set(false);
+        assertEquals("nouvelle", cache.get(1, () -> "nouvelle"));
+        assertNull(cache.getIfPresent(1));
+        assertEquals(1, cache.getBypasses());
+
+        // L'entrée est conservée : c'est à la reprise des invalidations de vider le cache
+        actif.set(true);
+        assertEquals("ancienne", cache.getIfPresent(1));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void uneLectureCommenceeAvantUneInvalidationNestPasMiseEnCache() throws Exception {
+        LookupCache<Integer, String> cache = cache();
+        CountDownLatch lectureCommencee = new CountDownLatch(1);
+        CountDownLatch invalidationFaite = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> lecture = executor.submit(() -> cache.get(1, () -> {
+                lectureCommencee.countDown();
+                await(invalidationFaite);
+                return "périmée";
+            }));
+            await(lectureCommencee);
+            cache.invalidate(1);
+            invalidationFaite.countDown();
+
+            // La lecture en cours retourne sa valeur, mais ne la met pas en cache
+            assertEquals("périmée", lecture.get(10, TimeUnit.SECONDS));
+            assertNull(cache.getIfPresent(1));
+            assertEquals("à jour", cache.get(1, () -> "à jour"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void uneInvalidationTotaleBloqueAussiLesLecturesEnCours() throws Exception {
+        LookupCache<Integer, String> cache = cache();
+        CountDownLatch lectureCommencee = new CountDownLatch(1);
+        CountDownLatch invalidationFaite = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> lecture = executor.submit(() -> cache.get(2, () -> {
+                lectureCommencee.countDown();
+                await(invalidationFaite);
+                return "périmée";
+            }));
+            await(lectureCommencee);
+            cache.invalidateAll();
+            invalidationFaite.countDown();
+
+            lecture.get(10, TimeUnit.SECONDS);
+            assertNull(cache.getIfPresent(2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Des écrivains modifient une valeur en base puis invalident la clé, pendant que des
+     * lecteurs relisent la valeur en parallèle. Une fois les écritures terminées, le cache
+     * ne doit jamais servir une valeur antérieure à la dernière écriture.
+     */
+    @Test
+    void lesRelecturesConcurrentesNeRestaurentPasUneValeurPerimee() throws Exception {
+        int ecrivains = 2;
+        int lecteurs = 4;
+        int ecrituresParEcrivain = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(ecrivains + lecteurs);
+        try {
+            for (int essai = 0; essai < 5; essai++) {
+                LookupCache<Integer, Integer> cache = new LookupCache<>("test", 1 << 20, 3600, value -> 16, 16);
+                AtomicInteger base = new AtomicInteger();
+                AtomicBoolean termine = new AtomicBoolean();
+                List<Future<?>> taches = new ArrayList<>();
+                for (int i = 0; i < lecteurs; i++) {
+                    taches.add(executor.submit(() -> {
+                        while (!termine.get()) {
+                            cache.get(1, () -> {
+                                int valeur = base.get();
+                                // Élargit la fenêtre entre la lecture et la mise en cache
+                                Thread.yield();
+                                return valeur;
+                            });
+                        }
+                    }));
+                }
+                List<Future<?>> ecritures = new ArrayList<>();
+                for (int i = 0; i < ecrivains; i++) {
+                    ecritures.add(executor.submit(() -> {
+                        for (int n = 0; n < ecrituresParEcrivain; n++) {
+                            base.incrementAndGet();
+                            cache.invalidate(1);
+                        }
+                    }));
+                }
+                for (Future<?> ecriture : ecritures) {
+                    ecriture.get(60, TimeUnit.SECONDS);
+                }
+                termine.set(true);
+                for (Future<?> tache : taches) {
+                    tache.get(60, TimeUnit.SECONDS);
+                }
+
+                int attendu = ecrivains * ecrituresParEcrivain;
+                assertEquals(attendu, base.get());
+                Integer enCache = cache.getIfPresent(1);
+                assertTrue(enCache == null || enCache == attendu, "Valeur périmée en cache : " + enCache);
+                assertEquals(attendu, cache.get(1, base::get));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Délai dépassé");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.models.DonneeSante;
+import ch.heig.bdr.projet.suiviDietetique.models.NiveauActivitePhysique;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du codage des séries de mesures de santé : chaque série codée doit être relue à
+ * l'identique (dates à la seconde, valeurs et niveau d'activité).
+ */
+class SerieSanteTest {
+    private static final String NOSS = "100000001";
+
+    private static final NiveauActivitePhysique[] NIVEAUX = NiveauActivitePhysique.values();
+
+    private static DonneeSante mesure(long date, int taille, int poids, int tourDeTaille, NiveauActivitePhysique niveau) {
+        return new DonneeSante(NOSS, OffsetDateTime.ofInstant(Instant.ofEpochSecond(date), ZoneOffset.UTC),
+                taille, poids, tourDeTaille, niveau.name);
+    }
+
+    private static void assertMemesMesures(List<DonneeSante> attendues, List<DonneeSante> lues) {
+        assertEquals(attendues.size(), lues.size());
+        for (int i = 0; i < attendues.size(); i++) {
+            DonneeSante attendue = attendues.get(i);
+            DonneeSante lue = lues.get(i);
+            String message = "Mesure " + i;
+            assertEquals(attendue.getDate().toEpochSecond(), lue.getDate().toEpochSecond(), message);
+            assertEquals(attendue.getTaille(), lue.getTaille(), message);
+            assertEquals(attendue.getPoids(), lue.getPoids(), message);
+            assertEquals(attendue.getTourDeTaille(), lue.getTourDeTaille(), message);
+            assertEquals(attendue.getNiveauActivitePhysique(), lue.getNiveauActivitePhysique(), message);
+        }
+    }
+
+    @Test
+    void uneSerieVideNeContientAucuneMesure() {
+        SerieSante serie = SerieSante.de(NOSS, List.of());
+
+        assertEquals(0, serie.getNombre());
+        assertNull(serie.derniere());
+        assertTrue(serie.entre(Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void lesDifferencesNegativesSontRelues() {
+        List<DonneeSante> mesures = List.of(
+                mesure(1_700_000_000L, 180, 95, 110, NiveauActivitePhysique.SEDENTAIRE),
+                mesure(1_700_086_400L, 179, 90, 104, NiveauActivitePhysique.TRES_ACTIF),
+                mesure(1_700_172_800L, 150, 40, 60, NiveauActivitePhysique.SEDENTAIRE),
+                mesure(1_700_259_200L, 210, 200, 180, NiveauActivitePhysique.EXTREMEMENT_ACTIF),
+                mesure(1_700_345_600L, 0, 0, 0, NiveauActivitePhysique.EXTREMEMENT_ACTIF));
+
+        assertMemesMesures(mesures, SerieSante.de(NOSS, mesures).entre(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void lesDatesIrregulieresSontRelues() {
+        // Écarts croissants, décroissants, nuls et très grands : deltas de deuxième ordre de tous signes
+        long[] dates = {-86_400L * 365 * 20, 0, 1, 3, 3, 60, 61, 3_600, 3_601, 1_000_000_000L,
+                1_000_000_007L, 4_000_000_000L, 4_000_000_001L};
+        List<DonneeSante> mesures = new ArrayList<>();
+        for (int i = 0; i < dates.length; i++) {
+            mesures.add(mesure(dates[i], 170, 70 + i, 80, NIVEAUX[i % NIVEAUX.length]));
+        }
+
+        assertMemesMesures(mesures, SerieSante.de(NOSS, mesures).entre(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void lesValeursExtremesSontRelues() {
+        List<DonneeSante> mesures = List.of(
+                mesure(LocalDateTime.MIN.toEpochSecond(ZoneOffset.UTC), Integer.MAX_VALUE, Integer.MIN_VALUE, 0, NiveauActivitePhysique.SEDENTAIRE),
+                mesure(0, Integer.MIN_VALUE, Integer.MAX_VALUE, -1, NiveauActivitePhysique.TRES_ACTIF),
+                mesure(LocalDateTime.MAX.toEpochSecond(ZoneOffset.UTC), 1, -1, Integer.MAX_VALUE, NiveauActivitePhysique.SEDENTAIRE));
+
+        assertMemesMesures(mesures, SerieSante.de(NOSS, mesures).entre(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void desSeriesAleatoiresSontReluesALIdentique() {
+        Random random = new Random(42);
+        for (int essai = 0; essai < 200; essai++) {
+            List<DonneeSante> mesures = new ArrayList<>();
+            long date = random.nextInt() * 1000L;
+            int taille = 100 + random.nextInt(100);
+            int poids = 30 + random.nextInt(150);
+            int tourDeTaille = 50 + random.nextInt(100);
+            for (int i = random.nextInt(100); i >= 0; i--) {
+                // Mesures quotidiennes à heure variable, parfois à la même seconde ou après une longue absence
+                date += switch (random.nextInt(5)) {
+                    case 0 -> 0;
+                    case 1 -> random.nextInt(1_000_000_000);
+                    default -> 86_400 + random.nextInt(7_200) - 3_600;
+                };
+                taille += random.nextInt(5) - 2;
+                poids += random.nextInt(21) - 10;
+                tourDeTaille += random.nextInt(11) - 5;
+                mesures.add(mesure(date, taille, poids, tourDeTaille, NIVEAUX[random.nextInt(NIVEAUX.length)]));
+            }
+            SerieSante serie = SerieSante.de(NOSS, mesures);
+
+            assertMemesMesures(mesures, serie.entre(Long.MIN_VALUE, Long.MAX_VALUE));
+            assertMemesMesures(mesures.subList(mesures.size() - 1, mesures.size()), List.of(serie.derniere()));
+        }
+    }
+
+    @Test
+    void desMesuresRegulieresSansChangementOccupentUnOctet() {
+        List<DonneeSante> mesures = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            mesures.add(mesure(1_700_000_000L + i * 86_400L, 175, 72, 85, NiveauActivitePhysique.SEDENTAIRE));
+        }
+        SerieSante serie = SerieSante.de(NOSS, mesures);
+
+        // En-tête seul à partir de la troisième mesure : écart constant et valeurs inchangées
+        assertTrue(serie.getOctets() < 1_000 + 32, "Série trop grande : " + serie.getOctets());
+        assertMemesMesures(mesures, serie.entre(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void lesLecturesParPeriodeUtilisentUnIntervalleSemiOuvert() {
+        List<DonneeSante> mesures = List.of(
+                mesure(100, 170, 70, 80, NiveauActivitePhysique.SEDENTAIRE),
+                mesure(200, 170, 71, 80, NiveauActivitePhysique.SEDENTAIRE),
+                mesure(300, 170, 72, 80, NiveauActivitePhysique.SEDENTAIRE));
+        SerieSante serie = SerieSante.de(NOSS, mesures);
+
+        assertMemesMesures(mesures.subList(1, 2), serie.entre(200, 300));
+        assertTrue(serie.contient(200));
+        assertFalse(serie.contient(250));
+        assertFalse(serie.contient(400));
+    }
+
+    @Test
+    void uneMesureAnterieureEstRefuseeEtUnDoublonIgnore() {
+        DonneeSante premiere = mesure(1_000, 170, 70, 80, NiveauActivitePhysique.SEDENTAIRE);
+        SerieSante serie = SerieSante.de(NOSS, List.of(premiere, mesure(2_000, 170, 69, 80, NiveauActivitePhysique.SEDENTAIRE)));
+
+        assertFalse(serie.ajouter(premiere));
+        assertTrue(serie.ajouter(mesure(2_000, 170, 69, 80, NiveauActivitePhysique.SEDENTAIRE)));
+        assertEquals(2, serie.getNombre());
+        assertThrows(IllegalArgumentException.class, () -> SerieSante.de(NOSS,
+                List.of(mesure(2_000, 170, 70, 80, NiveauActivitePhysique.SEDENTAIRE), premiere)));
+    }
+}
@@ -0,0 +1,217 @@
+package ch.heig.bdr.projet.suiviDietetique.cache;
+
+import ch.heig.bdr.projet.suiviDietetique.models.TypeConsommable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la recherche des substituts : les k plus proches voisins trouvés dans l'arbre
+ * doivent être ceux d'une comparaison du profil à tout le catalogue, avec les filtres de
+ * type et d'exclusion.
+ */
+class SubstitutionIndexTest {
+    private static final int DIMENSIONS = SubstitutionIndex.NUTRIMENTS.size();
+
+    private static final TypeConsommable[] TYPES = {null, TypeConsommable.ALIMENT, TypeConsommable.BOISSON};
+
+    private static final int[] K = {1, 3, 10, 50};
+
+    /**
+     * Catalogue généré : identifiants croissants, types et teneurs par nutriment.
+     */
+    private record Catalogue(int[] ids, TypeConsommable[] types, float[][] colonnes) {
+
+        /**
+         * Tire des consommables autour de familles d'aliments, dont certains ont le profil
+         * exact d'un consommable précédent (égalités de distance).
+         */
+        static Catalogue aleatoire(Random random, int taille, int familles) {
+            float[][] references = new float[familles][DIMENSIONS];
+            for (float[] reference : references) {
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    reference[j] = random.nextInt(4) == 0 ? 0 : (float) Math.pow(10, random.nextDouble() * 4 - 1);
+                }
+            }
+            int[] ids = new int[taille];
+            TypeConsommable[] types = new TypeConsommable[taille];
+            float[][] colonnes = new float[DIMENSIONS][taille];
+            for (int i = 0; i < taille; i++) {
+                int famille = random.nextInt(familles);
+                ids[i] = (i == 0 ? 0 : ids[i - 1]) + 1 + random.nextInt(3);
+                types[i] = random.nextInt(3) == 0 ? TypeConsommable.BOISSON : TypeConsommable.ALIMENT;
+                int copie = i > 0 && random.nextInt(10) == 0 ? random.nextInt(i) : -1;
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    colonnes[j][i] = copie >= 0 ? colonnes[j][copie]
+                            : references[famille][j] * (float) Math.exp(random.nextGaussian() * 0.4);
+                }
+            }
+            return new Catalogue(ids, types, colonnes);
+        }
+    }
+
+    @Test
+    void lArbreTrouveLesMemesSubstitutsQueLeParcoursComplet() {
+        Random random = new Random(42);
+        for (int taille : new int[] {1, 2, 9, 17, 100, 1_000, 5_000}) {
+            Catalogue catalogue = Catalogue.aleatoire(random, taille, 1 + random.nextInt(30));
+            SubstitutionIndex index = new SubstitutionIndex(catalogue.ids(), catalogue.types(), catalogue.colonnes());
+            BitSet exclus = exclus(random, catalogue.ids());
+
+            for (int s = 0; s < Math.min(taille, 200); s++) {
+                int source = catalogue.ids()[random.nextInt(taille)];
+                for (TypeConsommable type : TYPES) {
+                    for (int k : K) {
+                        String message = "Source " + source + ", type " + type + ", k " + k + ", " + taille + " consommables";
+                        assertArrayEquals(index.parcourir(source, type, null, k), index.chercher(source, type, null, k),
+                                message);
+                        assertArrayEquals(index.parcourir(source, type, exclus, k), index.chercher(source, type, exclus, k),
+                                message + ", avec exclusions");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void lesSubstitutsSontLesPlusProchesDuProfilNormalise() {
+        Random random = new Random(7);
+        for (int essai = 0; essai < 5; essai++) {
+            Catalogue catalogue = Catalogue.aleatoire(random, 500 + random.nextInt(1_500), 1 + random.nextInt(40));
+            SubstitutionIndex index = new SubstitutionIndex(catalogue.ids(), catalogue.types(), catalogue.colonnes());
+            double[][] profils = profils(catalogue.colonnes());
+            BitSet exclus = exclus(random, catalogue.ids());
+
+            for (int s = 0; s < 50; s++) {
+                int ligne = random.nextInt(catalogue.ids().length);
+                int source = catalogue.ids()[ligne];
+                TypeConsommable type = TYPES[random.nextInt(TYPES.length)];
+                BitSet filtre = random.nextBoolean() ? exclus : null;
+                int k = K[random.nextInt(K.length)];
+
+                int[] substituts = index.chercher(source, type, filtre, k);
+                double[] attendues = plusProches(catalogue, profils, ligne, type, filtre, k);
+
+                assertEquals(attendues.length, substituts.length);
+                for (int i = 0; i < substituts.length; i++) {
+                    int l = Arrays.binarySearch(catalogue.ids(), substituts[i]);
+                    assertTrue(l != ligne, "Le consommable remplacé est proposé");
+                    assertTrue(type == null || catalogue.types()[l] == type, "Type non respecté");
+                    assertTrue(filtre == null || !filtre.get(substituts[i]), "Consommable exclu proposé");
+                    assertEquals(attendues[i], distance(profils[ligne], profils[l]), 1e-3,
+                            "Substitut " + i + " de " + source);
+                }
+            }
+        }
+    }
+
+    @Test
+    void aDistanceEgaleLIdentifiantLePlusPetitPasseEnPremier() {
+        int[] ids = {3, 5, 8, 13, 21, 34};
+        TypeConsommable[] types = new TypeConsommable[ids.length];
+        Arrays.fill(types, TypeConsommable.ALIMENT);
+        float[][] colonnes = new float[DIMENSIONS][ids.length];
+        for (int j = 0; j < DIMENSIONS; j++) {
+            // Profils identiques, sauf le dernier consommable
+            Arrays.fill(colonnes[j], 10 + j);
+            colonnes[j][ids.length - 1] = 100 + j;
+        }
+        SubstitutionIndex index = new SubstitutionIndex(ids, types, colonnes);
+
+        assertArrayEquals(new int[] {3, 5, 8, 13, 34}, index.chercher(21, null, null, 10));
+        assertArrayEquals(new int[] {3, 8}, index.chercher(5, null, null, 2));
+        assertArrayEquals(new int[] {3, 5, 8, 13, 21}, index.chercher(34, null, null, 10));
+    }
+
+    @Test
+    void lesFiltresPeuventNeLaisserAucunSubstitut() {
+        Catalogue catalogue = Catalogue.aleatoire(new Random(1), 50, 5);
+        SubstitutionIndex index = new SubstitutionIndex(catalogue.ids(), catalogue.types(), catalogue.colonnes());
+        BitSet tous = new BitSet();
+        for (int id : catalogue.ids()) {
+            tous.set(id);
+        }
+        int source = catalogue.ids()[0];
+
+        assertArrayEquals(new int[0], index.chercher(source, null, tous, 5));
+        assertEquals(49, index.chercher(source, null, null, 100).length);
+    }
+
+    @Test
+    void unConsommableAbsentEstRefuse() {
+        SubstitutionIndex index = new SubstitutionIndex(new int[] {1, 2}, new TypeConsommable[] {
+                TypeConsommable.ALIMENT, TypeConsommable.BOISSON}, new float[DIMENSIONS][2]);
+
+        assertThrows(IllegalArgumentException.class, () -> index.chercher(3, null, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> index.parcourir(0, null, null, 5));
+        assertArrayEquals(new int[] {2}, index.chercher(1, null, null, 5));
+    }
+
+    /**
+     * Calcule les profils normalisés en double : logarithme de 1 + la teneur, divisé par son écart type.
+     */
+    private static double[][] profils(float[][] colonnes) {
+        int n = colonnes[0].length;
+        double[][] profils = new double[n][DIMENSIONS];
+        for (int j = 0; j < DIMENSIONS; j++) {
+            double moyenne = 0;
+            for (int i = 0; i < n; i++) {
+                moyenne += Math.log1p(colonnes[j][i]) / n;
+            }
+            double variance = 0;
+            for (int i = 0; i < n; i++) {
+                variance += Math.pow(Math.log1p(colonnes[j][i]) - moyenne, 2) / n;
+            }
+            double ecart = Math.sqrt(variance);
+            for (int i = 0; i < n; i++) {
+                profils[i][j] = ecart > 1e-9 ? Math.log1p(colonnes[j][i]) / ecart : 0;
+            }
+        }
+        return profils;
+    }
+
+    /**
+     * Compare le profil d'une ligne à tous les autres et retourne les k plus petites distances acceptées.
+     */
+    private static double[] plusProches(Catalogue catalogue, double[][] profils, int source, TypeConsommable type,
+                                        BitSet exclus, int k) {
+        List<Double> distances = new ArrayList<>();
+        for (int l = 0; l < profils.length; l++) {
+            if (l != source && (type == null || catalogue.types()[l] == type)
+                    && (exclus == null || !exclus.get(catalogue.ids()[l]))) {
+                distances.add(distance(profils[source], profils[l]));
+            }
+        }
+        distances.sort(Comparator.naturalOrder());
+        return distances.stream().limit(k).mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double somme = 0;
+        for (int j = 0; j < a.length; j++) {
+            somme += (a[j] - b[j]) * (a[j] - b[j]);
+        }
+        return Math.sqrt(somme);
+    }
+
+    /** Exclut un consommable sur sept, comme les allergies d'un patient */
+    private static BitSet exclus(Random random, int[] ids) {
+        BitSet exclus = new BitSet();
+        for (int id : ids) {
+            if (random.nextInt(7) == 0) {
+                exclus.set(id);
+            }
+        }
+        return exclus;
+    }
+}
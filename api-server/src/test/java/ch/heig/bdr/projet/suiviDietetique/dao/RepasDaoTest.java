@@ -0,0 +1,116 @@
+package ch.heig.bdr.projet.suiviDietetique.dao;
+
+import ch.heig.bdr.projet.suiviDietetique.config.Env;
+import ch.heig.bdr.projet.suiviDietetique.models.ConsommableQuantity;
+import ch.heig.bdr.projet.suiviDietetique.models.Repas;
+import ch.heig.bdr.projet.suiviDietetique.models.TypeRepas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests de l'insertion des repas sur une base initialisée par les init-scripts (DB_URL,
+ * DB_USER, DB_PASSWORD). Ignorés si la base n'est pas joignable.
+ */
+class RepasDaoTest {
+    /** Patient et consommable sans allergène des données de test */
+    private static final String PATIENT = "100000005";
+    private static final int POMME = 1;
+    private static final int EAU = 4;
+
+    /** Dates plus précises que la microseconde, arrondies par PostgreSQL à la même valeur */
+    private static final OffsetDateTime DATE = OffsetDateTime.parse("2001-02-03T12:00:00.1234567Z");
+    private static final OffsetDateTime MEME_DATE = OffsetDateTime.parse("2001-02-03T12:00:00.1234571Z");
+
+    private final RepasDao dao = new RepasDao();
+
+    @BeforeAll
+    static void verifierBase() {
+        assumeTrue(baseDisponible(), "Base de données non joignable");
+    }
+
+    @AfterEach
+    void supprimerRepas() {
+        dao.deleteRepasPatient(PATIENT, DATE);
+    }
+
+    @Test
+    void unRepasDateAuDelaDeLaMicrosecondeEstRetrouveDansLeLot() {
+        List<OffsetDateTime> resultats = dao.insertRepasLot(List.of(repas(DATE, 2), repas(MEME_DATE, 3)));
+
+        // Le premier repas est inséré avec ses consommables, le second a la même date enregistrée
+        assertEquals(2, resultats.size());
+        assertNotNull(resultats.get(0), "Repas inséré signalé comme ignoré");
+        assertTrue(Duration.between(DATE, resultats.get(0)).abs().toNanos() < 1_000);
+        assertNull(resultats.get(1));
+        List<ConsommableQuantity> consommables = dao.getConsommablesOfRepas(PATIENT, resultats.get(0));
+        assertEquals(1, consommables.size());
+        assertEquals(2, consommables.get(0).getQuantite());
+    }
+
+    @Test
+    void lesRepasSansDateDUnMemePatientSontTousInseres() {
+        List<OffsetDateTime> resultats = dao.insertRepasLot(List.of(repas(null, 1), repas(null, 1)));
+        try {
+            assertNotNull(resultats.get(0));
+            assertNotNull(resultats.get(1));
+            assertEquals(Duration.ofSeconds(1), Duration.between(resultats.get(0), resultats.get(1)));
+        } finally {
+            for (OffsetDateTime date : resultats) {
+                if (date != null) {
+                    dao.deleteRepasPatient(PATIENT, date);
+                }
+            }
+        }
+    }
+
+    @Test
+    void lesConsommablesDUnRepasSontInseresEnUneInstruction() {
+        Repas repas = repas(null, 2);
+        repas.consommableQuantities = List.of(repas.consommableQuantities.get(0),
+                new ConsommableQuantity(EAU, "Eau", "Boisson", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3));
+
+        dao.insertRepas(repas);
+
+        OffsetDateTime date = dao.getRepasPatientPage(PATIENT, null, null, 1).get(0).dateConsommation;
+        try {
+            List<ConsommableQuantity> consommables = dao.getConsommablesOfRepas(PATIENT, date);
+            assertEquals(2, consommables.size());
+            assertEquals(5, consommables.stream().mapToInt(ConsommableQuantity::getQuantite).sum());
+        } finally {
+            dao.deleteRepasPatient(PATIENT, date);
+        }
+    }
+
+    private static Repas repas(OffsetDateTime date, int quantite) {
+        Repas repas = new Repas(PATIENT, date);
+        repas.type = TypeRepas.COLLATION;
+        ConsommableQuantity pomme = new ConsommableQuantity(POMME, "Pomme", "Aliment", 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, quantite);
+        repas.consommableQuantities = List.of(pomme);
+        return repas;
+    }
+
+    private static boolean baseDisponible() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection connection = DriverManager.getConnection(
+                Env.get("DB_URL", "jdbc:postgresql://postgresql:5432/bdr?currentSchema=suivi_dietetique"),
+                Env.get("DB_USER", "bdr"), Env.get("DB_PASSWORD", "bdr"))) {
+            return connection.isValid(2);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -94,6 +94,22 @@ CREATE TABLE suivi_dietetique.repas
     date_consommation timestamptz DEFAULT NOW(),
     type              suivi_dietetique.type_repas NOT NULL,
     remarque          TEXT,
+    -- Totaux nutritionnels du repas, calculés à l'insertion de ses consommables
+    -- (trigger tg_totaux_repas) : les lectures n'ont pas à refaire les jointures
+    nb_consommables   INTEGER        NOT NULL DEFAULT 0,
+    total_proteines   NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_glucides    NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_lipides     NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_calories    INTEGER        NOT NULL DEFAULT 0,
+    total_hydratation INTEGER        NOT NULL DEFAULT 0,
+    total_potassium   NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_cholesterol NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_sodium      NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_vit_A       NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_vit_C       NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_vit_D       NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_calcium     NUMERIC(10, 2) NOT NULL DEFAULT 0,
+    total_fer         NUMERIC(10, 2) NOT NULL DEFAULT 0,
     PRIMARY KEY (noSS_patient, date_consommation),
     FOREIGN KEY (noSS_patient) REFERENCES suivi_dietetique.patient (noSS) ON DELETE CASCADE,
     FOREIGN KEY (noSS_infirmier) REFERENCES suivi_dietetique.infirmier (noSS) ON DELETE SET NULL
@@ -194,3 +210,106 @@ CREATE TABLE suivi_dietetique.utilisateur
     PRIMARY KEY (email),
     FOREIGN KEY (noSS) REFERENCES suivi_dietetique.personne (noSS) ON DELETE CASCADE
 );
+
+-- Table Session (sessions partagées entre les répliques de l'API, SESSION_STORE=postgres)
+CREATE TABLE suivi_dietetique.session
+(
+    id         TEXT,        -- Empreinte SHA-256 du jeton transmis dans le cookie
+    email      TEXT        NOT NULL,
+    role       suivi_dietetique.role_utilisateur NOT NULL,
+    noSS       INTEGER,
+    expiration timestamptz NOT NULL,
+    PRIMARY KEY (id),
+    FOREIGN KEY (email) REFERENCES suivi_dietetique.utilisateur (email) ON DELETE CASCADE
+);
+
+-- Statistiques nutritionnelles par patient et par jour (jour local, fuseau Europe/Zurich)
+-- Tables dérivées des totaux stockés des repas, tenues à jour par les triggers tg_stats_repas :
+-- pas de clé étrangère, les lignes d'un patient supprimé disparaissent avec ses repas
+CREATE TABLE suivi_dietetique.stats_jour_patient
+(
+    noSS_patient      INTEGER,
+    jour              DATE,
+    nb_repas          INTEGER        NOT NULL,
+    total_proteines   NUMERIC(12, 2) NOT NULL,
+    total_glucides    NUMERIC(12, 2) NOT NULL,
+    total_lipides     NUMERIC(12, 2) NOT NULL,
+    total_calories    INTEGER        NOT NULL,
+    total_hydratation INTEGER        NOT NULL,
+    total_potassium   NUMERIC(12, 2) NOT NULL,
+    total_cholesterol NUMERIC(12, 2) NOT NULL,
+    total_sodium      NUMERIC(12, 2) NOT NULL,
+    total_vit_A       NUMERIC(12, 2) NOT NULL,
+    total_vit_C       NUMERIC(12, 2) NOT NULL,
+    total_vit_D       NUMERIC(12, 2) NOT NULL,
+    total_calcium     NUMERIC(12, 2) NOT NULL,
+    total_fer         NUMERIC(12, 2) NOT NULL,
+    PRIMARY KEY (noSS_patient, jour)
+);
+
+-- Statistiques nutritionnelles par patient et par semaine ISO (semaine = lundi de la semaine)
+CREATE TABLE suivi_dietetique.stats_semaine_patient
+(
+    noSS_patient      INTEGER,
+    semaine           DATE CHECK (EXTRACT(ISODOW FROM semaine) = 1),
+    nb_repas          INTEGER        NOT NULL,
+    total_proteines   NUMERIC(12, 2) NOT NULL,
+    total_glucides    NUMERIC(12, 2) NOT NULL,
+    total_lipides     NUMERIC(12, 2) NOT NULL,
+    total_calories    INTEGER        NOT NULL,
+    total_hydratation INTEGER        NOT NULL,
+    total_potassium   NUMERIC(12, 2) NOT NULL,
+    total_cholesterol NUMERIC(12, 2) NOT NULL,
+    total_sodium      NUMERIC(12, 2) NOT NULL,
+    total_vit_A       NUMERIC(12, 2) NOT NULL,
+    total_vit_C       NUMERIC(12, 2) NOT NULL,
+    total_vit_D       NUMERIC(12, 2) NOT NULL,
+    total_calcium     NUMERIC(12, 2) NOT NULL,
+    total_fer         NUMERIC(12, 2) NOT NULL,
+    PRIMARY KEY (noSS_patient, semaine)
+);
+
+-- ============================================================================
+-- Index secondaires des requêtes des DAO (filtres hors clé primaire).
+-- Les plans des requêtes sont vérifiés par QueryPlanCheck (api-server/benchmarks) :
+-- une requête qui parcourt une grande table en entier y est signalée.
+-- ============================================================================
+
+-- Index des repas servis par un infirmier, dans l'ordre de pagination (patient, date)
+CREATE INDEX repas_infirmier_idx ON suivi_dietetique.repas (noSS_infirmier, noSS_patient, date_consommation);
+
+-- Index de la jointure personne_vue -> utilisateur (pagination de patient_vue par noSS)
+CREATE INDEX utilisateur_noss_idx ON suivi_dietetique.utilisateur (noSS);
+
+-- Index des consommables d'un repas (lecture et suppression en cascade d'un repas)
+CREATE INDEX quantite_repas_consommable_repas_idx ON suivi_dietetique.quantite_repas_consommable (noSS_patient, date_consommation);
+
+-- Index des patients suivis par un diététicien (patient_vue filtrée par noss_dieteticien)
+CREATE INDEX patient_dieteticien_idx ON suivi_dietetique.patient (noSS_dieteticien);
+
+-- Index des objectifs fixés par un diététicien
+CREATE INDEX objectif_dieteticien_idx ON suivi_dietetique.objectif (noSS_dieteticien);
+
+-- ============================================================================
+-- Versions des ressources, pour les requêtes HTTP conditionnelles (ETag).
+-- Compteurs incrémentés par les triggers tg_version_* : l'API compare la version
+-- courante à celle connue du client sans relire les lignes de la ressource.
+-- ============================================================================
+
+-- Version de chaque table (une ligne par table modifiée depuis la création)
+CREATE TABLE suivi_dietetique.version_table
+(
+    nom        TEXT PRIMARY KEY,
+    version    BIGINT      NOT NULL,
+    modifie_le TIMESTAMPTZ NOT NULL
+);
+
+-- Version de l'historique de chaque patient (repas, données de santé, objectifs)
+-- Pas de clé étrangère : la ligne d'un patient supprimé est conservée, et sa version
+-- continue d'augmenter si le numéro est réutilisé
+CREATE TABLE suivi_dietetique.version_patient
+(
+    noSS       INTEGER PRIMARY KEY,
+    version    BIGINT      NOT NULL,
+    modifie_le TIMESTAMPTZ NOT NULL
+);
@@ -224,9 +224,12 @@ JOIN suivi_dietetique.consommable c ON q.id_consommable = c.id;
 
 
 
--- Statistiques de santé actuelles par patient
+-- Statistiques de santé actuelles par patient (dernière mesure de chaque patient)
+-- DISTINCT ON lit les mesures dans l'ordre de la clé primaire ; un filtre sur noSS_patient
+-- est appliqué avant le tri, contrairement à une sous-requête MAX(date) corrélée
 CREATE OR REPLACE VIEW suivi_dietetique.stats_sante_actuelles AS
-SELECT ds.noSS_patient,
+SELECT DISTINCT ON (ds.noSS_patient)
+       ds.noSS_patient,
        pw.nom    AS patient_nom,
        pw.prenom AS patient_prenom,
        ds.date,
@@ -237,36 +240,523 @@ SELECT ds.noSS_patient,
        ROUND(ds.poids / (ds.taille / 100.0)^2, 2) AS IMC
 FROM suivi_dietetique.donnees_sante ds
          JOIN patient_vue pw ON ds.noSS_patient = pw.noSS
-WHERE ds.date = (SELECT MAX(date)
-                 FROM suivi_dietetique.donnees_sante d
-                 WHERE d.noSS_patient = ds.noSS_patient);
+ORDER BY ds.noSS_patient, ds.date DESC;
 
 ------------------------------------------------------------------------------------
 -- TRIGGERS
 ------------------------------------------------------------------------------------
 
 -- Triggers permettant de vérifier les allergies d'un patient
+-- L'API vérifie les allergies avant l'insertion (index en mémoire) ; ce trigger reste le garde-fou
+-- final. Il est exécuté une fois par instruction, sur l'ensemble des lignes insérées.
+-- Le code SQLSTATE 'SDA01' permet à l'API d'identifier l'erreur sans analyser son message.
 CREATE OR REPLACE FUNCTION suivi_dietetique.verifier_allergies()
     RETURNS TRIGGER AS
 $$
+DECLARE
+    _noSS INTEGER;
 BEGIN
-    IF EXISTS (SELECT 1
-               FROM suivi_dietetique.est_allergique ea
-                        JOIN suivi_dietetique.peut_contenir pc ON ea.nom_allergene = pc.nom_allergene
-               WHERE ea.noSS_patient = NEW.noSS_patient
-                 AND pc.id_consommable = NEW.id_consommable) THEN
-        RAISE EXCEPTION 'Patient % est allergique à un ingrédient de ce consommable.', NEW.noSS_patient;
+    SELECT n.noSS_patient
+    INTO _noSS
+    FROM nouvelles_lignes n
+             JOIN suivi_dietetique.est_allergique ea ON ea.noSS_patient = n.noSS_patient
+             JOIN suivi_dietetique.peut_contenir pc ON pc.nom_allergene = ea.nom_allergene
+        AND pc.id_consommable = n.id_consommable
+    LIMIT 1;
+    IF FOUND THEN
+        RAISE EXCEPTION 'Patient % est allergique à un ingrédient de ce consommable.', _noSS
+            USING ERRCODE = 'SDA01';
     END IF;
-    RETURN NEW;
+    RETURN NULL;
 END;
 $$ LANGUAGE plpgsql;
 
-CREATE OR REPLACE TRIGGER suivi_dietetique.tg_verifier_allergies
-    BEFORE INSERT
+CREATE OR REPLACE TRIGGER tg_verifier_allergies
+    AFTER INSERT
     ON suivi_dietetique.quantite_repas_consommable
-    FOR EACH ROW
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
 EXECUTE FUNCTION verifier_allergies();
 
+-- Triggers notifiant les instances de l'API d'une modification des allergies des patients
+-- La notification contient les noSS des patients concernés (vide si la liste est trop longue
+-- ou inconnue : l'index des allergies est alors entièrement reconstruit)
+CREATE OR REPLACE FUNCTION suivi_dietetique.notifier_allergie_modifiee()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    _patients TEXT;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('allergie_modifiee', '');
+        RETURN NULL;
+    ELSIF TG_OP = 'INSERT' THEN
+        SELECT string_agg(DISTINCT noSS_patient::TEXT, ',') INTO _patients FROM nouvelles_lignes;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT string_agg(DISTINCT noSS_patient::TEXT, ',') INTO _patients FROM anciennes_lignes;
+    ELSE
+        SELECT string_agg(DISTINCT noSS_patient::TEXT, ',')
+        INTO _patients
+        FROM (SELECT noSS_patient FROM nouvelles_lignes
+              UNION
+              SELECT noSS_patient FROM anciennes_lignes) p;
+    END IF;
+
+    IF _patients IS NOT NULL THEN
+        -- La charge utile d'une notification est limitée à 8000 octets
+        IF length(_patients) > 7000 THEN
+            _patients := '';
+        END IF;
+        PERFORM pg_notify('allergie_modifiee', _patients);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_notifier_allergie_ajoutee
+    AFTER INSERT
+    ON suivi_dietetique.est_allergique
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_allergie_modifiee();
+
+CREATE OR REPLACE TRIGGER tg_notifier_allergie_modifiee
+    AFTER UPDATE
+    ON suivi_dietetique.est_allergique
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_allergie_modifiee();
+
+CREATE OR REPLACE TRIGGER tg_notifier_allergie_supprimee
+    AFTER DELETE
+    ON suivi_dietetique.est_allergique
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_allergie_modifiee();
+
+CREATE OR REPLACE TRIGGER tg_notifier_allergie_videe
+    AFTER TRUNCATE
+    ON suivi_dietetique.est_allergique
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_allergie_modifiee();
+
+-- Trigger notifiant les instances de l'API d'une modification des allergènes des consommables
+CREATE OR REPLACE FUNCTION suivi_dietetique.notifier_allergene_consommable_modifie()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('allergene_consommable_modifie', TG_OP);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_notifier_allergene_consommable_modifie
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.peut_contenir
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_allergene_consommable_modifie();
+
+-- Triggers notifiant les instances de l'API d'une modification des données de santé
+-- (séries de mesures en mémoire). La notification contient "noSS@date" (date en secondes) par
+-- mesure insérée : l'instance qui a inséré la mesure l'a déjà ajoutée à sa série. Elle contient
+-- "noSS" par patient dont des mesures ont été modifiées ou supprimées, et est vide si la liste
+-- est trop longue ou inconnue : toutes les séries sont alors relues.
+CREATE OR REPLACE FUNCTION suivi_dietetique.notifier_donnees_sante_modifiees()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    _mesures TEXT;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('donnees_sante_modifiees', '');
+        RETURN NULL;
+    ELSIF TG_OP = 'INSERT' THEN
+        SELECT string_agg(noSS_patient::TEXT || '@' || floor(extract(EPOCH FROM date))::BIGINT, ',')
+        INTO _mesures
+        FROM nouvelles_lignes;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT string_agg(DISTINCT noSS_patient::TEXT, ',') INTO _mesures FROM anciennes_lignes;
+    ELSE
+        SELECT string_agg(DISTINCT noSS_patient::TEXT, ',')
+        INTO _mesures
+        FROM (SELECT noSS_patient FROM nouvelles_lignes
+              UNION
+              SELECT noSS_patient FROM anciennes_lignes) p;
+    END IF;
+
+    IF _mesures IS NOT NULL THEN
+        -- La charge utile d'une notification est limitée à 8000 octets
+        IF length(_mesures) > 7000 THEN
+            _mesures := '';
+        END IF;
+        PERFORM pg_notify('donnees_sante_modifiees', _mesures);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_notifier_donnees_sante_ajout
+    AFTER INSERT
+    ON suivi_dietetique.donnees_sante
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_donnees_sante_modifiees();
+
+CREATE OR REPLACE TRIGGER tg_notifier_donnees_sante_modification
+    AFTER UPDATE
+    ON suivi_dietetique.donnees_sante
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_donnees_sante_modifiees();
+
+CREATE OR REPLACE TRIGGER tg_notifier_donnees_sante_suppression
+    AFTER DELETE
+    ON suivi_dietetique.donnees_sante
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_donnees_sante_modifiees();
+
+CREATE OR REPLACE TRIGGER tg_notifier_donnees_sante_vidage
+    AFTER TRUNCATE
+    ON suivi_dietetique.donnees_sante
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_donnees_sante_modifiees();
+
+-- Recalcule les totaux nutritionnels stockés des repas donnés à partir de leurs consommables
+-- Les valeurs nutritionnelles des consommables sont figées à ce moment : un repas n'étant
+-- jamais modifié après sa création, ses totaux ne sont calculés qu'une fois.
+CREATE OR REPLACE FUNCTION suivi_dietetique.recalculer_totaux_repas(
+    _noSS INTEGER[],
+    _dates TIMESTAMPTZ[]
+)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    UPDATE suivi_dietetique.repas r
+    SET nb_consommables   = t.nb_consommables,
+        total_proteines   = t.total_proteines,
+        total_glucides    = t.total_glucides,
+        total_lipides     = t.total_lipides,
+        total_calories    = t.total_calories,
+        total_hydratation = t.total_hydratation,
+        total_potassium   = t.total_potassium,
+        total_cholesterol = t.total_cholesterol,
+        total_sodium      = t.total_sodium,
+        total_vit_A       = t.total_vit_A,
+        total_vit_C       = t.total_vit_C,
+        total_vit_D       = t.total_vit_D,
+        total_calcium     = t.total_calcium,
+        total_fer         = t.total_fer
+    FROM (SELECT k.noSS_patient,
+                 k.date_consommation,
+                 COUNT(q.id_consommable)::INTEGER                                                       AS nb_consommables,
+                 COALESCE(ROUND(SUM((c.proteines / 100.0) * q.quantite)::NUMERIC, 2), 0)                AS total_proteines,
+                 COALESCE(ROUND(SUM((((c.glucides).fibres + (c.glucides).sucre) / 100.0) * q.quantite)::NUMERIC, 2),
+                          0)                                                                            AS total_glucides,
+                 COALESCE(ROUND(SUM(((c.lipides).total / 100.0) * q.quantite)::NUMERIC, 2), 0)          AS total_lipides,
+                 COALESCE(SUM((c.calories / 100.0) * q.quantite)::INTEGER, 0)                           AS total_calories,
+                 COALESCE(SUM(CASE WHEN c.type = 'Boisson' THEN q.quantite ELSE 0 END)::INTEGER, 0)     AS total_hydratation,
+                 COALESCE(ROUND(SUM((c.potassium / 100.0) * q.quantite)::NUMERIC, 2), 0)                AS total_potassium,
+                 COALESCE(ROUND(SUM((c.cholesterol / 100.0) * q.quantite)::NUMERIC, 2), 0)              AS total_cholesterol,
+                 COALESCE(ROUND(SUM((c.sodium / 100.0) * q.quantite)::NUMERIC, 2), 0)                   AS total_sodium,
+                 COALESCE(ROUND(SUM((c.vit_A / 100.0) * q.quantite)::NUMERIC, 2), 0)                    AS total_vit_A,
+                 COALESCE(ROUND(SUM((c.vit_C / 100.0) * q.quantite)::NUMERIC, 2), 0)                    AS total_vit_C,
+                 COALESCE(ROUND(SUM((c.vit_D / 100.0) * q.quantite)::NUMERIC, 2), 0)                    AS total_vit_D,
+                 COALESCE(ROUND(SUM((c.calcium / 100.0) * q.quantite)::NUMERIC, 2), 0)                  AS total_calcium,
+                 COALESCE(ROUND(SUM((c.fer / 100.0) * q.quantite)::NUMERIC, 2), 0)                      AS total_fer
+          FROM unnest(_noSS, _dates) AS k(noSS_patient, date_consommation)
+                   LEFT JOIN suivi_dietetique.quantite_repas_consommable q
+                             ON q.noSS_patient = k.noSS_patient
+                                 AND q.date_consommation = k.date_consommation
+                   LEFT JOIN suivi_dietetique.consommable c
+                             ON q.id_consommable = c.id
+          GROUP BY k.noSS_patient, k.date_consommation) t
+    WHERE r.noSS_patient = t.noSS_patient
+      AND r.date_consommation = t.date_consommation;
+END;
+$$;
+
+-- Triggers tenant à jour les totaux stockés des repas, une fois par instruction
+CREATE OR REPLACE FUNCTION suivi_dietetique.calculer_totaux_repas()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    _noSS  INTEGER[];
+    _dates TIMESTAMPTZ[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(noSS_patient), array_agg(date_consommation)
+        INTO _noSS, _dates
+        FROM (SELECT DISTINCT noSS_patient, date_consommation FROM nouvelles_lignes) k;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(noSS_patient), array_agg(date_consommation)
+        INTO _noSS, _dates
+        FROM (SELECT DISTINCT noSS_patient, date_consommation FROM anciennes_lignes) k;
+    ELSE
+        SELECT array_agg(noSS_patient), array_agg(date_consommation)
+        INTO _noSS, _dates
+        FROM (SELECT noSS_patient, date_consommation FROM nouvelles_lignes
+              UNION
+              SELECT noSS_patient, date_consommation FROM anciennes_lignes) k;
+    END IF;
+
+    IF _noSS IS NOT NULL THEN
+        PERFORM suivi_dietetique.recalculer_totaux_repas(_noSS, _dates);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_totaux_repas_ajout
+    AFTER INSERT
+    ON suivi_dietetique.quantite_repas_consommable
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION calculer_totaux_repas();
+
+CREATE OR REPLACE TRIGGER tg_totaux_repas_modification
+    AFTER UPDATE
+    ON suivi_dietetique.quantite_repas_consommable
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION calculer_totaux_repas();
+
+CREATE OR REPLACE TRIGGER tg_totaux_repas_suppression
+    AFTER DELETE
+    ON suivi_dietetique.quantite_repas_consommable
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION calculer_totaux_repas();
+
+-- Jour local d'un repas, utilisé pour les statistiques journalières et hebdomadaires
+CREATE OR REPLACE FUNCTION suivi_dietetique.jour_repas(_date TIMESTAMPTZ)
+    RETURNS DATE
+    LANGUAGE sql
+    IMMUTABLE
+AS
+$$
+SELECT (_date AT TIME ZONE 'Europe/Zurich')::DATE;
+$$;
+
+-- Clé du verrou consultatif des statistiques d'un patient
+-- Les patients sont répartis sur 1024 verrous : une instruction portant sur des milliers de
+-- patients (lot de repas, suppression en masse) ne prend pas un verrou par patient, ce qui
+-- épuiserait la table des verrous du serveur (out of shared memory).
+CREATE OR REPLACE FUNCTION suivi_dietetique.verrou_stats_patient(_noSS INTEGER)
+    RETURNS INTEGER
+    LANGUAGE sql
+    IMMUTABLE
+AS
+$$
+SELECT _noSS % 1024;
+$$;
+
+-- Ajoute (_signe = 1) ou retire (_signe = -1) des repas des statistiques journalières et hebdomadaires
+-- Seuls les repas ayant des consommables sont comptés, comme dans les lectures des repas.
+-- Un verrou consultatif partagé est pris par patient (voir verrou_stats_patient) : une
+-- reconstruction des statistiques de ce patient (verrou exclusif) attend la fin de la
+-- transaction, et inversement. Les verrous sont pris dans l'ordre de leur clé.
+CREATE OR REPLACE FUNCTION suivi_dietetique.appliquer_stats_repas(
+    _lignes suivi_dietetique.repas[],
+    _signe INTEGER
+)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    PERFORM pg_advisory_xact_lock_shared('suivi_dietetique.stats_jour_patient'::REGCLASS::INTEGER, p.verrou)
+    FROM (SELECT DISTINCT suivi_dietetique.verrou_stats_patient(l.noSS_patient) AS verrou
+          FROM unnest(_lignes) AS l
+          ORDER BY 1) p;
+
+    INSERT INTO suivi_dietetique.stats_jour_patient AS s
+    SELECT l.noSS_patient,
+           suivi_dietetique.jour_repas(l.date_consommation),
+           _signe * COUNT(*),
+           _signe * SUM(l.total_proteines),
+           _signe * SUM(l.total_glucides),
+           _signe * SUM(l.total_lipides),
+           _signe * SUM(l.total_calories),
+           _signe * SUM(l.total_hydratation),
+           _signe * SUM(l.total_potassium),
+           _signe * SUM(l.total_cholesterol),
+           _signe * SUM(l.total_sodium),
+           _signe * SUM(l.total_vit_A),
+           _signe * SUM(l.total_vit_C),
+           _signe * SUM(l.total_vit_D),
+           _signe * SUM(l.total_calcium),
+           _signe * SUM(l.total_fer)
+    FROM unnest(_lignes) AS l
+    WHERE l.nb_consommables > 0
+    GROUP BY 1, 2
+    ON CONFLICT (noSS_patient, jour) DO UPDATE
+        SET nb_repas          = s.nb_repas + EXCLUDED.nb_repas,
+            total_proteines   = s.total_proteines + EXCLUDED.total_proteines,
+            total_glucides    = s.total_glucides + EXCLUDED.total_glucides,
+            total_lipides     = s.total_lipides + EXCLUDED.total_lipides,
+            total_calories    = s.total_calories + EXCLUDED.total_calories,
+            total_hydratation = s.total_hydratation + EXCLUDED.total_hydratation,
+            total_potassium   = s.total_potassium + EXCLUDED.total_potassium,
+            total_cholesterol = s.total_cholesterol + EXCLUDED.total_cholesterol,
+            total_sodium      = s.total_sodium + EXCLUDED.total_sodium,
+            total_vit_A       = s.total_vit_A + EXCLUDED.total_vit_A,
+            total_vit_C       = s.total_vit_C + EXCLUDED.total_vit_C,
+            total_vit_D       = s.total_vit_D + EXCLUDED.total_vit_D,
+            total_calcium     = s.total_calcium + EXCLUDED.total_calcium,
+            total_fer         = s.total_fer + EXCLUDED.total_fer;
+
+    INSERT INTO suivi_dietetique.stats_semaine_patient AS s
+    SELECT l.noSS_patient,
+           date_trunc('week', suivi_dietetique.jour_repas(l.date_consommation))::DATE,
+           _signe * COUNT(*),
+           _signe * SUM(l.total_proteines),
+           _signe * SUM(l.total_glucides),
+           _signe * SUM(l.total_lipides),
+           _signe * SUM(l.total_calories),
+           _signe * SUM(l.total_hydratation),
+           _signe * SUM(l.total_potassium),
+           _signe * SUM(l.total_cholesterol),
+           _signe * SUM(l.total_sodium),
+           _signe * SUM(l.total_vit_A),
+           _signe * SUM(l.total_vit_C),
+           _signe * SUM(l.total_vit_D),
+           _signe * SUM(l.total_calcium),
+           _signe * SUM(l.total_fer)
+    FROM unnest(_lignes) AS l
+    WHERE l.nb_consommables > 0
+    GROUP BY 1, 2
+    ON CONFLICT (noSS_patient, semaine) DO UPDATE
+        SET nb_repas          = s.nb_repas + EXCLUDED.nb_repas,
+            total_proteines   = s.total_proteines + EXCLUDED.total_proteines,
+            total_glucides    = s.total_glucides + EXCLUDED.total_glucides,
+            total_lipides     = s.total_lipides + EXCLUDED.total_lipides,
+            total_calories    = s.total_calories + EXCLUDED.total_calories,
+            total_hydratation = s.total_hydratation + EXCLUDED.total_hydratation,
+            total_potassium   = s.total_potassium + EXCLUDED.total_potassium,
+            total_cholesterol = s.total_cholesterol + EXCLUDED.total_cholesterol,
+            total_sodium      = s.total_sodium + EXCLUDED.total_sodium,
+            total_vit_A       = s.total_vit_A + EXCLUDED.total_vit_A,
+            total_vit_C       = s.total_vit_C + EXCLUDED.total_vit_C,
+            total_vit_D       = s.total_vit_D + EXCLUDED.total_vit_D,
+            total_calcium     = s.total_calcium + EXCLUDED.total_calcium,
+            total_fer         = s.total_fer + EXCLUDED.total_fer;
+
+    -- Les périodes dont tous les repas ont été retirés disparaissent
+    IF _signe < 0 THEN
+        DELETE FROM suivi_dietetique.stats_jour_patient s
+        WHERE s.nb_repas <= 0
+          AND s.noSS_patient IN (SELECT l.noSS_patient FROM unnest(_lignes) AS l);
+        DELETE FROM suivi_dietetique.stats_semaine_patient s
+        WHERE s.nb_repas <= 0
+          AND s.noSS_patient IN (SELECT l.noSS_patient FROM unnest(_lignes) AS l);
+    END IF;
+END;
+$$;
+
+-- Triggers tenant à jour les statistiques à chaque modification des totaux d'un repas
+-- (les totaux sont écrits par tg_totaux_repas, dans la transaction d'insertion du repas)
+CREATE OR REPLACE FUNCTION suivi_dietetique.maj_stats_repas()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM suivi_dietetique.appliquer_stats_repas(ARRAY(SELECT a::suivi_dietetique.repas FROM anciennes_lignes a), -1);
+    END IF;
+    IF TG_OP = 'UPDATE' THEN
+        PERFORM suivi_dietetique.appliquer_stats_repas(ARRAY(SELECT n::suivi_dietetique.repas FROM nouvelles_lignes n), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_stats_repas_modification
+    AFTER UPDATE
+    ON suivi_dietetique.repas
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION maj_stats_repas();
+
+CREATE OR REPLACE TRIGGER tg_stats_repas_suppression
+    AFTER DELETE
+    ON suivi_dietetique.repas
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION maj_stats_repas();
+
+-- Reconstruit entièrement les statistiques des patients donnés à partir des totaux stockés des repas
+-- Utilisée pour le rattrapage de l'historique, par paquets de patients traités en parallèle.
+-- Le verrou exclusif par patient attend les transactions en cours sur ses repas ; celles qui
+-- commencent ensuite appliquent leurs modifications après la reconstruction.
+-- Retourne le nombre de repas pris en compte.
+CREATE OR REPLACE FUNCTION suivi_dietetique.reconstruire_stats_patients(_noSS INTEGER[])
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    _nb_repas INTEGER;
+BEGIN
+    PERFORM pg_advisory_xact_lock('suivi_dietetique.stats_jour_patient'::REGCLASS::INTEGER, p.verrou)
+    FROM (SELECT DISTINCT suivi_dietetique.verrou_stats_patient(n) AS verrou FROM unnest(_noSS) AS n ORDER BY 1) p;
+
+    DELETE FROM suivi_dietetique.stats_jour_patient WHERE noSS_patient = ANY (_noSS);
+    DELETE FROM suivi_dietetique.stats_semaine_patient WHERE noSS_patient = ANY (_noSS);
+
+    INSERT INTO suivi_dietetique.stats_jour_patient
+    SELECT r.noSS_patient,
+           suivi_dietetique.jour_repas(r.date_consommation),
+           COUNT(*),
+           SUM(r.total_proteines),
+           SUM(r.total_glucides),
+           SUM(r.total_lipides),
+           SUM(r.total_calories),
+           SUM(r.total_hydratation),
+           SUM(r.total_potassium),
+           SUM(r.total_cholesterol),
+           SUM(r.total_sodium),
+           SUM(r.total_vit_A),
+           SUM(r.total_vit_C),
+           SUM(r.total_vit_D),
+           SUM(r.total_calcium),
+           SUM(r.total_fer)
+    FROM suivi_dietetique.repas r
+    WHERE r.noSS_patient = ANY (_noSS)
+      AND r.nb_consommables > 0
+    GROUP BY 1, 2;
+
+    -- Les semaines sont l'agrégation des jours qui viennent d'être calculés
+    INSERT INTO suivi_dietetique.stats_semaine_patient
+    SELECT j.noSS_patient,
+           date_trunc('week', j.jour)::DATE,
+           SUM(j.nb_repas),
+           SUM(j.total_proteines),
+           SUM(j.total_glucides),
+           SUM(j.total_lipides),
+           SUM(j.total_calories),
+           SUM(j.total_hydratation),
+           SUM(j.total_potassium),
+           SUM(j.total_cholesterol),
+           SUM(j.total_sodium),
+           SUM(j.total_vit_A),
+           SUM(j.total_vit_C),
+           SUM(j.total_vit_D),
+           SUM(j.total_calcium),
+           SUM(j.total_fer)
+    FROM suivi_dietetique.stats_jour_patient j
+    WHERE j.noSS_patient = ANY (_noSS)
+    GROUP BY 1, 2;
+
+    SELECT COALESCE(SUM(j.nb_repas), 0)
+    INTO _nb_repas
+    FROM suivi_dietetique.stats_jour_patient j
+    WHERE j.noSS_patient = ANY (_noSS);
+    RETURN _nb_repas;
+END;
+$$;
+
 CREATE OR REPLACE FUNCTION suivi_dietetique.valider_utilisateur()
     RETURNS TRIGGER AS
 $$
@@ -288,17 +778,207 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
-CREATE OR REPLACE TRIGGER suivi_dietetique.tg_valider_utilisateur
+CREATE OR REPLACE TRIGGER tg_valider_utilisateur
     BEFORE INSERT OR UPDATE
     ON suivi_dietetique.utilisateur
     FOR EACH ROW
 EXECUTE FUNCTION valider_utilisateur();
 
+-- Trigger notifiant les instances de l'API d'une modification du catalogue des consommables
+CREATE OR REPLACE FUNCTION suivi_dietetique.notifier_consommable_modifie()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('consommable_modifie', TG_OP);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_notifier_consommable_modifie
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.consommable
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notifier_consommable_modifie();
+
+-- Versions des tables lues par les listes conditionnelles de l'API (voir version_table)
+CREATE OR REPLACE FUNCTION suivi_dietetique.incrementer_version_table()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO suivi_dietetique.version_table (nom, version, modifie_le)
+    VALUES (TG_TABLE_NAME, 1, clock_timestamp())
+    ON CONFLICT (nom) DO UPDATE SET version    = version_table.version + 1,
+                                    modifie_le = excluded.modifie_le;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_version_personne
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.personne
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_utilisateur
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.utilisateur
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_service
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.service
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_employe
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.employe
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_dieteticien
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.dieteticien
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_infirmier
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.infirmier
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+CREATE OR REPLACE TRIGGER tg_version_est_allergique
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON suivi_dietetique.est_allergique
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_table();
+
+-- Versions de l'historique des patients concernés par une modification (voir version_patient)
+-- Un vidage de table (TRUNCATE) incrémente la version de tous les patients connus
+CREATE OR REPLACE FUNCTION suivi_dietetique.incrementer_version_patient()
+    RETURNS TRIGGER AS
+$$
+DECLARE
+    _patients INTEGER[];
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        UPDATE suivi_dietetique.version_patient
+        SET version    = version + 1,
+            modifie_le = clock_timestamp();
+        RETURN NULL;
+    ELSIF TG_OP = 'INSERT' THEN
+        SELECT array_agg(DISTINCT noSS_patient) INTO _patients FROM nouvelles_lignes;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(DISTINCT noSS_patient) INTO _patients FROM anciennes_lignes;
+    ELSE
+        SELECT array_agg(DISTINCT noSS_patient)
+        INTO _patients
+        FROM (SELECT noSS_patient FROM nouvelles_lignes
+              UNION
+              SELECT noSS_patient FROM anciennes_lignes) p;
+    END IF;
+
+    -- Lignes verrouillées dans l'ordre des noSS (array_agg DISTINCT trie les valeurs)
+    INSERT INTO suivi_dietetique.version_patient (noSS, version, modifie_le)
+    SELECT noSS, 1, clock_timestamp()
+    FROM unnest(_patients) AS noSS
+    ON CONFLICT (noSS) DO UPDATE SET version    = version_patient.version + 1,
+                                     modifie_le = excluded.modifie_le;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER tg_version_repas_ajout
+    AFTER INSERT
+    ON suivi_dietetique.repas
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_repas_modification
+    AFTER UPDATE
+    ON suivi_dietetique.repas
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_repas_suppression
+    AFTER DELETE
+    ON suivi_dietetique.repas
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_repas_vidage
+    AFTER TRUNCATE
+    ON suivi_dietetique.repas
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_donnees_sante_ajout
+    AFTER INSERT
+    ON suivi_dietetique.donnees_sante
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_donnees_sante_modification
+    AFTER UPDATE
+    ON suivi_dietetique.donnees_sante
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_donnees_sante_suppression
+    AFTER DELETE
+    ON suivi_dietetique.donnees_sante
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_donnees_sante_vidage
+    AFTER TRUNCATE
+    ON suivi_dietetique.donnees_sante
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_objectif_ajout
+    AFTER INSERT
+    ON suivi_dietetique.objectif
+    REFERENCING NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_objectif_modification
+    AFTER UPDATE
+    ON suivi_dietetique.objectif
+    REFERENCING OLD TABLE AS anciennes_lignes NEW TABLE AS nouvelles_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_objectif_suppression
+    AFTER DELETE
+    ON suivi_dietetique.objectif
+    REFERENCING OLD TABLE AS anciennes_lignes
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
+CREATE OR REPLACE TRIGGER tg_version_objectif_vidage
+    AFTER TRUNCATE
+    ON suivi_dietetique.objectif
+    FOR EACH STATEMENT
+EXECUTE FUNCTION incrementer_version_patient();
+
 ------------------------------------------------------------------------------------
 -- FONCTIONS
 ------------------------------------------------------------------------------------
 
 -- Fonction permettant de retourner les statistiques nutritionnelles de tous les patients dans un interval
+-- Les totaux sont ceux des statistiques journalières : la période couvre les days_interval
+-- derniers jours locaux (Europe/Zurich, voir jour_repas) plus aujourd'hui, et les totaux sont
+-- les sommes des totaux arrondis de chaque repas (calories arrondies à l'entier par repas).
 CREATE OR REPLACE FUNCTION suivi_dietetique.get_stats(days_interval INT)
     RETURNS TABLE
             (
@@ -316,29 +996,23 @@ CREATE OR REPLACE FUNCTION suivi_dietetique.get_stats(days_interval INT)
 AS
 $$
 BEGIN
+    -- Lecture des statistiques journalières (voir appliquer_stats_repas) plutôt que des repas
     RETURN QUERY
-        SELECT r.noSS_patient,
-               p.nom                                                           AS patient_nom,
-               p.prenom                                                        AS patient_prenom,
-               ROUND(SUM(c.proteines * q.quantite/100)::NUMERIC, 2)                AS total_proteines,
-               ROUND(SUM((c.glucides).fibres * q.quantite/100 + (c.glucides).sucre * q.quantite/100)::NUMERIC,
-                     2)                                                        AS total_glucides,
-               ROUND(SUM((c.lipides).total * q.quantite/100)::NUMERIC, 2)          AS total_lipides,
-               SUM(CASE WHEN c.type = 'Boisson' THEN q.quantite ELSE 0 END)    AS total_hydratation,
-               SUM(c.calories * q.quantite/100)                                    AS total_calories,
-               ROUND(SUM(c.calories * q.quantite/100)::NUMERIC / days_interval, 2) AS moyenne_calories
-        FROM suivi_dietetique.repas r
-                 JOIN
-             suivi_dietetique.quantite_repas_consommable q
-             ON r.noSS_patient = q.noSS_patient AND r.date_consommation = q.date_consommation
-                 JOIN
-             suivi_dietetique.consommable c
-             ON q.id_consommable = c.id
+        SELECT s.noSS_patient,
+               p.nom                                                    AS patient_nom,
+               p.prenom                                                 AS patient_prenom,
+               SUM(s.total_proteines)                                   AS total_proteines,
+               SUM(s.total_glucides)                                    AS total_glucides,
+               SUM(s.total_lipides)                                     AS total_lipides,
+               SUM(s.total_hydratation)                                 AS total_hydratation,
+               SUM(s.total_calories)                                    AS total_calories,
+               ROUND(SUM(s.total_calories)::NUMERIC / days_interval, 2) AS moyenne_calories
+        FROM suivi_dietetique.stats_jour_patient s
                  JOIN
              patient_vue p
-             ON r.noSS_patient = p.noSS
-        WHERE r.date_consommation >= CURRENT_DATE - (days_interval || ' days')::INTERVAL
-        GROUP BY r.noSS_patient, p.nom, p.prenom;
+             ON s.noSS_patient = p.noSS
+        WHERE s.jour >= suivi_dietetique.jour_repas(now()) - days_interval
+        GROUP BY s.noSS_patient, p.nom, p.prenom;
 END;
 $$;
 
@@ -364,75 +1038,32 @@ CREATE OR REPLACE FUNCTION suivi_dietetique.get_meal_stats(
 AS
 $$
 BEGIN
+    -- Les totaux sont stockés avec le repas (voir recalculer_totaux_repas)
     RETURN QUERY
-        SELECT
-            r.noSS_patient,
-            r.date_consommation,
-            r.type,
-            r.noss_infirmier,
-
-            -- Protéines : pour 100 g => on divise par 100.0 puis * la quantite (en g)
-            ROUND(
-                SUM(
-                    (c.proteines / 100.0) * q.quantite
-                )::numeric
-            , 2) AS total_proteines,
-
-            -- Glucides : (fibres + sucre) / 100, multiplié par la quantité
-            ROUND(
-                SUM(
-                    (
-                        ((c.glucides).fibres + (c.glucides).sucre)
-                        / 100.0
-                    ) * q.quantite
-                )::numeric
-            , 2) AS total_glucides,
-
-            -- Lipides : (lipides.total / 100), multiplié par la quantité
-            ROUND(
-                SUM(
-                    (
-                        (c.lipides).total
-                        / 100.0
-                    ) * q.quantite
-                )::numeric
-            , 2) AS total_lipides,
-
-            -- Hydratation : SUM(...)::integer pour éviter le type BIGINT
-            SUM(
-                CASE
-                    WHEN c.type = 'Boisson' THEN q.quantite
-                    ELSE 0
-                END
-            )::integer                                                   AS total_hydratation,
-
-            -- Calories : (calories / 100), multiplié par la quantité
-            SUM(
-                (c.calories / 100.0) * q.quantite
-            )::integer                                                  AS total_calories
-
+        SELECT r.noSS_patient,
+               r.date_consommation,
+               r.type,
+               r.noss_infirmier,
+               r.total_proteines,
+               r.total_glucides,
+               r.total_lipides,
+               r.total_hydratation,
+               r.total_calories
         FROM suivi_dietetique.repas r
-        JOIN suivi_dietetique.quantite_repas_consommable q
-             ON r.noSS_patient = q.noSS_patient
-             AND r.date_consommation = q.date_consommation
-        JOIN suivi_dietetique.consommable c
-             ON q.id_consommable = c.id
-        JOIN suivi_dietetique.patient_vue p
-             ON r.noSS_patient = p.noSS
-
         WHERE r.noSS_patient = p_noSS_patient
           AND r.date_consommation = p_date_consommation
-
-        GROUP BY
-            r.noSS_patient,
-            r.date_consommation,
-            r.type,
-            r.noss_infirmier;
+          AND r.nb_consommables > 0;
 END;
 $$;
 
--- Fonction qui retourne la progression d'un patient sur un interval d'une date de début à une date de fin
-CREATE OR REPLACE FUNCTION suivi_dietetique.progression_patient(
+-- Fonction qui retourne la progression d'un patient sur l'intervalle [_date_debut, _date_fin] :
+-- première et dernière mesure de l'intervalle (les bornes ne doivent pas correspondre à des
+-- mesures), variations, et pentes par semaine de la régression linéaire du poids, du tour de
+-- taille et de l'IMC. Les mesures sont lues en un seul parcours de la clé primaire. L'API
+-- calcule les mêmes valeurs à partir des séries de mesures en mémoire (SerieSante).
+-- Le type de retour ayant changé, l'ancienne version doit être supprimée.
+DROP FUNCTION IF EXISTS suivi_dietetique.progression_patient(INT, TIMESTAMPTZ, TIMESTAMPTZ);
+CREATE FUNCTION suivi_dietetique.progression_patient(
     _noSS INT,
     _date_debut TIMESTAMPTZ,
     _date_fin TIMESTAMPTZ
@@ -442,26 +1073,38 @@ CREATE OR REPLACE FUNCTION suivi_dietetique.progression_patient(
                 noSS_patient       INT,
                 date_debut         TIMESTAMPTZ,
                 date_fin           TIMESTAMPTZ,
+                nb_mesures         INT,
                 delta_poids        NUMERIC,
-                delta_tourDeTaille NUMERIC
+                delta_tourDeTaille NUMERIC,
+                delta_imc          NUMERIC,
+                pente_poids        NUMERIC,
+                pente_tourDeTaille NUMERIC,
+                pente_imc          NUMERIC
             )
-    LANGUAGE plpgsql
+    LANGUAGE sql
+    STABLE
 AS
 $$
-BEGIN
-    RETURN QUERY
-        SELECT ds1.noSS_patient,
-               ds1.date                                       AS date_debut,
-               ds2.date                                       AS date_fin,
-               (ds2.poids - ds1.poids)::NUMERIC               AS delta_poids,
-               (ds2.tourDeTaille - ds1.tourDeTaille)::NUMERIC AS delta_tourDeTaille
-        FROM suivi_dietetique.donnees_sante ds1
-                 JOIN suivi_dietetique.donnees_sante ds2
-                      ON ds2.noSS_patient = ds1.noSS_patient
-        WHERE ds1.noSS_patient = _noSS
-          AND ds1.date = _date_debut
-          AND ds2.date = _date_fin;
-END;
+SELECT _noSS,
+       min(m.date),
+       max(m.date),
+       count(*)::INT,
+       ((array_agg(m.poids ORDER BY m.date DESC))[1] - (array_agg(m.poids ORDER BY m.date))[1])::NUMERIC,
+       ((array_agg(m.tourDeTaille ORDER BY m.date DESC))[1] - (array_agg(m.tourDeTaille ORDER BY m.date))[1])::NUMERIC,
+       ROUND((array_agg(m.imc ORDER BY m.date DESC))[1], 2) - ROUND((array_agg(m.imc ORDER BY m.date))[1], 2),
+       ROUND(regr_slope(m.poids, m.semaines)::NUMERIC, 2),
+       ROUND(regr_slope(m.tourDeTaille, m.semaines)::NUMERIC, 2),
+       ROUND(regr_slope(m.imc, m.semaines)::NUMERIC, 2)
+FROM (SELECT ds.date,
+             ds.poids,
+             ds.tourDeTaille,
+             ds.poids / (ds.taille / 100.0) ^ 2 AS imc,
+             extract(EPOCH FROM ds.date) / 604800 AS semaines
+      FROM suivi_dietetique.donnees_sante ds
+      WHERE ds.noSS_patient = _noSS
+        AND ds.date >= _date_debut
+        AND ds.date <= _date_fin) m
+HAVING count(*) > 0;
 $$;
 
 
@@ -512,36 +1155,21 @@ CREATE OR REPLACE FUNCTION suivi_dietetique.getRepasWithStats_Interval(
 AS
 $$
 BEGIN
+    -- Les totaux sont stockés avec le repas (voir recalculer_totaux_repas)
     RETURN QUERY
-        SELECT
-            r.date_consommation,
-            r.type,
-            r.remarque,
-            r.noss_infirmier,
-
-            -- Calcul des statistiques nutritionnelles
-            ROUND(SUM((c.proteines / 100.0) * q.quantite)::NUMERIC, 2) AS total_proteines,
-            ROUND(SUM((((c.glucides).fibres + (c.glucides).sucre) / 100.0) * q.quantite)::NUMERIC, 2) AS total_glucides,
-            ROUND(SUM(((c.lipides).total / 100.0) * q.quantite)::NUMERIC, 2) AS total_lipides,
-            SUM(CASE WHEN c.type = 'Boisson' THEN q.quantite ELSE 0 END)::INTEGER AS total_hydratation,
-            SUM((c.calories / 100.0) * q.quantite)::INTEGER AS total_calories
-
+        SELECT r.date_consommation,
+               r.type,
+               r.remarque,
+               r.noss_infirmier,
+               r.total_proteines,
+               r.total_glucides,
+               r.total_lipides,
+               r.total_hydratation,
+               r.total_calories
         FROM suivi_dietetique.repas AS r
-        JOIN suivi_dietetique.quantite_repas_consommable q
-             ON r.noss_patient = q.noSS_patient
-             AND r.date_consommation = q.date_consommation
-        JOIN suivi_dietetique.consommable c
-             ON q.id_consommable = c.id
-
         WHERE r.noss_patient = _noSS
           AND r.date_consommation >= CURRENT_DATE - (_interval::INTERVAL)
-
-        GROUP BY
-            r.date_consommation,
-            r.type,
-            r.remarque,
-            r.noss_infirmier
-
+          AND r.nb_consommables > 0
         ORDER BY r.date_consommation DESC;
 END;
 $$;
@@ -565,35 +1193,20 @@ CREATE OR REPLACE FUNCTION suivi_dietetique.getAllRepasWithStats(
 AS
 $$
 BEGIN
+    -- Les totaux sont stockés avec le repas (voir recalculer_totaux_repas)
     RETURN QUERY
-        SELECT
-            r.date_consommation,
-            r.type,
-            r.remarque,
-            r.noss_infirmier,
-
-            -- Calcul des statistiques nutritionnelles
-            ROUND(SUM((c.proteines / 100.0) * q.quantite)::NUMERIC, 2) AS total_proteines,
-            ROUND(SUM((((c.glucides).fibres + (c.glucides).sucre) / 100.0) * q.quantite)::NUMERIC, 2) AS total_glucides,
-            ROUND(SUM(((c.lipides).total / 100.0) * q.quantite)::NUMERIC, 2) AS total_lipides,
-            SUM(CASE WHEN c.type = 'Boisson' THEN q.quantite ELSE 0 END)::INTEGER AS total_hydratation,
-            SUM((c.calories / 100.0) * q.quantite)::INTEGER AS total_calories
-
+        SELECT r.date_consommation,
+               r.type,
+               r.remarque,
+               r.noss_infirmier,
+               r.total_proteines,
+               r.total_glucides,
+               r.total_lipides,
+               r.total_hydratation,
+               r.total_calories
         FROM suivi_dietetique.repas AS r
-        JOIN suivi_dietetique.quantite_repas_consommable q
-             ON r.noss_patient = q.noSS_patient
-             AND r.date_consommation = q.date_consommation
-        JOIN suivi_dietetique.consommable c
-             ON q.id_consommable = c.id
-
         WHERE r.noss_patient = _noSS
-
-        GROUP BY
-            r.date_consommation,
-            r.type,
-            r.remarque,
-            r.noss_infirmier
-
+          AND r.nb_consommables > 0
         ORDER BY r.date_consommation DESC;
 END;
 $$;
\ No newline at end of file
@@ -30,11 +30,9 @@ function PatientPage() {
   const fetchPatient = async () => {
     try {
       setLoading(true);
-      const patientData = await patientService.getPatientById(noss);
-      setPatient(patientData);
-
-      const dieteticienData = await patientService.getDieteticien(noss);
-      setDieteticien(dieteticienData);
+      const dossier = await patientService.getDossier(noss, ['patient', 'dieteticien']);
+      setPatient(dossier.patient);
+      setDieteticien(dossier.dieteticien);
     } catch (err) {
       console.error('Erreur lors de la récupération du patient :', err);
       setError('Impossible de charger les informations du patient.');
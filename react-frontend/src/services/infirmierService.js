@@ -1,4 +1,5 @@
 import axios from 'axios';
+import { getAllPages } from '../utils/utils';
 
 const API_BASE_URL = 'https://localhost/api';
 
@@ -24,8 +25,7 @@ const getInfirmierById = async (id) => {
 
 const getRepas = async (id) => {
   try {
-    const response = await axios.get(`${API_BASE_URL}/infirmiers/${id}/repas`, { withCredentials: true });
-    return response.data;
+    return await getAllPages(`${API_BASE_URL}/infirmiers/${id}/repas?limite=200`);
   } catch (error) {
     console.error(`Erreur lors de la récupération des repas de l'infirmier avec l'id ${id} :`, error);
     throw error;
@@ -1,11 +1,11 @@
 import axios from 'axios';
+import { getAllPages } from '../utils/utils';
 
 const API_BASE_URL = 'https://localhost/api';
 
 const getPatients = async () => {
   try {
-    const response = await axios.get(`${API_BASE_URL}/patients`, { withCredentials: true });
-    return response.data;
+    return await getAllPages(`${API_BASE_URL}/patients?limite=200`);
   } catch (error) {
     console.error('Erreur lors de la récupération des patients :', error);
     throw error;
@@ -32,17 +32,23 @@ const getDieteticien = async (id) => {
   }
 };
 
-const getRepas = async (id, interval) => {
+const getDossier = async (id, sections) => {
   try {
-    let response;
+    const params = sections ? `?sections=${sections.join(',')}` : '';
+    const response = await axios.get(`${API_BASE_URL}/patients/${id}/dossier${params}`, { withCredentials: true });
+    return response.data;
+  } catch (error) {
+    console.error(`Erreur lors de la récupération du dossier du patient avec l'id ${id} :`, error);
+    throw error;
+  }
+};
 
+const getRepas = async (id, interval) => {
+  try {
     if (!interval) {
-      response = await axios.get(`${API_BASE_URL}/patients/${id}/repas`, { withCredentials: true });
-    } else {
-      response = await axios.get(`${API_BASE_URL}/patients/${id}/repas?interval=${interval}`, { withCredentials: true });
+      return await getAllPages(`${API_BASE_URL}/patients/${id}/repas?limite=200`);
     }
-
-    return response.data;
+    return await getAllPages(`${API_BASE_URL}/patients/${id}/repas?limite=200&interval=${interval}`);
   } catch (error) {
     console.error(`Erreur lors de la récupération des repas du patient avec l'id ${id} :`, error);
     throw error;
@@ -134,6 +140,7 @@ export default {
   getPatients,
   getPatientById,
   getDieteticien,
+  getDossier,
   getRepas,
   getObjectifs,
   getAllergies,
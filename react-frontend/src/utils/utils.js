@@ -1,3 +1,5 @@
+import axios from 'axios';
+
 export const Roles = {
   ADMIN: "Admin",
   DIETETICIEN: "Diététicien",
@@ -18,4 +20,17 @@ export function calculateAge(dateOfBirth) {
   }
 
   return age;
-}
\ No newline at end of file
+}
+
+// Récupère tous les éléments d'une liste paginée de l'API en suivant l'en-tête Link (rel="next")
+export async function getAllPages(url) {
+  const items = [];
+  let next = url;
+  while (next) {
+    const response = await axios.get(next, { withCredentials: true });
+    items.push(...response.data);
+    const match = /<([^>]+)>;\s*rel="next"/.exec(response.headers.link || '');
+    next = match ? new URL(match[1], next).href : null;
+  }
+  return items;
+}